@@ -1,5 +1,18 @@
 package com.patientmanagement;
 
+import com.patientmanagement.archive.ArchiveService;
+import com.patientmanagement.backup.BackupResult;
+import com.patientmanagement.backup.BackupService;
+import com.patientmanagement.backup.RestoreResult;
+import com.patientmanagement.backup.RestoreService;
+import com.patientmanagement.logging.AppLog;
+import com.patientmanagement.maintenance.MaintenanceResult;
+import com.patientmanagement.maintenance.MaintenanceService;
+import com.patientmanagement.management.ManagementBeans;
+import com.patientmanagement.metrics.DaoMetrics;
+import com.patientmanagement.metrics.FxStallDetector;
+import com.patientmanagement.model.dao.OccupancyDAO;
+import com.patientmanagement.model.dao.StatisticsDAO;
 import com.patientmanagement.util.DatabaseUtil;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
@@ -7,15 +20,49 @@ import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
 /**
  * Main application class for the Patient Consultation Management System
  */
 public class Main extends Application {
     
+    // Hours between online backups while the application runs; 0 disables them
+    private static final long BACKUP_INTERVAL_HOURS = Long.getLong("patientmanagement.backup.intervalHours", 24);
+    
+    // Hours between complete maintenance runs, each started once the database is idle; 0 disables them
+    private static final long MAINTENANCE_INTERVAL_HOURS = Long.getLong("patientmanagement.maintenance.intervalHours", 6);
+    
+    // Minutes between appends of the DAO latency snapshot to the metrics log; 0 disables them
+    private static final long METRICS_DUMP_MINUTES = Long.getLong("patientmanagement.metrics.dumpMinutes", 15);
+    
+    private final BackupService backupService = new BackupService();
+    private final MaintenanceService maintenanceService = new MaintenanceService();
+    private FxStallDetector stallDetector;
+    
     @Override
     public void start(Stage primaryStage) throws Exception {
+        AppLog.setUiThread(Thread.currentThread());
+        
         // Initialize database
         DatabaseUtil.initializeDatabase();
+        if (BACKUP_INTERVAL_HOURS > 0) {
+            backupService.start(Duration.ofHours(BACKUP_INTERVAL_HOURS));
+        }
+        if (MAINTENANCE_INTERVAL_HOURS > 0) {
+            maintenanceService.start(Duration.ofHours(MAINTENANCE_INTERVAL_HOURS));
+        }
+        if (METRICS_DUMP_MINUTES > 0) {
+            DaoMetrics.startDump(Duration.ofMinutes(METRICS_DUMP_MINUTES));
+        }
+        ManagementBeans.register(backupService, maintenanceService);
+        stallDetector = FxStallDetector.install();
         
         // Load the login view
         FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/patientmanagement/view/login.fxml"));
@@ -31,11 +78,132 @@ public class Main extends Application {
         primaryStage.show();
     }
     
+    @Override
+    public void stop() {
+        backupService.stop();
+        maintenanceService.stop();
+        DaoMetrics.stopDump();
+        ManagementBeans.unregister();
+        if (stallDetector != null) {
+            stallDetector.stop();
+            // Logs an error for a UI test run that stalled more than patientmanagement.stall.budget allows
+            stallDetector.reportBudget();
+        }
+    }
+    
     /**
      * Main method to launch the application
      * @param args Command line arguments
      */
     public static void main(String[] args) {
+        if (args.length > 0 && "--rebuild-statistics".equals(args[0])) {
+            rebuildStatistics();
+            return;
+        }
+        if (args.length > 0 && "--archive".equals(args[0])) {
+            archive(args.length > 1 ? Integer.parseInt(args[1]) : ArchiveService.DEFAULT_HORIZON_DAYS);
+            return;
+        }
+        if (args.length > 0 && "--backup".equals(args[0])) {
+            backup();
+            return;
+        }
+        if (args.length > 0 && "--maintain".equals(args[0])) {
+            maintain(args.length > 1 && "--enable-incremental-vacuum".equals(args[1]));
+            return;
+        }
+        if (args.length > 1 && "--restore".equals(args[0])) {
+            restore(args[1], args.length > 2 ? args[2] : null);
+            return;
+        }
         launch(args);
     }
+    
+    /**
+     * Check the trigger-maintained rollup tables against the base tables and rebuild them
+     */
+    private static void rebuildStatistics() {
+        DatabaseUtil.initializeDatabase();
+        
+        StatisticsDAO statisticsDAO = new StatisticsDAO();
+        List<String> problems = statisticsDAO.consistencyCheck();
+        if (problems.isEmpty()) {
+            System.out.println("Statistics rollups are consistent");
+        }
+        for (String problem : problems) {
+            System.out.println(problem);
+        }
+        
+        boolean rebuilt = statisticsDAO.rebuild() && new OccupancyDAO().rebuild();
+        System.out.println(rebuilt ? "Statistics rebuilt" : "Statistics rebuild failed");
+    }
+    
+    /**
+     * Move finished appointments older than a horizon, and their medical records, to the archive database
+     * @param horizonDays Age in days of the newest appointment to archive
+     */
+    private static void archive(int horizonDays) {
+        DatabaseUtil.initializeDatabase();
+        
+        int archived = new ArchiveService(horizonDays).archive();
+        System.out.println(archived < 0 ? "Archiving failed"
+                : archived + " appointment(s) archived to " + DatabaseUtil.getArchiveFile());
+    }
+    
+    /**
+     * Take one online backup of the database and print its metrics
+     */
+    private static void backup() {
+        DatabaseUtil.initializeDatabase();
+        
+        BackupResult result = new BackupService().backup();
+        System.out.println(result == null ? "Backup failed" : "Backup written to " + result.getFile().toAbsolutePath());
+        if (result != null) {
+            System.out.println(result);
+        }
+    }
+    
+    /**
+     * Run the database maintenance tasks once and print what they did
+     * @param enableIncrementalVacuum Whether to switch an older database to incremental auto-vacuum
+     *                                first, which rewrites the whole file
+     */
+    private static void maintain(boolean enableIncrementalVacuum) {
+        DatabaseUtil.initializeDatabase();
+        
+        MaintenanceService service = new MaintenanceService();
+        if (enableIncrementalVacuum) {
+            System.out.println(service.enableIncrementalVacuum() ? "Incremental auto-vacuum enabled"
+                    : "Enabling incremental auto-vacuum failed");
+        }
+        MaintenanceResult result = service.run(false);
+        System.out.println(result == null ? "Maintenance failed" : "Maintenance: " + result);
+        if (result != null) {
+            for (String problem : result.getProblems()) {
+                System.out.println(problem);
+            }
+        }
+    }
+    
+    /**
+     * Restore the database from a backup and optionally replay the changes made since
+     * @param backup Backup file, or "latest" for the newest backup in the backup directory
+     * @param until Local date and time (e.g. 2026-03-01T14:30) of the last change to replay, or null
+     */
+    private static void restore(String backup, String until) {
+        Path file = Paths.get(backup);
+        if ("latest".equals(backup)) {
+            List<Path> backups = new BackupService().listBackups();
+            if (backups.isEmpty()) {
+                System.out.println("No backups found");
+                return;
+            }
+            file = backups.get(0);
+        }
+        Instant replayUntil = until == null ? null
+                : LocalDateTime.parse(until).atZone(ZoneId.systemDefault()).toInstant();
+        
+        RestoreResult result = new RestoreService().restore(file, replayUntil);
+        System.out.println(result == null ? "Restore failed, the database is unchanged" : result.toString());
+    }
 }
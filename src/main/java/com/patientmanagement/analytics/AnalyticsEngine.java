@@ -0,0 +1,94 @@
+package com.patientmanagement.analytics;
+
+import com.patientmanagement.model.dao.AnalyticsDAO;
+
+import java.time.LocalDate;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Keeps an AppointmentSnapshot current and answers analytical questions from it.
+ * A refresh copies the current snapshot, applies the rows added since the highest
+ * known appointment ID and the rows updated since the last refresh day, and swaps
+ * the copy in; readers keep using whichever snapshot they already hold.
+ * Deletions cannot be seen incrementally, so a row-count mismatch triggers a full reload.
+ */
+public class AnalyticsEngine {
+    
+    private final AnalyticsDAO analyticsDAO;
+    private volatile AppointmentSnapshot snapshot = AppointmentSnapshot.empty();
+    private LocalDate lastRefresh;
+    
+    public AnalyticsEngine(AnalyticsDAO analyticsDAO) {
+        this.analyticsDAO = analyticsDAO;
+    }
+    
+    /**
+     * Get the current snapshot. Use the same instance for building filters and running a query
+     * @return The snapshot of the last refresh
+     */
+    public AppointmentSnapshot snapshot() {
+        return snapshot;
+    }
+    
+    /**
+     * Bring the snapshot up to date with the appointments table
+     * @return true if the refresh succeeded
+     */
+    public synchronized boolean refresh() {
+        LocalDate today = LocalDate.now();
+        AppointmentSnapshot current = snapshot;
+        AppointmentSnapshot.Builder builder = current.toBuilder();
+        
+        // lastRefresh is kept as a day, so rows updated earlier on the last refresh day are read again
+        int total = analyticsDAO.readAppointments(current.getMaxAppointmentId(), lastRefresh, builder::put);
+        if (total < 0) {
+            return false;
+        }
+        
+        if (builder.size() != total) {
+            // Some appointments were deleted since the last refresh
+            builder = new AppointmentSnapshot.Builder();
+            total = analyticsDAO.readAppointments(0, null, builder::put);
+            if (total < 0) {
+                return false;
+            }
+        }
+        
+        snapshot = builder.build();
+        lastRefresh = today;
+        return true;
+    }
+    
+    /**
+     * No-show rate per doctor and weekday: past appointments still marked scheduled,
+     * divided by past appointments that were either completed or left scheduled
+     * @param snapshot The snapshot to query
+     * @param from First day (inclusive)
+     * @param to Last day (inclusive); days from today on are ignored
+     * @return Rate indexed by [doctorCode][weekday], Monday = 0; NaN where there were no appointments.
+     *         Use snapshot.doctorId(doctorCode) to map codes to doctors
+     */
+    public double[][] noShowRateByDoctorAndWeekday(AppointmentSnapshot snapshot, LocalDate from, LocalDate to) {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        IntPredicate past = snapshot.dateBetween(from, to.isAfter(yesterday) ? yesterday : to);
+        IntPredicate noShow = past.and(snapshot.hasStatus("scheduled"));
+        IntPredicate attendedOrNoShow = noShow.or(past.and(snapshot.hasStatus("completed")));
+        
+        // One group per (doctor, weekday) pair
+        int doctors = snapshot.doctorCount();
+        IntUnaryOperator weekday = snapshot.byWeekday();
+        IntUnaryOperator doctorAndWeekday = row -> snapshot.doctorCode(row) * 7 + weekday.applyAsInt(row);
+        long[] noShows = snapshot.groupCount(noShow, doctorAndWeekday, doctors * 7);
+        long[] totals = snapshot.groupCount(attendedOrNoShow, doctorAndWeekday, doctors * 7);
+        
+        double[][] rates = new double[doctors][7];
+        for (int doctor = 0; doctor < doctors; doctor++) {
+            for (int day = 0; day < 7; day++) {
+                int group = doctor * 7 + day;
+                rates[doctor][day] = totals[group] == 0 ? Double.NaN : (double) noShows[group] / totals[group];
+            }
+        }
+        return rates;
+    }
+}
@@ -0,0 +1,23 @@
+package com.patientmanagement.analytics;
+
+/**
+ * Receives appointment rows from AnalyticsDAO as primitives, so loading a snapshot
+ * never materialises Appointment objects
+ */
+@FunctionalInterface
+public interface AppointmentRowSink {
+    
+    /**
+     * Accept one row
+     * @param appointmentId The appointment ID
+     * @param epochDay Date as LocalDate.toEpochDay()
+     * @param startMinute Start time as minute of day
+     * @param endMinute End time as minute of day
+     * @param doctorId The doctor ID
+     * @param patientId The patient ID
+     * @param status Status in lower case
+     * @param reason Reason, trimmed and in lower case
+     */
+    void accept(int appointmentId, int epochDay, int startMinute, int endMinute,
+                int doctorId, int patientId, String status, String reason);
+}
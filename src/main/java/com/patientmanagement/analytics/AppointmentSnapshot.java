@@ -0,0 +1,353 @@
+package com.patientmanagement.analytics;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Immutable columnar copy of the appointments table. Each appointment is one index into
+ * a set of primitive arrays (about two dozen bytes per row); status, doctor and reason are
+ * dictionary encoded. Filters and group keys are IntPredicate / IntUnaryOperator over the
+ * row index, and aggregations scan the rows in parallel on a fork-join pool.
+ */
+public class AppointmentSnapshot {
+    
+    private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    
+    // Below this many rows a task scans sequentially instead of splitting
+    private static final int SEQUENTIAL_THRESHOLD = 1 << 14;
+    
+    private final int size;
+    private final int[] appointmentIds;     // ascending, used to locate rows on refresh
+    private final int[] epochDays;
+    private final short[] startMinutes;
+    private final short[] endMinutes;
+    private final short[] doctorCodes;
+    private final int[] patientIds;
+    private final byte[] statusCodes;
+    private final int[] reasonCodes;
+    private final ValueDictionary<Integer> doctors;
+    private final ValueDictionary<String> statuses;
+    private final ValueDictionary<String> reasons;
+    
+    private AppointmentSnapshot(Builder builder) {
+        this.size = builder.size;
+        this.appointmentIds = builder.appointmentIds;
+        this.epochDays = builder.epochDays;
+        this.startMinutes = builder.startMinutes;
+        this.endMinutes = builder.endMinutes;
+        this.doctorCodes = builder.doctorCodes;
+        this.patientIds = builder.patientIds;
+        this.statusCodes = builder.statusCodes;
+        this.reasonCodes = builder.reasonCodes;
+        this.doctors = builder.doctors;
+        this.statuses = builder.statuses;
+        this.reasons = builder.reasons;
+    }
+    
+    public static AppointmentSnapshot empty() {
+        return new Builder().build();
+    }
+    
+    // Column accessors, by row index
+    public int size() {
+        return size;
+    }
+    
+    public int appointmentId(int row) {
+        return appointmentIds[row];
+    }
+    
+    public int epochDay(int row) {
+        return epochDays[row];
+    }
+    
+    public int startMinute(int row) {
+        return startMinutes[row];
+    }
+    
+    public int endMinute(int row) {
+        return endMinutes[row];
+    }
+    
+    public int doctorCode(int row) {
+        return doctorCodes[row];
+    }
+    
+    public int patientId(int row) {
+        return patientIds[row];
+    }
+    
+    public int statusCode(int row) {
+        return statusCodes[row];
+    }
+    
+    public int reasonCode(int row) {
+        return reasonCodes[row];
+    }
+    
+    public int getMaxAppointmentId() {
+        return size == 0 ? 0 : appointmentIds[size - 1];
+    }
+    
+    // Dictionaries
+    public int doctorCount() {
+        return doctors.size();
+    }
+    
+    public int doctorId(int doctorCode) {
+        return doctors.decode(doctorCode);
+    }
+    
+    public int statusCount() {
+        return statuses.size();
+    }
+    
+    public String status(int statusCode) {
+        return statuses.decode(statusCode);
+    }
+    
+    public int reasonCount() {
+        return reasons.size();
+    }
+    
+    public String reason(int reasonCode) {
+        return reasons.decode(reasonCode);
+    }
+    
+    // Common filters and group keys
+    public IntPredicate dateBetween(LocalDate from, LocalDate to) {
+        int first = (int) from.toEpochDay();
+        int last = (int) to.toEpochDay();
+        return row -> epochDays[row] >= first && epochDays[row] <= last;
+    }
+    
+    public IntPredicate hasStatus(String status) {
+        int code = statuses.codeOf(status.toLowerCase());
+        return row -> statusCodes[row] == code;
+    }
+    
+    public IntPredicate forDoctor(int doctorId) {
+        int code = doctors.codeOf(doctorId);
+        return row -> doctorCodes[row] == code;
+    }
+    
+    public IntUnaryOperator byDoctor() {
+        return row -> doctorCodes[row];
+    }
+    
+    public IntUnaryOperator byStatus() {
+        return row -> statusCodes[row];
+    }
+    
+    public IntUnaryOperator byReason() {
+        return row -> reasonCodes[row];
+    }
+    
+    // Monday = 0 ... Sunday = 6; epoch day 0 was a Thursday
+    public IntUnaryOperator byWeekday() {
+        return row -> Math.floorMod(epochDays[row] + 3, 7);
+    }
+    
+    public IntUnaryOperator durationMinutes() {
+        return row -> endMinutes[row] - startMinutes[row];
+    }
+    
+    /**
+     * Count the matching rows
+     * @param filter Row filter
+     * @return Number of rows accepted by the filter
+     */
+    public long count(IntPredicate filter) {
+        return groupSum(filter, row -> 0, 1, null)[0];
+    }
+    
+    /**
+     * Count the matching rows per group
+     * @param filter Row filter
+     * @param key Group of a row, in [0, keyCount)
+     * @param keyCount Number of groups
+     * @return Count per group
+     */
+    public long[] groupCount(IntPredicate filter, IntUnaryOperator key, int keyCount) {
+        return groupSum(filter, key, keyCount, null);
+    }
+    
+    /**
+     * Sum a value over the matching rows per group, scanning in parallel
+     * @param filter Row filter
+     * @param key Group of a row, in [0, keyCount)
+     * @param keyCount Number of groups
+     * @param value Value of a row, or null to count rows
+     * @return Sum per group
+     */
+    public long[] groupSum(IntPredicate filter, IntUnaryOperator key, int keyCount, IntUnaryOperator value) {
+        if (size == 0) {
+            return new long[keyCount];
+        }
+        return POOL.invoke(new GroupTask(0, size, filter, key, keyCount, value));
+    }
+    
+    /**
+     * Approximate heap used by the columns (dictionaries excluded)
+     * @return Bytes
+     */
+    public long estimatedBytes() {
+        return (long) appointmentIds.length * (4 + 4 + 2 + 2 + 2 + 4 + 1 + 4);
+    }
+    
+    public Builder toBuilder() {
+        return new Builder(this);
+    }
+    
+    private static final class GroupTask extends RecursiveTask<long[]> {
+        
+        private static final long serialVersionUID = 1L;
+        
+        private final int from;
+        private final int to;
+        private final IntPredicate filter;
+        private final IntUnaryOperator key;
+        private final int keyCount;
+        private final IntUnaryOperator value;
+        
+        GroupTask(int from, int to, IntPredicate filter, IntUnaryOperator key, int keyCount, IntUnaryOperator value) {
+            this.from = from;
+            this.to = to;
+            this.filter = filter;
+            this.key = key;
+            this.keyCount = keyCount;
+            this.value = value;
+        }
+        
+        @Override
+        protected long[] compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                long[] sums = new long[keyCount];
+                for (int row = from; row < to; row++) {
+                    if (filter.test(row)) {
+                        sums[key.applyAsInt(row)] += value == null ? 1 : value.applyAsInt(row);
+                    }
+                }
+                return sums;
+            }
+            
+            int middle = (from + to) >>> 1;
+            GroupTask left = new GroupTask(from, middle, filter, key, keyCount, value);
+            left.fork();
+            long[] sums = new GroupTask(middle, to, filter, key, keyCount, value).compute();
+            long[] leftSums = left.join();
+            for (int i = 0; i < keyCount; i++) {
+                sums[i] += leftSums[i];
+            }
+            return sums;
+        }
+    }
+    
+    /**
+     * Mutable copy of a snapshot used while loading or refreshing.
+     * Rows must be added in ascending appointment ID order; existing IDs are updated in place.
+     * The built snapshot shares the builder's arrays, so a builder must not be used after build().
+     */
+    public static class Builder {
+        
+        private int size;
+        private int[] appointmentIds;
+        private int[] epochDays;
+        private short[] startMinutes;
+        private short[] endMinutes;
+        private short[] doctorCodes;
+        private int[] patientIds;
+        private byte[] statusCodes;
+        private int[] reasonCodes;
+        private final ValueDictionary<Integer> doctors;
+        private final ValueDictionary<String> statuses;
+        private final ValueDictionary<String> reasons;
+        
+        public Builder() {
+            this.appointmentIds = new int[1024];
+            this.epochDays = new int[1024];
+            this.startMinutes = new short[1024];
+            this.endMinutes = new short[1024];
+            this.doctorCodes = new short[1024];
+            this.patientIds = new int[1024];
+            this.statusCodes = new byte[1024];
+            this.reasonCodes = new int[1024];
+            this.doctors = new ValueDictionary<>();
+            this.statuses = new ValueDictionary<>();
+            this.reasons = new ValueDictionary<>();
+        }
+        
+        private Builder(AppointmentSnapshot snapshot) {
+            int capacity = Math.max(1024, snapshot.size + (snapshot.size >> 3));
+            this.size = snapshot.size;
+            this.appointmentIds = Arrays.copyOf(snapshot.appointmentIds, capacity);
+            this.epochDays = Arrays.copyOf(snapshot.epochDays, capacity);
+            this.startMinutes = Arrays.copyOf(snapshot.startMinutes, capacity);
+            this.endMinutes = Arrays.copyOf(snapshot.endMinutes, capacity);
+            this.doctorCodes = Arrays.copyOf(snapshot.doctorCodes, capacity);
+            this.patientIds = Arrays.copyOf(snapshot.patientIds, capacity);
+            this.statusCodes = Arrays.copyOf(snapshot.statusCodes, capacity);
+            this.reasonCodes = Arrays.copyOf(snapshot.reasonCodes, capacity);
+            this.doctors = snapshot.doctors.copy();
+            this.statuses = snapshot.statuses.copy();
+            this.reasons = snapshot.reasons.copy();
+        }
+        
+        /**
+         * Add a row, or overwrite the row with the same appointment ID
+         * @throws IllegalStateException If a new ID is lower than the last one or a dictionary overflows
+         */
+        public Builder put(int appointmentId, int epochDay, int startMinute, int endMinute,
+                           int doctorId, int patientId, String status, String reason) {
+            int row = Arrays.binarySearch(appointmentIds, 0, size, appointmentId);
+            if (row < 0) {
+                if (size > 0 && appointmentId < appointmentIds[size - 1]) {
+                    throw new IllegalStateException("Appointment " + appointmentId + " is out of order");
+                }
+                if (size == appointmentIds.length) {
+                    grow();
+                }
+                row = size++;
+                appointmentIds[row] = appointmentId;
+            }
+            
+            int doctorCode = doctors.encode(doctorId);
+            int statusCode = statuses.encode(status);
+            if (doctorCode > Short.MAX_VALUE || statusCode > Byte.MAX_VALUE) {
+                throw new IllegalStateException("Too many distinct doctors or statuses for the snapshot encoding");
+            }
+            epochDays[row] = epochDay;
+            startMinutes[row] = (short) startMinute;
+            endMinutes[row] = (short) endMinute;
+            doctorCodes[row] = (short) doctorCode;
+            patientIds[row] = patientId;
+            statusCodes[row] = (byte) statusCode;
+            reasonCodes[row] = reasons.encode(reason);
+            return this;
+        }
+        
+        public int size() {
+            return size;
+        }
+        
+        public AppointmentSnapshot build() {
+            return new AppointmentSnapshot(this);
+        }
+        
+        private void grow() {
+            int capacity = appointmentIds.length * 2;
+            appointmentIds = Arrays.copyOf(appointmentIds, capacity);
+            epochDays = Arrays.copyOf(epochDays, capacity);
+            startMinutes = Arrays.copyOf(startMinutes, capacity);
+            endMinutes = Arrays.copyOf(endMinutes, capacity);
+            doctorCodes = Arrays.copyOf(doctorCodes, capacity);
+            patientIds = Arrays.copyOf(patientIds, capacity);
+            statusCodes = Arrays.copyOf(statusCodes, capacity);
+            reasonCodes = Arrays.copyOf(reasonCodes, capacity);
+        }
+    }
+}
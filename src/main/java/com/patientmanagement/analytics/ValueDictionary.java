@@ -0,0 +1,64 @@
+package com.patientmanagement.analytics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dictionary encoding for snapshot columns: each distinct value gets a dense code 0, 1, 2, ...
+ * in order of first appearance. Codes are never reassigned, so a copy can keep growing
+ * while older snapshots still decode their own codes correctly.
+ */
+public class ValueDictionary<T> {
+    
+    private final Map<T, Integer> codes;
+    private final List<T> values;
+    
+    public ValueDictionary() {
+        this.codes = new HashMap<>();
+        this.values = new ArrayList<>();
+    }
+    
+    private ValueDictionary(ValueDictionary<T> other) {
+        this.codes = new HashMap<>(other.codes);
+        this.values = new ArrayList<>(other.values);
+    }
+    
+    /**
+     * Get the code of a value, assigning the next free code if it is new
+     * @param value The value
+     * @return Its code
+     */
+    public int encode(T value) {
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = values.size();
+            codes.put(value, code);
+            values.add(value);
+        }
+        return code;
+    }
+    
+    /**
+     * Get the code of a value without assigning one
+     * @param value The value
+     * @return Its code, or -1 if the value never occurred
+     */
+    public int codeOf(T value) {
+        Integer code = codes.get(value);
+        return code == null ? -1 : code;
+    }
+    
+    public T decode(int code) {
+        return values.get(code);
+    }
+    
+    public int size() {
+        return values.size();
+    }
+    
+    public ValueDictionary<T> copy() {
+        return new ValueDictionary<>(this);
+    }
+}
@@ -0,0 +1,231 @@
+package com.patientmanagement.archive;
+
+import com.patientmanagement.calendar.AppointmentWindowCache;
+import com.patientmanagement.logging.AppLog;
+import com.patientmanagement.model.dao.DaoExecutor;
+import com.patientmanagement.model.dao.DataAccessException;
+import com.patientmanagement.util.DatabaseUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Archive tier for historical appointments. Completed and cancelled appointments older than a
+ * horizon are moved, together with their medical records, from the main database to an archive
+ * database attached as schema "archive". The main file stays small, so its working set fits in the
+ * page cache.
+ *
+ * The watermark (archive_state) is the epoch day before which appointments may have been archived.
+ * The DAOs union in the archive tables only when a query's date range starts before it. It is
+ * read for every query, so an archive run on another workstation takes effect at once. Archived
+ * appointments are read-only and keep counting in the rollup tables.
+ */
+public class ArchiveService {
+
+    /**
+     * Archive finished appointments older than this many days unless configured otherwise
+     */
+    public static final int DEFAULT_HORIZON_DAYS = Integer.getInteger("patientmanagement.archive.horizonDays", 730);
+
+    // Appointments moved per transaction, so writers are never blocked for long
+    private static final int BATCH_SIZE = 500;
+
+    // Watermark value while nothing has been archived
+    private static final int NO_ARCHIVE = Integer.MIN_VALUE;
+
+    /**
+     * Check whether a query range reaches into the archive tier
+     * @param from First date of the range, or null if the range has no lower bound
+     * @return true if archived appointments may fall inside the range
+     * @throws DataAccessException If the watermark cannot be read; answering false instead would
+     *         silently leave archived appointments out of the caller's results
+     */
+    public static boolean reachesArchive(LocalDate from) {
+        return DaoExecutor.call("ArchiveService.reachesArchive", conn -> reachesArchive(conn, from));
+    }
+
+    /**
+     * Check whether anything has been archived
+     * @return true if the archive tier may hold rows
+     * @throws DataAccessException If the watermark cannot be read
+     */
+    public static boolean hasArchive() {
+        return reachesArchive(null);
+    }
+
+    /**
+     * Attach the archive to a connection if a query range reaches into it
+     * @param conn Connection without an open transaction
+     * @param from First date of the range, or null if the range has no lower bound
+     * @return true if the archive tier is attached and must be queried too
+     * @throws SQLException If the watermark cannot be read or the archive cannot be attached
+     */
+    public static boolean attachIfReached(Connection conn, LocalDate from) throws SQLException {
+        if (!reachesArchive(conn, from)) {
+            return false;
+        }
+        DatabaseUtil.attachArchive(conn);
+        return true;
+    }
+
+    /**
+     * Get the appointments of both tiers as a row source for aggregate queries, attaching the archive
+     * if anything has been archived
+     * @param conn Connection without an open transaction
+     * @return "appointments", or a subquery over the hot and archived appointments
+     * @throws SQLException If the watermark cannot be read or the archive cannot be attached
+     */
+    public static String allAppointments(Connection conn) throws SQLException {
+        if (!attachIfReached(conn, null)) {
+            return "appointments";
+        }
+        return "(SELECT " + DatabaseUtil.ARCHIVED_APPOINTMENT_COLUMNS + " FROM main.appointments " +
+               "UNION ALL SELECT " + DatabaseUtil.ARCHIVED_APPOINTMENT_COLUMNS + " FROM archive.appointments)";
+    }
+
+    // The watermark is read for every query on the query's own connection rather than cached:
+    // another workstation may archive at any time, and the lookup is a single primary key probe
+    private static boolean reachesArchive(Connection conn, LocalDate from) throws SQLException {
+        int current;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT watermark FROM archive_state WHERE id = 1")) {
+            current = rs.next() ? rs.getInt(1) : NO_ARCHIVE;
+        }
+        return current != NO_ARCHIVE && (from == null || from.toEpochDay() < current);
+    }
+
+    private final int horizonDays;
+
+    public ArchiveService() {
+        this(DEFAULT_HORIZON_DAYS);
+    }
+
+    public ArchiveService(int horizonDays) {
+        this.horizonDays = horizonDays;
+    }
+
+    /**
+     * Move completed and cancelled appointments dated before today minus the horizon, and their
+     * medical records, to the archive tier
+     * @return Number of appointments archived, or -1 if a batch failed (earlier batches stay archived)
+     */
+    public int archive() {
+        return archiveBefore(LocalDate.now().minusDays(horizonDays));
+    }
+
+    /**
+     * Move completed and cancelled appointments dated before a day, and their medical records,
+     * to the archive tier in batches of BATCH_SIZE, one transaction each. The watermark is raised
+     * before the first batch, so readers look in the archive as soon as any row has moved
+     * @param horizon First day that stays in the main database
+     * @return Number of appointments archived, or -1 if a batch failed (earlier batches stay archived)
+     */
+    public int archiveBefore(LocalDate horizon) {
+        int horizonDay = (int) horizon.toEpochDay();
+        String inBatch = " WHERE appointment_id IN (SELECT appointment_id FROM temp.archive_batch)";
+        int archived = 0;
+
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement();
+             PreparedStatement selectBatch = prepareBatchSelect(conn)) {
+            String[][] suspended = suspendedTriggers(conn);
+
+            stmt.execute("BEGIN IMMEDIATE");
+            try {
+                for (String statement : DatabaseUtil.ARCHIVE_SCHEMA) {
+                    stmt.execute(statement);
+                }
+                stmt.execute("INSERT INTO archive_state (id, watermark) VALUES (1, " + horizonDay + ") " +
+                             "ON CONFLICT (id) DO UPDATE SET watermark = MAX(watermark, excluded.watermark)");
+                stmt.execute("COMMIT");
+            } catch (SQLException e) {
+                stmt.execute("ROLLBACK");
+                throw e;
+            }
+
+            boolean more = true;
+            while (more) {
+                stmt.execute("BEGIN IMMEDIATE");
+                try {
+                    stmt.execute("DELETE FROM temp.archive_batch");
+                    selectBatch.setInt(1, horizonDay);
+                    int rows = selectBatch.executeUpdate();
+
+                    // Archived appointments keep counting in the rollups, so their delete triggers
+                    // are dropped for this transaction only; no other writer can see the gap.
+                    // The per-row change log entries are replaced by one entry per table that a
+                    // replay also runs without the rollup delete triggers
+                    for (String[] trigger : suspended) {
+                        stmt.execute("DROP TRIGGER IF EXISTS " + trigger[0]);
+                    }
+                    if (rows > 0) {
+                        logMove(stmt, "medical_records");
+                        logMove(stmt, "appointments");
+                    }
+                    stmt.execute("INSERT OR REPLACE INTO archive.appointments (" +
+                                 DatabaseUtil.ARCHIVED_APPOINTMENT_COLUMNS + ") SELECT " +
+                                 DatabaseUtil.ARCHIVED_APPOINTMENT_COLUMNS + " FROM main.appointments" + inBatch);
+                    stmt.execute("INSERT OR REPLACE INTO archive.medical_records (" +
+                                 DatabaseUtil.ARCHIVED_RECORD_COLUMNS + ") SELECT " +
+                                 DatabaseUtil.ARCHIVED_RECORD_COLUMNS + " FROM main.medical_records" + inBatch);
+                    stmt.execute("DELETE FROM main.medical_records" + inBatch);
+                    stmt.execute("DELETE FROM main.appointments" + inBatch);
+                    for (String[] trigger : suspended) {
+                        stmt.execute(trigger[1]);
+                    }
+
+                    stmt.execute("COMMIT");
+                    archived += rows;
+                    more = rows == BATCH_SIZE;
+                } catch (SQLException e) {
+                    stmt.execute("ROLLBACK");
+                    throw e;
+                }
+            }
+        } catch (SQLException e) {
+            AppLog.error("archive.failed", e, "horizonDays", horizonDays, "archived", archived);
+            return -1;
+        } finally {
+            if (archived > 0) {
+                AppointmentWindowCache.clear();
+            }
+        }
+        return archived;
+    }
+
+    // The rollup delete triggers and the change log delete triggers of the moved tables
+    private static String[][] suspendedTriggers(Connection conn) throws SQLException {
+        List<String[]> triggers = new ArrayList<>(Arrays.asList(DatabaseUtil.ROLLUP_DELETE_TRIGGERS));
+        for (String[] trigger : DatabaseUtil.changeLogTriggers(conn)) {
+            if (trigger[0].equals("trg_log_appointments_delete") || trigger[0].equals("trg_log_medical_records_delete")) {
+                triggers.add(trigger);
+            }
+        }
+        return triggers.toArray(new String[0][]);
+    }
+
+    private static void logMove(Statement stmt, String table) throws SQLException {
+        stmt.execute("INSERT INTO change_log (changed_at, statement, keep_rollups) " +
+                     "SELECT CAST(strftime('%s', 'now') AS INTEGER), " +
+                     "'DELETE FROM " + table + " WHERE appointment_id IN (' || group_concat(appointment_id) || ')', 1 " +
+                     "FROM temp.archive_batch");
+    }
+
+    // Attaches the archive and prepares the statement that fills temp.archive_batch with the next batch
+    private static PreparedStatement prepareBatchSelect(Connection conn) throws SQLException {
+        DatabaseUtil.attachArchive(conn);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TEMP TABLE IF NOT EXISTS archive_batch (appointment_id INTEGER PRIMARY KEY)");
+        }
+        return conn.prepareStatement(
+            "INSERT INTO temp.archive_batch SELECT appointment_id FROM main.appointments " +
+            "WHERE date < ? AND status IN ('completed', 'cancelled') ORDER BY date LIMIT " + BATCH_SIZE);
+    }
+}
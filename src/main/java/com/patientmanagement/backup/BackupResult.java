@@ -0,0 +1,83 @@
+package com.patientmanagement.backup;
+
+import java.nio.file.Path;
+
+/**
+ * Outcome and timings of one online backup
+ */
+public class BackupResult {
+    
+    private final Path file;
+    private final int pages;
+    private final long databaseBytes;
+    private final long fileBytes;
+    private final int attempts;
+    private final long copyMillis;
+    private final long pausedMillis;
+    private final long totalMillis;
+    
+    public BackupResult(Path file, int pages, long databaseBytes, long fileBytes, int attempts,
+                        long copyMillis, long pausedMillis, long totalMillis) {
+        this.file = file;
+        this.pages = pages;
+        this.databaseBytes = databaseBytes;
+        this.fileBytes = fileBytes;
+        this.attempts = attempts;
+        this.copyMillis = copyMillis;
+        this.pausedMillis = pausedMillis;
+        this.totalMillis = totalMillis;
+    }
+    
+    // The verified backup file
+    public Path getFile() {
+        return file;
+    }
+    
+    // Pages of the database copied
+    public int getPages() {
+        return pages;
+    }
+    
+    // Size of the copied database before compression
+    public long getDatabaseBytes() {
+        return databaseBytes;
+    }
+    
+    // Size of the backup file
+    public long getFileBytes() {
+        return fileBytes;
+    }
+    
+    // Copy attempts, more than one if writes by other connections kept restarting the copy
+    public int getAttempts() {
+        return attempts;
+    }
+    
+    // Duration of the successful copy
+    public long getCopyMillis() {
+        return copyMillis;
+    }
+    
+    // Time the application could not open connections; 0 unless the last attempt was needed
+    public long getPausedMillis() {
+        return pausedMillis;
+    }
+    
+    // Time for copy, verification, compression and pruning together
+    public long getTotalMillis() {
+        return totalMillis;
+    }
+    
+    // Copy throughput in megabytes per second
+    public double getThroughputMBps() {
+        return databaseBytes / 1e6 / (Math.max(copyMillis, 1) / 1000.0);
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("%s: %d pages (%.1f MB, %.1f MB on disk) in %d attempt(s); " +
+                             "copy %d ms (%.1f MB/s), connections paused %d ms, total %d ms",
+                             file.getFileName(), pages, databaseBytes / 1e6, fileBytes / 1e6, attempts,
+                             copyMillis, getThroughputMBps(), pausedMillis, totalMillis);
+    }
+}
@@ -0,0 +1,368 @@
+package com.patientmanagement.backup;
+
+import com.patientmanagement.logging.AppLog;
+import com.patientmanagement.metrics.BackgroundTaskEvent;
+import com.patientmanagement.util.DatabaseUtil;
+import org.sqlite.SQLiteConnection;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Online backup of the main database through the SQLite backup API, taken while the application
+ * keeps running. Each copy is checked with PRAGMA quick_check before it is compressed and kept,
+ * and old backups beyond the retention count are deleted.
+ *
+ * The driver copies the database a range of pages per backup step and releases its lock between
+ * steps, so readers and writers keep going. A commit by another connection makes SQLite start the
+ * copy over, and the driver gives up with SQLITE_BUSY after repeated lock collisions. The service
+ * then pauses and tries again; the last attempt holds the application's connections off
+ * (DatabaseUtil.quiesce) for the one copy, so a backup finishes even while writes never stop.
+ */
+public class BackupService {
+    
+    private static final DateTimeFormatter STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmssSSS");
+    private static final int STAMP_LENGTH = 18;
+    
+    // Change log entries kept from before the oldest backup (or from the last hour, if there is
+    // none), in case of clock or DST changes and of a backup still being written
+    private static final long CHANGE_LOG_SLACK_SECONDS = 3600;
+    
+    // Suffix of files still being written; never listed as backups
+    private static final String PART_SUFFIX = ".part";
+    
+    // Copy attempts before a backup fails; the last one runs with the connections quiesced
+    private static final int MAX_ATTEMPTS = 4;
+    
+    // Longest wait for open connections before the last attempt
+    private static final long QUIESCE_TIMEOUT_MILLIS = 10_000;
+    
+    private static final int SQLITE_OK = 0;
+    private static final int SQLITE_BUSY = 5;
+    private static final int SQLITE_LOCKED = 6;
+    
+    private final Path directory;
+    private final int retain;
+    private final boolean compress;
+    private final long retryPauseMillis;
+    private ScheduledExecutorService scheduler;
+    private volatile BackupResult lastResult;
+    
+    /**
+     * Create a backup service configured by the patientmanagement.backup.* system properties:
+     * dir (default: "backups" next to the database), retain (7), compress (true) and retryPauseMillis (500)
+     */
+    public BackupService() {
+        this(Paths.get(System.getProperty("patientmanagement.backup.dir", defaultDirectory())),
+             Integer.getInteger("patientmanagement.backup.retain", 7),
+             Boolean.parseBoolean(System.getProperty("patientmanagement.backup.compress", "true")),
+             Long.getLong("patientmanagement.backup.retryPauseMillis", 500));
+    }
+    
+    /**
+     * @param directory Directory for the backup files
+     * @param retain Number of backups to keep
+     * @param compress Whether to gzip the backup files
+     * @param retryPauseMillis Pause before another copy attempt when the database stayed locked
+     */
+    public BackupService(Path directory, int retain, boolean compress, long retryPauseMillis) {
+        this.directory = directory;
+        this.retain = retain;
+        this.compress = compress;
+        this.retryPauseMillis = retryPauseMillis;
+    }
+    
+    private static String defaultDirectory() {
+        return Paths.get(DatabaseUtil.getDatabaseFile()).toAbsolutePath().resolveSibling("backups").toString();
+    }
+    
+    /**
+     * Back up the main database now. The archive database is not included: it only changes
+     * when the archive job runs
+     * @return Metrics of the verified backup, or null if the backup failed
+     */
+    public synchronized BackupResult backup() {
+        long start = System.nanoTime();
+        String name = baseName() + "-" + LocalDateTime.now().format(STAMP);
+        Path copy = directory.resolve(name + ".db" + PART_SUFFIX);
+        Path compressed = directory.resolve(name + ".db.gz" + PART_SUFFIX);
+        
+        try {
+            Files.createDirectories(directory);
+            int attempts = 0;
+            int pages = 0;
+            long copyNanos = 0;
+            long pausedNanos = 0;
+            int result = SQLITE_BUSY;
+            while (result != SQLITE_OK) {
+                boolean last = ++attempts == MAX_ATTEMPTS;
+                if (attempts > 1 && !last) {
+                    Thread.sleep(retryPauseMillis);
+                }
+                long copyStart = System.nanoTime();
+                if (last) {
+                    // Writers kept restarting the copy: hold the application's connections off for one copy
+                    if (!DatabaseUtil.quiesce(QUIESCE_TIMEOUT_MILLIS)) {
+                        throw new SQLException("The database stayed in use, backup abandoned");
+                    }
+                    try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + DatabaseUtil.getDatabaseFile())) {
+                        result = copyDatabase(conn, copy);
+                        pages = pageCount(conn);
+                    } finally {
+                        DatabaseUtil.resume();
+                    }
+                    pausedNanos = System.nanoTime() - copyStart;
+                } else {
+                    try (Connection conn = DatabaseUtil.getConnection()) {
+                        result = copyDatabase(conn, copy);
+                        pages = pageCount(conn);
+                    }
+                }
+                copyNanos = System.nanoTime() - copyStart;
+                
+                boolean locked = result == SQLITE_BUSY || result == SQLITE_LOCKED;
+                if (result != SQLITE_OK && (!locked || last)) {
+                    throw new SQLException("Backup failed with SQLite result code " + result);
+                }
+            }
+            
+            if (!verify(copy)) {
+                throw new IOException("quick_check failed on " + copy);
+            }
+            long databaseBytes = Files.size(copy);
+            
+            Path file;
+            if (compress) {
+                file = directory.resolve(name + ".db.gz");
+                try (InputStream in = Files.newInputStream(copy);
+                     OutputStream out = new GZIPOutputStream(Files.newOutputStream(compressed), 1 << 16)) {
+                    in.transferTo(out);
+                }
+                Files.move(compressed, file, StandardCopyOption.ATOMIC_MOVE);
+            } else {
+                file = directory.resolve(name + ".db");
+                Files.move(copy, file, StandardCopyOption.ATOMIC_MOVE);
+            }
+            prune();
+            
+            lastResult = new BackupResult(file, pages, databaseBytes, Files.size(file), attempts,
+                                          copyNanos / 1_000_000, pausedNanos / 1_000_000,
+                                          (System.nanoTime() - start) / 1_000_000);
+            return lastResult;
+        } catch (SQLException | IOException e) {
+            AppLog.error("backup.failed", e, "directory", directory,
+                         "durationMs", (System.nanoTime() - start) / 1_000_000);
+            return null;
+        } catch (InterruptedException e) {
+            // Stopped while waiting for another attempt
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            deleteQuietly(copy);
+            deleteQuietly(compressed);
+        }
+    }
+    
+    /**
+     * Check a backup file by opening it and running PRAGMA quick_check.
+     * Compressed backups are decompressed to a temporary file first
+     * @param file Backup file (.db or .db.gz)
+     * @return true if SQLite reports the database as ok
+     */
+    public static boolean verify(Path file) {
+        Path database = file;
+        try {
+            if (file.getFileName().toString().endsWith(".gz")) {
+                database = decompress(file, Files.createTempFile(file.toAbsolutePath().getParent(), "verify", ".db"));
+            }
+            try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + database);
+                 Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("PRAGMA quick_check")) {
+                return rs.next() && "ok".equals(rs.getString(1));
+            }
+        } catch (SQLException | IOException e) {
+            AppLog.warn("backup.verifyFailed", e, "file", file);
+            return false;
+        } finally {
+            if (database != file) {
+                deleteQuietly(database);
+            }
+        }
+    }
+    
+    /**
+     * Decompress a gzip backup
+     * @param file Compressed backup file
+     * @param target File to write the database to (replaced if it exists)
+     * @return The target
+     * @throws IOException If reading or writing fails
+     */
+    public static Path decompress(Path file, Path target) throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file), 1 << 16)) {
+            Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return target;
+    }
+    
+    /**
+     * List the backups of the main database in the backup directory
+     * @return Backup files, newest first
+     */
+    public List<Path> listBackups() {
+        List<Path> backups = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return backups;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, baseName() + "-*.{db,db.gz}")) {
+            for (Path file : files) {
+                backups.add(file);
+            }
+        } catch (IOException e) {
+            AppLog.warn("backup.listFailed", e, "directory", directory);
+        }
+        // The timestamp in the name sorts chronologically
+        backups.sort(Collections.reverseOrder());
+        return backups;
+    }
+    
+    // Delete the backups beyond the retention count, and the change log entries that every
+    // remaining backup already contains (they can never be needed for a replay)
+    private void prune() throws IOException, SQLException {
+        List<Path> backups = listBackups();
+        for (int i = retain; i < backups.size(); i++) {
+            Files.deleteIfExists(backups.get(i));
+        }
+        
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("DELETE FROM change_log WHERE changed_at < ?")) {
+            pstmt.setLong(1, changeLogCutoff());
+            pstmt.executeUpdate();
+        }
+    }
+    
+    /**
+     * Get the time before which change log entries can never be needed for a replay: entries
+     * before the oldest kept backup are in every backup, and without a backup there is nothing to
+     * replay them onto. MaintenanceService trims the log to it when backups are not running
+     * @return Epoch seconds
+     */
+    public long changeLogCutoff() {
+        List<Path> backups = listBackups();
+        int kept = Math.min(retain, backups.size());
+        long oldest = kept > 0 ? takenAt(backups.get(kept - 1)) : Instant.now().getEpochSecond();
+        return oldest - CHANGE_LOG_SLACK_SECONDS;
+    }
+    
+    /**
+     * Get the time a backup was started, from the timestamp in its name
+     * @param file Backup file
+     * @return Epoch seconds; changes logged before this time are in the backup
+     */
+    public static long takenAt(Path file) {
+        String name = file.getFileName().toString();
+        int start = baseName().length() + 1;
+        LocalDateTime taken = LocalDateTime.parse(name.substring(start, start + STAMP_LENGTH), STAMP);
+        return taken.atZone(ZoneId.systemDefault()).toEpochSecond();
+    }
+    
+    /**
+     * Start backing up at a fixed interval on a background thread. The first backup runs when
+     * the newest existing backup is one interval old, or right away if there is none
+     * @param interval Time between backups
+     */
+    public synchronized void start(Duration interval) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "database-backup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        long delay = 0;
+        List<Path> backups = listBackups();
+        if (!backups.isEmpty()) {
+            try {
+                FileTime newest = Files.getLastModifiedTime(backups.get(0));
+                delay = Math.max(0, interval.toMillis() - (System.currentTimeMillis() - newest.toMillis()));
+            } catch (IOException e) {
+                AppLog.warn("backup.scheduleFailed", e, "file", backups.get(0));
+            }
+        }
+        scheduler.scheduleWithFixedDelay(() -> BackgroundTaskEvent.run("backup", this::backup),
+                                         delay, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Stop the scheduled backups. A backup waiting for another attempt gives up
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+    
+    /**
+     * Get the metrics of the last successful backup
+     * @return The result, or null if no backup has succeeded yet
+     */
+    public BackupResult getLastResult() {
+        return lastResult;
+    }
+    
+    public Path getDirectory() {
+        return directory;
+    }
+    
+    private static String baseName() {
+        String file = Paths.get(DatabaseUtil.getDatabaseFile()).getFileName().toString();
+        return file.endsWith(".db") ? file.substring(0, file.length() - 3) : file;
+    }
+    
+    private static int copyDatabase(Connection conn, Path target) throws SQLException {
+        return conn.unwrap(SQLiteConnection.class).getDatabase().backup("main", target.toString(), null);
+    }
+    
+    private static int pageCount(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA page_count")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+    
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            AppLog.warn("backup.deleteFailed", e, "file", file);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.patientmanagement.backup;
+
+import java.nio.file.Path;
+
+/**
+ * Outcome and timings of one restore
+ */
+public class RestoreResult {
+    
+    private final Path backup;
+    private final long databaseBytes;
+    private final long prepareMillis;
+    private final int replayedChanges;
+    private final long replayMillis;
+    private final long quiescedMillis;
+    private final long totalMillis;
+    
+    public RestoreResult(Path backup, long databaseBytes, long prepareMillis, int replayedChanges,
+                         long replayMillis, long quiescedMillis, long totalMillis) {
+        this.backup = backup;
+        this.databaseBytes = databaseBytes;
+        this.prepareMillis = prepareMillis;
+        this.replayedChanges = replayedChanges;
+        this.replayMillis = replayMillis;
+        this.quiescedMillis = quiescedMillis;
+        this.totalMillis = totalMillis;
+    }
+    
+    // The backup that was restored
+    public Path getBackup() {
+        return backup;
+    }
+    
+    // Size of the restored database
+    public long getDatabaseBytes() {
+        return databaseBytes;
+    }
+    
+    // Time to decompress and quick_check the backup, while the application kept running
+    public long getPrepareMillis() {
+        return prepareMillis;
+    }
+    
+    // Change log entries applied on top of the backup
+    public int getReplayedChanges() {
+        return replayedChanges;
+    }
+    
+    public long getReplayMillis() {
+        return replayMillis;
+    }
+    
+    // Time the application could not open connections: replay and file swap
+    public long getQuiescedMillis() {
+        return quiescedMillis;
+    }
+    
+    public long getTotalMillis() {
+        return totalMillis;
+    }
+    
+    // Restore throughput in megabytes per second
+    public double getThroughputMBps() {
+        return databaseBytes / 1e6 / (Math.max(totalMillis, 1) / 1000.0);
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("%s: %.1f MB restored in %d ms (%.1f MB/s); prepare %d ms, " +
+                             "%d change(s) replayed in %d ms, connections held off %d ms",
+                             backup.getFileName(), databaseBytes / 1e6, totalMillis, getThroughputMBps(),
+                             prepareMillis, replayedChanges, replayMillis, quiescedMillis);
+    }
+}
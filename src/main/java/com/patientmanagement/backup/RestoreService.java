@@ -0,0 +1,265 @@
+package com.patientmanagement.backup;
+
+import com.patientmanagement.calendar.AppointmentWindowCache;
+import com.patientmanagement.logging.AppLog;
+import com.patientmanagement.scheduling.AvailabilityCache;
+import com.patientmanagement.util.DatabaseUtil;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Restores the main database from a backup made by BackupService. The backup is decompressed
+ * and checked next to the database while the application keeps running. Then the database is
+ * quiesced (no connections open, new ones wait), the change log of the current database is
+ * optionally replayed onto the restored copy up to a point in time, and the copy is renamed over
+ * the database file. The replaced database is kept as a ".before-restore" file.
+ */
+public class RestoreService {
+    
+    // Longest wait for the application to close its connections
+    private static final long QUIESCE_TIMEOUT_MILLIS = 30_000;
+    
+    // Change log entries read per round while replaying
+    private static final int REPLAY_BATCH_SIZE = 1000;
+    
+    /**
+     * Restore the database to the state of a backup
+     * @param backup Backup file (.db or .db.gz)
+     * @return Metrics of the restore, or null if it failed (the database is then unchanged)
+     */
+    public RestoreResult restore(Path backup) {
+        return restore(backup, null);
+    }
+    
+    /**
+     * Restore the database from a backup, then replay the changes made since the backup up to a time
+     * @param backup Backup file (.db or .db.gz)
+     * @param until Time of the last change to replay, or null to restore the backup as it is
+     * @return Metrics of the restore, or null if it failed (the database is then unchanged)
+     */
+    public RestoreResult restore(Path backup, Instant until) {
+        long start = System.nanoTime();
+        Path database = Paths.get(DatabaseUtil.getDatabaseFile()).toAbsolutePath();
+        Path part = sibling(database, ".restore.part");
+        
+        try {
+            // Prepared next to the database, so the swap is a rename on the same file system
+            if (backup.getFileName().toString().endsWith(".gz")) {
+                BackupService.decompress(backup, part);
+            } else {
+                Files.copy(backup, part, StandardCopyOption.REPLACE_EXISTING);
+            }
+            if (!BackupService.verify(part)) {
+                throw new IOException(backup + " failed quick_check");
+            }
+            long databaseBytes = Files.size(part);
+            long prepared = System.nanoTime();
+            
+            if (!DatabaseUtil.quiesce(QUIESCE_TIMEOUT_MILLIS)) {
+                throw new SQLException("The database is still in use after " + QUIESCE_TIMEOUT_MILLIS + " ms");
+            }
+            long quiesced = System.nanoTime();
+            int replayed = 0;
+            long replayNanos = 0;
+            try {
+                if (until != null) {
+                    replayed = replay(part, database, until.getEpochSecond());
+                    replayNanos = System.nanoTime() - quiesced;
+                }
+                swap(part, database);
+            } finally {
+                DatabaseUtil.resume();
+            }
+            long swapped = System.nanoTime();
+            
+            // Older backups are migrated to the current schema
+            DatabaseUtil.initializeDatabase();
+            removeArchivedDuplicates();
+            AppointmentWindowCache.clear();
+            AvailabilityCache.clear();
+            
+            return new RestoreResult(backup, databaseBytes, (prepared - start) / 1_000_000, replayed,
+                                     replayNanos / 1_000_000, (swapped - quiesced) / 1_000_000,
+                                     (System.nanoTime() - start) / 1_000_000);
+        } catch (SQLException | IOException e) {
+            AppLog.error("restore.failed", e, "backup", backup, "until", until,
+                         "durationMs", (System.nanoTime() - start) / 1_000_000);
+            return null;
+        } finally {
+            try {
+                Files.deleteIfExists(part);
+            } catch (IOException e) {
+                AppLog.warn("restore.deleteFailed", e, "file", part);
+            }
+        }
+    }
+    
+    /**
+     * Apply the current database's change log entries made after the backup, up to a time, to the
+     * restored copy. Entries are applied in change order and stop at the first one after the time.
+     * They are copied into the copy's change log as they are, so a later restore can replay them again
+     * @return Number of entries applied
+     */
+    private static int replay(Path part, Path database, long until) throws SQLException {
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + part);
+             Statement stmt = conn.createStatement()) {
+            try (PreparedStatement attach = conn.prepareStatement("ATTACH DATABASE ? AS live")) {
+                attach.setString(1, database.toString());
+                attach.execute();
+            }
+            
+            if (queryLong(stmt, "SELECT COUNT(*) FROM main.sqlite_master WHERE name = 'change_log'") == 0) {
+                throw new SQLException("The backup predates the change log, so changes cannot be replayed");
+            }
+            if (queryLong(stmt, "PRAGMA main.user_version") != queryLong(stmt, "PRAGMA live.user_version")) {
+                throw new SQLException("The backup has another schema version, so changes cannot be replayed");
+            }
+            long lastChange = queryLong(stmt, "SELECT COALESCE(MAX(seq), 0) FROM main.sqlite_sequence " +
+                                              "WHERE name = 'change_log'");
+            long firstLogged = queryLong(stmt, "SELECT COALESCE(MIN(change_id), 0) FROM live.change_log");
+            if (firstLogged > lastChange + 1) {
+                throw new SQLException("The change log no longer reaches back to the backup");
+            }
+            
+            String[][] logTriggers = DatabaseUtil.changeLogTriggers(conn);
+            int replayed = 0;
+            stmt.execute("BEGIN IMMEDIATE");
+            try {
+                // The copied entries replace what the triggers would log
+                for (String[] trigger : logTriggers) {
+                    stmt.execute("DROP TRIGGER IF EXISTS " + trigger[0]);
+                }
+                
+                try (PreparedStatement select = conn.prepareStatement(
+                         "SELECT change_id, changed_at, statement, keep_rollups FROM live.change_log " +
+                         "WHERE change_id > ? ORDER BY change_id LIMIT " + REPLAY_BATCH_SIZE);
+                     PreparedStatement copy = conn.prepareStatement(
+                         "INSERT INTO main.change_log (change_id, changed_at, statement, keep_rollups) " +
+                         "VALUES (?, ?, ?, ?)")) {
+                    boolean more = true;
+                    while (more) {
+                        // Read a batch first: the schema changes below must not run under an open query
+                        List<Object[]> entries = new ArrayList<>();
+                        select.setLong(1, lastChange);
+                        try (ResultSet rs = select.executeQuery()) {
+                            while (rs.next()) {
+                                entries.add(new Object[] {rs.getLong(1), rs.getLong(2), rs.getString(3), rs.getInt(4)});
+                            }
+                        }
+                        more = entries.size() == REPLAY_BATCH_SIZE;
+                        
+                        for (Object[] entry : entries) {
+                            if ((Long) entry[1] > until) {
+                                more = false;
+                                break;
+                            }
+                            boolean keepRollups = (Integer) entry[3] != 0;
+                            if (keepRollups) {
+                                for (String[] trigger : DatabaseUtil.ROLLUP_DELETE_TRIGGERS) {
+                                    stmt.execute("DROP TRIGGER IF EXISTS " + trigger[0]);
+                                }
+                            }
+                            stmt.executeUpdate((String) entry[2]);
+                            if (keepRollups) {
+                                for (String[] trigger : DatabaseUtil.ROLLUP_DELETE_TRIGGERS) {
+                                    stmt.execute(trigger[1]);
+                                }
+                            }
+                            
+                            copy.setLong(1, (Long) entry[0]);
+                            copy.setLong(2, (Long) entry[1]);
+                            copy.setString(3, (String) entry[2]);
+                            copy.setInt(4, (Integer) entry[3]);
+                            copy.executeUpdate();
+                            lastChange = (Long) entry[0];
+                            replayed++;
+                        }
+                    }
+                }
+                
+                for (String[] trigger : logTriggers) {
+                    stmt.execute(trigger[1]);
+                }
+                stmt.execute("COMMIT");
+            } catch (SQLException e) {
+                stmt.execute("ROLLBACK");
+                throw e;
+            }
+            return replayed;
+        }
+    }
+    
+    /**
+     * Rename the restored copy over the database file. The old file is first hard-linked as the
+     * ".before-restore" file, so the database path always names a complete database
+     */
+    private static void swap(Path part, Path database) throws IOException {
+        if (Files.exists(database)) {
+            Path previous = sibling(database, ".before-restore");
+            Files.deleteIfExists(previous);
+            try {
+                Files.createLink(previous, database);
+            } catch (IOException | UnsupportedOperationException e) {
+                Files.copy(database, previous);
+            }
+            
+            // A journal left by a crash belongs to the old file and must not be applied to the new one
+            Path journal = sibling(database, "-journal");
+            if (Files.exists(journal)) {
+                Files.move(journal, sibling(previous, "-journal"), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(part, database, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    /**
+     * Drop archived rows that are also in the restored database. They were archived after the
+     * restored point in time, and the main database's copy is the current one
+     */
+    private static void removeArchivedDuplicates() throws SQLException {
+        if (!Files.exists(Paths.get(DatabaseUtil.getArchiveFile()))) {
+            return;
+        }
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement()) {
+            DatabaseUtil.attachArchive(conn);
+            stmt.execute("BEGIN IMMEDIATE");
+            try {
+                for (String statement : DatabaseUtil.ARCHIVE_SCHEMA) {
+                    stmt.execute(statement);
+                }
+                stmt.execute("DELETE FROM archive.medical_records " +
+                             "WHERE record_id IN (SELECT record_id FROM main.medical_records)");
+                stmt.execute("DELETE FROM archive.appointments " +
+                             "WHERE appointment_id IN (SELECT appointment_id FROM main.appointments)");
+                stmt.execute("COMMIT");
+            } catch (SQLException e) {
+                stmt.execute("ROLLBACK");
+                throw e;
+            }
+        }
+    }
+    
+    private static long queryLong(Statement stmt, String sql) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+    
+    private static Path sibling(Path file, String suffix) {
+        return file.resolveSibling(file.getFileName() + suffix);
+    }
+}
@@ -0,0 +1,142 @@
+package com.patientmanagement.calendar;
+
+import com.patientmanagement.metrics.BackgroundTaskEvent;
+import com.patientmanagement.metrics.CacheMissEvent;
+import com.patientmanagement.model.Appointment;
+import com.patientmanagement.model.dao.AppointmentDAO;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Small LRU cache of the appointments in recently shown calendar windows.
+ * Adjacent windows are prefetched on a background thread so paging forward or back
+ * usually finds its data already loaded. AppointmentDAO drops the cache on every write.
+ */
+public class AppointmentWindowCache {
+    
+    // Current, previous and next window for each mode, plus a little history
+    private static final int MAX_WINDOWS = 12;
+    
+    private static final AppointmentDAO APPOINTMENT_DAO = new AppointmentDAO();
+    
+    private static final Map<CalendarWindow, CompletableFuture<List<Appointment>>> WINDOWS =
+        new LinkedHashMap<CalendarWindow, CompletableFuture<List<Appointment>>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CalendarWindow, CompletableFuture<List<Appointment>>> eldest) {
+                return size() > MAX_WINDOWS;
+            }
+        };
+    
+    private static final ExecutorService PREFETCH_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "calendar-prefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+    
+    /**
+     * Get the appointments of a window, loading them if they are not cached.
+     * If a prefetch of the same window is in flight, waits for it instead of querying again.
+     * @param window The calendar window
+     * @return All appointments in the window, ordered by date and start time (read-only)
+     */
+    public static List<Appointment> get(CalendarWindow window) {
+        CompletableFuture<List<Appointment>> future;
+        boolean load = false;
+        synchronized (WINDOWS) {
+            future = WINDOWS.get(window);
+            if (future == null) {
+                future = new CompletableFuture<>();
+                WINDOWS.put(window, future);
+                load = true;
+            }
+        }
+        
+        if (load) {
+            MISSES.incrementAndGet();
+            CacheMissEvent miss = CacheMissEvent.start("calendarWindow", window);
+            load(window, future);
+            miss.finish();
+        } else {
+            HITS.incrementAndGet();
+        }
+        return future.join();
+    }
+    
+    /**
+     * Load a window in the background unless it is already cached or loading
+     * @param window The calendar window
+     */
+    public static void prefetch(CalendarWindow window) {
+        CompletableFuture<List<Appointment>> future;
+        synchronized (WINDOWS) {
+            if (WINDOWS.containsKey(window)) {
+                return;
+            }
+            future = new CompletableFuture<>();
+            WINDOWS.put(window, future);
+        }
+        PREFETCH_EXECUTOR.execute(() -> BackgroundTaskEvent.run("calendarPrefetch", () -> load(window, future)));
+    }
+    
+    private static void load(CalendarWindow window, CompletableFuture<List<Appointment>> future) {
+        try {
+            future.complete(Collections.unmodifiableList(
+                APPOINTMENT_DAO.getAppointmentsBetween(window.getFrom(), window.getTo())));
+        } catch (RuntimeException e) {
+            synchronized (WINDOWS) {
+                WINDOWS.remove(window, future);
+            }
+            future.completeExceptionally(e);
+        }
+    }
+    
+    /**
+     * Drop the cached windows that contain a date
+     * @param date The changed date
+     */
+    public static void invalidate(LocalDate date) {
+        synchronized (WINDOWS) {
+            Iterator<CalendarWindow> iterator = WINDOWS.keySet().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().contains(date)) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+    
+    /**
+     * Drop all cached windows
+     */
+    public static void clear() {
+        synchronized (WINDOWS) {
+            WINDOWS.clear();
+        }
+    }
+    
+    public static int size() {
+        synchronized (WINDOWS) {
+            return WINDOWS.size();
+        }
+    }
+    
+    public static long getHits() {
+        return HITS.get();
+    }
+    
+    public static long getMisses() {
+        return MISSES.get();
+    }
+}
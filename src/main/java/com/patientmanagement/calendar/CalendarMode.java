@@ -0,0 +1,80 @@
+package com.patientmanagement.calendar;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Calendar display modes and the date window each one covers
+ */
+public enum CalendarMode {
+    
+    DAY("Day", 1, 1),
+    WEEK("Week", 7, 1),
+    MONTH("Month", 7, 6);   // six full weeks, so every month fits in a fixed grid
+    
+    private final String displayName;
+    private final int columns;
+    private final int rows;
+    
+    CalendarMode(String displayName, int columns, int rows) {
+        this.displayName = displayName;
+        this.columns = columns;
+        this.rows = rows;
+    }
+    
+    /**
+     * Get the window of dates shown for an anchor date
+     * @param anchor Any date inside the period to show
+     * @return The visible window
+     */
+    public CalendarWindow window(LocalDate anchor) {
+        LocalDate start;
+        switch (this) {
+            case WEEK:
+                start = anchor.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                break;
+            case MONTH:
+                start = anchor.withDayOfMonth(1).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                break;
+            default:
+                start = anchor;
+                break;
+        }
+        return new CalendarWindow(start, start.plusDays(getDays() - 1L));
+    }
+    
+    /**
+     * Move an anchor date by whole periods
+     * @param anchor The current anchor date
+     * @param periods Number of days, weeks or months to move (negative to go back)
+     * @return The new anchor date
+     */
+    public LocalDate step(LocalDate anchor, int periods) {
+        switch (this) {
+            case WEEK:
+                return anchor.plusWeeks(periods);
+            case MONTH:
+                return anchor.plusMonths(periods);
+            default:
+                return anchor.plusDays(periods);
+        }
+    }
+    
+    public int getColumns() {
+        return columns;
+    }
+    
+    public int getRows() {
+        return rows;
+    }
+    
+    public int getDays() {
+        return columns * rows;
+    }
+    
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
@@ -0,0 +1,51 @@
+package com.patientmanagement.calendar;
+
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Inclusive range of dates shown by the calendar, used as the cache key for loaded appointments
+ */
+public final class CalendarWindow {
+    
+    private final LocalDate from;
+    private final LocalDate to;
+    
+    public CalendarWindow(LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("Window ends before it starts");
+        }
+        this.from = from;
+        this.to = to;
+    }
+    
+    public LocalDate getFrom() {
+        return from;
+    }
+    
+    public LocalDate getTo() {
+        return to;
+    }
+    
+    public boolean contains(LocalDate date) {
+        return !date.isBefore(from) && !date.isAfter(to);
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CalendarWindow)) return false;
+        CalendarWindow other = (CalendarWindow) o;
+        return from.equals(other.from) && to.equals(other.to);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(from, to);
+    }
+    
+    @Override
+    public String toString() {
+        return from + ".." + to;
+    }
+}
@@ -1,9 +1,11 @@
 package com.patientmanagement.controller;
 
+import com.patientmanagement.logging.AppLog;
 import com.patientmanagement.model.Appointment;
 import com.patientmanagement.model.MedicalRecord;
 import com.patientmanagement.model.User;
 import com.patientmanagement.model.dao.AppointmentDAO;
+import com.patientmanagement.model.dao.DaoExecutor;
 import com.patientmanagement.model.dao.MedicalRecordDAO;
 import com.patientmanagement.util.AlertUtil;
 import com.patientmanagement.util.DateTimeUtil;
@@ -116,7 +118,7 @@ public class AppointmentDetailsController {
         timeLabel.setText(timeRange);
         
         reasonLabel.setText(appointment.getReason());
-        statusLabel.setText(appointment.getStatus());
+        statusLabel.setText(appointment.getAppointmentStatus().getDisplayName());
         notesArea.setText(appointment.getNotes());
         
         DateTimeFormatter timestampFormatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
@@ -191,7 +193,7 @@ public class AppointmentDetailsController {
             }
             
         } catch (IOException e) {
-            e.printStackTrace();
+            AppLog.error("view.loadFailed", e, "view", "appointmentDialog", "handler", "handleEditAppointment");
             AlertUtil.showError("Error", "Dialog Error", 
                 "Could not open the appointment dialog. Please try again.");
         }
@@ -213,7 +215,7 @@ public class AppointmentDetailsController {
                 initData(appointment, currentUser);
             } else {
                 AlertUtil.showError("Error", "Update Failed", 
-                    "Could not update the appointment status. Please try again.");
+                    DaoExecutor.failureMessage("Could not update the appointment status."));
             }
         }
     }
@@ -234,7 +236,7 @@ public class AppointmentDetailsController {
                 initData(appointment, currentUser);
             } else {
                 AlertUtil.showError("Error", "Cancellation Failed", 
-                    "Could not cancel the appointment. Please try again.");
+                    DaoExecutor.failureMessage("Could not cancel the appointment."));
             }
         }
     }
@@ -274,7 +276,7 @@ public class AppointmentDetailsController {
             }
             
         } catch (IOException e) {
-            e.printStackTrace();
+            AppLog.error("view.loadFailed", e, "view", "medicalRecordDialog", "handler", "handleAddMedicalRecord");
             AlertUtil.showError("Error", "Dialog Error", 
                 "Could not open the medical record dialog. Please try again.");
         }
@@ -1,18 +1,28 @@
 package com.patientmanagement.controller;
 
+import com.patientmanagement.logging.AppLog;
 import com.patientmanagement.model.Appointment;
+import com.patientmanagement.model.BookingResult;
 import com.patientmanagement.model.Doctor;
 import com.patientmanagement.model.Patient;
+import com.patientmanagement.model.SeriesBookingResult;
 import com.patientmanagement.model.User;
 import com.patientmanagement.model.dao.AppointmentDAO;
+import com.patientmanagement.model.dao.DaoExecutor;
 import com.patientmanagement.model.dao.DoctorDAO;
 import com.patientmanagement.model.dao.PatientDAO;
+import com.patientmanagement.scheduling.Availability;
+import com.patientmanagement.scheduling.AvailabilityCache;
+import com.patientmanagement.scheduling.RecurrenceRule;
+import com.patientmanagement.scheduling.SchedulingIndex;
+import com.patientmanagement.scheduling.SlotFinder;
+import com.patientmanagement.scheduling.SpecialtySlotSearch;
+import com.patientmanagement.scheduling.TimeSlot;
 import com.patientmanagement.util.AlertUtil;
 import com.patientmanagement.util.DateTimeUtil;
 import com.patientmanagement.util.ValidationUtil;
 
 import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -24,11 +34,17 @@ import javafx.stage.Stage;
 import javafx.util.StringConverter;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 public class AppointmentDialogController {
     
@@ -59,6 +75,18 @@ public class AppointmentDialogController {
     @FXML
     private ComboBox<String> statusComboBox;
     
+    @FXML
+    private CheckBox repeatCheckBox;
+    
+    @FXML
+    private ComboBox<String> repeatRuleComboBox;
+    
+    @FXML
+    private Spinner<Integer> repeatIntervalSpinner;
+    
+    @FXML
+    private Spinner<Integer> repeatCountSpinner;
+    
     @FXML
     private Button saveButton;
     
@@ -72,6 +100,13 @@ public class AppointmentDialogController {
     private Patient selectedPatient;
     private Appointment appointment;
     private boolean isEditMode = false;
+    private Availability availability = Availability.CLINIC_HOURS;
+    private SlotFinder slotFinder;
+    
+    private static final int FREE_SLOT_SEARCH_DAYS = 30;
+    private static final int SPECIALTY_SEARCH_RESULTS = 10;
+    private static final String REPEAT_WEEKLY = "Weekly";
+    private static final String REPEAT_DAILY = "Every N days";
     
     @FXML
     private void initialize() {
@@ -93,6 +128,9 @@ public class AppointmentDialogController {
         // Set up time combo boxes
         setupTimeComboBoxes();
         
+        // Set up recurring series controls
+        setupRepeatControls();
+        
         // Set date picker constraints (no past dates)
         datePicker.setDayCellFactory(picker -> new DateCell() {
             @Override
@@ -151,13 +189,32 @@ public class AppointmentDialogController {
         
         datePicker.setValue(appointment.getDate());
         
-        // Find and select the closest time slots
-        selectClosestTime(startTimeComboBox, appointment.getStartTime());
-        selectClosestTime(endTimeComboBox, appointment.getEndTime());
+        // The appointment's own times are always offered, so select them exactly
+        startTimeComboBox.setValue(appointment.getStartTime());
+        endTimeComboBox.setValue(appointment.getEndTime());
         
         reasonField.setText(appointment.getReason());
         notesArea.setText(appointment.getNotes());
-        statusComboBox.setValue(appointment.getStatus());
+        statusComboBox.setValue(appointment.getAppointmentStatus().getDisplayName());
+        
+        // Series are only created together with a new appointment
+        repeatCheckBox.setSelected(false);
+        repeatCheckBox.setDisable(true);
+    }
+    
+    /**
+     * Set up the repeat check box, rule and spinners for recurring series
+     */
+    private void setupRepeatControls() {
+        repeatRuleComboBox.setItems(FXCollections.observableArrayList(REPEAT_WEEKLY, REPEAT_DAILY));
+        repeatRuleComboBox.setValue(REPEAT_WEEKLY);
+        repeatIntervalSpinner.setValueFactory(new SpinnerValueFactory.IntegerSpinnerValueFactory(1, 52, 1));
+        repeatCountSpinner.setValueFactory(
+            new SpinnerValueFactory.IntegerSpinnerValueFactory(2, RecurrenceRule.MAX_OCCURRENCES, 6));
+        
+        repeatRuleComboBox.disableProperty().bind(repeatCheckBox.selectedProperty().not());
+        repeatIntervalSpinner.disableProperty().bind(repeatCheckBox.selectedProperty().not());
+        repeatCountSpinner.disableProperty().bind(repeatCheckBox.selectedProperty().not());
     }
     
     /**
@@ -203,27 +260,9 @@ public class AppointmentDialogController {
     }
     
     /**
-     * Set up the time combo boxes with 30-minute intervals
+     * Set up the time combo boxes; they only offer times at which the selected doctor is free
      */
     private void setupTimeComboBoxes() {
-        ObservableList<LocalTime> timeSlots = FXCollections.observableArrayList();
-        
-        // Create time slots from 8:00 to 17:30 (30-minute intervals)
-        LocalTime startTime = LocalTime.of(8, 0);
-        LocalTime endTime = LocalTime.of(17, 30);
-        
-        while (!startTime.isAfter(endTime)) {
-            timeSlots.add(startTime);
-            startTime = startTime.plusMinutes(30);
-        }
-        
-        startTimeComboBox.setItems(timeSlots);
-        endTimeComboBox.setItems(timeSlots);
-        
-        // Set default values
-        startTimeComboBox.getSelectionModel().select(LocalTime.of(9, 0));
-        endTimeComboBox.getSelectionModel().select(LocalTime.of(9, 30));
-        
         // Set up display format
         StringConverter<LocalTime> timeConverter = new StringConverter<LocalTime>() {
             private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm");
@@ -242,44 +281,100 @@ public class AppointmentDialogController {
         startTimeComboBox.setConverter(timeConverter);
         endTimeComboBox.setConverter(timeConverter);
         
-        // Add listener to start time to ensure end time is always after start time
-        startTimeComboBox.getSelectionModel().selectedItemProperty().addListener((obs, oldVal, newVal) -> {
-            if (newVal != null) {
-                LocalTime currentEndTime = endTimeComboBox.getValue();
-                if (currentEndTime == null || !currentEndTime.isAfter(newVal)) {
-                    // Find the next time slot after the selected start time
-                    for (LocalTime time : timeSlots) {
-                        if (time.isAfter(newVal)) {
-                            endTimeComboBox.setValue(time);
-                            break;
-                        }
-                    }
-                }
-            }
-        });
+        // Recompute the free times whenever the doctor or the day changes
+        doctorComboBox.valueProperty().addListener((obs, oldVal, newVal) -> refreshFreeTimes());
+        datePicker.valueProperty().addListener((obs, oldVal, newVal) -> refreshFreeTimes());
+        
+        // End times depend on how long the doctor stays free after the chosen start time
+        startTimeComboBox.valueProperty().addListener((obs, oldVal, newVal) -> refreshEndTimes());
     }
     
     /**
-     * Select the closest time in a combo box to the given time
-     * @param comboBox The combo box to select in
-     * @param targetTime The target time to find
+     * Load the selected doctor's bookings for the selected day and offer only free start times
      */
-    private void selectClosestTime(ComboBox<LocalTime> comboBox, LocalTime targetTime) {
-        if (targetTime == null) return;
+    private void refreshFreeTimes() {
+        Doctor doctor = doctorComboBox.getValue();
+        LocalDate date = datePicker.getValue();
+        LocalTime previousStart = startTimeComboBox.getValue();
         
-        LocalTime closestTime = null;
-        int minDifference = Integer.MAX_VALUE;
+        if (doctor == null || date == null) {
+            slotFinder = null;
+            startTimeComboBox.setItems(FXCollections.observableArrayList());
+            endTimeComboBox.setItems(FXCollections.observableArrayList());
+            return;
+        }
         
-        for (LocalTime time : comboBox.getItems()) {
-            int difference = Math.abs(time.toSecondOfDay() - targetTime.toSecondOfDay());
-            if (difference < minDifference) {
-                minDifference = difference;
-                closestTime = time;
-            }
+        availability = AvailabilityCache.forDoctor(doctor);
+        SchedulingIndex index = SchedulingIndex.load(appointmentDAO, Collections.singletonList(doctor.getDoctorId()),
+                                                     date, date, getExcludedAppointmentId());
+        slotFinder = new SlotFinder(index);
+        // An existing appointment may lie in the past; it must stay editable, e.g. to mark it Completed
+        LocalDateTime notBefore = isEditMode ? null : LocalDateTime.now();
+        List<LocalTime> startTimes = slotFinder.freeStartTimes(doctor.getDoctorId(), availability, date,
+                                                               SlotFinder.DEFAULT_STEP_MINUTES, notBefore);
+        if (isOriginalDay(doctor, date)) {
+            addTime(startTimes, appointment.getStartTime());
         }
         
-        if (closestTime != null) {
-            comboBox.setValue(closestTime);
+        startTimeComboBox.setItems(FXCollections.observableArrayList(startTimes));
+        if (previousStart != null && startTimes.contains(previousStart)) {
+            startTimeComboBox.setValue(previousStart);
+        } else {
+            startTimeComboBox.setValue(startTimes.isEmpty() ? null : startTimes.get(0));
+        }
+        refreshEndTimes();
+    }
+    
+    /**
+     * Offer the end times that keep the appointment inside a free period
+     */
+    private void refreshEndTimes() {
+        LocalTime startTime = startTimeComboBox.getValue();
+        LocalTime previousEnd = endTimeComboBox.getValue();
+        
+        if (slotFinder == null || startTime == null) {
+            endTimeComboBox.setItems(FXCollections.observableArrayList());
+            return;
+        }
+        
+        List<LocalTime> endTimes = slotFinder.freeEndTimes(doctorComboBox.getValue().getDoctorId(), availability,
+                                                           datePicker.getValue(), startTime);
+        if (isOriginalDay(doctorComboBox.getValue(), datePicker.getValue())
+                && startTime.equals(appointment.getStartTime())) {
+            addTime(endTimes, appointment.getEndTime());
+        }
+        endTimeComboBox.setItems(FXCollections.observableArrayList(endTimes));
+        if (previousEnd != null && endTimes.contains(previousEnd)) {
+            endTimeComboBox.setValue(previousEnd);
+        } else {
+            endTimeComboBox.setValue(endTimes.isEmpty() ? null : endTimes.get(0));
+        }
+    }
+    
+    private int getExcludedAppointmentId() {
+        return isEditMode && appointment != null ? appointment.getAppointmentId() : 0;
+    }
+    
+    /**
+     * Check whether the dialog shows the doctor and day of the appointment being edited.
+     * Its own times are offered there even if they are off the step grid or outside the
+     * doctor's current working hours, so that opening and saving it never moves it.
+     */
+    private boolean isOriginalDay(Doctor doctor, LocalDate date) {
+        return isEditMode && appointment != null && doctor.getDoctorId() == appointment.getDoctorId()
+                && date.equals(appointment.getDate());
+    }
+    
+    private boolean isOriginalSlot(LocalTime startTime, LocalTime endTime) {
+        return isOriginalDay(doctorComboBox.getValue(), datePicker.getValue())
+                && startTime.equals(appointment.getStartTime()) && endTime.equals(appointment.getEndTime());
+    }
+    
+    // Insert a time into a sorted list of times unless it is already there
+    private static void addTime(List<LocalTime> times, LocalTime time) {
+        int position = Collections.binarySearch(times, time);
+        if (position < 0) {
+            times.add(-position - 1, time);
         }
     }
     
@@ -311,12 +406,111 @@ public class AppointmentDialogController {
             }
             
         } catch (IOException e) {
-            e.printStackTrace();
+            AppLog.error("view.loadFailed", e, "view", "patientSelectionDialog", "handler", "handleSelectPatient");
             AlertUtil.showError("Error", "Dialog Error", 
                 "Could not open the patient selection dialog. Please try again.");
         }
     }
     
+    @FXML
+    private void handleNextFreeSlot(ActionEvent event) {
+        if (!ValidationUtil.validateRequired(doctorComboBox, "Doctor")) return;
+        
+        int doctorId = doctorComboBox.getValue().getDoctorId();
+        availability = AvailabilityCache.forDoctor(doctorComboBox.getValue());
+        LocalDate from = datePicker.getValue() == null ? LocalDate.now() : datePicker.getValue();
+        LocalDate to = from.plusDays(FREE_SLOT_SEARCH_DAYS - 1);
+        
+        // Keep the currently selected length if there is one
+        int duration = SlotFinder.DEFAULT_STEP_MINUTES;
+        if (startTimeComboBox.getValue() != null && endTimeComboBox.getValue() != null) {
+            duration = (int) Duration.between(startTimeComboBox.getValue(), endTimeComboBox.getValue()).toMinutes();
+        }
+        
+        SchedulingIndex index = SchedulingIndex.load(appointmentDAO, Collections.singletonList(doctorId),
+                                                     from, to, getExcludedAppointmentId());
+        List<TimeSlot> slots = new SlotFinder(index).findFreeSlots(doctorId, availability, from, to,
+                                                                   Math.max(duration, 1), 1, LocalDateTime.now());
+        
+        if (slots.isEmpty()) {
+            AlertUtil.showWarning("No Free Slot", "Doctor Fully Booked", 
+                "The selected doctor has no free slot in the next " + FREE_SLOT_SEARCH_DAYS + " days.");
+            return;
+        }
+        
+        TimeSlot slot = slots.get(0);
+        datePicker.setValue(slot.getDate());
+        startTimeComboBox.setValue(slot.getStartTime());
+        endTimeComboBox.setValue(slot.getEndTime());
+    }
+    
+    @FXML
+    private void handleFindBySpecialty(ActionEvent event) {
+        // Offer the specialties of the known doctors, starting with the selected doctor's
+        List<String> specialties = new ArrayList<>();
+        for (Doctor doctor : doctorComboBox.getItems()) {
+            if (doctor.getSpecialty() != null && !specialties.contains(doctor.getSpecialty())) {
+                specialties.add(doctor.getSpecialty());
+            }
+        }
+        if (specialties.isEmpty()) {
+            AlertUtil.showWarning("No Specialties", "No Doctors Found", 
+                "There are no doctors with a specialty to search.");
+            return;
+        }
+        
+        Doctor selectedDoctor = doctorComboBox.getValue();
+        String defaultSpecialty = selectedDoctor != null && specialties.contains(selectedDoctor.getSpecialty())
+                ? selectedDoctor.getSpecialty() : specialties.get(0);
+        ChoiceDialog<String> specialtyDialog = new ChoiceDialog<>(defaultSpecialty, specialties);
+        specialtyDialog.setTitle("Find Earliest Slot");
+        specialtyDialog.setHeaderText("Search all doctors of a specialty");
+        specialtyDialog.setContentText("Specialty:");
+        Optional<String> specialty = specialtyDialog.showAndWait();
+        if (!specialty.isPresent()) return;
+        
+        LocalDate from = datePicker.getValue() == null ? LocalDate.now() : datePicker.getValue();
+        LocalDate to = from.plusDays(FREE_SLOT_SEARCH_DAYS - 1);
+        List<TimeSlot> slots = new SpecialtySlotSearch(doctorDAO, appointmentDAO)
+                .findEarliest(specialty.get(), from, to, SlotFinder.DEFAULT_STEP_MINUTES, SPECIALTY_SEARCH_RESULTS);
+        if (slots.isEmpty()) {
+            AlertUtil.showWarning("No Free Slot", "All Doctors Fully Booked", 
+                "No " + specialty.get() + " doctor has a free slot in the next " + FREE_SLOT_SEARCH_DAYS + " days.");
+            return;
+        }
+        
+        // Let the user pick one of the ranked slots
+        Map<String, TimeSlot> choices = new LinkedHashMap<>();
+        for (TimeSlot slot : slots) {
+            Doctor doctor = findDoctor(slot.getDoctorId());
+            String label = DateTimeUtil.formatDate(slot.getDate()) + " " + DateTimeUtil.formatTime(slot.getStartTime()) +
+                           " - " + (doctor == null ? "Doctor #" + slot.getDoctorId() : doctor.getFullName());
+            choices.put(label, slot);
+        }
+        List<String> labels = new ArrayList<>(choices.keySet());
+        ChoiceDialog<String> slotDialog = new ChoiceDialog<>(labels.get(0), labels);
+        slotDialog.setTitle("Find Earliest Slot");
+        slotDialog.setHeaderText("Earliest free " + specialty.get() + " slots");
+        slotDialog.setContentText("Slot:");
+        Optional<String> choice = slotDialog.showAndWait();
+        if (!choice.isPresent()) return;
+        
+        TimeSlot slot = choices.get(choice.get());
+        doctorComboBox.setValue(findDoctor(slot.getDoctorId()));
+        datePicker.setValue(slot.getDate());
+        startTimeComboBox.setValue(slot.getStartTime());
+        endTimeComboBox.setValue(slot.getEndTime());
+    }
+    
+    private Doctor findDoctor(int doctorId) {
+        for (Doctor doctor : doctorComboBox.getItems()) {
+            if (doctor.getDoctorId() == doctorId) {
+                return doctor;
+            }
+        }
+        return null;
+    }
+    
     @FXML
     private void handleSave(ActionEvent event) {
         if (validateInputs()) {
@@ -349,9 +543,24 @@ public class AppointmentDialogController {
                     AlertUtil.showInformation("Success", "Appointment Updated", 
                         "Appointment has been updated successfully.");
                 }
+            } else if (repeatCheckBox.isSelected()) {
+                // Create a recurring series (all occurrences checked and inserted in one transaction)
+                if (saveSeries(appointment)) {
+                    closeDialog();
+                }
+                return;
             } else {
-                // Create new appointment
-                success = appointmentDAO.createAppointment(appointment);
+                // Create new appointment (conflict check and insert in one transaction)
+                BookingResult result = appointmentDAO.bookAppointment(appointment);
+                if (result.isConflict()) {
+                    Appointment conflict = result.getConflicts().get(0);
+                    AlertUtil.showError("Scheduling Conflict", "Time Slot Not Available", 
+                        "The selected doctor was booked from " + DateTimeUtil.formatTime(conflict.getStartTime()) +
+                        " to " + DateTimeUtil.formatTime(conflict.getEndTime()) + " while you were editing. " +
+                        "Please choose another time.");
+                    return;
+                }
+                success = result.isBooked();
                 if (success) {
                     AlertUtil.showInformation("Success", "Appointment Created", 
                         "New appointment has been created successfully.");
@@ -363,11 +572,73 @@ public class AppointmentDialogController {
                 closeDialog();
             } else {
                 AlertUtil.showError("Error", "Operation Failed", 
-                    "Could not save appointment information. Please try again.");
+                    DaoExecutor.failureMessage("Could not save appointment information."));
             }
         }
     }
     
+    /**
+     * Book a recurring series starting with the appointment in the form. If some occurrences
+     * conflict, the user can choose to book only the free ones
+     * @param first The first occurrence, filled from the form
+     * @return true if the series was booked and the dialog can close
+     */
+    private boolean saveSeries(Appointment first) {
+        RecurrenceRule.Frequency frequency = REPEAT_DAILY.equals(repeatRuleComboBox.getValue())
+            ? RecurrenceRule.Frequency.DAILY : RecurrenceRule.Frequency.WEEKLY;
+        RecurrenceRule rule = RecurrenceRule.times(frequency, repeatIntervalSpinner.getValue(), repeatCountSpinner.getValue());
+        
+        List<Appointment> occurrences = new ArrayList<>();
+        for (LocalDate date : rule.occurrences(first.getDate())) {
+            Appointment occurrence = new Appointment();
+            occurrence.setPatientId(first.getPatientId());
+            occurrence.setPatientName(first.getPatientName());
+            occurrence.setDoctorId(first.getDoctorId());
+            occurrence.setDoctorName(first.getDoctorName());
+            occurrence.setDate(date);
+            occurrence.setStartTime(first.getStartTime());
+            occurrence.setEndTime(first.getEndTime());
+            occurrence.setReason(first.getReason());
+            occurrence.setNotes(first.getNotes());
+            occurrence.setAppointmentStatus(first.getAppointmentStatus());
+            occurrences.add(occurrence);
+        }
+        
+        Availability doctorAvailability = AvailabilityCache.forDoctor(doctorComboBox.getValue());
+        SeriesBookingResult result = appointmentDAO.bookAppointmentSeries(rule, occurrences, doctorAvailability, false);
+        if (result.hasConflicts() && !result.isFailed()) {
+            List<BookingResult> conflicts = result.getConflicts();
+            if (conflicts.size() == occurrences.size()) {
+                AlertUtil.showError("Scheduling Conflict", "No Free Occurrences", 
+                    "The selected doctor is booked or not working at this time on every date of the series.");
+                return false;
+            }
+            
+            StringBuilder dates = new StringBuilder();
+            for (BookingResult conflict : conflicts) {
+                dates.append("\n").append(DateTimeUtil.formatDate(conflict.getAppointment().getDate()))
+                     .append(conflict.isOutsideWorkingHours() ? " (not working)" : " (booked)");
+            }
+            if (!AlertUtil.showConfirmation("Scheduling Conflict", 
+                    conflicts.size() + " of " + occurrences.size() + " occurrences are not available", 
+                    "The selected doctor is not available on:" + dates + 
+                    "\n\nBook the remaining " + (occurrences.size() - conflicts.size()) + " occurrences only?")) {
+                return false;
+            }
+            result = appointmentDAO.bookAppointmentSeries(rule, occurrences, doctorAvailability, true);
+        }
+        
+        if (result.getSeriesId() == 0) {
+            AlertUtil.showError("Error", "Operation Failed", 
+                DaoExecutor.failureMessage("Could not save the appointment series."));
+            return false;
+        }
+        
+        AlertUtil.showInformation("Success", "Appointment Series Created", 
+            result.getBooked().size() + " appointments have been created successfully.");
+        return true;
+    }
+    
     @FXML
     private void handleCancel(ActionEvent event) {
         // Confirm if there are unsaved changes
@@ -405,8 +676,17 @@ public class AppointmentDialogController {
             return false;
         }
         
+        // Check that the doctor works during the whole appointment; an edited appointment may keep
+        // its original slot even if the doctor's hours have changed since it was booked
+        if (startTime != null && endTime != null && !isOriginalSlot(startTime, endTime)
+                && !AvailabilityCache.forDoctor(doctorComboBox.getValue()).isWorking(datePicker.getValue(), startTime, endTime)) {
+            AlertUtil.showError("Validation Error", "Doctor Not Available", 
+                "The selected doctor does not work during this time slot.");
+            return false;
+        }
+        
         // Check for scheduling conflicts
-        if (!isEditMode || (isEditMode && !appointment.getStatus().equals(statusComboBox.getValue()))) {
+        if (!isEditMode || (isEditMode && !appointment.getAppointmentStatus().getDisplayName().equals(statusComboBox.getValue()))) {
             List<Appointment> conflictingAppointments = appointmentDAO.getConflictingAppointments(
                 doctorComboBox.getValue().getDoctorId(),
                 datePicker.getValue(),
@@ -439,7 +719,7 @@ public class AppointmentDialogController {
                    !endTimeComboBox.getValue().equals(appointment.getEndTime()) ||
                    !reasonField.getText().equals(appointment.getReason()) ||
                    !notesArea.getText().equals(appointment.getNotes()) ||
-                   !statusComboBox.getValue().equals(appointment.getStatus());
+                   !statusComboBox.getValue().equals(appointment.getAppointmentStatus().getDisplayName());
         } else {
             // Check if any field has been filled
             return patientComboBox.getValue() != null ||
@@ -1,8 +1,12 @@
 package com.patientmanagement.controller;
 
+import com.patientmanagement.logging.AppLog;
 import com.patientmanagement.model.Appointment;
+import com.patientmanagement.model.AppointmentRow;
+import com.patientmanagement.model.AppointmentStatus;
 import com.patientmanagement.model.User;
 import com.patientmanagement.model.dao.AppointmentDAO;
+import com.patientmanagement.model.dao.DaoExecutor;
 import com.patientmanagement.util.AlertUtil;
 import com.patientmanagement.util.DateTimeUtil;
 
@@ -33,38 +37,38 @@ public class AppointmentsController {
     private ComboBox<String> statusComboBox;
     
     @FXML
-    private TableView<Appointment> appointmentsTable;
+    private TableView<AppointmentRow> appointmentsTable;
     
     @FXML
-    private TableColumn<Appointment, Integer> idColumn;
+    private TableColumn<AppointmentRow, Integer> idColumn;
     
     @FXML
-    private TableColumn<Appointment, String> dateColumn;
+    private TableColumn<AppointmentRow, String> dateColumn;
     
     @FXML
-    private TableColumn<Appointment, String> timeColumn;
+    private TableColumn<AppointmentRow, String> timeColumn;
     
     @FXML
-    private TableColumn<Appointment, String> patientColumn;
+    private TableColumn<AppointmentRow, String> patientColumn;
     
     @FXML
-    private TableColumn<Appointment, String> doctorColumn;
+    private TableColumn<AppointmentRow, String> doctorColumn;
     
     @FXML
-    private TableColumn<Appointment, String> reasonColumn;
+    private TableColumn<AppointmentRow, String> reasonColumn;
     
     @FXML
-    private TableColumn<Appointment, String> statusColumn;
+    private TableColumn<AppointmentRow, String> statusColumn;
     
     @FXML
-    private TableColumn<Appointment, Void> actionsColumn;
+    private TableColumn<AppointmentRow, Void> actionsColumn;
     
     @FXML
     private Label totalAppointmentsLabel;
     
     private User currentUser;
     private AppointmentDAO appointmentDAO;
-    private ObservableList<Appointment> appointmentsList;
+    private ObservableList<AppointmentRow> appointmentsList;
     
     @FXML
     private void initialize() {
@@ -94,7 +98,7 @@ public class AppointmentsController {
             new SimpleStringProperty(cellData.getValue().getReason()));
         
         statusColumn.setCellValueFactory(cellData -> 
-            new SimpleStringProperty(cellData.getValue().getStatus()));
+            new SimpleStringProperty(cellData.getValue().getStatus().getDisplayName()));
         
         // Set up the actions column with buttons
         setupActionsColumn();
@@ -118,10 +122,10 @@ public class AppointmentsController {
     }
     
     /**
-     * Load all appointments from the database
+     * Load the list rows of all appointments from the database
      */
     private void loadAppointments() {
-        List<Appointment> appointments = appointmentDAO.getAllAppointments();
+        List<AppointmentRow> appointments = appointmentDAO.getAppointmentRows(null, null);
         appointmentsList = FXCollections.observableArrayList(appointments);
         appointmentsTable.setItems(appointmentsList);
         totalAppointmentsLabel.setText("Total Appointments: " + appointments.size());
@@ -131,9 +135,9 @@ public class AppointmentsController {
      * Set up the actions column with view, edit, and cancel buttons
      */
     private void setupActionsColumn() {
-        Callback<TableColumn<Appointment, Void>, TableCell<Appointment, Void>> cellFactory = new Callback<>() {
+        Callback<TableColumn<AppointmentRow, Void>, TableCell<AppointmentRow, Void>> cellFactory = new Callback<>() {
             @Override
-            public TableCell<Appointment, Void> call(final TableColumn<Appointment, Void> param) {
+            public TableCell<AppointmentRow, Void> call(final TableColumn<AppointmentRow, Void> param) {
                 return new TableCell<>() {
                     private final Button viewBtn = new Button("View");
                     private final Button editBtn = new Button("Edit");
@@ -142,17 +146,17 @@ public class AppointmentsController {
                     
                     {
                         viewBtn.setOnAction(event -> {
-                            Appointment appointment = getTableView().getItems().get(getIndex());
+                            AppointmentRow appointment = getTableView().getItems().get(getIndex());
                             handleViewAppointment(appointment);
                         });
                         
                         editBtn.setOnAction(event -> {
-                            Appointment appointment = getTableView().getItems().get(getIndex());
+                            AppointmentRow appointment = getTableView().getItems().get(getIndex());
                             handleEditAppointment(appointment);
                         });
                         
                         cancelBtn.setOnAction(event -> {
-                            Appointment appointment = getTableView().getItems().get(getIndex());
+                            AppointmentRow appointment = getTableView().getItems().get(getIndex());
                             handleCancelAppointment(appointment);
                         });
                     }
@@ -164,7 +168,7 @@ public class AppointmentsController {
                         if (empty) {
                             setGraphic(null);
                         } else {
-                            Appointment appointment = getTableView().getItems().get(getIndex());
+                            AppointmentRow appointment = getTableView().getItems().get(getIndex());
                             
                             // Disable cancel button if appointment is not scheduled
                             cancelBtn.setDisable(!appointment.isScheduled());
@@ -187,23 +191,9 @@ public class AppointmentsController {
         LocalDate date = datePicker.getValue();
         String status = statusComboBox.getValue();
         
-        List<Appointment> filteredAppointments;
-        
-        if (date != null && !"All".equals(status)) {
-            // Filter by both date and status
-            filteredAppointments = appointmentDAO.getAppointmentsByDate(date);
-            filteredAppointments.removeIf(appointment -> !appointment.getStatus().equalsIgnoreCase(status));
-        } else if (date != null) {
-            // Filter by date only
-            filteredAppointments = appointmentDAO.getAppointmentsByDate(date);
-        } else if (!"All".equals(status)) {
-            // Filter by status only
-            filteredAppointments = appointmentDAO.getAllAppointments();
-            filteredAppointments.removeIf(appointment -> !appointment.getStatus().equalsIgnoreCase(status));
-        } else {
-            // No filters, show all
-            filteredAppointments = appointmentDAO.getAllAppointments();
-        }
+        // Both filters are applied by the query
+        List<AppointmentRow> filteredAppointments = appointmentDAO.getAppointmentRows(
+            date, "All".equals(status) ? null : AppointmentStatus.fromString(status));
         
         appointmentsList = FXCollections.observableArrayList(filteredAppointments);
         appointmentsTable.setItems(appointmentsList);
@@ -243,13 +233,64 @@ public class AppointmentsController {
             loadAppointments();
             
         } catch (IOException e) {
-            e.printStackTrace();
+            AppLog.error("view.loadFailed", e, "view", "appointmentDialog", "handler", "handleAddAppointment");
             AlertUtil.showError("Error", "Dialog Error", 
                 "Could not open the appointment dialog. Please try again.");
         }
     }
     
-    private void handleViewAppointment(Appointment appointment) {
+    @FXML
+    private void handleOpenCalendar(ActionEvent event) {
+        try {
+            // Load the calendar view
+            FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/patientmanagement/view/calendar.fxml"));
+            Parent calendarRoot = loader.load();
+            
+            // Get the controller and pass the user
+            CalendarController calendarController = loader.getController();
+            calendarController.initData(currentUser);
+            
+            // Create a new stage for the calendar
+            Stage calendarStage = new Stage();
+            calendarStage.setTitle("Appointment Calendar");
+            calendarStage.initModality(Modality.WINDOW_MODAL);
+            calendarStage.initOwner(appointmentsTable.getScene().getWindow());
+            calendarStage.setScene(new Scene(calendarRoot));
+            
+            // Show the calendar and wait for it to close
+            calendarStage.showAndWait();
+            
+            // Refresh the appointments list
+            loadAppointments();
+            
+        } catch (IOException e) {
+            AppLog.error("view.loadFailed", e, "view", "calendar", "handler", "handleOpenCalendar");
+            AlertUtil.showError("Error", "View Error", 
+                "Could not open the appointment calendar. Please try again.");
+        }
+    }
+    
+    /**
+     * Load the full appointment behind a list row
+     * @param row The selected row
+     * @return The appointment, or null if it could not be loaded (the user has been told)
+     */
+    private Appointment loadAppointment(AppointmentRow row) {
+        Appointment appointment = appointmentDAO.getAppointmentById(row.getAppointmentId());
+        if (appointment == null) {
+            AlertUtil.showError("Error", "Appointment Not Found", 
+                "Could not load the appointment. It may have been deleted.");
+            loadAppointments();
+        }
+        return appointment;
+    }
+    
+    private void handleViewAppointment(AppointmentRow row) {
+        Appointment appointment = loadAppointment(row);
+        if (appointment == null) {
+            return;
+        }
+        
         try {
             // Load the appointment details view
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/patientmanagement/view/appointmentDetails.fxml"));
@@ -273,13 +314,18 @@ public class AppointmentsController {
             loadAppointments();
             
         } catch (IOException e) {
-            e.printStackTrace();
+            AppLog.error("view.loadFailed", e, "view", "appointmentDetails", "handler", "handleViewAppointment");
             AlertUtil.showError("Error", "View Error", 
                 "Could not open the appointment details. Please try again.");
         }
     }
     
-    private void handleEditAppointment(Appointment appointment) {
+    private void handleEditAppointment(AppointmentRow row) {
+        Appointment appointment = loadAppointment(row);
+        if (appointment == null) {
+            return;
+        }
+        
         try {
             // Load the appointment dialog
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/patientmanagement/view/appointmentDialog.fxml"));
@@ -304,16 +350,21 @@ public class AppointmentsController {
             loadAppointments();
             
         } catch (IOException e) {
-            e.printStackTrace();
+            AppLog.error("view.loadFailed", e, "view", "appointmentDialog", "handler", "handleEditAppointment");
             AlertUtil.showError("Error", "Dialog Error", 
                 "Could not open the appointment dialog. Please try again.");
         }
     }
     
-    private void handleCancelAppointment(Appointment appointment) {
+    private void handleCancelAppointment(AppointmentRow row) {
         if (AlertUtil.showConfirmation("Cancel Appointment", "Confirm Cancellation", 
                 "Are you sure you want to cancel this appointment?")) {
             
+            Appointment appointment = loadAppointment(row);
+            if (appointment == null) {
+                return;
+            }
+            
             appointment.markAsCancelled();
             boolean updated = appointmentDAO.updateAppointment(appointment);
             
@@ -323,7 +374,7 @@ public class AppointmentsController {
                 loadAppointments();
             } else {
                 AlertUtil.showError("Error", "Cancellation Failed", 
-                    "Could not cancel the appointment. Please try again.");
+                    DaoExecutor.failureMessage("Could not cancel the appointment."));
             }
         }
     }
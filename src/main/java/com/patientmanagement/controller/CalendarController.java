@@ -0,0 +1,267 @@
+package com.patientmanagement.controller;
+
+import com.patientmanagement.calendar.AppointmentWindowCache;
+import com.patientmanagement.calendar.CalendarMode;
+import com.patientmanagement.calendar.CalendarWindow;
+import com.patientmanagement.logging.AppLog;
+import com.patientmanagement.model.Appointment;
+import com.patientmanagement.model.User;
+import com.patientmanagement.util.AlertUtil;
+import com.patientmanagement.util.DateTimeUtil;
+
+import javafx.collections.FXCollections;
+import javafx.event.ActionEvent;
+import javafx.fxml.FXML;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.ColumnConstraints;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.stage.Modality;
+import javafx.stage.Stage;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Day, week and month calendar of appointments.
+ * Only the visible window is queried (through AppointmentWindowCache, which also prefetches
+ * the neighbouring windows), and the day cells and entry labels are created once and
+ * recycled on every page change instead of rebuilding the scene graph.
+ */
+public class CalendarController {
+    
+    @FXML
+    private Label periodLabel;
+    
+    @FXML
+    private ComboBox<CalendarMode> modeComboBox;
+    
+    @FXML
+    private GridPane calendarGrid;
+    
+    @FXML
+    private Label summaryLabel;
+    
+    // Entries shown per day cell before collapsing the rest into "+N more"
+    private static final int MONTH_ENTRIES_PER_DAY = 4;
+    private static final int WEEK_ENTRIES_PER_DAY = 24;
+    
+    private static final DateTimeFormatter DAY_HEADER = DateTimeFormatter.ofPattern("EEE d");
+    private static final DateTimeFormatter MONTH_TITLE = DateTimeFormatter.ofPattern("MMMM yyyy");
+    
+    private User currentUser;
+    private LocalDate anchor = LocalDate.now();
+    private CalendarMode layoutMode;
+    
+    // Recycled nodes: one cell per visible day and a shared pool of entry labels
+    private final List<VBox> dayCells = new ArrayList<>();
+    private final List<Label> entryLabels = new ArrayList<>();
+    private int entryLabelsUsed;
+    
+    @FXML
+    private void initialize() {
+        modeComboBox.setItems(FXCollections.observableArrayList(CalendarMode.values()));
+        modeComboBox.setValue(CalendarMode.WEEK);
+        modeComboBox.valueProperty().addListener((obs, oldMode, newMode) -> refresh());
+        
+        for (int i = 0; i < CalendarMode.MONTH.getDays(); i++) {
+            VBox cell = new VBox(2, new Label());
+            cell.setStyle("-fx-border-color: #d0d0d0; -fx-padding: 4;");
+            cell.getChildren().get(0).setStyle("-fx-font-weight: bold;");
+            dayCells.add(cell);
+        }
+    }
+    
+    /**
+     * Initialize the controller with user data
+     * @param user The logged-in user
+     */
+    public void initData(User user) {
+        this.currentUser = user;
+        refresh();
+    }
+    
+    @FXML
+    private void handlePrevious(ActionEvent event) {
+        anchor = modeComboBox.getValue().step(anchor, -1);
+        refresh();
+    }
+    
+    @FXML
+    private void handleNext(ActionEvent event) {
+        anchor = modeComboBox.getValue().step(anchor, 1);
+        refresh();
+    }
+    
+    @FXML
+    private void handleToday(ActionEvent event) {
+        anchor = LocalDate.now();
+        refresh();
+    }
+    
+    /**
+     * Load the visible window and render it, then prefetch the windows on either side
+     */
+    private void refresh() {
+        long startNanos = System.nanoTime();
+        CalendarMode mode = modeComboBox.getValue();
+        CalendarWindow window = mode.window(anchor);
+        
+        List<Appointment> appointments = AppointmentWindowCache.get(window);
+        render(mode, window, appointments);
+        
+        AppointmentWindowCache.prefetch(mode.window(mode.step(anchor, 1)));
+        AppointmentWindowCache.prefetch(mode.window(mode.step(anchor, -1)));
+        
+        long millis = (System.nanoTime() - startNanos) / 1_000_000;
+        summaryLabel.setText(appointments.size() + " appointments (" + millis + " ms)");
+    }
+    
+    private void render(CalendarMode mode, CalendarWindow window, List<Appointment> appointments) {
+        if (mode != layoutMode) {
+            layoutGrid(mode);
+        }
+        
+        periodLabel.setText(mode == CalendarMode.MONTH
+            ? anchor.format(MONTH_TITLE)
+            : DateTimeUtil.formatDate(window.getFrom()) +
+              (mode == CalendarMode.DAY ? "" : " - " + DateTimeUtil.formatDate(window.getTo())));
+        
+        int limit = mode == CalendarMode.MONTH ? MONTH_ENTRIES_PER_DAY
+                  : mode == CalendarMode.WEEK ? WEEK_ENTRIES_PER_DAY
+                  : Integer.MAX_VALUE;
+        
+        // Appointments arrive ordered by date, so one pass fills the cells in order
+        entryLabelsUsed = 0;
+        int next = 0;
+        for (int i = 0; i < mode.getDays(); i++) {
+            LocalDate date = window.getFrom().plusDays(i);
+            VBox cell = dayCells.get(i);
+            Label header = (Label) cell.getChildren().get(0);
+            header.setText(date.format(DAY_HEADER));
+            boolean otherMonth = mode == CalendarMode.MONTH && date.getMonth() != anchor.getMonth();
+            header.setOpacity(otherMonth ? 0.5 : 1.0);
+            
+            List<Label> entries = new ArrayList<>();
+            int shown = 0;
+            int hidden = 0;
+            while (next < appointments.size() && appointments.get(next).getDate().equals(date)) {
+                Appointment appointment = appointments.get(next++);
+                if (shown < limit) {
+                    entries.add(entryLabel(appointment));
+                    shown++;
+                } else {
+                    hidden++;
+                }
+            }
+            if (hidden > 0) {
+                Label more = nextLabel();
+                more.setText("+" + hidden + " more");
+                more.setUserData(null);
+                more.setStyle("-fx-text-fill: #606060;");
+                entries.add(more);
+            }
+            
+            cell.getChildren().remove(1, cell.getChildren().size());
+            cell.getChildren().addAll(entries);
+        }
+    }
+    
+    /**
+     * Place the day cells on the grid for a mode. Only needed when the mode changes
+     */
+    private void layoutGrid(CalendarMode mode) {
+        calendarGrid.getChildren().clear();
+        calendarGrid.getColumnConstraints().clear();
+        for (int column = 0; column < mode.getColumns(); column++) {
+            ColumnConstraints constraints = new ColumnConstraints();
+            constraints.setPercentWidth(100.0 / mode.getColumns());
+            constraints.setHgrow(Priority.ALWAYS);
+            calendarGrid.getColumnConstraints().add(constraints);
+        }
+        for (int i = 0; i < mode.getDays(); i++) {
+            VBox cell = dayCells.get(i);
+            cell.setMinHeight(mode == CalendarMode.MONTH ? 100 : 400);
+            calendarGrid.add(cell, i % mode.getColumns(), i / mode.getColumns());
+        }
+        // Cells that are no longer on the grid must not keep their entry labels
+        for (int i = mode.getDays(); i < dayCells.size(); i++) {
+            VBox cell = dayCells.get(i);
+            cell.getChildren().remove(1, cell.getChildren().size());
+        }
+        layoutMode = mode;
+    }
+    
+    private Label entryLabel(Appointment appointment) {
+        Label label = nextLabel();
+        label.setText(DateTimeUtil.formatTime(appointment.getStartTime()) + " " +
+                      appointment.getDoctorName() + " - " + appointment.getPatientName());
+        label.setUserData(appointment);
+        if (appointment.isCancelled()) {
+            label.setStyle("-fx-background-color: #eeeeee; -fx-text-fill: #909090;");
+        } else if (appointment.isCompleted()) {
+            label.setStyle("-fx-background-color: #dff0d8;");
+        } else {
+            label.setStyle("-fx-background-color: #d9edf7;");
+        }
+        return label;
+    }
+    
+    /**
+     * Take the next label from the pool, growing it only when a window needs more labels than ever before
+     */
+    private Label nextLabel() {
+        if (entryLabelsUsed == entryLabels.size()) {
+            Label label = new Label();
+            label.setMaxWidth(Double.MAX_VALUE);
+            label.setOnMouseClicked(this::handleEntryClicked);
+            entryLabels.add(label);
+        }
+        return entryLabels.get(entryLabelsUsed++);
+    }
+    
+    private void handleEntryClicked(MouseEvent event) {
+        Object data = ((Label) event.getSource()).getUserData();
+        if (event.getClickCount() == 2 && data instanceof Appointment) {
+            handleViewAppointment((Appointment) data);
+        }
+    }
+    
+    private void handleViewAppointment(Appointment appointment) {
+        try {
+            // Load the appointment details view
+            FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/patientmanagement/view/appointmentDetails.fxml"));
+            Parent detailsRoot = loader.load();
+            
+            // Get the controller and pass the appointment
+            AppointmentDetailsController detailsController = loader.getController();
+            detailsController.initData(appointment, currentUser);
+            
+            // Create a new stage for the details view
+            Stage detailsStage = new Stage();
+            detailsStage.setTitle("Appointment Details");
+            detailsStage.initModality(Modality.WINDOW_MODAL);
+            detailsStage.initOwner(calendarGrid.getScene().getWindow());
+            detailsStage.setScene(new Scene(detailsRoot));
+            
+            // Show the details view
+            detailsStage.showAndWait();
+            
+            // Refresh data after viewing (changes invalidate the cached windows)
+            refresh();
+        
+        } catch (IOException e) {
+            AppLog.error("view.loadFailed", e, "view", "appointmentDetails", "handler", "handleViewAppointment");
+            AlertUtil.showError("Error", "View Error", 
+                "Could not open the appointment details. Please try again.");
+        }
+    }
+}
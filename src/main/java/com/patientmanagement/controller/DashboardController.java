@@ -1,10 +1,14 @@
 package com.patientmanagement.controller;
 
+import com.patientmanagement.logging.AppLog;
+import com.patientmanagement.metrics.UiMetrics;
+import com.patientmanagement.metrics.ViewLoadEvent;
 import com.patientmanagement.model.Appointment;
 import com.patientmanagement.model.User;
 import com.patientmanagement.model.dao.AppointmentDAO;
 import com.patientmanagement.model.dao.DoctorDAO;
 import com.patientmanagement.model.dao.PatientDAO;
+import com.patientmanagement.model.dao.StatisticsDAO;
 import com.patientmanagement.util.AlertUtil;
 import com.patientmanagement.util.DateTimeUtil;
 
@@ -22,8 +26,11 @@ import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 
 import java.io.IOException;
+import java.time.DayOfWeek;
 import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
 import java.util.List;
+import java.util.Map;
 
 public class DashboardController {
     
@@ -45,6 +52,15 @@ public class DashboardController {
     @FXML
     private Label statusLabel;
     
+    @FXML
+    private Label monthStatsLabel;
+    
+    @FXML
+    private Label newPatientsLabel;
+    
+    @FXML
+    private Label topReasonsLabel;
+    
     @FXML
     private StackPane contentArea;
     
@@ -76,12 +92,16 @@ public class DashboardController {
     private AppointmentDAO appointmentDAO;
     private PatientDAO patientDAO;
     private DoctorDAO doctorDAO;
+    private StatisticsDAO statisticsDAO;
+    
+    private static final int TOP_REASONS = 3;
     
     @FXML
     private void initialize() {
         appointmentDAO = new AppointmentDAO();
         patientDAO = new PatientDAO();
         doctorDAO = new DoctorDAO();
+        statisticsDAO = new StatisticsDAO();
         
         // Set current date
         dateLabel.setText(DateTimeUtil.formatDate(LocalDate.now()));
@@ -103,7 +123,7 @@ public class DashboardController {
             new SimpleStringProperty(cellData.getValue().getReason()));
         
         statusColumn.setCellValueFactory(cellData -> 
-            new SimpleStringProperty(cellData.getValue().getStatus()));
+            new SimpleStringProperty(cellData.getValue().getAppointmentStatus().getDisplayName()));
         
         // Set status message
         statusLabel.setText("Ready");
@@ -130,32 +150,56 @@ public class DashboardController {
         todayAppointmentsCount.setText(String.valueOf(todayAppointments.size()));
         
         // Count total patients
-        int patientCount = patientDAO.getAllPatients().size();
+        int patientCount = patientDAO.countPatients();
         totalPatientsCount.setText(String.valueOf(patientCount));
         
         // Count total doctors
         int doctorCount = doctorDAO.getAllDoctors().size();
         totalDoctorsCount.setText(String.valueOf(doctorCount));
         
+        // Load consultation statistics
+        loadStatistics();
+        
         // Load upcoming appointments (next 7 days)
         loadUpcomingAppointments();
     }
     
+    /**
+     * Load consultation statistics for the current month and week from the rollup tables
+     */
+    private void loadStatistics() {
+        LocalDate today = LocalDate.now();
+        LocalDate monthStart = today.withDayOfMonth(1);
+        Map<String, Integer> statusCounts = statisticsDAO.getStatusCounts(monthStart, today.withDayOfMonth(today.lengthOfMonth()));
+        monthStatsLabel.setText("This month: " +
+            statusCounts.getOrDefault("scheduled", 0) + " scheduled, " +
+            statusCounts.getOrDefault("completed", 0) + " completed, " +
+            statusCounts.getOrDefault("cancelled", 0) + " cancelled");
+        
+        LocalDate monday = today.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        int newPatients = statisticsDAO.getNewPatientsPerWeek(monday, monday).getOrDefault(monday, 0);
+        newPatientsLabel.setText("New patients this week: " + newPatients);
+        
+        StringBuilder reasons = new StringBuilder();
+        for (Map.Entry<String, Integer> reason : statisticsDAO.getTopReasons(TOP_REASONS).entrySet()) {
+            reasons.append(reasons.length() == 0 ? "" : ", ")
+                   .append(reason.getKey()).append(" (").append(reason.getValue()).append(")");
+        }
+        topReasonsLabel.setText("Top reasons: " + (reasons.length() == 0 ? "none yet" : reasons));
+    }
+    
     /**
      * Load upcoming appointments for the next 7 days
      */
     private void loadUpcomingAppointments() {
-        List<Appointment> appointments = appointmentDAO.getAllAppointments();
-        
-        // Filter for upcoming appointments (scheduled and not in the past)
-        ObservableList<Appointment> upcomingAppointments = FXCollections.observableArrayList();
+        // Only the next 7 days are read, which never reaches into the archive tier
         LocalDate today = LocalDate.now();
-        LocalDate nextWeek = today.plusDays(7);
+        List<Appointment> appointments = appointmentDAO.getAppointmentsBetween(today, today.plusDays(6));
         
+        // Filter for upcoming appointments (scheduled ones)
+        ObservableList<Appointment> upcomingAppointments = FXCollections.observableArrayList();
         for (Appointment appointment : appointments) {
-            if (appointment.isScheduled() && 
-                (appointment.getDate().equals(today) || appointment.getDate().isAfter(today)) && 
-                appointment.getDate().isBefore(nextWeek)) {
+            if (appointment.isScheduled()) {
                 upcomingAppointments.add(appointment);
             }
         }
@@ -181,7 +225,7 @@ public class DashboardController {
                 stage.show();
                 
             } catch (IOException e) {
-                e.printStackTrace();
+                AppLog.error("view.loadFailed", e, "view", "login", "handler", "handleLogout");
                 AlertUtil.showError("Error", "Navigation Error", 
                     "Could not load the login screen. Please try again.");
             }
@@ -199,6 +243,8 @@ public class DashboardController {
     private void handlePatientsButton(ActionEvent event) {
         try {
             // Load the patients view
+            long loadStart = System.nanoTime();
+            ViewLoadEvent loadEvent = ViewLoadEvent.start("patients");
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/patientmanagement/view/patients.fxml"));
             Parent patientsRoot = loader.load();
             
@@ -211,9 +257,11 @@ public class DashboardController {
             contentArea.getChildren().add(patientsRoot);
             
             statusLabel.setText("Patients module loaded");
+            UiMetrics.recordViewLoad("patients", System.nanoTime() - loadStart);
+            loadEvent.finish();
             
         } catch (IOException e) {
-            e.printStackTrace();
+            AppLog.error("view.loadFailed", e, "view", "patients", "handler", "handlePatientsButton");
             AlertUtil.showError("Error", "Navigation Error", 
                 "Could not load the patients screen. Please try again.");
         }
@@ -223,6 +271,8 @@ public class DashboardController {
     private void handleAppointmentsButton(ActionEvent event) {
         try {
             // Load the appointments view
+            long loadStart = System.nanoTime();
+            ViewLoadEvent loadEvent = ViewLoadEvent.start("appointments");
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/patientmanagement/view/appointments.fxml"));
             Parent appointmentsRoot = loader.load();
             
@@ -235,9 +285,11 @@ public class DashboardController {
             contentArea.getChildren().add(appointmentsRoot);
             
             statusLabel.setText("Appointments module loaded");
+            UiMetrics.recordViewLoad("appointments", System.nanoTime() - loadStart);
+            loadEvent.finish();
             
         } catch (IOException e) {
-            e.printStackTrace();
+            AppLog.error("view.loadFailed", e, "view", "appointments", "handler", "handleAppointmentsButton");
             AlertUtil.showError("Error", "Navigation Error", 
                 "Could not load the appointments screen. Please try again.");
         }
@@ -247,6 +299,8 @@ public class DashboardController {
     private void handleMedicalRecordsButton(ActionEvent event) {
         try {
             // Load the medical records view
+            long loadStart = System.nanoTime();
+            ViewLoadEvent loadEvent = ViewLoadEvent.start("medicalRecords");
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/patientmanagement/view/medicalRecords.fxml"));
             Parent medicalRecordsRoot = loader.load();
             
@@ -259,9 +313,11 @@ public class DashboardController {
             contentArea.getChildren().add(medicalRecordsRoot);
             
             statusLabel.setText("Medical Records module loaded");
+            UiMetrics.recordViewLoad("medicalRecords", System.nanoTime() - loadStart);
+            loadEvent.finish();
             
         } catch (IOException e) {
-            e.printStackTrace();
+            AppLog.error("view.loadFailed", e, "view", "medicalRecords", "handler", "handleMedicalRecordsButton");
             AlertUtil.showError("Error", "Navigation Error", 
                 "Could not load the medical records screen. Please try again.");
         }
@@ -271,6 +327,8 @@ public class DashboardController {
     private void handleDoctorsButton(ActionEvent event) {
         try {
             // Load the doctors view
+            long loadStart = System.nanoTime();
+            ViewLoadEvent loadEvent = ViewLoadEvent.start("doctors");
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/patientmanagement/view/doctors.fxml"));
             Parent doctorsRoot = loader.load();
             
@@ -283,18 +341,78 @@ public class DashboardController {
             contentArea.getChildren().add(doctorsRoot);
             
             statusLabel.setText("Doctors module loaded");
+            UiMetrics.recordViewLoad("doctors", System.nanoTime() - loadStart);
+            loadEvent.finish();
             
         } catch (IOException e) {
-            e.printStackTrace();
+            AppLog.error("view.loadFailed", e, "view", "doctors", "handler", "handleDoctorsButton");
             AlertUtil.showError("Error", "Navigation Error", 
                 "Could not load the doctors screen. Please try again.");
         }
     }
     
+    @FXML
+    private void handleOccupancyButton(ActionEvent event) {
+        try {
+            // Load the occupancy heatmap view
+            long loadStart = System.nanoTime();
+            ViewLoadEvent loadEvent = ViewLoadEvent.start("occupancy");
+            FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/patientmanagement/view/occupancy.fxml"));
+            Parent occupancyRoot = loader.load();
+            
+            // Get the controller and pass the user
+            OccupancyController occupancyController = loader.getController();
+            occupancyController.initData(currentUser);
+            
+            // Replace the content area with occupancy view
+            contentArea.getChildren().clear();
+            contentArea.getChildren().add(occupancyRoot);
+            
+            statusLabel.setText("Occupancy module loaded");
+            UiMetrics.recordViewLoad("occupancy", System.nanoTime() - loadStart);
+            loadEvent.finish();
+            
+        } catch (IOException e) {
+            AppLog.error("view.loadFailed", e, "view", "occupancy", "handler", "handleOccupancyButton");
+            AlertUtil.showError("Error", "Navigation Error", 
+                "Could not load the occupancy screen. Please try again.");
+        }
+    }
+    
+    @FXML
+    private void handlePerformanceButton(ActionEvent event) {
+        try {
+            // Load the DAO latency snapshot view
+            long loadStart = System.nanoTime();
+            ViewLoadEvent loadEvent = ViewLoadEvent.start("performance");
+            FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/patientmanagement/view/performance.fxml"));
+            Parent performanceRoot = loader.load();
+            
+            // Get the controller and pass the user
+            PerformanceController performanceController = loader.getController();
+            performanceController.initData(currentUser);
+            
+            // Replace the content area with performance view
+            contentArea.getChildren().clear();
+            contentArea.getChildren().add(performanceRoot);
+            
+            statusLabel.setText("Performance module loaded");
+            UiMetrics.recordViewLoad("performance", System.nanoTime() - loadStart);
+            loadEvent.finish();
+            
+        } catch (IOException e) {
+            AppLog.error("view.loadFailed", e, "view", "performance", "handler", "handlePerformanceButton");
+            AlertUtil.showError("Error", "Navigation Error", 
+                "Could not load the performance screen. Please try again.");
+        }
+    }
+    
     @FXML
     private void handleSettingsButton(ActionEvent event) {
         try {
             // Load the settings view
+            long loadStart = System.nanoTime();
+            ViewLoadEvent loadEvent = ViewLoadEvent.start("settings");
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/patientmanagement/view/settings.fxml"));
             Parent settingsRoot = loader.load();
             
@@ -307,9 +425,11 @@ public class DashboardController {
             contentArea.getChildren().add(settingsRoot);
             
             statusLabel.setText("Settings module loaded");
+            UiMetrics.recordViewLoad("settings", System.nanoTime() - loadStart);
+            loadEvent.finish();
             
         } catch (IOException e) {
-            e.printStackTrace();
+            AppLog.error("view.loadFailed", e, "view", "settings", "handler", "handleSettingsButton");
             AlertUtil.showError("Error", "Navigation Error", 
                 "Could not load the settings screen. Please try again.");
         }
@@ -354,7 +474,7 @@ public class DashboardController {
             loadDashboardData();
             
         } catch (IOException e) {
-            e.printStackTrace();
+            AppLog.error("view.loadFailed", e, "view", "appointmentDialog", "handler", "handleNewAppointment");
             AlertUtil.showError("Error", "Dialog Error", 
                 "Could not open the appointment dialog. Please try again.");
         }
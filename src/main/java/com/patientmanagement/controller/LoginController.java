@@ -1,5 +1,6 @@
 package com.patientmanagement.controller;
 
+import com.patientmanagement.logging.AppLog;
 import com.patientmanagement.model.User;
 import com.patientmanagement.model.dao.UserDAO;
 import com.patientmanagement.util.AlertUtil;
@@ -83,7 +84,7 @@ public class LoginController {
                 stage.show();
                 
             } catch (IOException e) {
-                e.printStackTrace();
+                AppLog.error("view.loadFailed", e, "view", "dashboard", "handler", "handleLogin");
                 AlertUtil.showError("Error", "Navigation Error", 
                     "Could not load the dashboard. Please try again.");
             }
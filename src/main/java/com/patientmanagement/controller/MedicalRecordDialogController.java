@@ -3,6 +3,7 @@ package com.patientmanagement.controller;
 import com.patientmanagement.model.Appointment;
 import com.patientmanagement.model.MedicalRecord;
 import com.patientmanagement.model.User;
+import com.patientmanagement.model.dao.DaoExecutor;
 import com.patientmanagement.model.dao.MedicalRecordDAO;
 import com.patientmanagement.util.AlertUtil;
 import com.patientmanagement.util.DateTimeUtil;
@@ -92,7 +93,7 @@ public class MedicalRecordDialogController {
                 closeDialog();
             } else {
                 AlertUtil.showError("Error", "Operation Failed", 
-                    "Could not save medical record. Please try again.");
+                    DaoExecutor.failureMessage("Could not save medical record."));
             }
         }
     }
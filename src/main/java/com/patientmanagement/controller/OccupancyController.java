@@ -0,0 +1,186 @@
+package com.patientmanagement.controller;
+
+import com.patientmanagement.model.Doctor;
+import com.patientmanagement.model.DoctorOccupancy;
+import com.patientmanagement.model.User;
+import com.patientmanagement.model.dao.DoctorDAO;
+import com.patientmanagement.model.dao.OccupancyDAO;
+import com.patientmanagement.scheduling.Availability;
+import com.patientmanagement.scheduling.AvailabilityCache;
+import com.patientmanagement.scheduling.DayBitmap;
+import com.patientmanagement.util.DateTimeUtil;
+
+import javafx.event.ActionEvent;
+import javafx.fxml.FXML;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.Label;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.paint.Color;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Heatmap of booked time per doctor per day for one quarter, read from the
+ * doctor_day_occupancy aggregate with a single query
+ */
+public class OccupancyController {
+    
+    @FXML
+    private Label periodLabel;
+    
+    @FXML
+    private Canvas heatmapCanvas;
+    
+    @FXML
+    private Label detailLabel;
+    
+    @FXML
+    private Label summaryLabel;
+    
+    private static final double NAME_WIDTH = 160;
+    private static final double HEADER_HEIGHT = 20;
+    private static final double CELL_SIZE = 14;
+    
+    private User currentUser;
+    private OccupancyDAO occupancyDAO;
+    private DoctorDAO doctorDAO;
+    private LocalDate quarterStart;
+    private LocalDate quarterEnd;
+    private List<Doctor> doctors;
+    private Map<Integer, Integer> doctorRows;
+    private DoctorOccupancy[][] cells;
+    
+    @FXML
+    private void initialize() {
+        occupancyDAO = new OccupancyDAO();
+        doctorDAO = new DoctorDAO();
+        
+        LocalDate today = LocalDate.now();
+        quarterStart = today.withMonth((today.getMonthValue() - 1) / 3 * 3 + 1).withDayOfMonth(1);
+        
+        heatmapCanvas.setOnMouseMoved(this::handleMouseMoved);
+    }
+    
+    /**
+     * Initialize the controller with user data
+     * @param user The logged-in user
+     */
+    public void initData(User user) {
+        this.currentUser = user;
+        loadQuarter();
+    }
+    
+    @FXML
+    private void handlePrevious(ActionEvent event) {
+        quarterStart = quarterStart.minusMonths(3);
+        loadQuarter();
+    }
+    
+    @FXML
+    private void handleNext(ActionEvent event) {
+        quarterStart = quarterStart.plusMonths(3);
+        loadQuarter();
+    }
+    
+    /**
+     * Load the aggregate rows of the current quarter and draw the heatmap
+     */
+    private void loadQuarter() {
+        long startNanos = System.nanoTime();
+        quarterEnd = quarterStart.plusMonths(3).minusDays(1);
+        int days = (int) ChronoUnit.DAYS.between(quarterStart, quarterEnd) + 1;
+        
+        doctors = doctorDAO.getAllDoctors();
+        doctorRows = new HashMap<>();
+        for (int row = 0; row < doctors.size(); row++) {
+            doctorRows.put(doctors.get(row).getDoctorId(), row);
+        }
+        
+        cells = new DoctorOccupancy[doctors.size()][days];
+        List<DoctorOccupancy> occupancy = occupancyDAO.getOccupancy(quarterStart, quarterEnd);
+        for (DoctorOccupancy day : occupancy) {
+            Integer row = doctorRows.get(day.getDoctorId());
+            if (row != null) {
+                cells[row][(int) ChronoUnit.DAYS.between(quarterStart, day.getDate())] = day;
+            }
+        }
+        
+        periodLabel.setText(DateTimeUtil.formatDate(quarterStart) + " - " + DateTimeUtil.formatDate(quarterEnd));
+        draw(days);
+        
+        long millis = (System.nanoTime() - startNanos) / 1_000_000;
+        summaryLabel.setText(occupancy.size() + " doctor-days with bookings (" + millis + " ms)");
+    }
+    
+    private void draw(int days) {
+        heatmapCanvas.setWidth(NAME_WIDTH + days * CELL_SIZE);
+        heatmapCanvas.setHeight(HEADER_HEIGHT + doctors.size() * CELL_SIZE);
+        GraphicsContext gc = heatmapCanvas.getGraphicsContext2D();
+        gc.clearRect(0, 0, heatmapCanvas.getWidth(), heatmapCanvas.getHeight());
+        
+        // Day-of-month header, labelled on the 1st and every 7th day
+        gc.setFill(Color.BLACK);
+        for (int day = 0; day < days; day++) {
+            LocalDate date = quarterStart.plusDays(day);
+            if (date.getDayOfMonth() == 1 || date.getDayOfMonth() % 7 == 0) {
+                gc.fillText(String.valueOf(date.getDayOfMonth()), NAME_WIDTH + day * CELL_SIZE, HEADER_HEIGHT - 6);
+            }
+        }
+        
+        for (int row = 0; row < doctors.size(); row++) {
+            Doctor doctor = doctors.get(row);
+            Availability availability = AvailabilityCache.forDoctor(doctor);
+            double y = HEADER_HEIGHT + row * CELL_SIZE;
+            
+            gc.setFill(Color.BLACK);
+            gc.fillText(doctor.getFullName(), 0, y + CELL_SIZE - 3, NAME_WIDTH - 8);
+            
+            for (int day = 0; day < days; day++) {
+                LocalDate date = quarterStart.plusDays(day);
+                gc.setFill(cellColor(cells[row][day], capacityMinutes(availability, date)));
+                gc.fillRect(NAME_WIDTH + day * CELL_SIZE, y, CELL_SIZE - 1, CELL_SIZE - 1);
+            }
+        }
+    }
+    
+    private static int capacityMinutes(Availability availability, LocalDate date) {
+        return DayBitmap.cardinality(availability.workingSlots(date)) * DayBitmap.SLOT_MINUTES;
+    }
+    
+    /**
+     * Colour of a cell: grey for days off, then white to red as the working time fills up
+     */
+    private static Color cellColor(DoctorOccupancy occupancy, int capacityMinutes) {
+        int booked = occupancy == null ? 0 : occupancy.getBookedMinutes();
+        if (capacityMinutes == 0 && booked == 0) {
+            return Color.gray(0.85);
+        }
+        double utilisation = capacityMinutes == 0 ? 1.0 : Math.min(1.0, (double) booked / capacityMinutes);
+        return Color.WHITE.interpolate(Color.web("#c0392b"), utilisation);
+    }
+    
+    private void handleMouseMoved(MouseEvent event) {
+        int row = (int) ((event.getY() - HEADER_HEIGHT) / CELL_SIZE);
+        int day = (int) ((event.getX() - NAME_WIDTH) / CELL_SIZE);
+        if (event.getY() < HEADER_HEIGHT || event.getX() < NAME_WIDTH
+                || row >= doctors.size() || day >= cells[row].length) {
+            return;
+        }
+        
+        Doctor doctor = doctors.get(row);
+        LocalDate date = quarterStart.plusDays(day);
+        DoctorOccupancy occupancy = cells[row][day];
+        int capacity = capacityMinutes(AvailabilityCache.forDoctor(doctor), date);
+        int booked = occupancy == null ? 0 : occupancy.getBookedMinutes();
+        int count = occupancy == null ? 0 : occupancy.getAppointmentCount();
+        
+        detailLabel.setText(doctor.getFullName() + ", " + DateTimeUtil.formatDate(date) + ": " +
+            booked + " of " + capacity + " min booked, " + count + " appointment(s)" +
+            (capacity > 0 ? " (" + Math.round(100.0 * booked / capacity) + "%)" : ""));
+    }
+}
@@ -1,10 +1,12 @@
 package com.patientmanagement.controller;
 
+import com.patientmanagement.logging.AppLog;
 import com.patientmanagement.model.Appointment;
 import com.patientmanagement.model.MedicalRecord;
 import com.patientmanagement.model.Patient;
 import com.patientmanagement.model.User;
 import com.patientmanagement.model.dao.AppointmentDAO;
+import com.patientmanagement.model.dao.DaoExecutor;
 import com.patientmanagement.model.dao.MedicalRecordDAO;
 import com.patientmanagement.model.dao.PatientDAO;
 import com.patientmanagement.util.AlertUtil;
@@ -127,7 +129,7 @@ public class PatientDetailsController {
             new SimpleStringProperty(cellData.getValue().getReason()));
         
         statusColumn.setCellValueFactory(cellData -> 
-            new SimpleStringProperty(cellData.getValue().getStatus()));
+            new SimpleStringProperty(cellData.getValue().getAppointmentStatus().getDisplayName()));
         
         // Initialize medical records table columns
         recordDateColumn.setCellValueFactory(cellData -> 
@@ -302,7 +304,7 @@ public class PatientDetailsController {
             }
             
         } catch (IOException e) {
-            e.printStackTrace();
+            AppLog.error("view.loadFailed", e, "view", "patientDialog", "handler", "handleEditPatient");
             AlertUtil.showError("Error", "Dialog Error", 
                 "Could not open the patient dialog. Please try again.");
         }
@@ -334,7 +336,7 @@ public class PatientDetailsController {
             loadAppointments();
             
         } catch (IOException e) {
-            e.printStackTrace();
+            AppLog.error("view.loadFailed", e, "view", "appointmentDialog", "handler", "handleNewAppointment");
             AlertUtil.showError("Error", "Dialog Error", 
                 "Could not open the appointment dialog. Please try again.");
         }
@@ -365,7 +367,7 @@ public class PatientDetailsController {
             loadMedicalRecords();
             
         } catch (IOException e) {
-            e.printStackTrace();
+            AppLog.error("view.loadFailed", e, "view", "appointmentDetails", "handler", "handleViewAppointment");
             AlertUtil.showError("Error", "View Error", 
                 "Could not open the appointment details. Please try again.");
         }
@@ -396,7 +398,7 @@ public class PatientDetailsController {
             loadAppointments();
             
         } catch (IOException e) {
-            e.printStackTrace();
+            AppLog.error("view.loadFailed", e, "view", "appointmentDialog", "handler", "handleEditAppointment");
             AlertUtil.showError("Error", "Dialog Error", 
                 "Could not open the appointment dialog. Please try again.");
         }
@@ -415,7 +417,7 @@ public class PatientDetailsController {
                 loadAppointments();
             } else {
                 AlertUtil.showError("Error", "Cancellation Failed", 
-                    "Could not cancel the appointment. Please try again.");
+                    DaoExecutor.failureMessage("Could not cancel the appointment."));
             }
         }
     }
@@ -441,7 +443,7 @@ public class PatientDetailsController {
             detailsStage.show();
             
         } catch (IOException e) {
-            e.printStackTrace();
+            AppLog.error("view.loadFailed", e, "view", "medicalRecordDetails", "handler", "handleViewMedicalRecord");
             AlertUtil.showError("Error", "View Error", 
                 "Could not open the medical record details. Please try again.");
         }
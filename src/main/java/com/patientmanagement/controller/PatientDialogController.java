@@ -1,6 +1,7 @@
 package com.patientmanagement.controller;
 
 import com.patientmanagement.model.Patient;
+import com.patientmanagement.model.dao.DaoExecutor;
 import com.patientmanagement.model.dao.PatientDAO;
 import com.patientmanagement.util.AlertUtil;
 import com.patientmanagement.util.ValidationUtil;
@@ -139,7 +140,7 @@ public class PatientDialogController {
                 closeDialog();
             } else {
                 AlertUtil.showError("Error", "Operation Failed", 
-                    "Could not save patient information. Please try again.");
+                    DaoExecutor.failureMessage("Could not save patient information."));
             }
         }
     }
@@ -1,7 +1,10 @@
 package com.patientmanagement.controller;
 
+import com.patientmanagement.logging.AppLog;
 import com.patientmanagement.model.Patient;
+import com.patientmanagement.model.PatientRow;
 import com.patientmanagement.model.User;
+import com.patientmanagement.model.dao.DaoExecutor;
 import com.patientmanagement.model.dao.PatientDAO;
 import com.patientmanagement.util.AlertUtil;
 import com.patientmanagement.util.DateTimeUtil;
@@ -30,35 +33,35 @@ public class PatientsController {
     private TextField searchField;
     
     @FXML
-    private TableView<Patient> patientsTable;
+    private TableView<PatientRow> patientsTable;
     
     @FXML
-    private TableColumn<Patient, Integer> idColumn;
+    private TableColumn<PatientRow, Integer> idColumn;
     
     @FXML
-    private TableColumn<Patient, String> nameColumn;
+    private TableColumn<PatientRow, String> nameColumn;
     
     @FXML
-    private TableColumn<Patient, String> dobColumn;
+    private TableColumn<PatientRow, String> dobColumn;
     
     @FXML
-    private TableColumn<Patient, String> genderColumn;
+    private TableColumn<PatientRow, String> genderColumn;
     
     @FXML
-    private TableColumn<Patient, String> phoneColumn;
+    private TableColumn<PatientRow, String> phoneColumn;
     
     @FXML
-    private TableColumn<Patient, String> emailColumn;
+    private TableColumn<PatientRow, String> emailColumn;
     
     @FXML
-    private TableColumn<Patient, Void> actionsColumn;
+    private TableColumn<PatientRow, Void> actionsColumn;
     
     @FXML
     private Label totalPatientsLabel;
     
     private User currentUser;
     private PatientDAO patientDAO;
-    private ObservableList<Patient> patientsList;
+    private ObservableList<PatientRow> patientsList;
     
     @FXML
     private void initialize() {
@@ -93,10 +96,10 @@ public class PatientsController {
     }
     
     /**
-     * Load all patients from the database
+     * Load the list rows of all patients from the database
      */
     private void loadPatients() {
-        List<Patient> patients = patientDAO.getAllPatients();
+        List<PatientRow> patients = patientDAO.getPatientRows();
         patientsList = FXCollections.observableArrayList(patients);
         patientsTable.setItems(patientsList);
         totalPatientsLabel.setText("Total Patients: " + patients.size());
@@ -106,9 +109,9 @@ public class PatientsController {
      * Set up the actions column with view, edit, and delete buttons
      */
     private void setupActionsColumn() {
-        Callback<TableColumn<Patient, Void>, TableCell<Patient, Void>> cellFactory = new Callback<>() {
+        Callback<TableColumn<PatientRow, Void>, TableCell<PatientRow, Void>> cellFactory = new Callback<>() {
             @Override
-            public TableCell<Patient, Void> call(final TableColumn<Patient, Void> param) {
+            public TableCell<PatientRow, Void> call(final TableColumn<PatientRow, Void> param) {
                 return new TableCell<>() {
                     private final Button viewBtn = new Button("View");
                     private final Button editBtn = new Button("Edit");
@@ -117,17 +120,17 @@ public class PatientsController {
                     
                     {
                         viewBtn.setOnAction(event -> {
-                            Patient patient = getTableView().getItems().get(getIndex());
+                            PatientRow patient = getTableView().getItems().get(getIndex());
                             handleViewPatient(patient);
                         });
                         
                         editBtn.setOnAction(event -> {
-                            Patient patient = getTableView().getItems().get(getIndex());
+                            PatientRow patient = getTableView().getItems().get(getIndex());
                             handleEditPatient(patient);
                         });
                         
                         deleteBtn.setOnAction(event -> {
-                            Patient patient = getTableView().getItems().get(getIndex());
+                            PatientRow patient = getTableView().getItems().get(getIndex());
                             handleDeletePatient(patient);
                         });
                     }
@@ -151,7 +154,7 @@ public class PatientsController {
         if (searchTerm.isEmpty()) {
             loadPatients();
         } else {
-            List<Patient> searchResults = patientDAO.searchPatientsByName(searchTerm);
+            List<PatientRow> searchResults = patientDAO.searchPatientRowsByName(searchTerm);
             patientsList = FXCollections.observableArrayList(searchResults);
             patientsTable.setItems(patientsList);
             totalPatientsLabel.setText("Search Results: " + searchResults.size());
@@ -184,13 +187,33 @@ public class PatientsController {
             loadPatients();
             
         } catch (IOException e) {
-            e.printStackTrace();
+            AppLog.error("view.loadFailed", e, "view", "patientDialog", "handler", "handleAddPatient");
             AlertUtil.showError("Error", "Dialog Error", 
                 "Could not open the patient dialog. Please try again.");
         }
     }
     
-    private void handleViewPatient(Patient patient) {
+    /**
+     * Load the full patient behind a list row
+     * @param row The selected row
+     * @return The patient, or null if it could not be loaded (the user has been told)
+     */
+    private Patient loadPatient(PatientRow row) {
+        Patient patient = patientDAO.getPatientById(row.getPatientId());
+        if (patient == null) {
+            AlertUtil.showError("Error", "Patient Not Found", 
+                "Could not load patient " + row.getFullName() + ". It may have been deleted.");
+            loadPatients();
+        }
+        return patient;
+    }
+    
+    private void handleViewPatient(PatientRow row) {
+        Patient patient = loadPatient(row);
+        if (patient == null) {
+            return;
+        }
+        
         try {
             // Load the patient details view
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/patientmanagement/view/patientDetails.fxml"));
@@ -211,13 +234,18 @@ public class PatientsController {
             detailsStage.show();
             
         } catch (IOException e) {
-            e.printStackTrace();
+            AppLog.error("view.loadFailed", e, "view", "patientDetails", "handler", "handleViewPatient");
             AlertUtil.showError("Error", "View Error", 
                 "Could not open the patient details. Please try again.");
         }
     }
     
-    private void handleEditPatient(Patient patient) {
+    private void handleEditPatient(PatientRow row) {
+        Patient patient = loadPatient(row);
+        if (patient == null) {
+            return;
+        }
+        
         try {
             // Load the patient dialog
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/patientmanagement/view/patientDialog.fxml"));
@@ -242,13 +270,13 @@ public class PatientsController {
             loadPatients();
             
         } catch (IOException e) {
-            e.printStackTrace();
+            AppLog.error("view.loadFailed", e, "view", "patientDialog", "handler", "handleEditPatient");
             AlertUtil.showError("Error", "Dialog Error", 
                 "Could not open the patient dialog. Please try again.");
         }
     }
     
-    private void handleDeletePatient(Patient patient) {
+    private void handleDeletePatient(PatientRow patient) {
         if (AlertUtil.showConfirmation("Delete Patient", "Confirm Deletion", 
                 "Are you sure you want to delete patient " + patient.getFullName() + "?\n" +
                 "This will also delete all appointments and medical records for this patient.")) {
@@ -261,7 +289,7 @@ public class PatientsController {
                 loadPatients();
             } else {
                 AlertUtil.showError("Error", "Deletion Failed", 
-                    "Could not delete the patient. Please try again.");
+                    DaoExecutor.failureMessage("Could not delete the patient."));
             }
         }
     }
@@ -0,0 +1,109 @@
+package com.patientmanagement.controller;
+
+import com.patientmanagement.metrics.DaoMetrics;
+import com.patientmanagement.metrics.OperationSnapshot;
+import com.patientmanagement.model.User;
+import com.patientmanagement.model.dao.DaoExecutor;
+
+import javafx.beans.property.SimpleStringProperty;
+import javafx.collections.FXCollections;
+import javafx.event.ActionEvent;
+import javafx.fxml.FXML;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.control.cell.PropertyValueFactory;
+
+import java.util.List;
+
+/**
+ * Snapshot of the DAO latency histograms: calls, rows and percentiles per operation,
+ * slowest first
+ */
+public class PerformanceController {
+    
+    @FXML
+    private TableView<OperationSnapshot> operationsTable;
+    
+    @FXML
+    private TableColumn<OperationSnapshot, String> operationColumn;
+    
+    @FXML
+    private TableColumn<OperationSnapshot, Long> callsColumn;
+    
+    @FXML
+    private TableColumn<OperationSnapshot, String> rowsColumn;
+    
+    @FXML
+    private TableColumn<OperationSnapshot, Long> failuresColumn;
+    
+    @FXML
+    private TableColumn<OperationSnapshot, String> p50Column;
+    
+    @FXML
+    private TableColumn<OperationSnapshot, String> p95Column;
+    
+    @FXML
+    private TableColumn<OperationSnapshot, String> p99Column;
+    
+    @FXML
+    private TableColumn<OperationSnapshot, String> maxColumn;
+    
+    @FXML
+    private Label summaryLabel;
+    
+    @FXML
+    private Label retryLabel;
+    
+    private User currentUser;
+    
+    @FXML
+    private void initialize() {
+        operationColumn.setCellValueFactory(new PropertyValueFactory<>("operation"));
+        callsColumn.setCellValueFactory(new PropertyValueFactory<>("calls"));
+        failuresColumn.setCellValueFactory(new PropertyValueFactory<>("failures"));
+        rowsColumn.setCellValueFactory(cellData ->
+            new SimpleStringProperty(String.format("%.1f", cellData.getValue().getRowsPerCall())));
+        p50Column.setCellValueFactory(cellData -> millis(cellData.getValue().getP50Micros()));
+        p95Column.setCellValueFactory(cellData -> millis(cellData.getValue().getP95Micros()));
+        p99Column.setCellValueFactory(cellData -> millis(cellData.getValue().getP99Micros()));
+        maxColumn.setCellValueFactory(cellData -> millis(cellData.getValue().getMaxMicros()));
+    }
+    
+    /**
+     * Initialize the controller with user data
+     * @param user The logged-in user
+     */
+    public void initData(User user) {
+        this.currentUser = user;
+        loadSnapshot();
+    }
+    
+    @FXML
+    private void handleRefresh(ActionEvent event) {
+        loadSnapshot();
+    }
+    
+    @FXML
+    private void handleReset(ActionEvent event) {
+        DaoMetrics.reset();
+        loadSnapshot();
+    }
+    
+    private void loadSnapshot() {
+        List<OperationSnapshot> snapshots = DaoMetrics.snapshot();
+        operationsTable.setItems(FXCollections.observableArrayList(snapshots));
+        
+        long calls = 0;
+        for (OperationSnapshot snapshot : snapshots) {
+            calls += snapshot.getCalls();
+        }
+        summaryLabel.setText(calls + " call(s) to " + snapshots.size() + " operation(s)");
+        retryLabel.setText(DaoExecutor.getRetriedOperationCount() + " call(s) retried for a busy database, " +
+                           DaoExecutor.getRetryWaitMillis() + " ms waited");
+    }
+    
+    private static SimpleStringProperty millis(long micros) {
+        return new SimpleStringProperty(String.format("%.2f", micros / 1000.0));
+    }
+}
@@ -0,0 +1,290 @@
+package com.patientmanagement.logging;
+
+import com.patientmanagement.util.DatabaseUtil;
+import com.patientmanagement.util.RotatingFile;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous structured application log. Callers hand over an event name, an optional error and
+ * key/value fields, e.g.
+ *
+ *     AppLog.error("dao.failed", e, "operation", "PatientDAO.createPatient", "patientId", 12);
+ *
+ * The event goes into a lock-free ring buffer and the caller returns; a writer thread formats
+ * batches of events as logfmt lines and appends them to logs/application.log (rotated), and to
+ * standard error unless patientmanagement.log.console is false. Field values are formatted on the
+ * writer thread, so they should be immutable: strings, numbers, enums, dates.
+ *
+ * When the buffer is full the overflow policy (patientmanagement.log.overflow) decides: "drop"
+ * (the default) drops the event, "block" waits up to patientmanagement.log.blockMillis for space
+ * first. The JavaFX Application Thread (registered by Main.start) never waits. Dropped events are counted, and the count is
+ * logged once the writer catches up.
+ *
+ * Events below patientmanagement.log.level (default "info") are ignored. An unrecognised level or
+ * overflow value is logged as log.invalidProperty and the default is used instead.
+ */
+public final class AppLog {
+    
+    /**
+     * Severity of an event
+     */
+    public enum Level {
+        DEBUG, INFO, WARN, ERROR
+    }
+    
+    /**
+     * What a caller does when the buffer is full
+     */
+    public enum Overflow {
+        // Drop the event and count it
+        DROP,
+        // Wait a bounded time for the writer to make room, then drop
+        BLOCK
+    }
+    
+    private static final int BUFFER_SIZE = Integer.getInteger("patientmanagement.log.bufferSize", 8192);
+    private static final long MAX_BYTES = Long.getLong("patientmanagement.log.maxBytes", 10_000_000);
+    private static final int KEEP_FILES = Integer.getInteger("patientmanagement.log.keepFiles", 5);
+    private static final long BLOCK_NANOS =
+        TimeUnit.MILLISECONDS.toNanos(Long.getLong("patientmanagement.log.blockMillis", 100));
+    private static final boolean CONSOLE =
+        Boolean.parseBoolean(System.getProperty("patientmanagement.log.console", "true"));
+    
+    // Events formatted and written per file append
+    private static final int BATCH_SIZE = 256;
+    
+    // Longest time the writer sleeps while the buffer is empty; warnings and errors wake it at once
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    
+    private static final RingBuffer<LogEvent> BUFFER = new RingBuffer<>(BUFFER_SIZE);
+    private static final LongAdder DROPPED = new LongAdder();
+    private static final LongAdder WRITTEN = new LongAdder();
+    
+    private static final String LEVEL_PROPERTY = "patientmanagement.log.level";
+    private static final String OVERFLOW_PROPERTY = "patientmanagement.log.overflow";
+    
+    // A misspelt value falls back to the default rather than failing the class initialisation
+    private static volatile Level threshold = parse(LEVEL_PROPERTY, Level.class, Level.INFO);
+    private static volatile Overflow overflow = parse(OVERFLOW_PROPERTY, Overflow.class, Overflow.DROP);
+    
+    // Thread that never waits for space, normally the JavaFX Application Thread; null in headless runs
+    private static volatile Thread uiThread;
+    
+    // Position up to which events have been written; only advanced by the writer thread
+    private static volatile long writtenPosition;
+    
+    private static final Thread WRITER = new Thread(AppLog::writeLoop, "app-log-writer");
+    
+    // Only used on the writer thread
+    private static RotatingFile file;
+    private static long droppedReported;
+    
+    static {
+        WRITER.setDaemon(true);
+        WRITER.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> flush(2000), "app-log-flush"));
+        reportIgnored(LEVEL_PROPERTY, threshold);
+        reportIgnored(OVERFLOW_PROPERTY, overflow);
+    }
+    
+    private AppLog() {
+    }
+    
+    /**
+     * Read an enum setting, ignoring case
+     * @param property System property name
+     * @param type The enum
+     * @param fallback Value used when the property is unset or names no constant
+     * @return The setting
+     */
+    private static <E extends Enum<E>> E parse(String property, Class<E> type, E fallback) {
+        String value = System.getProperty(property);
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            return Enum.valueOf(type, value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return fallback;
+        }
+    }
+    
+    // Log a setting whose value parse() did not recognise, once the writer is running
+    private static void reportIgnored(String property, Enum<?> used) {
+        String value = System.getProperty(property);
+        if (value != null && !value.trim().equalsIgnoreCase(used.name())) {
+            warn("log.invalidProperty", null, "property", property, "value", value, "using", used);
+        }
+    }
+    
+    public static void debug(String event, Object... fields) {
+        log(Level.DEBUG, event, null, fields);
+    }
+    
+    public static void info(String event, Object... fields) {
+        log(Level.INFO, event, null, fields);
+    }
+    
+    public static void warn(String event, Throwable error, Object... fields) {
+        log(Level.WARN, event, error, fields);
+    }
+    
+    public static void error(String event, Throwable error, Object... fields) {
+        log(Level.ERROR, event, error, fields);
+    }
+    
+    /**
+     * Queue an event for the writer thread
+     * @param level Severity; events below the level threshold are ignored
+     * @param event Dotted event name, e.g. "dao.failed"
+     * @param error The error, or null
+     * @param fields Alternating keys and values
+     */
+    public static void log(Level level, String event, Throwable error, Object... fields) {
+        if (level.compareTo(threshold) < 0) {
+            return;
+        }
+        LogEvent logEvent = new LogEvent(level, event, error, fields);
+        boolean added = BUFFER.offer(logEvent);
+        if (!added && overflow == Overflow.BLOCK && Thread.currentThread() != uiThread) {
+            long deadline = System.nanoTime() + BLOCK_NANOS;
+            LockSupport.unpark(WRITER);
+            while (!added && System.nanoTime() < deadline) {
+                LockSupport.parkNanos(100_000);
+                added = BUFFER.offer(logEvent);
+            }
+        }
+        if (!added) {
+            DROPPED.increment();
+            return;
+        }
+        if (level.compareTo(Level.WARN) >= 0) {
+            LockSupport.unpark(WRITER);
+        }
+    }
+    
+    /**
+     * Wait until the events logged so far have been written
+     * @param timeoutMillis Longest time to wait
+     * @return true if they were written in time
+     */
+    public static boolean flush(long timeoutMillis) {
+        long target = BUFFER.getProduced();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (writtenPosition < target) {
+            if (System.nanoTime() >= deadline || Thread.currentThread() == WRITER) {
+                return false;
+            }
+            LockSupport.unpark(WRITER);
+            LockSupport.parkNanos(1_000_000);
+        }
+        return true;
+    }
+    
+    public static Level getLevel() {
+        return threshold;
+    }
+    
+    public static void setLevel(Level level) {
+        threshold = level;
+    }
+    
+    public static Overflow getOverflow() {
+        return overflow;
+    }
+    
+    public static void setOverflow(Overflow policy) {
+        overflow = policy;
+    }
+    
+    /**
+     * Register the thread that must never wait for the writer, even under the block policy
+     * @param thread The JavaFX Application Thread
+     */
+    public static void setUiThread(Thread thread) {
+        uiThread = thread;
+    }
+    
+    // Events lost because the buffer was full
+    public static long getDroppedCount() {
+        return DROPPED.sum();
+    }
+    
+    public static long getWrittenCount() {
+        return WRITTEN.sum();
+    }
+    
+    /**
+     * Get the log file: patientmanagement.log.file, or application.log in a logs directory next
+     * to the database
+     */
+    public static Path getLogFile() {
+        String configured = System.getProperty("patientmanagement.log.file");
+        if (configured != null) {
+            return Paths.get(configured);
+        }
+        return Paths.get(DatabaseUtil.getDatabaseFile()).toAbsolutePath().resolveSibling("logs")
+                    .resolve("application.log");
+    }
+    
+    private static void writeLoop() {
+        List<LogEvent> batch = new ArrayList<>(BATCH_SIZE);
+        List<String> lines = new ArrayList<>();
+        while (true) {
+            batch.clear();
+            lines.clear();
+            BUFFER.drainTo(batch, BATCH_SIZE);
+            long dropped = DROPPED.sum();
+            if (dropped > droppedReported) {
+                new LogEvent(Level.WARN, "log.dropped", null,
+                             new Object[] { "events", dropped - droppedReported, "total", dropped }).format(lines);
+                droppedReported = dropped;
+            }
+            if (batch.isEmpty() && lines.isEmpty()) {
+                writtenPosition = BUFFER.getConsumed();
+                LockSupport.parkNanos(IDLE_NANOS);
+                continue;
+            }
+            
+            for (LogEvent event : batch) {
+                try {
+                    event.format(lines);
+                } catch (RuntimeException e) {
+                    // A field's toString() failed; keep the writer alive
+                    lines.add("log.formatFailed error=" + e);
+                }
+            }
+            write(lines);
+            WRITTEN.add(batch.size());
+            writtenPosition = BUFFER.getConsumed();
+        }
+    }
+    
+    private static void write(List<String> lines) {
+        try {
+            Path target = getLogFile().toAbsolutePath();
+            if (file == null || !file.getFile().equals(target)) {
+                file = new RotatingFile(target, MAX_BYTES, KEEP_FILES);
+            }
+            file.append(lines);
+        } catch (RuntimeException e) {
+            // No log to report to; the console copy below still has the events
+            e.printStackTrace();
+        }
+        if (CONSOLE) {
+            StringBuilder text = new StringBuilder();
+            for (String line : lines) {
+                text.append(line).append(System.lineSeparator());
+            }
+            System.err.print(text);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.patientmanagement.logging;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * One structured log event as captured on the caller's thread. Nothing is formatted until the
+ * writer thread turns it into lines
+ */
+final class LogEvent {
+    
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS");
+    
+    private final long timeMillis;
+    private final AppLog.Level level;
+    private final String thread;
+    private final String event;
+    private final Object[] fields;
+    private final Throwable error;
+    
+    LogEvent(AppLog.Level level, String event, Throwable error, Object[] fields) {
+        this.timeMillis = System.currentTimeMillis();
+        this.level = level;
+        this.thread = Thread.currentThread().getName();
+        this.event = event;
+        this.fields = fields;
+        this.error = error;
+    }
+    
+    AppLog.Level getLevel() {
+        return level;
+    }
+    
+    /**
+     * Format the event as a logfmt line, followed by the stack trace of its error if it has one
+     * @param lines Lines to append to
+     */
+    void format(List<String> lines) {
+        StringBuilder line = new StringBuilder(128);
+        line.append(LocalDateTime.ofInstant(Instant.ofEpochMilli(timeMillis), ZoneId.systemDefault()).format(TIME))
+            .append(' ').append(level).append(" [").append(thread).append("] ").append(event);
+        for (int i = 0; i + 1 < fields.length; i += 2) {
+            line.append(' ').append(fields[i]).append('=');
+            appendValue(line, fields[i + 1]);
+        }
+        if (error != null) {
+            line.append(" error=");
+            appendValue(line, error.getMessage() != null ? error.getMessage() : error.getClass().getName());
+        }
+        lines.add(line.toString());
+        
+        if (error != null) {
+            StringWriter trace = new StringWriter();
+            error.printStackTrace(new PrintWriter(trace));
+            for (String traceLine : trace.toString().split("\\R")) {
+                lines.add("    " + traceLine);
+            }
+        }
+    }
+    
+    // Values with spaces, quotes or an equals sign are quoted, so each line splits into key=value pairs
+    private static void appendValue(StringBuilder line, Object value) {
+        String text = String.valueOf(value);
+        boolean quote = text.isEmpty();
+        for (int i = 0; i < text.length() && !quote; i++) {
+            char c = text.charAt(i);
+            quote = c <= ' ' || c == '"' || c == '=';
+        }
+        if (!quote) {
+            line.append(text);
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                line.append('\\').append(c);
+            } else if (c == '\n') {
+                line.append("\\n");
+            } else if (c == '\r') {
+                line.append("\\r");
+            } else if (c == '\t') {
+                line.append("\\t");
+            } else {
+                line.append(c);
+            }
+        }
+        line.append('"');
+    }
+}
@@ -0,0 +1,95 @@
+package com.patientmanagement.logging;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free queue for many producers and one consumer. Each slot carries a sequence
+ * number: producers claim a position with one compare-and-set and publish the element by
+ * advancing the slot's sequence, so offering never takes a lock or waits for the consumer; a full
+ * buffer makes offer() return false
+ */
+final class RingBuffer<E> {
+    
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<E> slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+    
+    /**
+     * @param capacity Number of slots, rounded up to a power of two
+     */
+    RingBuffer(int capacity) {
+        this.capacity = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1);
+        this.mask = this.capacity - 1;
+        this.slots = new AtomicReferenceArray<>(this.capacity);
+        this.sequences = new AtomicLongArray(this.capacity);
+        for (int i = 0; i < this.capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+    
+    /**
+     * Add an element unless the buffer is full. Safe to call from any thread
+     * @return true if the element was added
+     */
+    boolean offer(E element) {
+        while (true) {
+            long position = tail.get();
+            int index = (int) position & mask;
+            long sequence = sequences.get(index);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.set(index, element);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+            } else if (sequence < position) {
+                // The consumer has not freed this slot yet
+                return false;
+            }
+            // Another producer claimed the position first; try the next one
+        }
+    }
+    
+    /**
+     * Move up to max published elements into a list. Only called by the consumer
+     * @return Number of elements moved
+     */
+    int drainTo(List<E> target, int max) {
+        long position = head;
+        int drained = 0;
+        while (drained < max) {
+            int index = (int) position & mask;
+            if (sequences.get(index) != position + 1) {
+                // Empty, or the next producer is still writing its element
+                break;
+            }
+            target.add(slots.get(index));
+            slots.set(index, null);
+            sequences.set(index, position + capacity);
+            position++;
+            drained++;
+        }
+        head = position;
+        return drained;
+    }
+    
+    // Positions claimed by producers so far
+    long getProduced() {
+        return tail.get();
+    }
+    
+    // Positions taken by the consumer so far
+    long getConsumed() {
+        return head;
+    }
+    
+    int getCapacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,103 @@
+package com.patientmanagement.maintenance;
+
+import java.util.List;
+
+/**
+ * Outcome and timings of one maintenance run
+ */
+public class MaintenanceResult {
+    
+    private final int trimmedChanges;
+    private final List<String> analyzedTables;
+    private final int freedPages;
+    private final int pageSize;
+    private final long fileBytesBefore;
+    private final long fileBytesAfter;
+    private final int checkedTables;
+    private final List<String> problems;
+    private final int writeSteps;
+    private final long longestLockMillis;
+    private final boolean completed;
+    private final long totalMillis;
+    
+    public MaintenanceResult(int trimmedChanges, List<String> analyzedTables, int freedPages, int pageSize,
+                             long fileBytesBefore, long fileBytesAfter, int checkedTables, List<String> problems,
+                             int writeSteps, long longestLockMillis, boolean completed, long totalMillis) {
+        this.trimmedChanges = trimmedChanges;
+        this.analyzedTables = analyzedTables;
+        this.freedPages = freedPages;
+        this.pageSize = pageSize;
+        this.fileBytesBefore = fileBytesBefore;
+        this.fileBytesAfter = fileBytesAfter;
+        this.checkedTables = checkedTables;
+        this.problems = problems;
+        this.writeSteps = writeSteps;
+        this.longestLockMillis = longestLockMillis;
+        this.completed = completed;
+        this.totalMillis = totalMillis;
+    }
+    
+    // change_log entries deleted because no kept backup can need them
+    public int getTrimmedChanges() {
+        return trimmedChanges;
+    }
+    
+    // Tables whose planner statistics were missing or stale and were analyzed again
+    public List<String> getAnalyzedTables() {
+        return analyzedTables;
+    }
+    
+    // Free pages returned to the file system by incremental_vacuum
+    public int getFreedPages() {
+        return freedPages;
+    }
+    
+    public long getFileBytesBefore() {
+        return fileBytesBefore;
+    }
+    
+    public long getFileBytesAfter() {
+        return fileBytesAfter;
+    }
+    
+    // Tables (with their indexes) that passed through quick_check in this run
+    public int getCheckedTables() {
+        return checkedTables;
+    }
+    
+    // Messages reported by quick_check; empty if the checked tables are intact
+    public List<String> getProblems() {
+        return problems;
+    }
+    
+    // Short transactions run: change_log batches, ANALYZE per table, PRAGMA optimize and incremental_vacuum steps
+    public int getWriteSteps() {
+        return writeSteps;
+    }
+    
+    // Longest of the write steps: the longest time other connections could not write
+    public long getLongestLockMillis() {
+        return longestLockMillis;
+    }
+    
+    // false if the run stopped early because the application used the database
+    public boolean isCompleted() {
+        return completed;
+    }
+    
+    public long getTotalMillis() {
+        return totalMillis;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("trimmed %d change(s); analyzed %d table(s)%s; vacuumed %d page(s) (%.1f MB, file %.1f -> %.1f MB); " +
+                             "quick_check of %d table(s): %s; %d write step(s), longest %d ms; total %d ms%s",
+                             trimmedChanges, analyzedTables.size(), analyzedTables.isEmpty() ? "" : " " + analyzedTables,
+                             freedPages, (long) freedPages * pageSize / 1e6, fileBytesBefore / 1e6,
+                             fileBytesAfter / 1e6, checkedTables,
+                             problems.isEmpty() ? "ok" : problems.size() + " problem(s)",
+                             writeSteps, longestLockMillis, totalMillis,
+                             completed ? "" : ", stopped early for database activity");
+    }
+}
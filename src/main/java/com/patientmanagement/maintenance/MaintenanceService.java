@@ -0,0 +1,379 @@
+package com.patientmanagement.maintenance;
+
+import com.patientmanagement.backup.BackupService;
+import com.patientmanagement.logging.AppLog;
+import com.patientmanagement.metrics.BackgroundTaskEvent;
+import com.patientmanagement.util.DatabaseUtil;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the database file in shape while the application is idle: trims change_log entries no
+ * backup can need (backups trim it too, but may be off or failing), ANALYZE for tables whose
+ * planner statistics are missing or stale, PRAGMA optimize, PRAGMA incremental_vacuum to hand the
+ * pages freed by deletes back to the file system, and PRAGMA quick_check to notice corruption.
+ *
+ * Every write is its own short transaction: change_log is trimmed a batch of entries at a time,
+ * ANALYZE runs one table at a time with a sampling limit, and each incremental_vacuum transaction
+ * frees pages until maxLockMillis is used up.
+ * Writers get a pause between steps. A scheduled run starts only after the database has gone
+ * unused for idleMillis and stops as soon as the application opens a connection; the next idle
+ * period carries on. quick_check only reads, one table and its indexes at a time.
+ *
+ * Databases created before incremental auto-vacuum cannot hand pages back until they are switched
+ * over with enableIncrementalVacuum. That rewrites the whole file under an exclusive lock, so it
+ * is never part of a run; it is started explicitly (Main --maintain --enable-incremental-vacuum)
+ * in a maintenance window.
+ */
+public class MaintenanceService {
+    
+    
+    // Rows ANALYZE samples per index, which bounds the time one table's ANALYZE takes
+    private static final int ANALYSIS_LIMIT = 400;
+    
+    // Factor by which a table's row count may drift from its statistics before they count as stale
+    private static final double STALE_RATIO = 1.25;
+    
+    // Pause after each write step, so waiting writers get the lock
+    private static final long STEP_PAUSE_MILLIS = 20;
+    
+    // change_log entries deleted per write step
+    private static final int TRIM_BATCH_SIZE = 2000;
+    
+    // PRAGMA auto_vacuum value of incremental mode
+    private static final int INCREMENTAL = 2;
+    
+    private final long idleMillis;
+    private final long maxLockMillis;
+    private final BackupService backupService;
+    private final Object schedule = new Object();
+    private ScheduledExecutorService scheduler;
+    private volatile MaintenanceResult lastResult;
+    
+    // Tables already checked by a run that stopped early, resumed by the next run
+    private int checkedUpTo;
+    private volatile long lastCompleted;
+    
+    /**
+     * Create a maintenance service configured by the patientmanagement.maintenance.* system
+     * properties: idleSeconds (60) and maxLockMillis (5)
+     */
+    public MaintenanceService() {
+        this(Long.getLong("patientmanagement.maintenance.idleSeconds", 60) * 1000,
+             Long.getLong("patientmanagement.maintenance.maxLockMillis", 5));
+    }
+    
+    /**
+     * @param idleMillis Time without open connections before a scheduled run starts
+     * @param maxLockMillis Target for the longest write step
+     */
+    public MaintenanceService(long idleMillis, long maxLockMillis) {
+        this(idleMillis, maxLockMillis, new BackupService());
+    }
+    
+    /**
+     * @param idleMillis Time without open connections before a scheduled run starts
+     * @param maxLockMillis Target for the longest write step
+     * @param backupService Backups whose age bounds the change log entries kept
+     */
+    public MaintenanceService(long idleMillis, long maxLockMillis, BackupService backupService) {
+        this.idleMillis = idleMillis;
+        this.maxLockMillis = maxLockMillis;
+        this.backupService = backupService;
+    }
+    
+    /**
+     * Run all maintenance tasks now
+     * @param yieldToActivity Whether to stop once the application opens a connection
+     * @return Metrics of the run, or null if it failed
+     */
+    public synchronized MaintenanceResult run(boolean yieldToActivity) {
+        long start = System.nanoTime();
+        String file = DatabaseUtil.getDatabaseFile();
+        List<String> analyzed = new ArrayList<>();
+        List<String> problems = new ArrayList<>();
+        int trimmedChanges = 0;
+        int freedPages = 0;
+        int checked = 0;
+        int writeSteps = 0;
+        long longestLock = 0;
+        boolean stopped = false;
+        
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement()) {
+            long fileBytesBefore = fileSize(file);
+            int pageSize = pragma(stmt, "page_size");
+            stmt.execute("PRAGMA analysis_limit = " + ANALYSIS_LIMIT);
+            
+            // Trimmed first, so the statistics and the vacuum see the log's new size
+            try (PreparedStatement trim = conn.prepareStatement(
+                     "DELETE FROM change_log WHERE change_id IN (SELECT change_id FROM change_log " +
+                     "WHERE changed_at < ? ORDER BY change_id LIMIT " + TRIM_BATCH_SIZE + ")")) {
+                trim.setLong(1, backupService.changeLogCutoff());
+                int deleted = TRIM_BATCH_SIZE;
+                while (deleted == TRIM_BATCH_SIZE) {
+                    stopped = shouldStop(yieldToActivity);
+                    if (stopped) {
+                        break;
+                    }
+                    long stepStart = System.nanoTime();
+                    deleted = trim.executeUpdate();
+                    longestLock = Math.max(longestLock, (System.nanoTime() - stepStart) / 1_000_000);
+                    writeSteps++;
+                    trimmedChanges += deleted;
+                    Thread.sleep(STEP_PAUSE_MILLIS);
+                }
+            }
+            
+            for (String table : staleTables(conn, stmt)) {
+                stopped = shouldStop(yieldToActivity);
+                if (stopped) {
+                    break;
+                }
+                long stepStart = System.nanoTime();
+                stmt.execute("ANALYZE \"" + table + "\"");
+                longestLock = Math.max(longestLock, (System.nanoTime() - stepStart) / 1_000_000);
+                writeSteps++;
+                analyzed.add(table);
+                Thread.sleep(STEP_PAUSE_MILLIS);
+            }
+            
+            stopped = stopped || shouldStop(yieldToActivity);
+            if (!stopped) {
+                long stepStart = System.nanoTime();
+                stmt.execute("PRAGMA optimize");
+                longestLock = Math.max(longestLock, (System.nanoTime() - stepStart) / 1_000_000);
+                writeSteps++;
+            }
+            
+            boolean incremental = pragma(stmt, "auto_vacuum") == INCREMENTAL;
+            int free = pragma(stmt, "freelist_count");
+            while (!stopped && incremental && free > 0) {
+                stopped = shouldStop(yieldToActivity);
+                if (stopped) {
+                    break;
+                }
+                stmt.execute("BEGIN IMMEDIATE");
+                long stepStart = System.nanoTime();
+                try {
+                    // The driver steps the pragma once per execute, and each step frees one page,
+                    // so pages are freed one by one until the step's time is used up
+                    for (int pages = 0; pages < free && System.nanoTime() - stepStart < maxLockMillis * 1_000_000; pages++) {
+                        stmt.execute("PRAGMA incremental_vacuum(1)");
+                    }
+                    stmt.execute("COMMIT");
+                } catch (SQLException e) {
+                    stmt.execute("ROLLBACK");
+                    throw e;
+                }
+                longestLock = Math.max(longestLock, (System.nanoTime() - stepStart) / 1_000_000);
+                writeSteps++;
+                
+                int remaining = pragma(stmt, "freelist_count");
+                if (remaining >= free) {
+                    // Nothing could be freed, e.g. every free page is needed by the file's layout
+                    break;
+                }
+                freedPages += free - remaining;
+                free = remaining;
+                Thread.sleep(STEP_PAUSE_MILLIS);
+            }
+            
+            List<String> tables = tables(stmt);
+            while (!stopped && checkedUpTo < tables.size()) {
+                stopped = shouldStop(yieldToActivity);
+                if (stopped) {
+                    break;
+                }
+                try (ResultSet rs = stmt.executeQuery("PRAGMA quick_check(\"" + tables.get(checkedUpTo) + "\")")) {
+                    while (rs.next()) {
+                        if (!"ok".equals(rs.getString(1))) {
+                            problems.add(tables.get(checkedUpTo) + ": " + rs.getString(1));
+                        }
+                    }
+                }
+                checkedUpTo++;
+                checked++;
+            }
+            if (!stopped) {
+                checkedUpTo = 0;
+                lastCompleted = System.nanoTime();
+            }
+            
+            MaintenanceResult result = new MaintenanceResult(trimmedChanges, analyzed, freedPages, pageSize,
+                                                             fileBytesBefore, fileSize(file), checked, problems,
+                                                             writeSteps, longestLock, !stopped,
+                                                             (System.nanoTime() - start) / 1_000_000);
+            AppLog.info("maintenance.finished", "result", result);
+            for (String problem : problems) {
+                AppLog.error("maintenance.integrityProblem", null, "problem", problem);
+            }
+            lastResult = result;
+            return result;
+        } catch (SQLException e) {
+            AppLog.error("maintenance.failed", e, "durationMs", (System.nanoTime() - start) / 1_000_000);
+            return null;
+        } catch (InterruptedException e) {
+            // Stopped while pausing between steps
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+    
+    /**
+     * Switch the database to incremental auto-vacuum, so later runs can return freed pages. Takes a
+     * full VACUUM, which holds an exclusive lock for as long as it takes to rewrite the file:
+     * run it only while the application is not in use
+     * @return true if the database is in incremental mode now, false if the switch failed
+     */
+    public synchronized boolean enableIncrementalVacuum() {
+        long start = System.nanoTime();
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement()) {
+            if (pragma(stmt, "auto_vacuum") == INCREMENTAL) {
+                return true;
+            }
+            long fileBytesBefore = fileSize(DatabaseUtil.getDatabaseFile());
+            stmt.execute("PRAGMA auto_vacuum = INCREMENTAL");
+            stmt.execute("VACUUM");
+            boolean enabled = pragma(stmt, "auto_vacuum") == INCREMENTAL;
+            AppLog.info("maintenance.autoVacuumEnabled", "enabled", enabled, "fileBytesBefore", fileBytesBefore,
+                        "fileBytes", fileSize(DatabaseUtil.getDatabaseFile()),
+                        "durationMs", (System.nanoTime() - start) / 1_000_000);
+            return enabled;
+        } catch (SQLException e) {
+            AppLog.error("maintenance.autoVacuumFailed", e, "durationMs", (System.nanoTime() - start) / 1_000_000);
+            return false;
+        }
+    }
+    
+    /**
+     * Start running maintenance on a background thread whenever the database has been idle long
+     * enough and the last complete run is at least one interval old. A run that stopped early
+     * continues at the next idle period
+     * @param interval Time between complete runs
+     */
+    public void start(Duration interval) {
+        synchronized (schedule) {
+            if (scheduler != null) {
+                return;
+            }
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "database-maintenance");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
+            
+            long poll = Math.max(1000, idleMillis / 4);
+            scheduler.scheduleWithFixedDelay(() -> {
+                boolean due = lastCompleted == 0 || System.nanoTime() - lastCompleted >= interval.toNanos();
+                if (due && DatabaseUtil.getIdleMillis() >= idleMillis) {
+                    BackgroundTaskEvent.run("maintenance", () -> run(true));
+                }
+            }, poll, poll, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    /**
+     * Stop the scheduled maintenance. A running step finishes, then the run stops
+     */
+    public void stop() {
+        synchronized (schedule) {
+            if (scheduler != null) {
+                scheduler.shutdownNow();
+                scheduler = null;
+            }
+        }
+    }
+    
+    /**
+     * Get the metrics of the last run
+     * @return The result, or null if no run has finished yet
+     */
+    public MaintenanceResult getLastResult() {
+        return lastResult;
+    }
+    
+    // Stop when the application opened a connection besides ours, or the service is stopping
+    private static boolean shouldStop(boolean yieldToActivity) {
+        return Thread.currentThread().isInterrupted()
+                || (yieldToActivity && DatabaseUtil.getOpenConnections() > 1);
+    }
+    
+    /**
+     * Find the tables whose statistics are missing or whose row count has drifted from the
+     * estimate recorded by the last ANALYZE
+     */
+    private static List<String> staleTables(Connection conn, Statement stmt) throws SQLException {
+        boolean hasStats;
+        try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM sqlite_master WHERE name = 'sqlite_stat1'")) {
+            hasStats = rs.next() && rs.getInt(1) > 0;
+        }
+        
+        List<String> stale = new ArrayList<>();
+        for (String table : tables(stmt)) {
+            long rows;
+            try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM \"" + table + "\"")) {
+                rows = rs.next() ? rs.getLong(1) : 0;
+            }
+            long estimate = -1;
+            if (hasStats) {
+                try (PreparedStatement pstmt = conn.prepareStatement("SELECT stat FROM sqlite_stat1 WHERE tbl = ?")) {
+                    pstmt.setString(1, table);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        if (rs.next()) {
+                            // The first number of each entry is the table's row count
+                            estimate = Long.parseLong(rs.getString(1).split(" ")[0]);
+                        }
+                    }
+                }
+            }
+            boolean missing = estimate < 0 && rows > 0;
+            boolean drifted = estimate >= 0 && (rows > estimate * STALE_RATIO || rows * STALE_RATIO < estimate);
+            if (missing || drifted) {
+                stale.add(table);
+            }
+        }
+        return stale;
+    }
+    
+    private static List<String> tables(Statement stmt) throws SQLException {
+        List<String> tables = new ArrayList<>();
+        try (ResultSet rs = stmt.executeQuery("SELECT name FROM sqlite_master " +
+                                              "WHERE type = 'table' AND name NOT LIKE 'sqlite_%' ORDER BY name")) {
+            while (rs.next()) {
+                tables.add(rs.getString(1));
+            }
+        }
+        return tables;
+    }
+    
+    private static int pragma(Statement stmt, String pragma) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("PRAGMA " + pragma)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+    
+    private static long fileSize(String file) {
+        try {
+            return Files.size(Paths.get(file));
+        } catch (IOException e) {
+            AppLog.warn("maintenance.fileSizeFailed", e, "file", file);
+            return 0;
+        }
+    }
+}
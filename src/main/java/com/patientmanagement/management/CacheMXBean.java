@@ -0,0 +1,29 @@
+package com.patientmanagement.management;
+
+/**
+ * Sizes and hit rates of the in-memory caches, published over JMX.
+ * SQLite statements are prepared per call, so there is no statement cache to report
+ */
+public interface CacheMXBean {
+    
+    int getCalendarWindowCacheSize();
+    
+    long getCalendarWindowCacheHits();
+    
+    long getCalendarWindowCacheMisses();
+    
+    double getCalendarWindowCacheHitRate();
+    
+    int getAvailabilityCacheSize();
+    
+    long getAvailabilityCacheHits();
+    
+    long getAvailabilityCacheMisses();
+    
+    double getAvailabilityCacheHitRate();
+    
+    /**
+     * Drop all cached calendar windows and availability schedules; they are reloaded on next use
+     */
+    void clearCaches();
+}
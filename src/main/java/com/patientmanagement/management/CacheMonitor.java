@@ -0,0 +1,60 @@
+package com.patientmanagement.management;
+
+import com.patientmanagement.calendar.AppointmentWindowCache;
+import com.patientmanagement.scheduling.AvailabilityCache;
+
+/**
+ * Cache MXBean over the calendar window and availability caches
+ */
+public class CacheMonitor implements CacheMXBean {
+    
+    @Override
+    public int getCalendarWindowCacheSize() {
+        return AppointmentWindowCache.size();
+    }
+    
+    @Override
+    public long getCalendarWindowCacheHits() {
+        return AppointmentWindowCache.getHits();
+    }
+    
+    @Override
+    public long getCalendarWindowCacheMisses() {
+        return AppointmentWindowCache.getMisses();
+    }
+    
+    @Override
+    public double getCalendarWindowCacheHitRate() {
+        return hitRate(AppointmentWindowCache.getHits(), AppointmentWindowCache.getMisses());
+    }
+    
+    @Override
+    public int getAvailabilityCacheSize() {
+        return AvailabilityCache.size();
+    }
+    
+    @Override
+    public long getAvailabilityCacheHits() {
+        return AvailabilityCache.getHits();
+    }
+    
+    @Override
+    public long getAvailabilityCacheMisses() {
+        return AvailabilityCache.getMisses();
+    }
+    
+    @Override
+    public double getAvailabilityCacheHitRate() {
+        return hitRate(AvailabilityCache.getHits(), AvailabilityCache.getMisses());
+    }
+    
+    @Override
+    public void clearCaches() {
+        AppointmentWindowCache.clear();
+        AvailabilityCache.clear();
+    }
+    
+    private static double hitRate(long hits, long misses) {
+        return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+}
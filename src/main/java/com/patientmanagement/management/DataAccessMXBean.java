@@ -0,0 +1,38 @@
+package com.patientmanagement.management;
+
+import com.patientmanagement.metrics.OperationSnapshot;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DAO latency percentiles, busy retries and failures, published over JMX
+ */
+public interface DataAccessMXBean {
+    
+    long getOperationCount();
+    
+    long getRetriedOperationCount();
+    
+    long getRetryCount();
+    
+    long getRetryWaitMillis();
+    
+    // Failed operations by DataAccessException kind
+    Map<String, Long> getFailureCounts();
+    
+    // Latency percentiles and rows per DAO operation, slowest first
+    List<OperationSnapshot> getOperations();
+    
+    // Calls at or above this many milliseconds go to the slow query log; 0 disables it
+    long getSlowQueryThresholdMillis();
+    
+    void setSlowQueryThresholdMillis(long millis);
+    
+    long getSlowCallCount();
+    
+    /**
+     * Forget the recorded latencies, e.g. before reproducing a slow screen
+     */
+    void resetLatencies();
+}
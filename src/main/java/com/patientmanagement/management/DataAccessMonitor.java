@@ -0,0 +1,72 @@
+package com.patientmanagement.management;
+
+import com.patientmanagement.metrics.DaoMetrics;
+import com.patientmanagement.metrics.OperationSnapshot;
+import com.patientmanagement.metrics.SlowQueryLog;
+import com.patientmanagement.model.dao.DaoExecutor;
+import com.patientmanagement.model.dao.DataAccessException;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Data access MXBean, reading DaoExecutor's counters, the DaoMetrics histograms and the slow
+ * query log's threshold
+ */
+public class DataAccessMonitor implements DataAccessMXBean {
+    
+    @Override
+    public long getOperationCount() {
+        return DaoExecutor.getOperationCount();
+    }
+    
+    @Override
+    public long getRetriedOperationCount() {
+        return DaoExecutor.getRetriedOperationCount();
+    }
+    
+    @Override
+    public long getRetryCount() {
+        return DaoExecutor.getRetryCount();
+    }
+    
+    @Override
+    public long getRetryWaitMillis() {
+        return DaoExecutor.getRetryWaitMillis();
+    }
+    
+    @Override
+    public Map<String, Long> getFailureCounts() {
+        Map<String, Long> failures = new LinkedHashMap<>();
+        for (DataAccessException.Kind kind : DataAccessException.Kind.values()) {
+            failures.put(kind.name(), DaoExecutor.getFailureCount(kind));
+        }
+        return failures;
+    }
+    
+    @Override
+    public List<OperationSnapshot> getOperations() {
+        return DaoMetrics.snapshot();
+    }
+    
+    @Override
+    public long getSlowQueryThresholdMillis() {
+        return SlowQueryLog.getThresholdMillis();
+    }
+    
+    @Override
+    public void setSlowQueryThresholdMillis(long millis) {
+        SlowQueryLog.setThresholdMillis(millis);
+    }
+    
+    @Override
+    public long getSlowCallCount() {
+        return SlowQueryLog.getSlowCallCount();
+    }
+    
+    @Override
+    public void resetLatencies() {
+        DaoMetrics.reset();
+    }
+}
@@ -0,0 +1,39 @@
+package com.patientmanagement.management;
+
+/**
+ * Connections and housekeeping of the SQLite database, published over JMX
+ */
+public interface DatabaseMXBean {
+    
+    String getDatabaseFile();
+    
+    long getDatabaseBytes();
+    
+    // Connections handed out by DatabaseUtil and not yet closed; there is no pool
+    int getOpenConnections();
+    
+    // Time since the last connection was opened or closed
+    long getIdleMillis();
+    
+    String getLastBackup();
+    
+    String getLastMaintenance();
+    
+    /**
+     * Refresh the planner statistics of all tables
+     * @return What happened, for the JMX console
+     */
+    String analyze();
+    
+    /**
+     * Run the maintenance tasks now, without yielding to the application
+     * @return The maintenance metrics, or why it failed
+     */
+    String runMaintenance();
+    
+    /**
+     * Take an online backup now
+     * @return The backup metrics, or why it failed
+     */
+    String backup();
+}
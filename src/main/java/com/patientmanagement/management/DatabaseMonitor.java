@@ -0,0 +1,86 @@
+package com.patientmanagement.management;
+
+import com.patientmanagement.backup.BackupResult;
+import com.patientmanagement.backup.BackupService;
+import com.patientmanagement.maintenance.MaintenanceResult;
+import com.patientmanagement.maintenance.MaintenanceService;
+import com.patientmanagement.model.dao.DaoExecutor;
+import com.patientmanagement.model.dao.DataAccessException;
+import com.patientmanagement.util.DatabaseUtil;
+
+import java.io.File;
+import java.sql.Statement;
+
+/**
+ * Database MXBean of the running application, using its backup and maintenance services
+ */
+public class DatabaseMonitor implements DatabaseMXBean {
+    
+    private final BackupService backupService;
+    private final MaintenanceService maintenanceService;
+    
+    public DatabaseMonitor(BackupService backupService, MaintenanceService maintenanceService) {
+        this.backupService = backupService;
+        this.maintenanceService = maintenanceService;
+    }
+    
+    @Override
+    public String getDatabaseFile() {
+        return new File(DatabaseUtil.getDatabaseFile()).getAbsolutePath();
+    }
+    
+    @Override
+    public long getDatabaseBytes() {
+        return new File(DatabaseUtil.getDatabaseFile()).length();
+    }
+    
+    @Override
+    public int getOpenConnections() {
+        return DatabaseUtil.getOpenConnections();
+    }
+    
+    @Override
+    public long getIdleMillis() {
+        return DatabaseUtil.getIdleMillis();
+    }
+    
+    @Override
+    public String getLastBackup() {
+        BackupResult result = backupService.getLastResult();
+        return result == null ? "none since start" : result.toString();
+    }
+    
+    @Override
+    public String getLastMaintenance() {
+        MaintenanceResult result = maintenanceService.getLastResult();
+        return result == null ? "none since start" : result.toString();
+    }
+    
+    @Override
+    public String analyze() {
+        long start = System.nanoTime();
+        try {
+            DaoExecutor.call("DatabaseMonitor.analyze", conn -> {
+                try (Statement stmt = conn.createStatement()) {
+                    return stmt.execute("ANALYZE");
+                }
+            });
+            return "ANALYZE finished in " + (System.nanoTime() - start) / 1_000_000 + " ms";
+        } catch (DataAccessException e) {
+            return e.getMessage();
+        }
+    }
+    
+    @Override
+    public String runMaintenance() {
+        MaintenanceResult result = maintenanceService.run(false);
+        return result == null ? "Maintenance failed, see the application log" : result.toString();
+    }
+    
+    @Override
+    public String backup() {
+        BackupResult result = backupService.backup();
+        return result == null ? "Backup failed, see the application log"
+                : "Backup written to " + result.getFile().toAbsolutePath() + ": " + result;
+    }
+}
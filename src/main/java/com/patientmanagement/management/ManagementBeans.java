@@ -0,0 +1,70 @@
+package com.patientmanagement.management;
+
+import com.patientmanagement.backup.BackupService;
+import com.patientmanagement.logging.AppLog;
+import com.patientmanagement.maintenance.MaintenanceService;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Registers the application's MXBeans with the platform MBean server, under the
+ * com.patientmanagement domain, so jconsole or VisualVM can inspect a running workstation
+ */
+public final class ManagementBeans {
+    
+    public static final String DOMAIN = "com.patientmanagement";
+    
+    private static final List<ObjectName> REGISTERED = new ArrayList<>();
+    
+    private ManagementBeans() {
+    }
+    
+    /**
+     * Register the Database, DataAccess, Caches and UserInterface beans
+     * @param backupService Service run by the backup operation
+     * @param maintenanceService Service run by the maintenance operation
+     * @return true if all beans were registered
+     */
+    public static synchronized boolean register(BackupService backupService, MaintenanceService maintenanceService) {
+        if (!REGISTERED.isEmpty()) {
+            return true;
+        }
+        try {
+            register("Database", new DatabaseMonitor(backupService, maintenanceService));
+            register("DataAccess", new DataAccessMonitor());
+            register("Caches", new CacheMonitor());
+            register("UserInterface", new UserInterfaceMonitor());
+            return true;
+        } catch (JMException e) {
+            AppLog.error("management.registerFailed", e);
+            unregister();
+            return false;
+        }
+    }
+    
+    /**
+     * Remove the registered beans
+     */
+    public static synchronized void unregister() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : REGISTERED) {
+            try {
+                server.unregisterMBean(name);
+            } catch (JMException e) {
+                AppLog.warn("management.unregisterFailed", e, "name", name);
+            }
+        }
+        REGISTERED.clear();
+    }
+    
+    private static void register(String type, Object bean) throws JMException {
+        ObjectName name = new ObjectName(DOMAIN + ":type=" + type);
+        ManagementFactory.getPlatformMBeanServer().registerMBean(bean, name);
+        REGISTERED.add(name);
+    }
+}
@@ -0,0 +1,23 @@
+package com.patientmanagement.management;
+
+import com.patientmanagement.metrics.OperationSnapshot;
+
+import java.util.List;
+
+/**
+ * View load times and JavaFX Application Thread stalls, published over JMX
+ */
+public interface UserInterfaceMXBean {
+    
+    long getStallCount();
+    
+    long getLongestStallMillis();
+    
+    // Most recent stalls with the controller method that was running, oldest first
+    List<String> getRecentStalls();
+    
+    // Load time percentiles per dashboard view, slowest first
+    List<OperationSnapshot> getViewLoads();
+    
+    void resetStatistics();
+}
@@ -0,0 +1,46 @@
+package com.patientmanagement.management;
+
+import com.patientmanagement.metrics.FxStallDetector;
+import com.patientmanagement.metrics.OperationSnapshot;
+import com.patientmanagement.metrics.UiMetrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * User interface MXBean, reading UiMetrics
+ */
+public class UserInterfaceMonitor implements UserInterfaceMXBean {
+    
+    @Override
+    public long getStallCount() {
+        return UiMetrics.getStallCount();
+    }
+    
+    @Override
+    public long getLongestStallMillis() {
+        return UiMetrics.getLongestStallMillis();
+    }
+    
+    @Override
+    public List<String> getRecentStalls() {
+        List<String> stalls = new ArrayList<>();
+        FxStallDetector detector = FxStallDetector.getInstalled();
+        if (detector != null) {
+            for (FxStallDetector.Stall stall : detector.getStalls()) {
+                stalls.add(stall.toString());
+            }
+        }
+        return stalls;
+    }
+    
+    @Override
+    public List<OperationSnapshot> getViewLoads() {
+        return UiMetrics.viewLoads();
+    }
+    
+    @Override
+    public void resetStatistics() {
+        UiMetrics.reset();
+    }
+}
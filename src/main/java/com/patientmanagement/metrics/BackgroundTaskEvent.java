@@ -0,0 +1,48 @@
+package com.patientmanagement.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event for a run of one of the application's background tasks
+ */
+@Name("com.patientmanagement.BackgroundTask")
+@Label("Background Task")
+@Category({ "Patient Management", "Background Tasks" })
+@Description("A run of a scheduled or queued task: backup, maintenance, prefetch, metrics and logs")
+@Threshold("0 ms")
+@StackTrace(false)
+public class BackgroundTaskEvent extends Event {
+    
+    @Label("Task")
+    private String task;
+    
+    @Label("Failed")
+    private boolean failed;
+    
+    /**
+     * Run a task, recording an event for it
+     * @param task Name of the task, e.g. "backup"
+     * @param work The task
+     */
+    public static void run(String task, Runnable work) {
+        BackgroundTaskEvent event = new BackgroundTaskEvent();
+        event.task = task;
+        event.begin();
+        boolean completed = false;
+        try {
+            work.run();
+            completed = true;
+        } finally {
+            if (event.shouldCommit()) {
+                event.failed = !completed;
+                event.commit();
+            }
+        }
+    }
+}
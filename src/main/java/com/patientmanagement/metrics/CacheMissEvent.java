@@ -0,0 +1,49 @@
+package com.patientmanagement.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event for a cache miss, lasting while the missing entry is loaded
+ */
+@Name("com.patientmanagement.CacheMiss")
+@Label("Cache Miss")
+@Category({ "Patient Management", "Caches" })
+@Description("A lookup that missed the cache, for as long as the caller waited for the entry to load")
+@Threshold("0 ms")
+public class CacheMissEvent extends Event {
+    
+    @Label("Cache")
+    private String cache;
+    
+    @Label("Key")
+    private String key;
+    
+    /**
+     * Begin timing the load of a missing entry
+     * @param cache Name of the cache, e.g. "calendarWindow"
+     * @param key The missing key
+     */
+    public static CacheMissEvent start(String cache, Object key) {
+        CacheMissEvent event = new CacheMissEvent();
+        if (event.isEnabled()) {
+            event.cache = cache;
+            event.key = String.valueOf(key);
+        }
+        event.begin();
+        return event;
+    }
+    
+    /**
+     * End the load and commit the event if it is enabled
+     */
+    public void finish() {
+        if (shouldCommit()) {
+            commit();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.patientmanagement.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+import java.time.LocalDate;
+
+/**
+ * Flight Recorder event for a check of a doctor's bookings for overlaps
+ */
+@Name("com.patientmanagement.ConflictCheck")
+@Label("Conflict Check")
+@Category({ "Patient Management", "Scheduling" })
+@Description("Checking requested appointment slots against a doctor's existing bookings")
+@Threshold("0 ms")
+public class ConflictCheckEvent extends Event {
+    
+    @Label("Kind")
+    @Description("query, booking or series")
+    private String kind;
+    
+    @Label("Doctor ID")
+    private int doctorId;
+    
+    @Label("Date")
+    @Description("Date of the (first) requested slot")
+    private String date;
+    
+    @Label("Slots")
+    private int slots;
+    
+    @Label("Conflicts")
+    @Description("Conflicting bookings, or slots that conflict for a series")
+    private int conflicts;
+    
+    /**
+     * Begin timing a conflict check
+     * @param kind "query" for a check only, "booking" or "series" for a check before booking
+     * @param doctorId The doctor
+     * @param date Date of the (first) requested slot
+     * @param slots Number of requested slots
+     */
+    public static ConflictCheckEvent start(String kind, int doctorId, LocalDate date, int slots) {
+        ConflictCheckEvent event = new ConflictCheckEvent();
+        if (event.isEnabled()) {
+            event.kind = kind;
+            event.doctorId = doctorId;
+            event.date = String.valueOf(date);
+            event.slots = slots;
+        }
+        event.begin();
+        return event;
+    }
+    
+    /**
+     * End the check and commit the event if it is enabled
+     * @param conflicts Conflicts found
+     */
+    public void finish(int conflicts) {
+        if (shouldCommit()) {
+            this.conflicts = conflicts;
+            commit();
+        }
+    }
+}
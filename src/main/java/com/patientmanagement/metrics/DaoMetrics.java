@@ -0,0 +1,157 @@
+package com.patientmanagement.metrics;
+
+import com.patientmanagement.util.DatabaseUtil;
+import com.patientmanagement.util.RotatingFile;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histograms and row counters per DAO operation, recorded by DaoExecutor for every call.
+ *
+ * The statistics are kept from application start (or the last reset) and can be read as
+ * snapshots, e.g. by the Performance screen, or appended to a log file at a fixed interval.
+ * Recording is cheap enough to stay enabled in production; setting patientmanagement.metrics.enabled
+ * to false turns it off.
+ */
+public final class DaoMetrics {
+    
+    private static final boolean ENABLED =
+        Boolean.parseBoolean(System.getProperty("patientmanagement.metrics.enabled", "true"));
+    
+    // Size at which the dump file is rolled over to a single .1 file
+    private static final long MAX_DUMP_BYTES = 5_000_000;
+    
+    private static final Map<String, OperationStats> OPERATIONS = new ConcurrentHashMap<>();
+    private static final Object SCHEDULE = new Object();
+    private static ScheduledExecutorService scheduler;
+    
+    private DaoMetrics() {
+    }
+    
+    /**
+     * Record one completed DAO call
+     * @param operation Name of the operation, e.g. "PatientDAO.searchPatientsByName"
+     * @param nanos Elapsed time including retries
+     * @param rows Rows returned to the caller
+     * @param failed Whether the call failed
+     */
+    public static void record(String operation, long nanos, long rows, boolean failed) {
+        if (!ENABLED) {
+            return;
+        }
+        OperationStats stats = OPERATIONS.get(operation);
+        if (stats == null) {
+            stats = OPERATIONS.computeIfAbsent(operation, name -> new OperationStats());
+        }
+        stats.latency.record(nanos);
+        stats.rows.add(rows);
+        if (failed) {
+            stats.failures.increment();
+        }
+    }
+    
+    /**
+     * Take a snapshot of every operation called so far
+     * @return One entry per operation, slowest 99th percentile first
+     */
+    public static List<OperationSnapshot> snapshot() {
+        List<OperationSnapshot> snapshots = new ArrayList<>();
+        for (Map.Entry<String, OperationStats> entry : OPERATIONS.entrySet()) {
+            OperationStats stats = entry.getValue();
+            snapshots.add(new OperationSnapshot(entry.getKey(), stats.latency.snapshot(), stats.rows.sum(),
+                                                stats.failures.sum()));
+        }
+        snapshots.sort(Comparator.comparingLong(OperationSnapshot::getP99Micros).reversed()
+                                 .thenComparing(OperationSnapshot::getOperation));
+        return snapshots;
+    }
+    
+    /**
+     * Forget all recorded calls
+     */
+    public static void reset() {
+        OPERATIONS.clear();
+    }
+    
+    /**
+     * Append a snapshot to the dump file at a fixed interval, on a background thread
+     * @param interval Time between dumps
+     */
+    public static void startDump(Duration interval) {
+        synchronized (SCHEDULE) {
+            if (scheduler != null) {
+                return;
+            }
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "dao-metrics-dump");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long millis = interval.toMillis();
+            scheduler.scheduleAtFixedRate(() -> BackgroundTaskEvent.run("daoMetricsDump", () -> dump(getDumpFile())),
+                                          millis, millis, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    /**
+     * Stop the periodic dump and write a last snapshot
+     */
+    public static void stopDump() {
+        synchronized (SCHEDULE) {
+            if (scheduler != null) {
+                scheduler.shutdownNow();
+                scheduler = null;
+                dump(getDumpFile());
+            }
+        }
+    }
+    
+    /**
+     * Append a snapshot of all operations to a file
+     * @param file The dump file, created with its directory if missing
+     * @return true if the snapshot was written
+     */
+    public static boolean dump(Path file) {
+        List<OperationSnapshot> snapshots = snapshot();
+        if (snapshots.isEmpty()) {
+            return true;
+        }
+        List<String> lines = new ArrayList<>();
+        lines.add("# " + LocalDateTime.now());
+        for (OperationSnapshot snapshot : snapshots) {
+            lines.add(snapshot.toString());
+        }
+        return new RotatingFile(file, MAX_DUMP_BYTES, 1).append(lines);
+    }
+    
+    /**
+     * Get the dump file: patientmanagement.metrics.file, or dao-metrics.log in a logs directory
+     * next to the database
+     */
+    public static Path getDumpFile() {
+        String configured = System.getProperty("patientmanagement.metrics.file");
+        if (configured != null) {
+            return Paths.get(configured);
+        }
+        return Paths.get(DatabaseUtil.getDatabaseFile()).toAbsolutePath().resolveSibling("logs")
+                    .resolve("dao-metrics.log");
+    }
+    
+    private static class OperationStats {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder rows = new LongAdder();
+        final LongAdder failures = new LongAdder();
+    }
+}
@@ -0,0 +1,59 @@
+package com.patientmanagement.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event for a DAO operation run through DaoExecutor, retries included
+ */
+@Name("com.patientmanagement.DaoQuery")
+@Label("DAO Query")
+@Category({ "Patient Management", "Data Access" })
+@Description("A DAO operation, from its first attempt until it returned or failed")
+@Threshold("10 ms")
+public class DaoQueryEvent extends Event {
+    
+    @Label("Operation")
+    private String operation;
+    
+    @Label("Rows")
+    private long rows;
+    
+    @Label("Attempts")
+    private int attempts;
+    
+    @Label("Statements")
+    @Description("Statements prepared or run by the last attempt")
+    private int statements;
+    
+    @Label("Failed")
+    private boolean failed;
+    
+    /**
+     * Begin timing an operation
+     * @param operation Name of the operation, e.g. "PatientDAO.createPatient"
+     */
+    public static DaoQueryEvent start(String operation) {
+        DaoQueryEvent event = new DaoQueryEvent();
+        event.operation = operation;
+        event.begin();
+        return event;
+    }
+    
+    /**
+     * End the operation and commit the event if it is enabled and over the threshold
+     */
+    public void finish(long rows, int attempts, int statements, boolean failed) {
+        if (shouldCommit()) {
+            this.rows = rows;
+            this.attempts = attempts;
+            this.statements = statements;
+            this.failed = failed;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package com.patientmanagement.metrics;
+
+import com.patientmanagement.logging.AppLog;
+import com.patientmanagement.util.DatabaseUtil;
+import com.patientmanagement.util.RotatingFile;
+import javafx.animation.AnimationTimer;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Watchdog for the JavaFX Application Thread. The thread reports every pulse; a gap between
+ * pulses of at least the threshold is a stall, whether an event handler, a layout pass or a DAO
+ * call made it. While a stall lasts a watchdog thread samples the stack of the blocked thread, so
+ * the stall is reported with the controller method that was running.
+ *
+ * The detector costs an animation timer on every frame, so it is off unless
+ * patientmanagement.stall.detector is true (for development and UI test runs). Stalls are counted
+ * in UiMetrics and written to logs/ui-stalls.log. A budget (patientmanagement.stall.budget) can be
+ * set; reportBudget() logs an error at shutdown when it was exceeded.
+ */
+public class FxStallDetector {
+    
+    private static final boolean ENABLED = Boolean.getBoolean("patientmanagement.stall.detector");
+    
+    private static final long THRESHOLD_MILLIS = Long.getLong("patientmanagement.stall.thresholdMillis", 200);
+    
+    // Stalls allowed before reportBudget() reports; negative means no budget
+    private static final int BUDGET = Integer.getInteger("patientmanagement.stall.budget", -1);
+    
+    private static final long MAX_LOG_BYTES = 1_000_000;
+    
+    // Stalls kept for getStalls() and the JMX console
+    private static final int RECENT_STALLS = 20;
+    
+    private static final String CONTROLLER_PACKAGE = "com.patientmanagement.controller.";
+    private static final String APPLICATION_PACKAGE = "com.patientmanagement.";
+    
+    private static volatile FxStallDetector installed;
+    
+    private final Thread watched;
+    private final long thresholdNanos;
+    private final ConcurrentLinkedQueue<long[]> gaps = new ConcurrentLinkedQueue<>();
+    private final Deque<Stall> recent = new ArrayDeque<>();
+    private final LongAdder stallCount = new LongAdder();
+    private final Object reportLock = new Object();
+    private volatile long lastPulseNanos = System.nanoTime();
+    private volatile boolean running;
+    private Thread watchdog;
+    private PulseTimer timer;
+    private RotatingFile log;
+    
+    // Stack sampled during the current stall, guarded by reportLock
+    private long sampledPulse = -1;
+    private StackTraceElement[] sample;
+    
+    /**
+     * @param watched Thread that calls pulse()
+     * @param thresholdMillis Shortest gap between pulses counted as a stall
+     */
+    public FxStallDetector(Thread watched, long thresholdMillis) {
+        this.watched = watched;
+        this.thresholdNanos = thresholdMillis * 1_000_000;
+    }
+    
+    /**
+     * Start watching the JavaFX Application Thread, with a pulse on every animation frame.
+     * Must be called on that thread
+     * @return The detector, or null if patientmanagement.stall.detector is not set or
+     *         patientmanagement.stall.thresholdMillis is 0
+     */
+    public static FxStallDetector install() {
+        if (!ENABLED || THRESHOLD_MILLIS <= 0) {
+            return null;
+        }
+        FxStallDetector detector = new FxStallDetector(Thread.currentThread(), THRESHOLD_MILLIS);
+        detector.setLogFile(Paths.get(DatabaseUtil.getDatabaseFile()).toAbsolutePath().resolveSibling("logs")
+                                 .resolve("ui-stalls.log"));
+        detector.timer = new PulseTimer(detector);
+        detector.timer.start();
+        detector.start();
+        installed = detector;
+        return detector;
+    }
+    
+    /**
+     * Get the detector started by install()
+     * @return The detector, or null if none is running
+     */
+    public static FxStallDetector getInstalled() {
+        return installed;
+    }
+    
+    /**
+     * Write each stall, with the stack sampled during it, to a rotating log file
+     * @param file The log file
+     */
+    public void setLogFile(Path file) {
+        log = new RotatingFile(file, MAX_LOG_BYTES, 1);
+    }
+    
+    /**
+     * Start the watchdog thread
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        lastPulseNanos = System.nanoTime();
+        watchdog = new Thread(this::watch, "fx-stall-watchdog");
+        watchdog.setDaemon(true);
+        watchdog.start();
+    }
+    
+    /**
+     * Stop watching, reporting stalls that already ended
+     */
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        if (timer != null) {
+            timer.stop();
+        }
+        watchdog.interrupt();
+        try {
+            watchdog.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (installed == this) {
+            installed = null;
+        }
+    }
+    
+    /**
+     * Report that the watched thread is responsive. Called on the watched thread
+     */
+    public void pulse() {
+        long now = System.nanoTime();
+        long previous = lastPulseNanos;
+        lastPulseNanos = now;
+        if (now - previous >= thresholdNanos) {
+            gaps.add(new long[] { previous, now });
+        }
+    }
+    
+    /**
+     * Get the most recent stalls
+     * @return Up to 20 stalls, oldest first
+     */
+    public List<Stall> getStalls() {
+        synchronized (recent) {
+            return new ArrayList<>(recent);
+        }
+    }
+    
+    /**
+     * Log an error if more stalls were detected than patientmanagement.stall.budget allows.
+     * Never throws, so it is safe to call while the application shuts down
+     * @return false if the budget is exceeded
+     */
+    public boolean reportBudget() {
+        if (BUDGET < 0) {
+            return true;
+        }
+        reportEndedStalls();
+        long count = stallCount.sum();
+        if (count <= BUDGET) {
+            return true;
+        }
+        AppLog.error("ui.stallBudgetExceeded", null, "stalls", count, "budget", BUDGET,
+                     "detail", budgetMessage(count, BUDGET));
+        return false;
+    }
+    
+    /**
+     * Fail if more stalls were detected than a budget allows
+     * @param budget Stalls allowed
+     * @throws AssertionError If the budget is exceeded
+     */
+    public void checkBudget(int budget) {
+        reportEndedStalls();
+        long count = stallCount.sum();
+        if (count > budget) {
+            throw new AssertionError(budgetMessage(count, budget));
+        }
+    }
+    
+    private String budgetMessage(long count, int budget) {
+        StringBuilder message = new StringBuilder(count + " UI stall(s), budget " + budget);
+        for (Stall stall : getStalls()) {
+            message.append("\n  ").append(stall);
+        }
+        return message.toString();
+    }
+    
+    private void watch() {
+        long pollMillis = Math.max(10, thresholdNanos / 4_000_000);
+        while (running) {
+            try {
+                Thread.sleep(pollMillis);
+            } catch (InterruptedException e) {
+                break;
+            }
+            long pulse = lastPulseNanos;
+            synchronized (reportLock) {
+                if (System.nanoTime() - pulse >= thresholdNanos && sampledPulse != pulse) {
+                    // Still blocked: whatever is on the stack now is what is holding the thread
+                    sample = watched.getStackTrace();
+                    sampledPulse = pulse;
+                }
+            }
+            reportEndedStalls();
+        }
+        reportEndedStalls();
+    }
+    
+    private void reportEndedStalls() {
+        synchronized (reportLock) {
+            long[] gap;
+            while ((gap = gaps.poll()) != null) {
+                report(gap);
+            }
+        }
+    }
+    
+    private void report(long[] gap) {
+        StackTraceElement[] stack = gap[0] == sampledPulse ? sample : new StackTraceElement[0];
+        long millis = (gap[1] - gap[0]) / 1_000_000;
+        Stall stall = new Stall(LocalDateTime.now().minusNanos(System.nanoTime() - gap[0]), millis, stack);
+        UiMetrics.recordStall(millis);
+        stallCount.increment();
+        synchronized (recent) {
+            if (recent.size() == RECENT_STALLS) {
+                recent.removeFirst();
+            }
+            recent.addLast(stall);
+        }
+        if (log != null) {
+            List<String> lines = new ArrayList<>();
+            lines.add(stall.toString());
+            for (StackTraceElement frame : stack) {
+                lines.add("    at " + frame);
+            }
+            log.append(lines);
+        }
+    }
+    
+    /**
+     * Find the method most likely responsible for a stall: the innermost controller frame, or
+     * failing that the innermost application frame
+     */
+    static String culprit(StackTraceElement[] stack) {
+        StackTraceElement application = null;
+        for (StackTraceElement frame : stack) {
+            if (frame.getClassName().startsWith(CONTROLLER_PACKAGE)) {
+                return describe(frame);
+            }
+            if (application == null && frame.getClassName().startsWith(APPLICATION_PACKAGE)
+                    && !frame.getClassName().startsWith(FxStallDetector.class.getName())) {
+                application = frame;
+            }
+        }
+        return application == null ? "unknown" : describe(application);
+    }
+    
+    private static String describe(StackTraceElement frame) {
+        String className = frame.getClassName();
+        return className.substring(className.lastIndexOf('.') + 1) + "." + frame.getMethodName();
+    }
+    
+    /**
+     * A period in which the watched thread did not pulse
+     */
+    public static final class Stall {
+        private final LocalDateTime startedAt;
+        private final long millis;
+        private final String method;
+        private final StackTraceElement[] stack;
+        
+        Stall(LocalDateTime startedAt, long millis, StackTraceElement[] stack) {
+            this.startedAt = startedAt;
+            this.millis = millis;
+            this.method = stack.length == 0 ? "not sampled" : culprit(stack);
+            this.stack = stack;
+        }
+        
+        public LocalDateTime getStartedAt() {
+            return startedAt;
+        }
+        
+        public long getMillis() {
+            return millis;
+        }
+        
+        // Controller method running during the stall, e.g. "DashboardController.loadDashboardData"
+        public String getMethod() {
+            return method;
+        }
+        
+        public StackTraceElement[] getStack() {
+            return stack.clone();
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("%s stalled %d ms in %s", startedAt, millis, method);
+        }
+    }
+    
+    private static class PulseTimer extends AnimationTimer {
+        private final FxStallDetector detector;
+        
+        PulseTimer(FxStallDetector detector) {
+            this.detector = detector;
+        }
+        
+        @Override
+        public void handle(long now) {
+            detector.pulse();
+        }
+    }
+}
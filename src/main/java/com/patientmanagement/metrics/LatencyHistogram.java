@@ -0,0 +1,132 @@
+package com.patientmanagement.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of latencies in microseconds, for recording on every DAO call.
+ *
+ * Buckets are log-linear: each power of two is split into SUB_BUCKETS equal buckets, so a
+ * percentile is accurate to about 6% from one microsecond up to several hours, in a fixed array of
+ * counters. Recording is one atomic increment plus two LongAdder adds; the maximum is only written
+ * when it grows. Readers take a snapshot that may miss values recorded while it is copied.
+ */
+public class LatencyHistogram {
+    
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    
+    // Powers of two covered: up to 2^36 microseconds, about 19 hours; longer values share the last bucket
+    private static final int MAX_EXPONENT = 36;
+    static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+    
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+    private final AtomicLong maxMicros = new AtomicLong();
+    
+    /**
+     * Record one latency
+     * @param nanos Elapsed time in nanoseconds
+     */
+    public void record(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        counts.incrementAndGet(bucket(micros));
+        count.increment();
+        totalMicros.add(micros);
+        
+        long max = maxMicros.get();
+        while (micros > max && !maxMicros.compareAndSet(max, micros)) {
+            max = maxMicros.get();
+        }
+    }
+    
+    /**
+     * Copy the current counts
+     * @return The snapshot
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+        }
+        return new Snapshot(copy, count.sum(), totalMicros.sum(), maxMicros.get());
+    }
+    
+    static int bucket(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int shift = exponent - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((micros >>> shift) & (SUB_BUCKETS - 1));
+    }
+    
+    // Largest value that falls into the bucket
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lower + (1L << shift) - 1;
+    }
+    
+    /**
+     * Immutable copy of a histogram
+     */
+    public static class Snapshot {
+        
+        private final long[] counts;
+        private final long count;
+        private final long totalMicros;
+        private final long maxMicros;
+        
+        Snapshot(long[] counts, long count, long totalMicros, long maxMicros) {
+            this.counts = counts;
+            this.count = count;
+            this.totalMicros = totalMicros;
+            this.maxMicros = maxMicros;
+        }
+        
+        public long getCount() {
+            return count;
+        }
+        
+        public long getMaxMicros() {
+            return maxMicros;
+        }
+        
+        public double getMeanMicros() {
+            return count == 0 ? 0 : (double) totalMicros / count;
+        }
+        
+        /**
+         * Get a percentile, as the upper bound of the bucket it falls into
+         * @param percentile Between 0 and 100, e.g. 99
+         * @return The latency in microseconds, 0 if nothing was recorded
+         */
+        public long getPercentileMicros(double percentile) {
+            long total = 0;
+            for (long bucketCount : counts) {
+                total += bucketCount;
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(upperBound(i), maxMicros);
+                }
+            }
+            return maxMicros;
+        }
+    }
+}
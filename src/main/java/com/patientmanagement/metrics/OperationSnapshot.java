@@ -0,0 +1,78 @@
+package com.patientmanagement.metrics;
+
+/**
+ * Latency percentiles and counters of one DAO operation at the time of a snapshot
+ */
+public class OperationSnapshot {
+    
+    private final String operation;
+    private final long calls;
+    private final long rows;
+    private final long failures;
+    private final double meanMicros;
+    private final long p50Micros;
+    private final long p95Micros;
+    private final long p99Micros;
+    private final long maxMicros;
+    
+    public OperationSnapshot(String operation, LatencyHistogram.Snapshot latency, long rows, long failures) {
+        this.operation = operation;
+        this.calls = latency.getCount();
+        this.rows = rows;
+        this.failures = failures;
+        this.meanMicros = latency.getMeanMicros();
+        this.p50Micros = latency.getPercentileMicros(50);
+        this.p95Micros = latency.getPercentileMicros(95);
+        this.p99Micros = latency.getPercentileMicros(99);
+        this.maxMicros = latency.getMaxMicros();
+    }
+    
+    public String getOperation() {
+        return operation;
+    }
+    
+    public long getCalls() {
+        return calls;
+    }
+    
+    // Rows returned to callers over all calls
+    public long getRows() {
+        return rows;
+    }
+    
+    public double getRowsPerCall() {
+        return calls == 0 ? 0 : (double) rows / calls;
+    }
+    
+    // Calls that failed after any retries
+    public long getFailures() {
+        return failures;
+    }
+    
+    public double getMeanMicros() {
+        return meanMicros;
+    }
+    
+    public long getP50Micros() {
+        return p50Micros;
+    }
+    
+    public long getP95Micros() {
+        return p95Micros;
+    }
+    
+    public long getP99Micros() {
+        return p99Micros;
+    }
+    
+    public long getMaxMicros() {
+        return maxMicros;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("%s calls=%d rows=%d failures=%d mean=%.2fms p50=%.2fms p95=%.2fms p99=%.2fms max=%.2fms",
+                             operation, calls, rows, failures, meanMicros / 1000, p50Micros / 1000.0,
+                             p95Micros / 1000.0, p99Micros / 1000.0, maxMicros / 1000.0);
+    }
+}
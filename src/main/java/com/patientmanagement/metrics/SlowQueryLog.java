@@ -0,0 +1,285 @@
+package com.patientmanagement.metrics;
+
+import com.patientmanagement.logging.AppLog;
+import com.patientmanagement.util.DatabaseUtil;
+import com.patientmanagement.util.RotatingFile;
+import com.patientmanagement.util.StatementTrace;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Log of DAO calls slower than a threshold, with the statements each one ran: SQL, bound
+ * parameter types (never values), executions, time open, and the EXPLAIN QUERY PLAN of each,
+ * with full table scans marked.
+ *
+ * DaoExecutor hands every slow call to check(), which only copies the traces; the plans are
+ * explained and the entry written on a background thread with a connection of its own. A call
+ * that ran the same statements as one logged within the de-duplication window is only counted,
+ * and the count is written with the next entry for it.
+ */
+public final class SlowQueryLog {
+    
+    private static final long DEDUP_MILLIS = Long.getLong("patientmanagement.slowQuery.dedupSeconds", 600) * 1000;
+    private static final long MAX_BYTES = Long.getLong("patientmanagement.slowQuery.maxBytes", 5_000_000);
+    private static final int KEEP_FILES = Integer.getInteger("patientmanagement.slowQuery.keepFiles", 3);
+    
+    // Slow calls waiting to be written; further ones are dropped and counted
+    private static final int QUEUE_CAPACITY = 100;
+    
+    private static volatile long thresholdMillis = Long.getLong("patientmanagement.slowQuery.thresholdMillis", 250);
+    
+    private static final LongAdder SLOW_CALLS = new LongAdder();
+    private static final LongAdder LOGGED = new LongAdder();
+    private static final LongAdder SUPPRESSED = new LongAdder();
+    private static final LongAdder DROPPED = new LongAdder();
+    
+    private static final ThreadPoolExecutor WRITER = new ThreadPoolExecutor(
+        1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+        runnable -> {
+            Thread thread = new Thread(runnable, "slow-query-log");
+            thread.setDaemon(true);
+            return thread;
+        },
+        (runnable, executor) -> {
+            DROPPED.increment();
+            if (runnable instanceof Future) {
+                ((Future<?>) runnable).cancel(false);
+            }
+        });
+    
+    // Last entry written per statement signature; only used on the writer thread
+    private static final Map<String, Repeat> RECENT = new HashMap<>();
+    private static RotatingFile file;
+    
+    private SlowQueryLog() {
+    }
+    
+    /**
+     * Log a DAO call if it took at least the threshold
+     * @param operation Name of the operation
+     * @param nanos Elapsed time of the call
+     * @param rows Rows returned to the caller
+     * @param failed Whether the call failed
+     * @param statements Statements run by the call's last attempt
+     */
+    public static void check(String operation, long nanos, long rows, boolean failed, List<StatementTrace> statements) {
+        long threshold = thresholdMillis;
+        if (threshold <= 0 || nanos < threshold * 1_000_000) {
+            return;
+        }
+        SLOW_CALLS.increment();
+        List<Traced> copies = new ArrayList<>();
+        for (StatementTrace statement : statements) {
+            copies.add(new Traced(statement));
+        }
+        LocalDateTime time = LocalDateTime.now();
+        WRITER.execute(() -> BackgroundTaskEvent.run("slowQueryLog",
+                                                     () -> write(time, operation, nanos, rows, failed, copies)));
+    }
+    
+    /**
+     * Wait until the slow calls logged so far have been written
+     */
+    public static void flush() {
+        while (true) {
+            try {
+                WRITER.submit(() -> { }).get();
+                return;
+            } catch (CancellationException e) {
+                // The queue was full; wait for it to drain
+                DROPPED.decrement();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                AppLog.warn("slowQueryLog.flushFailed", e);
+                return;
+            }
+        }
+    }
+    
+    // Calls logged at or above this many milliseconds; 0 disables the log
+    public static long getThresholdMillis() {
+        return thresholdMillis;
+    }
+    
+    public static void setThresholdMillis(long millis) {
+        thresholdMillis = millis;
+    }
+    
+    public static long getSlowCallCount() {
+        return SLOW_CALLS.sum();
+    }
+    
+    // Entries written, not counting the de-duplicated repeats
+    public static long getLoggedCount() {
+        return LOGGED.sum();
+    }
+    
+    public static long getSuppressedCount() {
+        return SUPPRESSED.sum();
+    }
+    
+    // Slow calls not logged because the writer fell behind
+    public static long getDroppedCount() {
+        return DROPPED.sum();
+    }
+    
+    /**
+     * Get the log file: patientmanagement.slowQuery.file, or slow-queries.log in a logs directory
+     * next to the database
+     */
+    public static Path getLogFile() {
+        String configured = System.getProperty("patientmanagement.slowQuery.file");
+        if (configured != null) {
+            return Paths.get(configured);
+        }
+        return Paths.get(DatabaseUtil.getDatabaseFile()).toAbsolutePath().resolveSibling("logs")
+                    .resolve("slow-queries.log");
+    }
+    
+    private static void write(LocalDateTime time, String operation, long nanos, long rows, boolean failed,
+                              List<Traced> statements) {
+        StringBuilder signature = new StringBuilder(operation);
+        for (Traced statement : statements) {
+            // Types only: text and blob lengths vary from call to call
+            signature.append('\n').append(statement.sql).append(statement.shapes.replaceAll("\\(\\d+\\)", ""));
+        }
+        Repeat repeat = RECENT.get(signature.toString());
+        long now = System.currentTimeMillis();
+        if (repeat != null && now - repeat.writtenMillis < DEDUP_MILLIS) {
+            repeat.suppressed++;
+            repeat.slowestNanos = Math.max(repeat.slowestNanos, nanos);
+            SUPPRESSED.increment();
+            return;
+        }
+        
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("%s %s %.1f ms, %d row(s)%s", time, operation, nanos / 1e6, rows,
+                                failed ? ", failed" : ""));
+        if (repeat != null && repeat.suppressed > 0) {
+            lines.add(String.format("  %d similar call(s) since the last entry, slowest %.1f ms",
+                                    repeat.suppressed, repeat.slowestNanos / 1e6));
+        }
+        Map<String, List<String>> plans = explain(statements);
+        for (int i = 0; i < statements.size(); i++) {
+            Traced statement = statements.get(i);
+            lines.add(String.format("  [%d] %.1f ms, %d execution(s): %s", i + 1, statement.nanos / 1e6,
+                                    statement.executions, statement.sql.replaceAll("\\s+", " ").trim()));
+            if (!statement.shapes.isEmpty()) {
+                lines.add("      parameters: " + statement.shapes);
+            }
+            for (String step : plans.getOrDefault(statement.sql, new ArrayList<>())) {
+                lines.add("      plan: " + step);
+            }
+        }
+        
+        if (RECENT.size() > 1000) {
+            RECENT.clear();
+        }
+        RECENT.put(signature.toString(), new Repeat(now));
+        if (file == null || !file.getFile().equals(getLogFile().toAbsolutePath())) {
+            file = new RotatingFile(getLogFile(), MAX_BYTES, KEEP_FILES);
+        }
+        if (file.append(lines)) {
+            LOGGED.increment();
+        }
+    }
+    
+    /**
+     * Get the query plan of each distinct statement that has one
+     * @return Plan steps per SQL, indented by depth
+     */
+    private static Map<String, List<String>> explain(List<Traced> statements) {
+        Set<String> explainable = new LinkedHashSet<>();
+        for (Traced statement : statements) {
+            String verb = statement.sql.trim().split("\\s+", 2)[0].toUpperCase(Locale.ROOT);
+            if (verb.equals("SELECT") || verb.equals("WITH") || verb.equals("INSERT") || verb.equals("UPDATE")
+                    || verb.equals("DELETE") || verb.equals("REPLACE")) {
+                explainable.add(statement.sql);
+            }
+        }
+        Map<String, List<String>> plans = new HashMap<>();
+        if (explainable.isEmpty()) {
+            return plans;
+        }
+        
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement()) {
+            boolean attached = false;
+            for (String sql : explainable) {
+                if (!attached && sql.contains("archive.")) {
+                    DatabaseUtil.attachArchive(conn);
+                    attached = true;
+                }
+                plans.put(sql, plan(stmt, sql));
+            }
+        } catch (SQLException e) {
+            AppLog.warn("slowQueryLog.explainFailed", e);
+        }
+        return plans;
+    }
+    
+    private static List<String> plan(Statement stmt, String sql) {
+        List<String> steps = new ArrayList<>();
+        Map<Integer, Integer> depths = new HashMap<>();
+        try (ResultSet rs = stmt.executeQuery("EXPLAIN QUERY PLAN " + sql)) {
+            while (rs.next()) {
+                int depth = depths.getOrDefault(rs.getInt("parent"), -1) + 1;
+                depths.put(rs.getInt("id"), depth);
+                String detail = rs.getString("detail");
+                boolean fullScan = detail.startsWith("SCAN ") && !detail.contains(" USING ");
+                steps.add("  ".repeat(depth) + detail + (fullScan ? "   <-- full scan" : ""));
+            }
+        } catch (SQLException e) {
+            // e.g. a temporary table that only existed on the caller's connection
+            steps.add("unavailable: " + e.getMessage());
+        }
+        return steps;
+    }
+    
+    // Copy of a trace taken on the caller's thread
+    private static class Traced {
+        final String sql;
+        final String shapes;
+        final int executions;
+        final long nanos;
+        
+        Traced(StatementTrace trace) {
+            this.sql = trace.getSql();
+            this.shapes = trace.getParameterShapes();
+            this.executions = trace.getExecutions();
+            this.nanos = trace.getElapsedNanos();
+        }
+    }
+    
+    private static class Repeat {
+        final long writtenMillis;
+        int suppressed;
+        long slowestNanos;
+        
+        Repeat(long writtenMillis) {
+            this.writtenMillis = writtenMillis;
+        }
+    }
+}
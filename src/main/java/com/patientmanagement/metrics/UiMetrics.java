@@ -0,0 +1,75 @@
+package com.patientmanagement.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load times of the dashboard's views and stalls of the JavaFX Application Thread
+ */
+public final class UiMetrics {
+    
+    private static final Map<String, LatencyHistogram> VIEW_LOADS = new ConcurrentHashMap<>();
+    private static final LongAdder STALLS = new LongAdder();
+    private static final AtomicLong LONGEST_STALL_MILLIS = new AtomicLong();
+    
+    private UiMetrics() {
+    }
+    
+    /**
+     * Record the time taken to show a view, from loading its FXML to filling it with data
+     * @param view Name of the view, e.g. "patients"
+     * @param nanos Elapsed time
+     */
+    public static void recordViewLoad(String view, long nanos) {
+        LatencyHistogram histogram = VIEW_LOADS.get(view);
+        if (histogram == null) {
+            histogram = VIEW_LOADS.computeIfAbsent(view, name -> new LatencyHistogram());
+        }
+        histogram.record(nanos);
+    }
+    
+    /**
+     * Record a period in which the JavaFX Application Thread did not respond
+     * @param millis Length of the stall
+     */
+    public static void recordStall(long millis) {
+        STALLS.increment();
+        LONGEST_STALL_MILLIS.accumulateAndGet(millis, Math::max);
+    }
+    
+    /**
+     * Take a snapshot of the view load times
+     * @return One entry per view, slowest 99th percentile first
+     */
+    public static List<OperationSnapshot> viewLoads() {
+        List<OperationSnapshot> snapshots = new ArrayList<>();
+        for (Map.Entry<String, LatencyHistogram> entry : VIEW_LOADS.entrySet()) {
+            snapshots.add(new OperationSnapshot(entry.getKey(), entry.getValue().snapshot(), 0, 0));
+        }
+        snapshots.sort(Comparator.comparingLong(OperationSnapshot::getP99Micros).reversed()
+                                 .thenComparing(OperationSnapshot::getOperation));
+        return snapshots;
+    }
+    
+    public static long getStallCount() {
+        return STALLS.sum();
+    }
+    
+    public static long getLongestStallMillis() {
+        return LONGEST_STALL_MILLIS.get();
+    }
+    
+    /**
+     * Forget the recorded view loads and stalls
+     */
+    public static void reset() {
+        VIEW_LOADS.clear();
+        STALLS.reset();
+        LONGEST_STALL_MILLIS.set(0);
+    }
+}
@@ -0,0 +1,44 @@
+package com.patientmanagement.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event for a view shown by the dashboard navigation
+ */
+@Name("com.patientmanagement.ViewLoad")
+@Label("View Load")
+@Category({ "Patient Management", "User Interface" })
+@Description("Loading a view's FXML and filling it with data, on the JavaFX Application Thread")
+@Threshold("0 ms")
+@StackTrace(false)
+public class ViewLoadEvent extends Event {
+    
+    @Label("View")
+    private String view;
+    
+    /**
+     * Begin timing a view load
+     * @param view Name of the view, e.g. "patients"
+     */
+    public static ViewLoadEvent start(String view) {
+        ViewLoadEvent event = new ViewLoadEvent();
+        event.view = view;
+        event.begin();
+        return event;
+    }
+    
+    /**
+     * End the view load and commit the event if it is enabled
+     */
+    public void finish() {
+        if (shouldCommit()) {
+            commit();
+        }
+    }
+}
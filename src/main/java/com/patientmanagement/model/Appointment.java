@@ -3,28 +3,40 @@ package com.patientmanagement.model;
 import java.time.LocalDate;
 import java.time.LocalTime;
 
+import com.patientmanagement.logging.AppLog;
+
+/**
+ * An appointment. Dates are held as epoch days and times as minutes of the day, so a loaded
+ * appointment carries a handful of primitives instead of separate date and time objects;
+ * the LocalDate / LocalTime getters convert on access. Times have minute precision.
+ */
 public class Appointment {
+    
+    // Marks an unset date or time field
+    private static final int UNSET = Integer.MIN_VALUE;
+    
     private int appointmentId;
     private int patientId;
     private int doctorId;
-    private LocalDate date;
-    private LocalTime startTime;
-    private LocalTime endTime;
-    private String status; // scheduled, completed, cancelled
+    private int epochDay = UNSET;
+    private short startMinute = (short) -1;
+    private short endMinute = (short) -1;
+    private AppointmentStatus status;
     private String reason;
     private String notes;
-    private LocalDate createdAt;
-    private LocalDate updatedAt;
+    private int createdEpochDay = UNSET;
+    private int updatedEpochDay = UNSET;
+    private int seriesId; // 0 when not part of a recurring series
     
-    // Additional fields for display purposes
+    // Additional fields for display purposes (interned, the same few names repeat on every row)
     private String patientName;
     private String doctorName;
     
     // Default constructor
     public Appointment() {
-        this.createdAt = LocalDate.now();
-        this.updatedAt = LocalDate.now();
-        this.status = "scheduled";
+        this.createdEpochDay = (int) LocalDate.now().toEpochDay();
+        this.updatedEpochDay = createdEpochDay;
+        this.status = AppointmentStatus.SCHEDULED;
     }
     
     // Constructor with fields
@@ -34,14 +46,14 @@ public class Appointment {
         this.appointmentId = appointmentId;
         this.patientId = patientId;
         this.doctorId = doctorId;
-        this.date = date;
-        this.startTime = startTime;
-        this.endTime = endTime;
-        this.status = status;
+        setDate(date);
+        setStartTime(startTime);
+        setEndTime(endTime);
+        setStatus(status);
         this.reason = reason;
         this.notes = notes;
-        this.createdAt = LocalDate.now();
-        this.updatedAt = LocalDate.now();
+        this.createdEpochDay = (int) LocalDate.now().toEpochDay();
+        this.updatedEpochDay = createdEpochDay;
     }
     
     // Getters and Setters
@@ -70,34 +82,82 @@ public class Appointment {
     }
     
     public LocalDate getDate() {
-        return date;
+        return epochDay == UNSET ? null : LocalDate.ofEpochDay(epochDay);
     }
     
     public void setDate(LocalDate date) {
-        this.date = date;
+        this.epochDay = date == null ? UNSET : (int) date.toEpochDay();
     }
     
     public LocalTime getStartTime() {
-        return startTime;
+        return startMinute < 0 ? null : LocalTime.of(startMinute / 60, startMinute % 60);
     }
     
     public void setStartTime(LocalTime startTime) {
-        this.startTime = startTime;
+        this.startMinute = toMinute(startTime);
     }
     
     public LocalTime getEndTime() {
-        return endTime;
+        return endMinute < 0 ? null : LocalTime.of(endMinute / 60, endMinute % 60);
     }
     
     public void setEndTime(LocalTime endTime) {
-        this.endTime = endTime;
+        this.endMinute = toMinute(endTime);
+    }
+    
+    // Primitive accessors for code that compares many appointments, and for the DAO,
+    // which stores dates and times in the same encoding (see SqlDateCodec)
+    public int getEpochDay() {
+        return epochDay;
+    }
+    
+    public void setEpochDay(int epochDay) {
+        this.epochDay = epochDay;
+    }
+    
+    public int getStartMinute() {
+        return startMinute;
+    }
+    
+    public void setStartMinute(int startMinute) {
+        this.startMinute = (short) startMinute;
+    }
+    
+    public int getEndMinute() {
+        return endMinute;
     }
     
+    public void setEndMinute(int endMinute) {
+        this.endMinute = (short) endMinute;
+    }
+    
+    /**
+     * Get the status as stored in the database
+     * @return "scheduled", "completed" or "cancelled"
+     */
     public String getStatus() {
-        return status;
+        return status.getCode();
     }
     
+    /**
+     * Set the status from text in any letter case. Text that is not a known status is
+     * logged and read as scheduled, so one bad row does not fail a whole query
+     * @param status The status text
+     */
     public void setStatus(String status) {
+        AppointmentStatus parsed = AppointmentStatus.fromString(status, null);
+        if (parsed == null) {
+            AppLog.warn("appointment.unknownStatus", null, "appointmentId", appointmentId, "status", status);
+            parsed = AppointmentStatus.SCHEDULED;
+        }
+        this.status = parsed;
+    }
+    
+    public AppointmentStatus getAppointmentStatus() {
+        return status;
+    }
+    
+    public void setAppointmentStatus(AppointmentStatus status) {
         this.status = status;
     }
     
@@ -118,19 +178,27 @@ public class Appointment {
     }
     
     public LocalDate getCreatedAt() {
-        return createdAt;
+        return createdEpochDay == UNSET ? null : LocalDate.ofEpochDay(createdEpochDay);
     }
     
     public void setCreatedAt(LocalDate createdAt) {
-        this.createdAt = createdAt;
+        this.createdEpochDay = createdAt == null ? UNSET : (int) createdAt.toEpochDay();
     }
     
     public LocalDate getUpdatedAt() {
-        return updatedAt;
+        return updatedEpochDay == UNSET ? null : LocalDate.ofEpochDay(updatedEpochDay);
     }
     
     public void setUpdatedAt(LocalDate updatedAt) {
-        this.updatedAt = updatedAt;
+        this.updatedEpochDay = updatedAt == null ? UNSET : (int) updatedAt.toEpochDay();
+    }
+    
+    public int getSeriesId() {
+        return seriesId;
+    }
+    
+    public void setSeriesId(int seriesId) {
+        this.seriesId = seriesId;
     }
     
     public String getPatientName() {
@@ -138,7 +206,7 @@ public class Appointment {
     }
     
     public void setPatientName(String patientName) {
-        this.patientName = patientName;
+        this.patientName = patientName == null ? null : patientName.intern();
     }
     
     public String getDoctorName() {
@@ -146,43 +214,47 @@ public class Appointment {
     }
     
     public void setDoctorName(String doctorName) {
-        this.doctorName = doctorName;
+        this.doctorName = doctorName == null ? null : doctorName.intern();
     }
     
     // Helper methods
     public void updateTimestamp() {
-        this.updatedAt = LocalDate.now();
+        this.updatedEpochDay = (int) LocalDate.now().toEpochDay();
     }
     
     public void markAsCompleted() {
-        this.status = "completed";
+        this.status = AppointmentStatus.COMPLETED;
         updateTimestamp();
     }
     
     public void markAsCancelled() {
-        this.status = "cancelled";
+        this.status = AppointmentStatus.CANCELLED;
         updateTimestamp();
     }
     
     public boolean isScheduled() {
-        return "scheduled".equals(this.status);
+        return status == AppointmentStatus.SCHEDULED;
     }
     
     public boolean isCompleted() {
-        return "completed".equals(this.status);
+        return status == AppointmentStatus.COMPLETED;
     }
     
     public boolean isCancelled() {
-        return "cancelled".equals(this.status);
+        return status == AppointmentStatus.CANCELLED;
+    }
+    
+    private static short toMinute(LocalTime time) {
+        return time == null ? (short) -1 : (short) (time.getHour() * 60 + time.getMinute());
     }
     
     @Override
     public String toString() {
         return "Appointment{" +
                 "appointmentId=" + appointmentId +
-                ", date=" + date +
-                ", startTime=" + startTime +
-                ", status='" + status + '\'' +
+                ", date=" + getDate() +
+                ", startTime=" + getStartTime() +
+                ", status='" + status.getCode() + '\'' +
                 ", patientName='" + patientName + '\'' +
                 ", doctorName='" + doctorName + '\'' +
                 '}';
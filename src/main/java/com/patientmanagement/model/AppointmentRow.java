@@ -0,0 +1,74 @@
+package com.patientmanagement.model;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * The columns of an appointment shown in the appointments list, kept as primitives like
+ * Appointment. Details and edit screens load the full Appointment by ID when they open
+ */
+public class AppointmentRow {
+    
+    private final int appointmentId;
+    private final int epochDay;
+    private final short startMinute;
+    private final String patientName; // interned like Appointment's names
+    private final String doctorName;
+    private final String reason;
+    private final AppointmentStatus status;
+    
+    public AppointmentRow(int appointmentId, int epochDay, int startMinute, String patientName,
+                          String doctorName, String reason, AppointmentStatus status) {
+        this.appointmentId = appointmentId;
+        this.epochDay = epochDay;
+        this.startMinute = (short) startMinute;
+        this.patientName = patientName == null ? null : patientName.intern();
+        this.doctorName = doctorName == null ? null : doctorName.intern();
+        this.reason = reason;
+        this.status = status;
+    }
+    
+    // Getters
+    public int getAppointmentId() {
+        return appointmentId;
+    }
+    
+    public LocalDate getDate() {
+        return LocalDate.ofEpochDay(epochDay);
+    }
+    
+    public LocalTime getStartTime() {
+        return LocalTime.of(startMinute / 60, startMinute % 60);
+    }
+    
+    public String getPatientName() {
+        return patientName;
+    }
+    
+    public String getDoctorName() {
+        return doctorName;
+    }
+    
+    public String getReason() {
+        return reason;
+    }
+    
+    public AppointmentStatus getStatus() {
+        return status;
+    }
+    
+    // Helper methods
+    public boolean isScheduled() {
+        return status == AppointmentStatus.SCHEDULED;
+    }
+    
+    @Override
+    public String toString() {
+        return "AppointmentRow{" +
+                "appointmentId=" + appointmentId +
+                ", date=" + getDate() +
+                ", startTime=" + getStartTime() +
+                ", status=" + status +
+                '}';
+    }
+}
@@ -0,0 +1,65 @@
+package com.patientmanagement.model;
+
+/**
+ * Status of an appointment. The code is what the database stores, the display name
+ * is what the user interface shows
+ */
+public enum AppointmentStatus {
+    
+    SCHEDULED("scheduled", "Scheduled"),
+    COMPLETED("completed", "Completed"),
+    CANCELLED("cancelled", "Cancelled");
+    
+    private final String code;
+    private final String displayName;
+    
+    AppointmentStatus(String code, String displayName) {
+        this.code = code;
+        this.displayName = displayName;
+    }
+    
+    /**
+     * Parse a status in any letter case, as stored by older versions or typed in the UI
+     * @param value The status text
+     * @return The matching status
+     * @throws IllegalArgumentException If the text is not a known status
+     */
+    public static AppointmentStatus fromString(String value) {
+        AppointmentStatus status = fromString(value, null);
+        if (status != null) {
+            return status;
+        }
+        throw new IllegalArgumentException("Unknown appointment status: " + value);
+    }
+    
+    /**
+     * Parse a status in any letter case, falling back for text that is not a known status
+     * @param value The status text
+     * @param fallback The status to return when the text is not recognised
+     * @return The matching status, or the fallback
+     */
+    public static AppointmentStatus fromString(String value, AppointmentStatus fallback) {
+        if (value != null) {
+            String trimmed = value.trim();
+            for (AppointmentStatus status : values()) {
+                if (status.code.equalsIgnoreCase(trimmed)) {
+                    return status;
+                }
+            }
+        }
+        return fallback;
+    }
+    
+    public String getCode() {
+        return code;
+    }
+    
+    public String getDisplayName() {
+        return displayName;
+    }
+    
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
@@ -0,0 +1,74 @@
+package com.patientmanagement.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of an atomic check-and-book operation
+ */
+public class BookingResult {
+    
+    public enum Status {
+        BOOKED,     // appointment inserted
+        CONFLICT,   // the doctor already has an overlapping appointment, or does not work then
+        FAILED      // database error, nothing was inserted
+    }
+    
+    private final Status status;
+    private final Appointment appointment;
+    private final List<Appointment> conflicts;
+    
+    private BookingResult(Status status, Appointment appointment, List<Appointment> conflicts) {
+        this.status = status;
+        this.appointment = appointment;
+        this.conflicts = conflicts;
+    }
+    
+    public static BookingResult booked(Appointment appointment) {
+        return new BookingResult(Status.BOOKED, appointment, Collections.emptyList());
+    }
+    
+    public static BookingResult conflict(Appointment appointment, List<Appointment> conflicts) {
+        return new BookingResult(Status.CONFLICT, appointment, Collections.unmodifiableList(conflicts));
+    }
+    
+    public static BookingResult failed(Appointment appointment) {
+        return new BookingResult(Status.FAILED, appointment, Collections.emptyList());
+    }
+    
+    // Getters
+    public Status getStatus() {
+        return status;
+    }
+    
+    public Appointment getAppointment() {
+        return appointment;
+    }
+    
+    public List<Appointment> getConflicts() {
+        return conflicts;
+    }
+    
+    // Helper methods
+    public boolean isBooked() {
+        return status == Status.BOOKED;
+    }
+    
+    public boolean isConflict() {
+        return status == Status.CONFLICT;
+    }
+    
+    // A conflict without overlapping appointments: the time is outside the doctor's working hours
+    public boolean isOutsideWorkingHours() {
+        return status == Status.CONFLICT && conflicts.isEmpty();
+    }
+    
+    @Override
+    public String toString() {
+        return "BookingResult{" +
+                "status=" + status +
+                ", appointmentId=" + (appointment == null ? 0 : appointment.getAppointmentId()) +
+                ", conflicts=" + conflicts.size() +
+                '}';
+    }
+}
@@ -0,0 +1,48 @@
+package com.patientmanagement.model;
+
+import java.time.LocalDate;
+
+/**
+ * Booked time of one doctor on one day, read from the doctor_day_occupancy aggregate
+ */
+public class DoctorOccupancy {
+    
+    private final int doctorId;
+    private final LocalDate date;
+    private final int bookedMinutes;
+    private final int appointmentCount;
+    
+    public DoctorOccupancy(int doctorId, LocalDate date, int bookedMinutes, int appointmentCount) {
+        this.doctorId = doctorId;
+        this.date = date;
+        this.bookedMinutes = bookedMinutes;
+        this.appointmentCount = appointmentCount;
+    }
+    
+    // Getters
+    public int getDoctorId() {
+        return doctorId;
+    }
+    
+    public LocalDate getDate() {
+        return date;
+    }
+    
+    public int getBookedMinutes() {
+        return bookedMinutes;
+    }
+    
+    public int getAppointmentCount() {
+        return appointmentCount;
+    }
+    
+    @Override
+    public String toString() {
+        return "DoctorOccupancy{" +
+                "doctorId=" + doctorId +
+                ", date=" + date +
+                ", bookedMinutes=" + bookedMinutes +
+                ", appointmentCount=" + appointmentCount +
+                '}';
+    }
+}
@@ -0,0 +1,72 @@
+package com.patientmanagement.model;
+
+import java.time.LocalDate;
+
+/**
+ * The columns of a patient shown in the patients list. Details screens load the full
+ * Patient by ID when they open
+ */
+public class PatientRow {
+    
+    private final int patientId;
+    private final String firstName;
+    private final String lastName;
+    private final LocalDate dateOfBirth;
+    private final String gender;
+    private final String phone;
+    private final String email;
+    
+    public PatientRow(int patientId, String firstName, String lastName, LocalDate dateOfBirth,
+                      String gender, String phone, String email) {
+        this.patientId = patientId;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.dateOfBirth = dateOfBirth;
+        this.gender = gender;
+        this.phone = phone;
+        this.email = email;
+    }
+    
+    // Getters
+    public int getPatientId() {
+        return patientId;
+    }
+    
+    public String getFirstName() {
+        return firstName;
+    }
+    
+    public String getLastName() {
+        return lastName;
+    }
+    
+    public LocalDate getDateOfBirth() {
+        return dateOfBirth;
+    }
+    
+    public String getGender() {
+        return gender;
+    }
+    
+    public String getPhone() {
+        return phone;
+    }
+    
+    public String getEmail() {
+        return email;
+    }
+    
+    // Helper methods
+    public String getFullName() {
+        return firstName + " " + lastName;
+    }
+    
+    @Override
+    public String toString() {
+        return "PatientRow{" +
+                "patientId=" + patientId +
+                ", name='" + getFullName() + '\'' +
+                ", dateOfBirth=" + dateOfBirth +
+                '}';
+    }
+}
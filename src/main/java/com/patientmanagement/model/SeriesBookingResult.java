@@ -0,0 +1,71 @@
+package com.patientmanagement.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of booking a recurring appointment series: one BookingResult per occurrence
+ */
+public class SeriesBookingResult {
+    
+    private final int seriesId;
+    private final List<BookingResult> occurrences;
+    
+    public SeriesBookingResult(int seriesId, List<BookingResult> occurrences) {
+        this.seriesId = seriesId;
+        this.occurrences = Collections.unmodifiableList(occurrences);
+    }
+    
+    // Getters
+    public int getSeriesId() {
+        return seriesId;
+    }
+    
+    public List<BookingResult> getOccurrences() {
+        return occurrences;
+    }
+    
+    // Helper methods
+    public List<Appointment> getBooked() {
+        List<Appointment> booked = new ArrayList<>();
+        for (BookingResult result : occurrences) {
+            if (result.isBooked()) {
+                booked.add(result.getAppointment());
+            }
+        }
+        return booked;
+    }
+    
+    public List<BookingResult> getConflicts() {
+        List<BookingResult> conflicts = new ArrayList<>();
+        for (BookingResult result : occurrences) {
+            if (result.isConflict()) {
+                conflicts.add(result);
+            }
+        }
+        return conflicts;
+    }
+    
+    public boolean hasConflicts() {
+        return !getConflicts().isEmpty();
+    }
+    
+    public boolean isFailed() {
+        for (BookingResult result : occurrences) {
+            if (result.getStatus() == BookingResult.Status.FAILED) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    @Override
+    public String toString() {
+        return "SeriesBookingResult{" +
+                "seriesId=" + seriesId +
+                ", booked=" + getBooked().size() +
+                ", conflicts=" + getConflicts().size() +
+                '}';
+    }
+}
@@ -0,0 +1,67 @@
+package com.patientmanagement.model.dao;
+
+import com.patientmanagement.analytics.AppointmentRowSink;
+import com.patientmanagement.archive.ArchiveService;
+import com.patientmanagement.util.SqlDateCodec;
+
+import java.sql.*;
+import java.time.LocalDate;
+
+/**
+ * Bulk reads of the appointments table for the analytics snapshot.
+ * Rows are streamed to an AppointmentRowSink as primitives instead of Appointment objects;
+ * the stored epoch-day and minute-of-day columns are passed through without decoding.
+ */
+public class AnalyticsDAO {
+
+    /**
+     * Stream appointments added after an ID or updated since a date, in ascending ID order,
+     * archived appointments included.
+     * Both the rows and the returned total are read in one transaction, so they are consistent
+     * @param afterId Only rows with a higher appointment ID (0 for all rows)...
+     * @param updatedSince ...or updated on or after this date (null to skip updated rows)
+     * @param sink Receives every row
+     * @return Total number of appointments in the table, or -1 on error
+     */
+    public int readAppointments(int afterId, LocalDate updatedSince, AppointmentRowSink sink) {
+        return DaoExecutor.execute("AnalyticsDAO.readAppointments", -1, conn -> {
+            try (Statement stmt = conn.createStatement()) {
+
+                String appointments = ArchiveService.allAppointments(conn);
+                String sql = "SELECT appointment_id, date, start_time, end_time, doctor_id, patient_id, status, reason " +
+                             "FROM " + appointments + " WHERE appointment_id > ? " +
+                             (updatedSince != null ? "OR updated_at >= ? " : "") +
+                             "ORDER BY appointment_id";
+
+                stmt.execute("BEGIN");
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setInt(1, afterId);
+                    if (updatedSince != null) {
+                        pstmt.setLong(2, SqlDateCodec.startOfDay(updatedSince));
+                    }
+
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            String status = rs.getString(7);
+                            String reason = rs.getString(8);
+                            sink.accept(rs.getInt(1),
+                                        rs.getInt(2),
+                                        rs.getInt(3),
+                                        rs.getInt(4),
+                                        rs.getInt(5),
+                                        rs.getInt(6),
+                                        status == null ? "" : status.toLowerCase(),
+                                        reason == null ? "" : reason.trim().toLowerCase());
+                        }
+                    }
+
+                    try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + appointments)) {
+                        return rs.next() ? rs.getInt(1) : -1;
+                    }
+                } finally {
+                    stmt.execute("COMMIT");
+                }
+            }
+        });
+    }
+}
@@ -1,281 +1,682 @@
 package com.patientmanagement.model.dao;
 
+import com.patientmanagement.archive.ArchiveService;
+import com.patientmanagement.calendar.AppointmentWindowCache;
+import com.patientmanagement.logging.AppLog;
+import com.patientmanagement.metrics.ConflictCheckEvent;
 import com.patientmanagement.model.Appointment;
+import com.patientmanagement.model.AppointmentRow;
+import com.patientmanagement.model.AppointmentStatus;
+import com.patientmanagement.model.BookingResult;
+import com.patientmanagement.model.SeriesBookingResult;
+import com.patientmanagement.scheduling.Availability;
+import com.patientmanagement.scheduling.RecurrenceRule;
+import com.patientmanagement.scheduling.SchedulingIndex;
 import com.patientmanagement.util.DatabaseUtil;
+import com.patientmanagement.util.SqlDateCodec;
 
 import java.sql.*;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class AppointmentDAO {
-    
+
+    // Striped per-doctor locks so bookings from this process for the same doctor
+    // queue up in the JVM instead of contending for the SQLite write lock
+    private static final int BOOKING_LOCK_STRIPES = 64;
+    private static final ReentrantLock[] BOOKING_LOCKS = new ReentrantLock[BOOKING_LOCK_STRIPES];
+
+    static {
+        for (int i = 0; i < BOOKING_LOCK_STRIPES; i++) {
+            BOOKING_LOCKS[i] = new ReentrantLock();
+        }
+    }
+
+    // Columns read by extractAppointmentFromResultSet, in index order (names come last)
+    private static final String APPOINTMENT_COLUMNS =
+        "a.appointment_id, a.patient_id, a.doctor_id, a.date, a.start_time, a.end_time, a.status, " +
+        "a.reason, a.notes, a.created_at, a.updated_at, a.series_id, ";
+
+    // Appointments with the patient and doctor names stored on the row (kept current by triggers)
+    private static final String APPOINTMENT_SELECT =
+        "SELECT " + APPOINTMENT_COLUMNS + "a.patient_name, a.doctor_name FROM appointments a ";
+
+    // The same columns from the archive tier (see ArchiveService)
+    private static final String ARCHIVED_APPOINTMENT_SELECT =
+        "SELECT " + APPOINTMENT_COLUMNS + "a.patient_name, a.doctor_name FROM archive.appointments a ";
+
+    // Columns of the appointments list read by extractAppointmentRow, in index order
+    private static final String APPOINTMENT_LIST_COLUMNS =
+        "SELECT a.appointment_id, a.date, a.start_time, a.patient_name, a.doctor_name, a.reason, a.status ";
+
+    private static final String APPOINTMENT_LIST_SELECT = APPOINTMENT_LIST_COLUMNS + "FROM appointments a ";
+
+    private static final String ARCHIVED_APPOINTMENT_LIST_SELECT = APPOINTMENT_LIST_COLUMNS + "FROM archive.appointments a ";
+
+    // Insert that stores the current patient and doctor names, or the names on the Appointment
+    // when the patient or doctor row does not exist. ?1 and ?3 are reused by the name lookups
+    private static final String APPOINTMENT_INSERT =
+        "INSERT INTO appointments (patient_id, patient_name, doctor_id, doctor_name, date, " +
+        "start_time, end_time, status, reason, notes, created_at, updated_at, series_id) " +
+        "VALUES (?1, COALESCE(" + DatabaseUtil.patientName("?1") + ", ?2), " +
+        "?3, COALESCE(" + DatabaseUtil.doctorName("?3") + ", ?4), ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
     // Create a new appointment
     public boolean createAppointment(Appointment appointment) {
-        String sql = "INSERT INTO appointments (patient_id, doctor_id, date, start_time, end_time, " +
-                     "status, reason, notes, created_at, updated_at) " +
-                     "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            
-            pstmt.setInt(1, appointment.getPatientId());
-            pstmt.setInt(2, appointment.getDoctorId());
-            pstmt.setDate(3, java.sql.Date.valueOf(appointment.getDate()));
-            pstmt.setTime(4, java.sql.Time.valueOf(appointment.getStartTime()));
-            pstmt.setTime(5, java.sql.Time.valueOf(appointment.getEndTime()));
-            pstmt.setString(6, appointment.getStatus());
-            pstmt.setString(7, appointment.getReason());
-            pstmt.setString(8, appointment.getNotes());
-            pstmt.setDate(9, java.sql.Date.valueOf(LocalDate.now()));
-            pstmt.setDate(10, java.sql.Date.valueOf(LocalDate.now()));
-            
-            int affectedRows = pstmt.executeUpdate();
-            
-            if (affectedRows > 0) {
-                try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
-                    if (generatedKeys.next()) {
-                        appointment.setAppointmentId(generatedKeys.getInt(1));
-                        return true;
-                    }
-                }
+        return DaoExecutor.execute("AppointmentDAO.createAppointment", false, conn -> {
+            if (insertAppointment(conn, appointment)) {
+                AppointmentWindowCache.invalidate(appointment.getDate());
+                return true;
             }
             return false;
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return false;
-        }
+        });
     }
-    
+
     // Get an appointment by ID
     public Appointment getAppointmentById(int appointmentId) {
-        String sql = "SELECT a.*, p.first_name || ' ' || p.last_name as patient_name, " +
-                     "u.first_name || ' ' || u.last_name as doctor_name " +
-                     "FROM appointments a " +
-                     "JOIN patients p ON a.patient_id = p.patient_id " +
-                     "JOIN doctors d ON a.doctor_id = d.doctor_id " +
-                     "JOIN users u ON d.user_id = u.user_id " +
-                     "WHERE a.appointment_id = ?";
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setInt(1, appointmentId);
-            ResultSet rs = pstmt.executeQuery();
-            
-            if (rs.next()) {
-                return extractAppointmentFromResultSet(rs);
+        return DaoExecutor.execute("AppointmentDAO.getAppointmentById", null, conn -> {
+            Appointment appointment = findById(conn, APPOINTMENT_SELECT, appointmentId);
+            // The archive is only searched for IDs that are not in the main database
+            if (appointment == null && ArchiveService.attachIfReached(conn, null)) {
+                appointment = findById(conn, ARCHIVED_APPOINTMENT_SELECT, appointmentId);
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return null;
+            return appointment;
+        });
     }
-    
+
     // Get all appointments
     public List<Appointment> getAllAppointments() {
-        List<Appointment> appointments = new ArrayList<>();
-        String sql = "SELECT a.*, p.first_name || ' ' || p.last_name as patient_name, " +
-                     "u.first_name || ' ' || u.last_name as doctor_name " +
-                     "FROM appointments a " +
-                     "JOIN patients p ON a.patient_id = p.patient_id " +
-                     "JOIN doctors d ON a.doctor_id = d.doctor_id " +
-                     "JOIN users u ON d.user_id = u.user_id " +
-                     "ORDER BY a.date, a.start_time";
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            
-            while (rs.next()) {
-                appointments.add(extractAppointmentFromResultSet(rs));
+        return DaoExecutor.execute("AppointmentDAO.getAllAppointments", new ArrayList<>(), conn -> {
+            List<Appointment> appointments = new ArrayList<>();
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(appointmentQuery(conn, null, "", "ORDER BY a.date, a.start_time"))) {
+
+                while (rs.next()) {
+                    appointments.add(extractAppointmentFromResultSet(rs));
+                }
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return appointments;
+            return appointments;
+        });
     }
-    
+
     // Get appointments by date
     public List<Appointment> getAppointmentsByDate(LocalDate date) {
-        List<Appointment> appointments = new ArrayList<>();
-        String sql = "SELECT a.*, p.first_name || ' ' || p.last_name as patient_name, " +
-                     "u.first_name || ' ' || u.last_name as doctor_name " +
-                     "FROM appointments a " +
-                     "JOIN patients p ON a.patient_id = p.patient_id " +
-                     "JOIN doctors d ON a.doctor_id = d.doctor_id " +
-                     "JOIN users u ON d.user_id = u.user_id " +
-                     "WHERE a.date = ? " +
-                     "ORDER BY a.start_time";
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setDate(1, java.sql.Date.valueOf(date));
-            ResultSet rs = pstmt.executeQuery();
-            
-            while (rs.next()) {
-                appointments.add(extractAppointmentFromResultSet(rs));
+        return DaoExecutor.execute("AppointmentDAO.getAppointmentsByDate", new ArrayList<>(), conn -> {
+            List<Appointment> appointments = new ArrayList<>();
+            try (PreparedStatement pstmt = conn.prepareStatement(appointmentQuery(conn, date,
+                 "WHERE a.date = ?1 ", "ORDER BY a.start_time"))) {
+
+                SqlDateCodec.setDate(pstmt, 1, date);
+                ResultSet rs = pstmt.executeQuery();
+
+                while (rs.next()) {
+                    appointments.add(extractAppointmentFromResultSet(rs));
+                }
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
+            return appointments;
+        });
+    }
+
+    // Get appointments between two dates (inclusive), ordered for calendar display
+    public List<Appointment> getAppointmentsBetween(LocalDate from, LocalDate to) {
+        return DaoExecutor.execute("AppointmentDAO.getAppointmentsBetween", new ArrayList<>(), conn -> {
+            List<Appointment> appointments = new ArrayList<>();
+            try (PreparedStatement pstmt = conn.prepareStatement(appointmentQuery(conn, from,
+                 "WHERE a.date BETWEEN ?1 AND ?2 ", "ORDER BY a.date, a.start_time"))) {
+
+                SqlDateCodec.setDate(pstmt, 1, from);
+                SqlDateCodec.setDate(pstmt, 2, to);
+                ResultSet rs = pstmt.executeQuery();
+
+                while (rs.next()) {
+                    appointments.add(extractAppointmentFromResultSet(rs));
+                }
+            }
+            return appointments;
+        });
+    }
+
+    // Get the list rows of appointments, optionally only those on one date and/or with one status
+    public List<AppointmentRow> getAppointmentRows(LocalDate date, AppointmentStatus status) {
+        StringBuilder filter = new StringBuilder("WHERE 1 = 1 ");
+        int parameters = 0;
+        if (date != null) {
+            filter.append("AND a.date = ?").append(++parameters).append(' ');
         }
-        return appointments;
+        if (status != null) {
+            filter.append("AND a.status = ?").append(++parameters).append(' ');
+        }
+
+        return DaoExecutor.execute("AppointmentDAO.getAppointmentRows", new ArrayList<>(), conn -> {
+            List<AppointmentRow> appointments = new ArrayList<>();
+            // Only finished appointments are ever archived
+            boolean archived = status != AppointmentStatus.SCHEDULED && ArchiveService.attachIfReached(conn, date);
+            String sql = APPOINTMENT_LIST_SELECT + filter +
+                         (archived ? "UNION ALL " + ARCHIVED_APPOINTMENT_LIST_SELECT + filter : "") +
+                         "ORDER BY a.date, a.start_time";
+
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                int index = 1;
+                if (date != null) {
+                    SqlDateCodec.setDate(pstmt, index++, date);
+                }
+                if (status != null) {
+                    pstmt.setString(index, status.getCode());
+                }
+                ResultSet rs = pstmt.executeQuery();
+
+                while (rs.next()) {
+                    appointments.add(extractAppointmentRow(rs));
+                }
+            }
+            return appointments;
+        });
     }
-    
+
     // Get appointments by patient
     public List<Appointment> getAppointmentsByPatient(int patientId) {
-        List<Appointment> appointments = new ArrayList<>();
-        String sql = "SELECT a.*, p.first_name || ' ' || p.last_name as patient_name, " +
-                     "u.first_name || ' ' || u.last_name as doctor_name " +
-                     "FROM appointments a " +
-                     "JOIN patients p ON a.patient_id = p.patient_id " +
-                     "JOIN doctors d ON a.doctor_id = d.doctor_id " +
-                     "JOIN users u ON d.user_id = u.user_id " +
-                     "WHERE a.patient_id = ? " +
-                     "ORDER BY a.date DESC, a.start_time";
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setInt(1, patientId);
-            ResultSet rs = pstmt.executeQuery();
-            
-            while (rs.next()) {
-                appointments.add(extractAppointmentFromResultSet(rs));
+        return DaoExecutor.execute("AppointmentDAO.getAppointmentsByPatient", new ArrayList<>(), conn -> {
+            List<Appointment> appointments = new ArrayList<>();
+            try (PreparedStatement pstmt = conn.prepareStatement(appointmentQuery(conn, null,
+                 "WHERE a.patient_id = ?1 ", "ORDER BY a.date DESC, a.start_time"))) {
+
+                pstmt.setInt(1, patientId);
+                ResultSet rs = pstmt.executeQuery();
+
+                while (rs.next()) {
+                    appointments.add(extractAppointmentFromResultSet(rs));
+                }
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return appointments;
+            return appointments;
+        });
     }
-    
+
     // Get appointments by doctor
     public List<Appointment> getAppointmentsByDoctor(int doctorId) {
-        List<Appointment> appointments = new ArrayList<>();
-        String sql = "SELECT a.*, p.first_name || ' ' || p.last_name as patient_name, " +
-                     "u.first_name || ' ' || u.last_name as doctor_name " +
-                     "FROM appointments a " +
-                     "JOIN patients p ON a.patient_id = p.patient_id " +
-                     "JOIN doctors d ON a.doctor_id = d.doctor_id " +
-                     "JOIN users u ON d.user_id = u.user_id " +
-                     "WHERE a.doctor_id = ? " +
-                     "ORDER BY a.date, a.start_time";
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setInt(1, doctorId);
-            ResultSet rs = pstmt.executeQuery();
-            
-            while (rs.next()) {
-                appointments.add(extractAppointmentFromResultSet(rs));
+        return DaoExecutor.execute("AppointmentDAO.getAppointmentsByDoctor", new ArrayList<>(), conn -> {
+            List<Appointment> appointments = new ArrayList<>();
+            try (PreparedStatement pstmt = conn.prepareStatement(appointmentQuery(conn, null,
+                 "WHERE a.doctor_id = ?1 ", "ORDER BY a.date, a.start_time"))) {
+
+                pstmt.setInt(1, doctorId);
+                ResultSet rs = pstmt.executeQuery();
+
+                while (rs.next()) {
+                    appointments.add(extractAppointmentFromResultSet(rs));
+                }
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
+            return appointments;
+        });
+    }
+
+    // Get the non-cancelled appointments of some doctors between two dates (inclusive).
+    // Like the conflict checks this reads the main database only: bookings are never older than the archive horizon
+    public List<Appointment> getActiveAppointmentsBetween(Collection<Integer> doctorIds, LocalDate from, LocalDate to) {
+        if (doctorIds.isEmpty()) {
+            return new ArrayList<>();
         }
-        return appointments;
+
+        return DaoExecutor.execute("AppointmentDAO.getActiveAppointmentsBetween", new ArrayList<>(), conn -> {
+            return findActiveBetween(conn, doctorIds, from, to);
+        });
     }
-    
+
     // Update an appointment
     public boolean updateAppointment(Appointment appointment) {
         String sql = "UPDATE appointments SET patient_id = ?, doctor_id = ?, date = ?, " +
                      "start_time = ?, end_time = ?, status = ?, reason = ?, notes = ?, " +
                      "updated_at = ? WHERE appointment_id = ?";
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setInt(1, appointment.getPatientId());
-            pstmt.setInt(2, appointment.getDoctorId());
-            pstmt.setDate(3, java.sql.Date.valueOf(appointment.getDate()));
-            pstmt.setTime(4, java.sql.Time.valueOf(appointment.getStartTime()));
-            pstmt.setTime(5, java.sql.Time.valueOf(appointment.getEndTime()));
-            pstmt.setString(6, appointment.getStatus());
-            pstmt.setString(7, appointment.getReason());
-            pstmt.setString(8, appointment.getNotes());
-            pstmt.setDate(9, java.sql.Date.valueOf(LocalDate.now()));
-            pstmt.setInt(10, appointment.getAppointmentId());
-            
-            int affectedRows = pstmt.executeUpdate();
-            return affectedRows > 0;
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return false;
-        }
+
+        return DaoExecutor.execute("AppointmentDAO.updateAppointment", false, conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+                pstmt.setInt(1, appointment.getPatientId());
+                pstmt.setInt(2, appointment.getDoctorId());
+                SqlDateCodec.setDate(pstmt, 3, appointment.getDate());
+                SqlDateCodec.setTime(pstmt, 4, appointment.getStartTime());
+                SqlDateCodec.setTime(pstmt, 5, appointment.getEndTime());
+                pstmt.setString(6, appointment.getAppointmentStatus().getCode());
+                pstmt.setString(7, appointment.getReason());
+                pstmt.setString(8, appointment.getNotes());
+                SqlDateCodec.setNow(pstmt, 9);
+                pstmt.setInt(10, appointment.getAppointmentId());
+
+                int affectedRows = pstmt.executeUpdate();
+                // The previous date is not known here, so drop every cached calendar window
+                AppointmentWindowCache.clear();
+                return affectedRows > 0;
+            }
+        });
     }
-    
+
     // Delete an appointment
     public boolean deleteAppointment(int appointmentId) {
         String sql = "DELETE FROM appointments WHERE appointment_id = ?";
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setInt(1, appointmentId);
-            
-            int affectedRows = pstmt.executeUpdate();
-            return affectedRows > 0;
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return false;
-        }
+
+        return DaoExecutor.execute("AppointmentDAO.deleteAppointment", false, conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+                pstmt.setInt(1, appointmentId);
+
+                int affectedRows = pstmt.executeUpdate();
+                AppointmentWindowCache.clear();
+                return affectedRows > 0;
+            }
+        });
     }
-    
+
     // Check for scheduling conflicts
     public boolean hasSchedulingConflict(int doctorId, LocalDate date, LocalTime startTime, LocalTime endTime, Integer excludeAppointmentId) {
         String sql = "SELECT COUNT(*) FROM appointments " +
-                     "WHERE doctor_id = ? AND date = ? AND status != 'cancelled' " +
-                     "AND ((start_time <= ? AND end_time > ?) OR (start_time < ? AND end_time >= ?) OR (start_time >= ? AND end_time <= ?))";
-        
-        if (excludeAppointmentId != null) {
-            sql += " AND appointment_id != ?";
+                     "WHERE doctor_id = ? AND date = ? AND " + DatabaseUtil.NOT_CANCELLED + " " +
+                     "AND start_time < ? AND end_time > ?" +
+                     (excludeAppointmentId != null ? " AND appointment_id != ?" : "");
+
+        return DaoExecutor.execute("AppointmentDAO.hasSchedulingConflict", false, conn -> {
+            ConflictCheckEvent check = ConflictCheckEvent.start("query", doctorId, date, 1);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+                pstmt.setInt(1, doctorId);
+                SqlDateCodec.setDate(pstmt, 2, date);
+                SqlDateCodec.setTime(pstmt, 3, endTime);
+                SqlDateCodec.setTime(pstmt, 4, startTime);
+
+                if (excludeAppointmentId != null) {
+                    pstmt.setInt(5, excludeAppointmentId);
+                }
+
+                ResultSet rs = pstmt.executeQuery();
+
+                int conflicts = rs.next() ? rs.getInt(1) : 0;
+                check.finish(conflicts);
+                return conflicts > 0;
+            }
+        });
+    }
+
+    // Get the active appointments of a doctor that overlap the given time range
+    public List<Appointment> getConflictingAppointments(int doctorId, LocalDate date, LocalTime startTime,
+                                                        LocalTime endTime, int excludeAppointmentId) {
+        return DaoExecutor.execute("AppointmentDAO.getConflictingAppointments", new ArrayList<>(), conn -> {
+            return findConflicts(conn, doctorId, date, startTime, endTime, excludeAppointmentId);
+        });
+    }
+
+    /**
+     * Book an appointment atomically: the overlap check and the insert run in a single
+     * BEGIN IMMEDIATE transaction, so two workstations booking the same slot cannot both succeed.
+     * @param appointment The appointment to book
+     * @return BOOKED with the generated ID, CONFLICT with the overlapping appointments, or FAILED
+     */
+    public BookingResult bookAppointment(Appointment appointment) {
+        long start = System.nanoTime();
+        ReentrantLock lock = BOOKING_LOCKS[Math.floorMod(appointment.getDoctorId(), BOOKING_LOCK_STRIPES)];
+        lock.lock();
+        try {
+            return DaoExecutor.call("AppointmentDAO.bookAppointment", conn -> {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("BEGIN IMMEDIATE");
+                }
+
+                try {
+                    List<Appointment> conflicts = findConflicts(conn, appointment.getDoctorId(), appointment.getDate(),
+                            appointment.getStartTime(), appointment.getEndTime(), appointment.getAppointmentId());
+                    if (!conflicts.isEmpty()) {
+                        rollback(conn);
+                        return BookingResult.conflict(appointment, conflicts);
+                    }
+
+                    if (!insertAppointment(conn, appointment)) {
+                        rollback(conn);
+                        return BookingResult.failed(appointment);
+                    }
+
+                    try (Statement stmt = conn.createStatement()) {
+                        stmt.execute("COMMIT");
+                    }
+                    AppointmentWindowCache.invalidate(appointment.getDate());
+                    return BookingResult.booked(appointment);
+                } catch (SQLException e) {
+                    rollback(conn);
+                    throw e;
+                }
+            });
+        } catch (DataAccessException e) {
+            DaoExecutor.logFailure(e, start, "doctorId", appointment.getDoctorId(),
+                                   "patientId", appointment.getPatientId(), "date", appointment.getDate());
+            appointment.setAppointmentId(0);
+            return BookingResult.failed(appointment);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Book all occurrences of a recurring series in one BEGIN IMMEDIATE transaction.
+     * Existing bookings for the whole date span are loaded once and every occurrence is
+     * checked against them and the doctor's working time in memory; the inserts then run
+     * as a single batch. An occurrence outside the working time is a conflict without
+     * conflicting appointments.
+     * @param rule The recurrence rule, stored with the series
+     * @param occurrences One appointment per occurrence, all for the same doctor
+     * @param availability The doctor's working time
+     * @param skipConflicts true to book the free occurrences and skip the conflicting ones,
+     *                      false to book nothing when any occurrence conflicts
+     * @return One BookingResult per occurrence, in the given order
+     */
+    public SeriesBookingResult bookAppointmentSeries(RecurrenceRule rule, List<Appointment> occurrences,
+                                                     Availability availability, boolean skipConflicts) {
+        if (occurrences.isEmpty()) {
+            return new SeriesBookingResult(0, new ArrayList<>());
+        }
+
+        int doctorId = occurrences.get(0).getDoctorId();
+        LocalDate from = occurrences.get(0).getDate();
+        LocalDate to = from;
+        for (Appointment occurrence : occurrences) {
+            if (occurrence.getDoctorId() != doctorId) {
+                throw new IllegalArgumentException("All occurrences of a series must be for the same doctor");
+            }
+            from = occurrence.getDate().isBefore(from) ? occurrence.getDate() : from;
+            to = occurrence.getDate().isAfter(to) ? occurrence.getDate() : to;
+        }
+
+        LocalDate spanFrom = from;
+        LocalDate spanTo = to;
+        long start = System.nanoTime();
+        ReentrantLock lock = BOOKING_LOCKS[Math.floorMod(doctorId, BOOKING_LOCK_STRIPES)];
+        lock.lock();
+        try {
+            return DaoExecutor.call("AppointmentDAO.bookAppointmentSeries", conn -> {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("BEGIN IMMEDIATE");
+                }
+
+                try {
+                    // Bulk conflict check against everything already booked in the span
+                    ConflictCheckEvent check = ConflictCheckEvent.start("series", doctorId, spanFrom, occurrences.size());
+                    List<Appointment> existing = findActiveBetween(conn, Collections.singletonList(doctorId),
+                                                                   spanFrom, spanTo);
+                    SchedulingIndex index = new SchedulingIndex(spanFrom, spanTo);
+                    for (Appointment appointment : existing) {
+                        index.addBooking(appointment);
+                    }
+
+                    List<BookingResult> results = new ArrayList<>();
+                    List<Appointment> accepted = new ArrayList<>();
+                    for (Appointment occurrence : occurrences) {
+                        if (!availability.isWorking(occurrence.getDate(), occurrence.getStartTime(),
+                                                    occurrence.getEndTime())) {
+                            results.add(BookingResult.conflict(occurrence, Collections.emptyList()));
+                        } else if (index.isFree(doctorId, occurrence.getDate(), occurrence.getStartTime(), occurrence.getEndTime())) {
+                            // Occurrences of the same series must not overlap each other either
+                            index.addBooking(occurrence);
+                            accepted.add(occurrence);
+                            results.add(null);
+                        } else {
+                            results.add(BookingResult.conflict(occurrence, overlapping(existing, accepted, occurrence)));
+                        }
+                    }
+
+                    check.finish(occurrences.size() - accepted.size());
+
+                    if (accepted.isEmpty() || (!skipConflicts && accepted.size() < occurrences.size())) {
+                        rollback(conn);
+                        return new SeriesBookingResult(0, fillNotBooked(results, occurrences));
+                    }
+
+                    int seriesId = insertSeries(conn, rule);
+                    insertAppointmentBatch(conn, accepted, seriesId);
+
+                    try (Statement stmt = conn.createStatement()) {
+                        stmt.execute("COMMIT");
+                    }
+                    AppointmentWindowCache.clear();
+
+                    for (int i = 0; i < results.size(); i++) {
+                        if (results.get(i) == null) {
+                            results.set(i, BookingResult.booked(occurrences.get(i)));
+                        }
+                    }
+                    return new SeriesBookingResult(seriesId, results);
+                } catch (SQLException e) {
+                    rollback(conn);
+                    throw e;
+                }
+            });
+        } catch (DataAccessException e) {
+            DaoExecutor.logFailure(e, start, "doctorId", doctorId, "from", spanFrom, "to", spanTo,
+                                   "occurrences", occurrences.size());
+            List<BookingResult> failed = new ArrayList<>();
+            for (Appointment occurrence : occurrences) {
+                occurrence.setAppointmentId(0);
+                occurrence.setSeriesId(0);
+                failed.add(BookingResult.failed(occurrence));
+            }
+            return new SeriesBookingResult(0, failed);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Occurrences that were free but not booked because the series was abandoned
+    private List<BookingResult> fillNotBooked(List<BookingResult> results, List<Appointment> occurrences) {
+        for (int i = 0; i < results.size(); i++) {
+            if (results.get(i) == null) {
+                results.set(i, BookingResult.failed(occurrences.get(i)));
+            }
+        }
+        return results;
+    }
+
+    private List<Appointment> overlapping(List<Appointment> existing, List<Appointment> accepted, Appointment occurrence) {
+        List<Appointment> overlaps = new ArrayList<>();
+        for (List<Appointment> source : Arrays.asList(existing, accepted)) {
+            for (Appointment appointment : source) {
+                if (appointment.getEpochDay() == occurrence.getEpochDay()
+                        && appointment.getStartMinute() < occurrence.getEndMinute()
+                        && appointment.getEndMinute() > occurrence.getStartMinute()) {
+                    overlaps.add(appointment);
+                }
+            }
+        }
+        return overlaps;
+    }
+
+    private int insertSeries(Connection conn, RecurrenceRule rule) throws SQLException {
+        String sql = "INSERT INTO appointment_series (recurrence_rule, created_at) VALUES (?, ?)";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setString(1, rule.toString());
+            SqlDateCodec.setNow(pstmt, 2);
+            pstmt.executeUpdate();
+
+            try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                if (generatedKeys.next()) {
+                    return generatedKeys.getInt(1);
+                }
+            }
+        }
+        throw new SQLException("Creating appointment series failed, no ID obtained");
+    }
+
+    private void insertAppointmentBatch(Connection conn, List<Appointment> appointments, int seriesId) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(APPOINTMENT_INSERT)) {
+            for (Appointment appointment : appointments) {
+                pstmt.setInt(1, appointment.getPatientId());
+                pstmt.setString(2, appointment.getPatientName() == null ? "" : appointment.getPatientName());
+                pstmt.setInt(3, appointment.getDoctorId());
+                pstmt.setString(4, appointment.getDoctorName() == null ? "" : appointment.getDoctorName());
+                SqlDateCodec.setDate(pstmt, 5, appointment.getDate());
+                SqlDateCodec.setTime(pstmt, 6, appointment.getStartTime());
+                SqlDateCodec.setTime(pstmt, 7, appointment.getEndTime());
+                pstmt.setString(8, appointment.getAppointmentStatus().getCode());
+                pstmt.setString(9, appointment.getReason());
+                pstmt.setString(10, appointment.getNotes());
+                SqlDateCodec.setNow(pstmt, 11);
+                SqlDateCodec.setNow(pstmt, 12);
+                pstmt.setInt(13, seriesId);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+
+        // We hold the write lock, so the AUTOINCREMENT keys of the batch are consecutive
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT last_insert_rowid()")) {
+            int id = rs.next() ? rs.getInt(1) - appointments.size() + 1 : 0;
+            for (Appointment appointment : appointments) {
+                appointment.setSeriesId(seriesId);
+                appointment.setAppointmentId(id++);
+            }
+        }
+    }
+
+    private List<Appointment> findActiveBetween(Connection conn, Collection<Integer> doctorIds,
+                                                LocalDate from, LocalDate to) throws SQLException {
+        List<Appointment> appointments = new ArrayList<>();
+        StringBuilder sql = new StringBuilder(APPOINTMENT_SELECT + "WHERE doctor_id IN (");
+        for (int i = 0; i < doctorIds.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
         }
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
+        sql.append(") AND date BETWEEN ? AND ? AND ").append(DatabaseUtil.NOT_CANCELLED);
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+            int index = 1;
+            for (Integer doctorId : doctorIds) {
+                pstmt.setInt(index++, doctorId);
+            }
+            SqlDateCodec.setDate(pstmt, index++, from);
+            SqlDateCodec.setDate(pstmt, index, to);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    appointments.add(extractAppointmentFromResultSet(rs));
+                }
+            }
+        }
+        return appointments;
+    }
+
+    // Overlap query on an existing connection (half-open intervals: touching slots do not conflict)
+    private List<Appointment> findConflicts(Connection conn, int doctorId, LocalDate date, LocalTime startTime,
+                                            LocalTime endTime, int excludeAppointmentId) throws SQLException {
+        ConflictCheckEvent check = ConflictCheckEvent.start("booking", doctorId, date, 1);
+        List<Appointment> conflicts = new ArrayList<>();
+        String sql = APPOINTMENT_SELECT +
+                     "WHERE doctor_id = ? AND date = ? AND " + DatabaseUtil.NOT_CANCELLED + " " +
+                     "AND start_time < ? AND end_time > ? AND appointment_id != ? " +
+                     "ORDER BY start_time";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, doctorId);
-            pstmt.setDate(2, java.sql.Date.valueOf(date));
-            pstmt.setTime(3, java.sql.Time.valueOf(startTime));
-            pstmt.setTime(4, java.sql.Time.valueOf(startTime));
-            pstmt.setTime(5, java.sql.Time.valueOf(endTime));
-            pstmt.setTime(6, java.sql.Time.valueOf(endTime));
-            pstmt.setTime(7, java.sql.Time.valueOf(startTime));
-            pstmt.setTime(8, java.sql.Time.valueOf(endTime));
-            
-            if (excludeAppointmentId != null) {
-                pstmt.setInt(9, excludeAppointmentId);
+            SqlDateCodec.setDate(pstmt, 2, date);
+            SqlDateCodec.setTime(pstmt, 3, endTime);
+            SqlDateCodec.setTime(pstmt, 4, startTime);
+            pstmt.setInt(5, excludeAppointmentId);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    conflicts.add(extractAppointmentFromResultSet(rs));
+                }
             }
-            
-            ResultSet rs = pstmt.executeQuery();
-            
-            if (rs.next()) {
-                return rs.getInt(1) > 0;
+        }
+        check.finish(conflicts.size());
+        return conflicts;
+    }
+
+    // Insert on an existing connection, including the denormalised name columns
+    private boolean insertAppointment(Connection conn, Appointment appointment) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(APPOINTMENT_INSERT, Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setInt(1, appointment.getPatientId());
+            pstmt.setString(2, appointment.getPatientName() == null ? "" : appointment.getPatientName());
+            pstmt.setInt(3, appointment.getDoctorId());
+            pstmt.setString(4, appointment.getDoctorName() == null ? "" : appointment.getDoctorName());
+            SqlDateCodec.setDate(pstmt, 5, appointment.getDate());
+            SqlDateCodec.setTime(pstmt, 6, appointment.getStartTime());
+            SqlDateCodec.setTime(pstmt, 7, appointment.getEndTime());
+            pstmt.setString(8, appointment.getAppointmentStatus().getCode());
+            pstmt.setString(9, appointment.getReason());
+            pstmt.setString(10, appointment.getNotes());
+            SqlDateCodec.setNow(pstmt, 11);
+            SqlDateCodec.setNow(pstmt, 12);
+            pstmt.setNull(13, Types.INTEGER);
+
+            if (pstmt.executeUpdate() > 0) {
+                try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                    if (generatedKeys.next()) {
+                        appointment.setAppointmentId(generatedKeys.getInt(1));
+                        return true;
+                    }
+                }
             }
+            return false;
+        }
+    }
+
+    // A query over the appointments table, with the same filter over the archived appointments appended
+    // when the range starting at from (null for no lower bound) reaches into the archive tier.
+    // Filter parameters are numbered (?1) so both halves share them
+    private String appointmentQuery(Connection conn, LocalDate from, String filter, String order) throws SQLException {
+        return APPOINTMENT_SELECT + filter +
+               (ArchiveService.attachIfReached(conn, from) ? "UNION ALL " + ARCHIVED_APPOINTMENT_SELECT + filter : "") +
+               order;
+    }
+
+    private Appointment findById(Connection conn, String select, int appointmentId) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(select + "WHERE a.appointment_id = ?")) {
+            pstmt.setInt(1, appointmentId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? extractAppointmentFromResultSet(rs) : null;
+            }
+        }
+    }
+
+    private void rollback(Connection conn) {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("ROLLBACK");
         } catch (SQLException e) {
-            e.printStackTrace();
+            // The transaction is rolled back anyway when the connection closes
+            AppLog.warn("dao.rollbackFailed", e);
         }
-        return false;
     }
-    
-    // Helper method to extract an Appointment from a ResultSet
+
+    // Helper method to extract an Appointment from a row selected with APPOINTMENT_COLUMNS
     private Appointment extractAppointmentFromResultSet(ResultSet rs) throws SQLException {
         Appointment appointment = new Appointment();
-        appointment.setAppointmentId(rs.getInt("appointment_id"));
-        appointment.setPatientId(rs.getInt("patient_id"));
-        appointment.setDoctorId(rs.getInt("doctor_id"));
-        appointment.setDate(rs.getDate("date").toLocalDate());
-        appointment.setStartTime(rs.getTime("start_time").toLocalTime());
-        appointment.setEndTime(rs.getTime("end_time").toLocalTime());
-        appointment.setStatus(rs.getString("status"));
-        appointment.setReason(rs.getString("reason"));
-        appointment.setNotes(rs.getString("notes"));
-        appointment.setCreatedAt(rs.getDate("created_at").toLocalDate());
-        appointment.setUpdatedAt(rs.getDate("updated_at").toLocalDate());
-        appointment.setPatientName(rs.getString("patient_name"));
-        appointment.setDoctorName(rs.getString("doctor_name"));
+        appointment.setAppointmentId(rs.getInt(1));
+        appointment.setPatientId(rs.getInt(2));
+        appointment.setDoctorId(rs.getInt(3));
+        // Stored epoch day and minutes of the day are the Appointment's own encoding
+        appointment.setEpochDay(rs.getInt(4));
+        appointment.setStartMinute(rs.getInt(5));
+        appointment.setEndMinute(rs.getInt(6));
+        appointment.setStatus(rs.getString(7));
+        appointment.setReason(rs.getString(8));
+        appointment.setNotes(rs.getString(9));
+        appointment.setCreatedAt(SqlDateCodec.getTimestampDate(rs, 10));
+        appointment.setUpdatedAt(SqlDateCodec.getTimestampDate(rs, 11));
+        appointment.setSeriesId(rs.getInt(12));
+        appointment.setPatientName(rs.getString(13));
+        appointment.setDoctorName(rs.getString(14));
         return appointment;
     }
+
+    // Helper method to extract an AppointmentRow from a row selected with APPOINTMENT_LIST_SELECT
+    private AppointmentRow extractAppointmentRow(ResultSet rs) throws SQLException {
+        return new AppointmentRow(
+            rs.getInt(1),
+            rs.getInt(2),
+            rs.getInt(3),
+            rs.getString(4),
+            rs.getString(5),
+            rs.getString(6),
+            AppointmentStatus.fromString(rs.getString(7)));
+    }
 }
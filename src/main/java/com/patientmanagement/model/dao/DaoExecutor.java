@@ -0,0 +1,287 @@
+package com.patientmanagement.model.dao;
+
+import com.patientmanagement.logging.AppLog;
+import com.patientmanagement.metrics.DaoMetrics;
+import com.patientmanagement.metrics.DaoQueryEvent;
+import com.patientmanagement.metrics.SlowQueryLog;
+import com.patientmanagement.util.DatabaseUtil;
+import com.patientmanagement.util.StatementTrace;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs DAO operations on a connection of their own and handles their SQLite errors in one place.
+ *
+ * SQLite already waits up to the driver's busy timeout for a lock, but gives up at once when two
+ * connections would deadlock, and two workstations sharing the file keep colliding when they retry
+ * in step. SQLITE_BUSY and SQLITE_LOCKED therefore rerun the whole operation on a new connection
+ * (the failed attempt is rolled back when its connection closes) after a jittered exponential
+ * backoff, until the deadline. Other errors fail at once. A failure becomes a DataAccessException
+ * of the matching kind, which is also kept as the calling thread's last failure for the UI and,
+ * where a DAO method returns a fallback instead, logged to AppLog as a "dao.failed" event.
+ * Every call's latency, retries included, and the rows it returned are recorded in DaoMetrics;
+ * calls over the threshold also go to the SlowQueryLog, and each call is a DaoQueryEvent for
+ * Flight Recorder.
+ */
+public final class DaoExecutor {
+    
+    /**
+     * Work of one DAO operation on the given connection
+     */
+    @FunctionalInterface
+    public interface SqlWork<T> {
+        T run(Connection conn) throws SQLException;
+    }
+    
+    // Longest time an operation keeps retrying a busy database
+    private static final long DEADLINE_MILLIS = Long.getLong("patientmanagement.dao.retryDeadlineMillis", 10_000);
+    
+    // Backoff before the first retry, doubled for each further retry up to the maximum
+    private static final long INITIAL_BACKOFF_MILLIS = 20;
+    private static final long MAX_BACKOFF_MILLIS = 1000;
+    
+    private static final int SQLITE_BUSY = 5;
+    private static final int SQLITE_LOCKED = 6;
+    
+    private static final LongAdder OPERATIONS = new LongAdder();
+    private static final LongAdder RETRIED_OPERATIONS = new LongAdder();
+    private static final LongAdder RETRIES = new LongAdder();
+    private static final LongAdder RETRY_WAIT_NANOS = new LongAdder();
+    private static final Map<DataAccessException.Kind, LongAdder> FAILURES = new EnumMap<>(DataAccessException.Kind.class);
+    private static final ThreadLocal<DataAccessException> LAST_FAILURE = new ThreadLocal<>();
+    
+    static {
+        for (DataAccessException.Kind kind : DataAccessException.Kind.values()) {
+            FAILURES.put(kind, new LongAdder());
+        }
+    }
+    
+    private DaoExecutor() {
+    }
+    
+    /**
+     * Run an operation, retrying while the database is busy
+     * @param operation Name for messages and metrics, e.g. "PatientDAO.createPatient"
+     * @param work The operation; may run more than once, so it must not keep state between attempts
+     * @return What the work returned
+     * @throws DataAccessException If the operation failed for good
+     */
+    public static <T> T call(String operation, SqlWork<T> work) {
+        OPERATIONS.increment();
+        long start = System.nanoTime();
+        DaoQueryEvent event = DaoQueryEvent.start(operation);
+        long deadline = start + DEADLINE_MILLIS * 1_000_000;
+        long backoff = INITIAL_BACKOFF_MILLIS;
+        int attempts = 0;
+        while (true) {
+            attempts++;
+            List<StatementTrace> statements = Collections.emptyList();
+            try (Connection conn = DatabaseUtil.getConnection()) {
+                statements = DatabaseUtil.getStatementTraces(conn);
+                T result = work.run(conn);
+                LAST_FAILURE.remove();
+                completed(operation, start, event, attempts, rows(result), false, statements);
+                return result;
+            } catch (SQLException e) {
+                int code = resultCode(e);
+                DataAccessException.Kind kind = classify(code);
+                // Equal jitter: half the backoff plus a random part, so retrying workstations drift apart
+                long pause = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+                if (kind != DataAccessException.Kind.BUSY || System.nanoTime() + pause * 1_000_000 > deadline) {
+                    completed(operation, start, event, attempts, 0, true, statements);
+                    throw failed(new DataAccessException(operation, kind, code, attempts, lastSql(statements), e));
+                }
+                
+                if (attempts == 1) {
+                    RETRIED_OPERATIONS.increment();
+                }
+                RETRIES.increment();
+                long waitStart = System.nanoTime();
+                try {
+                    Thread.sleep(pause);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    completed(operation, start, event, attempts, 0, true, statements);
+                    throw failed(new DataAccessException(operation, DataAccessException.Kind.INTERRUPTED, code,
+                                                         attempts, lastSql(statements), e));
+                } finally {
+                    RETRY_WAIT_NANOS.add(System.nanoTime() - waitStart);
+                }
+                backoff = Math.min(MAX_BACKOFF_MILLIS, backoff * 2);
+            }
+        }
+    }
+    
+    /**
+     * Run an operation like call(), but report a failure and return a fallback value, the way the
+     * DAO methods report errors to their callers
+     * @param operation Name for messages and metrics
+     * @param fallback Value returned when the operation fails (see getLastFailure for why)
+     * @param work The operation
+     * @return What the work returned, or the fallback
+     */
+    public static <T> T execute(String operation, T fallback, SqlWork<T> work) {
+        long start = System.nanoTime();
+        try {
+            return call(operation, work);
+        } catch (DataAccessException e) {
+            logFailure(e, start);
+            return fallback;
+        }
+    }
+    
+    /**
+     * Log a failed operation as a "dao.failed" event with its operation, SQL id, failure kind,
+     * result code, attempts and duration
+     * @param e The failure
+     * @param start System.nanoTime() when the operation was started
+     * @param fields Further key/value pairs, e.g. the IDs of the entities involved
+     */
+    public static void logFailure(DataAccessException e, long start, Object... fields) {
+        Object[] all = new Object[12 + fields.length];
+        all[0] = "operation";
+        all[1] = e.getOperation();
+        all[2] = "sqlId";
+        all[3] = sqlId(e.getSql());
+        all[4] = "kind";
+        all[5] = e.getKind();
+        all[6] = "code";
+        all[7] = e.getResultCode();
+        all[8] = "attempts";
+        all[9] = e.getAttempts();
+        all[10] = "durationMs";
+        all[11] = (System.nanoTime() - start) / 1_000_000;
+        System.arraycopy(fields, 0, all, 12, fields.length);
+        AppLog.error("dao.failed", e, all);
+    }
+    
+    /**
+     * Get a short id of a statement, the same in every run, for grouping log events by statement
+     * @param sql The SQL, or null
+     * @return Eight hex digits, or "none"
+     */
+    public static String sqlId(String sql) {
+        return sql == null ? "none" : String.format("%08x", sql.replaceAll("\\s+", " ").trim().hashCode());
+    }
+    
+    /**
+     * Get why the calling thread's last DAO operation failed, e.g. to tell the user whether trying
+     * again may help
+     * @return The failure, or null if the last operation succeeded
+     */
+    public static DataAccessException getLastFailure() {
+        return LAST_FAILURE.get();
+    }
+    
+    /**
+     * Build the error dialog text for a failed DAO operation of the calling thread
+     * @param action What could not be done, e.g. "Could not save medical record."
+     * @return The action followed by the user message of the last failure's kind, or by
+     *         "Please try again." if the last operation did not fail with an SQL error
+     */
+    public static String failureMessage(String action) {
+        DataAccessException failure = LAST_FAILURE.get();
+        return action + " " + (failure == null ? "Please try again." : failure.getKind().getUserMessage());
+    }
+    
+    /**
+     * Classify a SQLite primary result code
+     * @param code Primary result code (the low byte of an extended code)
+     * @return The failure kind; BUSY for the codes that are retried
+     */
+    public static DataAccessException.Kind classify(int code) {
+        switch (code) {
+            case SQLITE_BUSY:
+            case SQLITE_LOCKED:
+                return DataAccessException.Kind.BUSY;
+            case 19: // SQLITE_CONSTRAINT
+                return DataAccessException.Kind.CONSTRAINT;
+            case 11: // SQLITE_CORRUPT
+            case 26: // SQLITE_NOTADB
+                return DataAccessException.Kind.CORRUPT;
+            case 3:  // SQLITE_PERM
+            case 8:  // SQLITE_READONLY
+            case 10: // SQLITE_IOERR
+            case 13: // SQLITE_FULL
+            case 14: // SQLITE_CANTOPEN
+                return DataAccessException.Kind.UNAVAILABLE;
+            default:
+                return DataAccessException.Kind.ERROR;
+        }
+    }
+    
+    // The driver reports the primary code as the error code; wrapped exceptions carry it in a cause
+    private static int resultCode(SQLException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException && ((SQLException) cause).getErrorCode() != 0) {
+                return ((SQLException) cause).getErrorCode() & 0xff;
+            }
+        }
+        return 0;
+    }
+    
+    // Record the call's latency, and log it with its statements if it was slow
+    private static void completed(String operation, long start, DaoQueryEvent event, int attempts, long rows,
+                                  boolean failed, List<StatementTrace> statements) {
+        long nanos = System.nanoTime() - start;
+        event.finish(rows, attempts, statements.size(), failed);
+        DaoMetrics.record(operation, nanos, rows, failed);
+        SlowQueryLog.check(operation, nanos, rows, failed, statements);
+    }
+    
+    private static String lastSql(List<StatementTrace> statements) {
+        return statements.isEmpty() ? null : statements.get(statements.size() - 1).getSql();
+    }
+    
+    // Rows an operation returned: the size of a list or map, one for an entity or a scalar, none
+    // for null or the boolean outcome of a write
+    private static long rows(Object result) {
+        if (result == null || result instanceof Boolean) {
+            return 0;
+        }
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Map) {
+            return ((Map<?, ?>) result).size();
+        }
+        return 1;
+    }
+    
+    private static DataAccessException failed(DataAccessException e) {
+        FAILURES.get(e.getKind()).increment();
+        LAST_FAILURE.set(e);
+        return e;
+    }
+    
+    // Operations run, including failed ones
+    public static long getOperationCount() {
+        return OPERATIONS.sum();
+    }
+    
+    // Operations that needed at least one retry
+    public static long getRetriedOperationCount() {
+        return RETRIED_OPERATIONS.sum();
+    }
+    
+    public static long getRetryCount() {
+        return RETRIES.sum();
+    }
+    
+    // Time spent in backoff pauses, not counting SQLite's own busy waits
+    public static long getRetryWaitMillis() {
+        return RETRY_WAIT_NANOS.sum() / 1_000_000;
+    }
+    
+    public static long getFailureCount(DataAccessException.Kind kind) {
+        return FAILURES.get(kind).sum();
+    }
+}
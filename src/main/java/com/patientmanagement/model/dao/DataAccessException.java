@@ -0,0 +1,85 @@
+package com.patientmanagement.model.dao;
+
+import java.sql.SQLException;
+
+/**
+ * A DAO operation that failed for good: a non-transient SQLite error, or a busy database that
+ * stayed busy until the retry deadline (see DaoExecutor). The kind says which, for the message
+ * shown to the user; the SQLException is the cause
+ */
+public class DataAccessException extends RuntimeException {
+    
+    private static final long serialVersionUID = 1L;
+    
+    /**
+     * Failure classes of the SQLite primary result codes
+     */
+    public enum Kind {
+        // SQLITE_BUSY or SQLITE_LOCKED until the deadline: another connection held the lock
+        BUSY("The database is in use by another workstation. Please try again."),
+        // SQLITE_CONSTRAINT: a unique, foreign key or check constraint rejected the change
+        CONSTRAINT("The change conflicts with existing data."),
+        // SQLITE_CORRUPT or SQLITE_NOTADB
+        CORRUPT("The database file is damaged. Restore it from a backup."),
+        // The file cannot be opened, read or written: SQLITE_CANTOPEN, IOERR, FULL, READONLY, PERM
+        UNAVAILABLE("The database file cannot be accessed."),
+        // The thread was interrupted while waiting to retry
+        INTERRUPTED("The operation was cancelled."),
+        // Anything else, usually an error in the SQL
+        ERROR("The database operation failed.");
+        
+        private final String userMessage;
+        
+        Kind(String userMessage) {
+            this.userMessage = userMessage;
+        }
+        
+        public String getUserMessage() {
+            return userMessage;
+        }
+    }
+    
+    private final String operation;
+    private final Kind kind;
+    private final int resultCode;
+    private final int attempts;
+    private final String sql;
+    
+    public DataAccessException(String operation, Kind kind, int resultCode, int attempts, SQLException cause) {
+        this(operation, kind, resultCode, attempts, null, cause);
+    }
+    
+    public DataAccessException(String operation, Kind kind, int resultCode, int attempts, String sql,
+                               SQLException cause) {
+        super(operation + " failed (" + kind + ", SQLite result code " + resultCode + ", " + attempts +
+              " attempt(s)): " + cause.getMessage(), cause);
+        this.operation = operation;
+        this.kind = kind;
+        this.resultCode = resultCode;
+        this.attempts = attempts;
+        this.sql = sql;
+    }
+    
+    // Name of the DAO operation, e.g. "PatientDAO.createPatient"
+    public String getOperation() {
+        return operation;
+    }
+    
+    public Kind getKind() {
+        return kind;
+    }
+    
+    // Primary SQLite result code of the last attempt, 0 if the driver gave none
+    public int getResultCode() {
+        return resultCode;
+    }
+    
+    public int getAttempts() {
+        return attempts;
+    }
+    
+    // SQL of the last statement the operation prepared, usually the one that failed; null if unknown
+    public String getSql() {
+        return sql;
+    }
+}
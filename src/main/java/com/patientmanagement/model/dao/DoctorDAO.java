@@ -1,166 +1,165 @@
 package com.patientmanagement.model.dao;
 
 import com.patientmanagement.model.Doctor;
-import com.patientmanagement.util.DatabaseUtil;
+import com.patientmanagement.scheduling.AvailabilityCache;
+import com.patientmanagement.util.SqlDateCodec;
 
 import java.sql.*;
-import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
 public class DoctorDAO {
-    
+
+    // Columns read by extractDoctorFromResultSet, in index order
+    private static final String DOCTOR_SELECT =
+        "SELECT d.doctor_id, d.user_id, d.specialization, d.license_number, d.availability_schedule, " +
+        "u.first_name, u.last_name, u.email, d.created_at, d.updated_at " +
+        "FROM doctors d " +
+        "JOIN users u ON d.user_id = u.user_id ";
+
     // Create a new doctor
     public boolean createDoctor(Doctor doctor) {
-        String sql = "INSERT INTO doctors (user_id, specialty, license_number, availability_schedule, created_at, updated_at) " +
-                     "VALUES (?, ?, ?, ?, ?, ?)";
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            
-            pstmt.setInt(1, doctor.getUserId());
-            pstmt.setString(2, doctor.getSpecialty());
-            pstmt.setString(3, doctor.getLicenseNumber());
-            pstmt.setString(4, doctor.getAvailabilitySchedule());
-            pstmt.setDate(5, java.sql.Date.valueOf(LocalDate.now()));
-            pstmt.setDate(6, java.sql.Date.valueOf(LocalDate.now()));
-            
-            int affectedRows = pstmt.executeUpdate();
-            
-            if (affectedRows > 0) {
-                try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
-                    if (generatedKeys.next()) {
-                        doctor.setDoctorId(generatedKeys.getInt(1));
-                        return true;
+        String sql = "INSERT INTO doctors (user_id, first_name, last_name, email, specialization, license_number, " +
+                     "availability_schedule, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+        return DaoExecutor.execute("DoctorDAO.createDoctor", false, conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+
+                pstmt.setInt(1, doctor.getUserId());
+                pstmt.setString(2, doctor.getFirstName());
+                pstmt.setString(3, doctor.getLastName());
+                pstmt.setString(4, doctor.getEmail());
+                pstmt.setString(5, doctor.getSpecialty());
+                pstmt.setString(6, doctor.getLicenseNumber());
+                pstmt.setString(7, doctor.getAvailabilitySchedule());
+                SqlDateCodec.setNow(pstmt, 8);
+                SqlDateCodec.setNow(pstmt, 9);
+
+                int affectedRows = pstmt.executeUpdate();
+
+                if (affectedRows > 0) {
+                    try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                        if (generatedKeys.next()) {
+                            doctor.setDoctorId(generatedKeys.getInt(1));
+                            return true;
+                        }
                     }
                 }
+                return false;
             }
-            return false;
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return false;
-        }
+        });
     }
-    
+
     // Get a doctor by ID
     public Doctor getDoctorById(int doctorId) {
-        String sql = "SELECT d.*, u.first_name, u.last_name, u.email " +
-                     "FROM doctors d " +
-                     "JOIN users u ON d.user_id = u.user_id " +
+        String sql = DOCTOR_SELECT +
                      "WHERE d.doctor_id = ?";
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setInt(1, doctorId);
-            ResultSet rs = pstmt.executeQuery();
-            
-            if (rs.next()) {
-                return extractDoctorFromResultSet(rs);
+
+        return DaoExecutor.execute("DoctorDAO.getDoctorById", null, conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+                pstmt.setInt(1, doctorId);
+                ResultSet rs = pstmt.executeQuery();
+
+                if (rs.next()) {
+                    return extractDoctorFromResultSet(rs);
+                }
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return null;
+            return null;
+        });
     }
-    
+
     // Get all doctors
     public List<Doctor> getAllDoctors() {
-        List<Doctor> doctors = new ArrayList<>();
-        String sql = "SELECT d.*, u.first_name, u.last_name, u.email " +
-                     "FROM doctors d " +
-                     "JOIN users u ON d.user_id = u.user_id " +
+        String sql = DOCTOR_SELECT +
                      "ORDER BY u.last_name, u.first_name";
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            
-            while (rs.next()) {
-                doctors.add(extractDoctorFromResultSet(rs));
+
+        return DaoExecutor.execute("DoctorDAO.getAllDoctors", new ArrayList<>(), conn -> {
+            List<Doctor> doctors = new ArrayList<>();
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(sql)) {
+
+                while (rs.next()) {
+                    doctors.add(extractDoctorFromResultSet(rs));
+                }
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return doctors;
+            return doctors;
+        });
     }
-    
+
     // Update a doctor
     public boolean updateDoctor(Doctor doctor) {
-        String sql = "UPDATE doctors SET specialty = ?, license_number = ?, " +
+        String sql = "UPDATE doctors SET specialization = ?, license_number = ?, " +
                      "availability_schedule = ?, updated_at = ? WHERE doctor_id = ?";
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setString(1, doctor.getSpecialty());
-            pstmt.setString(2, doctor.getLicenseNumber());
-            pstmt.setString(3, doctor.getAvailabilitySchedule());
-            pstmt.setDate(4, java.sql.Date.valueOf(LocalDate.now()));
-            pstmt.setInt(5, doctor.getDoctorId());
-            
-            int affectedRows = pstmt.executeUpdate();
-            return affectedRows > 0;
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return false;
-        }
+
+        return DaoExecutor.execute("DoctorDAO.updateDoctor", false, conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+                pstmt.setString(1, doctor.getSpecialty());
+                pstmt.setString(2, doctor.getLicenseNumber());
+                pstmt.setString(3, doctor.getAvailabilitySchedule());
+                SqlDateCodec.setNow(pstmt, 4);
+                pstmt.setInt(5, doctor.getDoctorId());
+
+                int affectedRows = pstmt.executeUpdate();
+
+                // The schedule may have changed, recompile it on next use
+                AvailabilityCache.invalidate(doctor.getDoctorId());
+                return affectedRows > 0;
+            }
+        });
     }
-    
+
     // Delete a doctor
     public boolean deleteDoctor(int doctorId) {
         String sql = "DELETE FROM doctors WHERE doctor_id = ?";
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setInt(1, doctorId);
-            
-            int affectedRows = pstmt.executeUpdate();
-            return affectedRows > 0;
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return false;
-        }
+
+        return DaoExecutor.execute("DoctorDAO.deleteDoctor", false, conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+                pstmt.setInt(1, doctorId);
+
+                int affectedRows = pstmt.executeUpdate();
+                AvailabilityCache.invalidate(doctorId);
+                return affectedRows > 0;
+            }
+        });
     }
-    
+
     // Get doctors by specialty
     public List<Doctor> getDoctorsBySpecialty(String specialty) {
-        List<Doctor> doctors = new ArrayList<>();
-        String sql = "SELECT d.*, u.first_name, u.last_name, u.email " +
-                     "FROM doctors d " +
-                     "JOIN users u ON d.user_id = u.user_id " +
-                     "WHERE d.specialty = ? " +
+        String sql = DOCTOR_SELECT +
+                     "WHERE d.specialization = ? " +
                      "ORDER BY u.last_name, u.first_name";
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setString(1, specialty);
-            ResultSet rs = pstmt.executeQuery();
-            
-            while (rs.next()) {
-                doctors.add(extractDoctorFromResultSet(rs));
+
+        return DaoExecutor.execute("DoctorDAO.getDoctorsBySpecialty", new ArrayList<>(), conn -> {
+            List<Doctor> doctors = new ArrayList<>();
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+                pstmt.setString(1, specialty);
+                ResultSet rs = pstmt.executeQuery();
+
+                while (rs.next()) {
+                    doctors.add(extractDoctorFromResultSet(rs));
+                }
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return doctors;
+            return doctors;
+        });
     }
-    
-    // Helper method to extract a Doctor from a ResultSet
+
+    // Helper method to extract a Doctor from a row selected with DOCTOR_SELECT
     private Doctor extractDoctorFromResultSet(ResultSet rs) throws SQLException {
         Doctor doctor = new Doctor();
-        doctor.setDoctorId(rs.getInt("doctor_id"));
-        doctor.setUserId(rs.getInt("user_id"));
-        doctor.setSpecialty(rs.getString("specialty"));
-        doctor.setLicenseNumber(rs.getString("license_number"));
-        doctor.setAvailabilitySchedule(rs.getString("availability_schedule"));
-        doctor.setFirstName(rs.getString("first_name"));
-        doctor.setLastName(rs.getString("last_name"));
-        doctor.setEmail(rs.getString("email"));
-        doctor.setCreatedAt(rs.getDate("created_at").toLocalDate());
-        doctor.setUpdatedAt(rs.getDate("updated_at").toLocalDate());
+        doctor.setDoctorId(rs.getInt(1));
+        doctor.setUserId(rs.getInt(2));
+        doctor.setSpecialty(rs.getString(3));
+        doctor.setLicenseNumber(rs.getString(4));
+        doctor.setAvailabilitySchedule(rs.getString(5));
+        doctor.setFirstName(rs.getString(6));
+        doctor.setLastName(rs.getString(7));
+        doctor.setEmail(rs.getString(8));
+        doctor.setCreatedAt(SqlDateCodec.getTimestampDate(rs, 9));
+        doctor.setUpdatedAt(SqlDateCodec.getTimestampDate(rs, 10));
         return doctor;
     }
 }
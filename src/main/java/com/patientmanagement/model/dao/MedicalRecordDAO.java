@@ -1,188 +1,168 @@
 package com.patientmanagement.model.dao;
 
+import com.patientmanagement.archive.ArchiveService;
 import com.patientmanagement.model.MedicalRecord;
-import com.patientmanagement.util.DatabaseUtil;
+import com.patientmanagement.util.SqlDateCodec;
 
 import java.sql.*;
-import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
 public class MedicalRecordDAO {
-    
+
+    // Columns read by extractMedicalRecordFromResultSet, in index order. The names are stored
+    // on the row and kept current by triggers
+    private static final String RECORD_COLUMNS =
+        "SELECT mr.record_id, mr.patient_id, mr.appointment_id, mr.symptoms, mr.diagnosis, mr.treatment, " +
+        "mr.prescription, mr.notes, mr.created_at, mr.updated_at, " +
+        "mr.patient_name, mr.doctor_name, mr.appointment_date ";
+
+    private static final String RECORD_SELECT = RECORD_COLUMNS + "FROM medical_records mr ";
+
+    // Records of archived appointments (see ArchiveService)
+    private static final String ARCHIVED_RECORD_SELECT = RECORD_COLUMNS + "FROM archive.medical_records mr ";
+
     // Create a new medical record
     public boolean createMedicalRecord(MedicalRecord record) {
-        String sql = "INSERT INTO medical_records (patient_id, appointment_id, symptoms, diagnosis, " +
-                     "treatment, prescription, notes, created_at, updated_at) " +
-                     "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            
-            pstmt.setInt(1, record.getPatientId());
-            pstmt.setInt(2, record.getAppointmentId());
-            pstmt.setString(3, record.getSymptoms());
-            pstmt.setString(4, record.getDiagnosis());
-            pstmt.setString(5, record.getTreatment());
-            pstmt.setString(6, record.getPrescription());
-            pstmt.setString(7, record.getNotes());
-            pstmt.setDate(8, java.sql.Date.valueOf(LocalDate.now()));
-            pstmt.setDate(9, java.sql.Date.valueOf(LocalDate.now()));
-            
-            int affectedRows = pstmt.executeUpdate();
-            
-            if (affectedRows > 0) {
-                try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
-                    if (generatedKeys.next()) {
-                        record.setRecordId(generatedKeys.getInt(1));
-                        return true;
+        // Patient, doctor, names and date are copied from the appointment the record belongs to
+        String sql = "INSERT INTO medical_records (patient_id, patient_name, doctor_id, doctor_name, " +
+                     "appointment_id, appointment_date, symptoms, diagnosis, treatment, prescription, notes, " +
+                     "created_at, updated_at) " +
+                     "SELECT a.patient_id, a.patient_name, a.doctor_id, a.doctor_name, " +
+                     "a.appointment_id, a.date, ?, ?, ?, ?, ?, ?, ? " +
+                     "FROM appointments a WHERE a.appointment_id = ?";
+
+        return DaoExecutor.execute("MedicalRecordDAO.createMedicalRecord", false, conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+
+                pstmt.setString(1, record.getSymptoms());
+                pstmt.setString(2, record.getDiagnosis());
+                pstmt.setString(3, record.getTreatment());
+                pstmt.setString(4, record.getPrescription());
+                pstmt.setString(5, record.getNotes());
+                SqlDateCodec.setNow(pstmt, 6);
+                SqlDateCodec.setNow(pstmt, 7);
+                pstmt.setInt(8, record.getAppointmentId());
+
+                int affectedRows = pstmt.executeUpdate();
+
+                if (affectedRows > 0) {
+                    try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                        if (generatedKeys.next()) {
+                            record.setRecordId(generatedKeys.getInt(1));
+                            return true;
+                        }
                     }
                 }
+                return false;
             }
-            return false;
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return false;
-        }
+        });
     }
-    
+
     // Get a medical record by ID
     public MedicalRecord getMedicalRecordById(int recordId) {
-        String sql = "SELECT mr.*, p.first_name || ' ' || p.last_name as patient_name, " +
-                     "u.first_name || ' ' || u.last_name as doctor_name, a.date as appointment_date " +
-                     "FROM medical_records mr " +
-                     "JOIN patients p ON mr.patient_id = p.patient_id " +
-                     "JOIN appointments a ON mr.appointment_id = a.appointment_id " +
-                     "JOIN doctors d ON a.doctor_id = d.doctor_id " +
-                     "JOIN users u ON d.user_id = u.user_id " +
-                     "WHERE mr.record_id = ?";
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setInt(1, recordId);
-            ResultSet rs = pstmt.executeQuery();
-            
-            if (rs.next()) {
-                return extractMedicalRecordFromResultSet(rs);
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return null;
+        return findRecord("WHERE mr.record_id = ?", recordId);
     }
-    
+
     // Get medical records by patient ID
     public List<MedicalRecord> getMedicalRecordsByPatient(int patientId) {
-        List<MedicalRecord> records = new ArrayList<>();
-        String sql = "SELECT mr.*, p.first_name || ' ' || p.last_name as patient_name, " +
-                     "u.first_name || ' ' || u.last_name as doctor_name, a.date as appointment_date " +
-                     "FROM medical_records mr " +
-                     "JOIN patients p ON mr.patient_id = p.patient_id " +
-                     "JOIN appointments a ON mr.appointment_id = a.appointment_id " +
-                     "JOIN doctors d ON a.doctor_id = d.doctor_id " +
-                     "JOIN users u ON d.user_id = u.user_id " +
-                     "WHERE mr.patient_id = ? " +
-                     "ORDER BY a.date DESC";
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setInt(1, patientId);
-            ResultSet rs = pstmt.executeQuery();
-            
-            while (rs.next()) {
-                records.add(extractMedicalRecordFromResultSet(rs));
+        String filter = "WHERE mr.patient_id = ?1 ";
+
+        return DaoExecutor.execute("MedicalRecordDAO.getMedicalRecordsByPatient", new ArrayList<>(), conn -> {
+            List<MedicalRecord> records = new ArrayList<>();
+            try (PreparedStatement pstmt = conn.prepareStatement(RECORD_SELECT + filter +
+                 (ArchiveService.attachIfReached(conn, null) ? "UNION ALL " + ARCHIVED_RECORD_SELECT + filter : "") +
+                 "ORDER BY mr.appointment_date DESC")) {
+
+                pstmt.setInt(1, patientId);
+                ResultSet rs = pstmt.executeQuery();
+
+                while (rs.next()) {
+                    records.add(extractMedicalRecordFromResultSet(rs));
+                }
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return records;
+            return records;
+        });
     }
-    
+
     // Get medical record by appointment ID
     public MedicalRecord getMedicalRecordByAppointment(int appointmentId) {
-        String sql = "SELECT mr.*, p.first_name || ' ' || p.last_name as patient_name, " +
-                     "u.first_name || ' ' || u.last_name as doctor_name, a.date as appointment_date " +
-                     "FROM medical_records mr " +
-                     "JOIN patients p ON mr.patient_id = p.patient_id " +
-                     "JOIN appointments a ON mr.appointment_id = a.appointment_id " +
-                     "JOIN doctors d ON a.doctor_id = d.doctor_id " +
-                     "JOIN users u ON d.user_id = u.user_id " +
-                     "WHERE mr.appointment_id = ?";
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setInt(1, appointmentId);
-            ResultSet rs = pstmt.executeQuery();
-            
-            if (rs.next()) {
-                return extractMedicalRecordFromResultSet(rs);
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return null;
+        return findRecord("WHERE mr.appointment_id = ?", appointmentId);
     }
-    
+
     // Update a medical record
     public boolean updateMedicalRecord(MedicalRecord record) {
         String sql = "UPDATE medical_records SET symptoms = ?, diagnosis = ?, treatment = ?, " +
                      "prescription = ?, notes = ?, updated_at = ? WHERE record_id = ?";
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setString(1, record.getSymptoms());
-            pstmt.setString(2, record.getDiagnosis());
-            pstmt.setString(3, record.getTreatment());
-            pstmt.setString(4, record.getPrescription());
-            pstmt.setString(5, record.getNotes());
-            pstmt.setDate(6, java.sql.Date.valueOf(LocalDate.now()));
-            pstmt.setInt(7, record.getRecordId());
-            
-            int affectedRows = pstmt.executeUpdate();
-            return affectedRows > 0;
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return false;
-        }
+
+        return DaoExecutor.execute("MedicalRecordDAO.updateMedicalRecord", false, conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+                pstmt.setString(1, record.getSymptoms());
+                pstmt.setString(2, record.getDiagnosis());
+                pstmt.setString(3, record.getTreatment());
+                pstmt.setString(4, record.getPrescription());
+                pstmt.setString(5, record.getNotes());
+                SqlDateCodec.setNow(pstmt, 6);
+                pstmt.setInt(7, record.getRecordId());
+
+                int affectedRows = pstmt.executeUpdate();
+                return affectedRows > 0;
+            }
+        });
     }
-    
+
     // Delete a medical record
     public boolean deleteMedicalRecord(int recordId) {
         String sql = "DELETE FROM medical_records WHERE record_id = ?";
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setInt(1, recordId);
-            
-            int affectedRows = pstmt.executeUpdate();
-            return affectedRows > 0;
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return false;
+
+        return DaoExecutor.execute("MedicalRecordDAO.deleteMedicalRecord", false, conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+                pstmt.setInt(1, recordId);
+
+                int affectedRows = pstmt.executeUpdate();
+                return affectedRows > 0;
+            }
+        });
+    }
+
+    // Look up one record by a key, in the archive only if it is not in the main database
+    private MedicalRecord findRecord(String filter, int key) {
+        return DaoExecutor.execute("MedicalRecordDAO.findRecord", null, conn -> {
+            MedicalRecord record = findRecord(conn, RECORD_SELECT + filter, key);
+            if (record == null && ArchiveService.attachIfReached(conn, null)) {
+                record = findRecord(conn, ARCHIVED_RECORD_SELECT + filter, key);
+            }
+            return record;
+        });
+    }
+
+    private MedicalRecord findRecord(Connection conn, String sql, int key) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, key);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? extractMedicalRecordFromResultSet(rs) : null;
+            }
         }
     }
-    
-    // Helper method to extract a MedicalRecord from a ResultSet
+
+    // Helper method to extract a MedicalRecord from a row selected with RECORD_SELECT
     private MedicalRecord extractMedicalRecordFromResultSet(ResultSet rs) throws SQLException {
         MedicalRecord record = new MedicalRecord();
-        record.setRecordId(rs.getInt("record_id"));
-        record.setPatientId(rs.getInt("patient_id"));
-        record.setAppointmentId(rs.getInt("appointment_id"));
-        record.setSymptoms(rs.getString("symptoms"));
-        record.setDiagnosis(rs.getString("diagnosis"));
-        record.setTreatment(rs.getString("treatment"));
-        record.setPrescription(rs.getString("prescription"));
-        record.setNotes(rs.getString("notes"));
-        record.setCreatedAt(rs.getDate("created_at").toLocalDate());
-        record.setUpdatedAt(rs.getDate("updated_at").toLocalDate());
-        record.setPatientName(rs.getString("patient_name"));
-        record.setDoctorName(rs.getString("doctor_name"));
-        record.setAppointmentDate(rs.getDate("appointment_date").toLocalDate());
+        record.setRecordId(rs.getInt(1));
+        record.setPatientId(rs.getInt(2));
+        record.setAppointmentId(rs.getInt(3));
+        record.setSymptoms(rs.getString(4));
+        record.setDiagnosis(rs.getString(5));
+        record.setTreatment(rs.getString(6));
+        record.setPrescription(rs.getString(7));
+        record.setNotes(rs.getString(8));
+        record.setCreatedAt(SqlDateCodec.getTimestampDate(rs, 9));
+        record.setUpdatedAt(SqlDateCodec.getTimestampDate(rs, 10));
+        record.setPatientName(rs.getString(11));
+        record.setDoctorName(rs.getString(12));
+        record.setAppointmentDate(SqlDateCodec.getDate(rs, 13));
         return record;
     }
 }
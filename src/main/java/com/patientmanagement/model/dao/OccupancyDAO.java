@@ -0,0 +1,86 @@
+package com.patientmanagement.model.dao;
+
+import com.patientmanagement.archive.ArchiveService;
+import com.patientmanagement.model.DoctorOccupancy;
+import com.patientmanagement.util.DatabaseUtil;
+import com.patientmanagement.util.SqlDateCodec;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read access to the doctor_day_occupancy aggregate. The table itself is maintained
+ * by triggers on the appointments table (see DatabaseUtil), so there are no write methods
+ * apart from a full rebuild.
+ */
+public class OccupancyDAO {
+
+    // Columns read by readOccupancy, in index order
+    private static final String OCCUPANCY_SELECT =
+        "SELECT doctor_id, date, booked_minutes, appointment_count FROM doctor_day_occupancy ";
+
+    // Get the occupancy of all doctors between two dates (inclusive); days without bookings have no row
+    public List<DoctorOccupancy> getOccupancy(LocalDate from, LocalDate to) {
+        String sql = OCCUPANCY_SELECT + "WHERE date BETWEEN ? AND ? ORDER BY date, doctor_id";
+
+        return DaoExecutor.execute("OccupancyDAO.getOccupancy", new ArrayList<>(), conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+                SqlDateCodec.setDate(pstmt, 1, from);
+                SqlDateCodec.setDate(pstmt, 2, to);
+                return readOccupancy(pstmt);
+            }
+        });
+    }
+
+    // Get the occupancy of one doctor between two dates (inclusive)
+    public List<DoctorOccupancy> getDoctorOccupancy(int doctorId, LocalDate from, LocalDate to) {
+        String sql = OCCUPANCY_SELECT + "WHERE doctor_id = ? AND date BETWEEN ? AND ? ORDER BY date";
+
+        return DaoExecutor.execute("OccupancyDAO.getDoctorOccupancy", new ArrayList<>(), conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+                pstmt.setInt(1, doctorId);
+                SqlDateCodec.setDate(pstmt, 2, from);
+                SqlDateCodec.setDate(pstmt, 3, to);
+                return readOccupancy(pstmt);
+            }
+        });
+    }
+
+    // Recompute the whole aggregate from the appointments table, archived appointments included
+    public boolean rebuild() {
+        return DaoExecutor.execute("OccupancyDAO.rebuild", false, conn -> {
+            try (Statement stmt = conn.createStatement()) {
+
+                String backfill = DatabaseUtil.occupancyBackfill(ArchiveService.allAppointments(conn));
+                stmt.execute("BEGIN IMMEDIATE");
+                try {
+                    stmt.execute("DELETE FROM doctor_day_occupancy");
+                    stmt.execute(backfill);
+                    stmt.execute("COMMIT");
+                    return true;
+                } catch (SQLException e) {
+                    stmt.execute("ROLLBACK");
+                    throw e;
+                }
+            }
+        });
+    }
+
+    private List<DoctorOccupancy> readOccupancy(PreparedStatement pstmt) throws SQLException {
+        List<DoctorOccupancy> occupancy = new ArrayList<>();
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                occupancy.add(new DoctorOccupancy(
+                    rs.getInt(1),
+                    SqlDateCodec.getDate(rs, 2),
+                    rs.getInt(3),
+                    rs.getInt(4)));
+            }
+        }
+        return occupancy;
+    }
+}
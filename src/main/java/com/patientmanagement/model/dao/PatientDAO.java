@@ -1,88 +1,118 @@
 package com.patientmanagement.model.dao;
 
 import com.patientmanagement.model.Patient;
-import com.patientmanagement.util.DatabaseUtil;
+import com.patientmanagement.model.PatientRow;
+import com.patientmanagement.util.SqlDateCodec;
 
 import java.sql.*;
-import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
 public class PatientDAO {
     
+    // Columns read by extractPatientFromResultSet, in index order
+    private static final String PATIENT_SELECT =
+        "SELECT patient_id, first_name, last_name, date_of_birth, gender, address, phone, email, " +
+        "emergency_contact, insurance_info, created_at, updated_at FROM patients ";
+    
+    // Columns read by extractPatientRow, in index order
+    private static final String PATIENT_ROW_SELECT =
+        "SELECT patient_id, first_name, last_name, date_of_birth, gender, phone, email FROM patients ";
+    
     // Create a new patient
     public boolean createPatient(Patient patient) {
         String sql = "INSERT INTO patients (first_name, last_name, date_of_birth, gender, address, " +
                      "phone, email, emergency_contact, insurance_info, created_at, updated_at) " +
                      "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
         
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            
-            pstmt.setString(1, patient.getFirstName());
-            pstmt.setString(2, patient.getLastName());
-            pstmt.setDate(3, java.sql.Date.valueOf(patient.getDateOfBirth()));
-            pstmt.setString(4, patient.getGender());
-            pstmt.setString(5, patient.getAddress());
-            pstmt.setString(6, patient.getPhone());
-            pstmt.setString(7, patient.getEmail());
-            pstmt.setString(8, patient.getEmergencyContact());
-            pstmt.setString(9, patient.getInsuranceInfo());
-            pstmt.setDate(10, java.sql.Date.valueOf(LocalDate.now()));
-            pstmt.setDate(11, java.sql.Date.valueOf(LocalDate.now()));
-            
-            int affectedRows = pstmt.executeUpdate();
-            
-            if (affectedRows > 0) {
-                try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
-                    if (generatedKeys.next()) {
-                        patient.setPatientId(generatedKeys.getInt(1));
-                        return true;
+        return DaoExecutor.execute("PatientDAO.createPatient", false, conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                
+                pstmt.setString(1, patient.getFirstName());
+                pstmt.setString(2, patient.getLastName());
+                SqlDateCodec.setDate(pstmt, 3, patient.getDateOfBirth());
+                pstmt.setString(4, patient.getGender());
+                pstmt.setString(5, patient.getAddress());
+                pstmt.setString(6, patient.getPhone());
+                pstmt.setString(7, patient.getEmail());
+                pstmt.setString(8, patient.getEmergencyContact());
+                pstmt.setString(9, patient.getInsuranceInfo());
+                SqlDateCodec.setNow(pstmt, 10);
+                SqlDateCodec.setNow(pstmt, 11);
+                
+                int affectedRows = pstmt.executeUpdate();
+                
+                if (affectedRows > 0) {
+                    try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                        if (generatedKeys.next()) {
+                            patient.setPatientId(generatedKeys.getInt(1));
+                            return true;
+                        }
                     }
                 }
+                return false;
             }
-            return false;
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return false;
-        }
+        });
     }
     
     // Get a patient by ID
     public Patient getPatientById(int patientId) {
-        String sql = "SELECT * FROM patients WHERE patient_id = ?";
+        String sql = PATIENT_SELECT + "WHERE patient_id = ?";
         
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setInt(1, patientId);
-            ResultSet rs = pstmt.executeQuery();
-            
-            if (rs.next()) {
-                return extractPatientFromResultSet(rs);
+        return DaoExecutor.execute("PatientDAO.getPatientById", null, conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                
+                pstmt.setInt(1, patientId);
+                ResultSet rs = pstmt.executeQuery();
+                
+                return rs.next() ? extractPatientFromResultSet(rs) : null;
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return null;
+        });
     }
     
     // Get all patients
     public List<Patient> getAllPatients() {
-        List<Patient> patients = new ArrayList<>();
-        String sql = "SELECT * FROM patients ORDER BY last_name, first_name";
+        String sql = PATIENT_SELECT + "ORDER BY last_name, first_name";
         
-        try (Connection conn = DatabaseUtil.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            
-            while (rs.next()) {
-                patients.add(extractPatientFromResultSet(rs));
+        return DaoExecutor.execute("PatientDAO.getAllPatients", new ArrayList<>(), conn -> {
+            List<Patient> patients = new ArrayList<>();
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(sql)) {
+                
+                while (rs.next()) {
+                    patients.add(extractPatientFromResultSet(rs));
+                }
+            }
+            return patients;
+        });
+    }
+    
+    // Get the list rows of all patients
+    public List<PatientRow> getPatientRows() {
+        String sql = PATIENT_ROW_SELECT + "ORDER BY last_name, first_name";
+        
+        return DaoExecutor.execute("PatientDAO.getPatientRows", new ArrayList<>(), conn -> {
+            List<PatientRow> patients = new ArrayList<>();
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(sql)) {
+                
+                while (rs.next()) {
+                    patients.add(extractPatientRow(rs));
+                }
+            }
+            return patients;
+        });
+    }
+    
+    // Count all patients
+    public int countPatients() {
+        return DaoExecutor.execute("PatientDAO.countPatients", 0, conn -> {
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM patients")) {
+                
+                return rs.next() ? rs.getInt(1) : 0;
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return patients;
+        });
     }
     
     // Update a patient
@@ -91,83 +121,111 @@ public class PatientDAO {
                      "gender = ?, address = ?, phone = ?, email = ?, emergency_contact = ?, " +
                      "insurance_info = ?, updated_at = ? WHERE patient_id = ?";
         
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setString(1, patient.getFirstName());
-            pstmt.setString(2, patient.getLastName());
-            pstmt.setDate(3, java.sql.Date.valueOf(patient.getDateOfBirth()));
-            pstmt.setString(4, patient.getGender());
-            pstmt.setString(5, patient.getAddress());
-            pstmt.setString(6, patient.getPhone());
-            pstmt.setString(7, patient.getEmail());
-            pstmt.setString(8, patient.getEmergencyContact());
-            pstmt.setString(9, patient.getInsuranceInfo());
-            pstmt.setDate(10, java.sql.Date.valueOf(LocalDate.now()));
-            pstmt.setInt(11, patient.getPatientId());
-            
-            int affectedRows = pstmt.executeUpdate();
-            return affectedRows > 0;
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return false;
-        }
+        return DaoExecutor.execute("PatientDAO.updatePatient", false, conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                
+                pstmt.setString(1, patient.getFirstName());
+                pstmt.setString(2, patient.getLastName());
+                SqlDateCodec.setDate(pstmt, 3, patient.getDateOfBirth());
+                pstmt.setString(4, patient.getGender());
+                pstmt.setString(5, patient.getAddress());
+                pstmt.setString(6, patient.getPhone());
+                pstmt.setString(7, patient.getEmail());
+                pstmt.setString(8, patient.getEmergencyContact());
+                pstmt.setString(9, patient.getInsuranceInfo());
+                SqlDateCodec.setNow(pstmt, 10);
+                pstmt.setInt(11, patient.getPatientId());
+                
+                int affectedRows = pstmt.executeUpdate();
+                return affectedRows > 0;
+            }
+        });
     }
     
     // Delete a patient
     public boolean deletePatient(int patientId) {
         String sql = "DELETE FROM patients WHERE patient_id = ?";
         
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setInt(1, patientId);
-            
-            int affectedRows = pstmt.executeUpdate();
-            return affectedRows > 0;
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return false;
-        }
+        return DaoExecutor.execute("PatientDAO.deletePatient", false, conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                
+                pstmt.setInt(1, patientId);
+                
+                int affectedRows = pstmt.executeUpdate();
+                return affectedRows > 0;
+            }
+        });
     }
     
     // Search patients by name
     public List<Patient> searchPatientsByName(String searchTerm) {
-        List<Patient> patients = new ArrayList<>();
-        String sql = "SELECT * FROM patients WHERE first_name LIKE ? OR last_name LIKE ? ORDER BY last_name, first_name";
+        String sql = PATIENT_SELECT + "WHERE first_name LIKE ? OR last_name LIKE ? ORDER BY last_name, first_name";
         
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setString(1, "%" + searchTerm + "%");
-            pstmt.setString(2, "%" + searchTerm + "%");
-            
-            ResultSet rs = pstmt.executeQuery();
-            
-            while (rs.next()) {
-                patients.add(extractPatientFromResultSet(rs));
+        return DaoExecutor.execute("PatientDAO.searchPatientsByName", new ArrayList<>(), conn -> {
+            List<Patient> patients = new ArrayList<>();
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                
+                pstmt.setString(1, "%" + searchTerm + "%");
+                pstmt.setString(2, "%" + searchTerm + "%");
+                
+                ResultSet rs = pstmt.executeQuery();
+                
+                while (rs.next()) {
+                    patients.add(extractPatientFromResultSet(rs));
+                }
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return patients;
+            return patients;
+        });
     }
     
-    // Helper method to extract a Patient from a ResultSet
+    // Search the list rows of patients by name
+    public List<PatientRow> searchPatientRowsByName(String searchTerm) {
+        String sql = PATIENT_ROW_SELECT + "WHERE first_name LIKE ? OR last_name LIKE ? ORDER BY last_name, first_name";
+        
+        return DaoExecutor.execute("PatientDAO.searchPatientRowsByName", new ArrayList<>(), conn -> {
+            List<PatientRow> patients = new ArrayList<>();
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                
+                pstmt.setString(1, "%" + searchTerm + "%");
+                pstmt.setString(2, "%" + searchTerm + "%");
+                
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        patients.add(extractPatientRow(rs));
+                    }
+                }
+            }
+            return patients;
+        });
+    }
+    
+    // Helper method to extract a Patient from a row selected with PATIENT_SELECT
     private Patient extractPatientFromResultSet(ResultSet rs) throws SQLException {
         Patient patient = new Patient();
-        patient.setPatientId(rs.getInt("patient_id"));
-        patient.setFirstName(rs.getString("first_name"));
-        patient.setLastName(rs.getString("last_name"));
-        patient.setDateOfBirth(rs.getDate("date_of_birth").toLocalDate());
-        patient.setGender(rs.getString("gender"));
-        patient.setAddress(rs.getString("address"));
-        patient.setPhone(rs.getString("phone"));
-        patient.setEmail(rs.getString("email"));
-        patient.setEmergencyContact(rs.getString("emergency_contact"));
-        patient.setInsuranceInfo(rs.getString("insurance_info"));
-        patient.setCreatedAt(rs.getDate("created_at").toLocalDate());
-        patient.setUpdatedAt(rs.getDate("updated_at").toLocalDate());
+        patient.setPatientId(rs.getInt(1));
+        patient.setFirstName(rs.getString(2));
+        patient.setLastName(rs.getString(3));
+        patient.setDateOfBirth(SqlDateCodec.getDate(rs, 4));
+        patient.setGender(rs.getString(5));
+        patient.setAddress(rs.getString(6));
+        patient.setPhone(rs.getString(7));
+        patient.setEmail(rs.getString(8));
+        patient.setEmergencyContact(rs.getString(9));
+        patient.setInsuranceInfo(rs.getString(10));
+        patient.setCreatedAt(SqlDateCodec.getTimestampDate(rs, 11));
+        patient.setUpdatedAt(SqlDateCodec.getTimestampDate(rs, 12));
         return patient;
     }
+    
+    // Helper method to extract a PatientRow from a row selected with PATIENT_ROW_SELECT
+    private PatientRow extractPatientRow(ResultSet rs) throws SQLException {
+        return new PatientRow(
+            rs.getInt(1),
+            rs.getString(2),
+            rs.getString(3),
+            SqlDateCodec.getDate(rs, 4),
+            rs.getString(5),
+            rs.getString(6),
+            rs.getString(7));
+    }
 }
@@ -0,0 +1,204 @@
+package com.patientmanagement.model.dao;
+
+import com.patientmanagement.archive.ArchiveService;
+import com.patientmanagement.util.DatabaseUtil;
+import com.patientmanagement.util.SqlDateCodec;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Consultation statistics read from the rollup tables that triggers keep current
+ * (stats_consultations_daily, stats_consultations_by_reason, stats_new_patients_weekly).
+ * Queries touch at most one row per day, reason or week, never the appointments table.
+ */
+public class StatisticsDAO {
+
+    // Rollup table name paired with the query that recomputes it from the base tables.
+    // Archived appointments keep counting, so appointments is the row source over both tiers
+    private static String[][] rollups(String appointments) {
+        return new String[][] {
+            {"stats_consultations_daily", DatabaseUtil.statsDailyQuery(appointments)},
+            {"stats_consultations_by_reason", DatabaseUtil.statsReasonQuery(appointments)},
+            {"stats_new_patients_weekly", DatabaseUtil.STATS_NEW_PATIENTS_QUERY}
+        };
+    }
+
+    // Get the number of consultations per status (lower case) between two dates (inclusive)
+    public Map<String, Integer> getStatusCounts(LocalDate from, LocalDate to) {
+        String sql = "SELECT status, SUM(consultation_count) FROM stats_consultations_daily " +
+                     "WHERE date BETWEEN ? AND ? GROUP BY status ORDER BY status";
+
+        return DaoExecutor.execute("StatisticsDAO.getStatusCounts", new LinkedHashMap<>(), conn -> {
+            Map<String, Integer> counts = new LinkedHashMap<>();
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+                SqlDateCodec.setDate(pstmt, 1, from);
+                SqlDateCodec.setDate(pstmt, 2, to);
+                ResultSet rs = pstmt.executeQuery();
+
+                while (rs.next()) {
+                    counts.put(rs.getString(1), rs.getInt(2));
+                }
+            }
+            return counts;
+        });
+    }
+
+    // Get the number of consultations per doctor between two dates; status null counts every status
+    public Map<Integer, Integer> getConsultationsPerDoctor(LocalDate from, LocalDate to, String status) {
+        String sql = "SELECT doctor_id, SUM(consultation_count) FROM stats_consultations_daily " +
+                     "WHERE date BETWEEN ? AND ? AND (? IS NULL OR status = LOWER(?)) " +
+                     "GROUP BY doctor_id ORDER BY 2 DESC";
+
+        return DaoExecutor.execute("StatisticsDAO.getConsultationsPerDoctor", new LinkedHashMap<>(), conn -> {
+            Map<Integer, Integer> counts = new LinkedHashMap<>();
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+                SqlDateCodec.setDate(pstmt, 1, from);
+                SqlDateCodec.setDate(pstmt, 2, to);
+                pstmt.setString(3, status);
+                pstmt.setString(4, status);
+                ResultSet rs = pstmt.executeQuery();
+
+                while (rs.next()) {
+                    counts.put(rs.getInt(1), rs.getInt(2));
+                }
+            }
+            return counts;
+        });
+    }
+
+    // Get the number of non-cancelled consultations per day between two dates; days without any are left out
+    public Map<LocalDate, Integer> getDailyConsultations(LocalDate from, LocalDate to) {
+        String sql = "SELECT date, SUM(consultation_count) FROM stats_consultations_daily " +
+                     "WHERE date BETWEEN ? AND ? AND " + DatabaseUtil.NOT_CANCELLED + " GROUP BY date ORDER BY date";
+
+        return DaoExecutor.execute("StatisticsDAO.getDailyConsultations", new LinkedHashMap<>(), conn -> {
+            Map<LocalDate, Integer> counts = new LinkedHashMap<>();
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+                SqlDateCodec.setDate(pstmt, 1, from);
+                SqlDateCodec.setDate(pstmt, 2, to);
+                ResultSet rs = pstmt.executeQuery();
+
+                while (rs.next()) {
+                    counts.put(SqlDateCodec.getDate(rs, 1), rs.getInt(2));
+                }
+            }
+            return counts;
+        });
+    }
+
+    // Get the most frequent consultation reasons (trimmed, lower case), cancelled ones excluded
+    public Map<String, Integer> getTopReasons(int limit) {
+        String sql = "SELECT reason_category, SUM(consultation_count) FROM stats_consultations_by_reason " +
+                     "WHERE " + DatabaseUtil.NOT_CANCELLED + " AND reason_category != '' " +
+                     "GROUP BY reason_category ORDER BY 2 DESC, 1 LIMIT ?";
+
+        return DaoExecutor.execute("StatisticsDAO.getTopReasons", new LinkedHashMap<>(), conn -> {
+            Map<String, Integer> counts = new LinkedHashMap<>();
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+                pstmt.setInt(1, limit);
+                ResultSet rs = pstmt.executeQuery();
+
+                while (rs.next()) {
+                    counts.put(rs.getString(1), rs.getInt(2));
+                }
+            }
+            return counts;
+        });
+    }
+
+    // Get the number of newly registered patients per week (keyed by the Monday) between two dates
+    public Map<LocalDate, Integer> getNewPatientsPerWeek(LocalDate from, LocalDate to) {
+        String sql = "SELECT week_start, patient_count FROM stats_new_patients_weekly " +
+                     "WHERE week_start BETWEEN ? AND ? ORDER BY week_start";
+
+        return DaoExecutor.execute("StatisticsDAO.getNewPatientsPerWeek", new LinkedHashMap<>(), conn -> {
+            Map<LocalDate, Integer> counts = new LinkedHashMap<>();
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+                SqlDateCodec.setDate(pstmt, 1, from);
+                SqlDateCodec.setDate(pstmt, 2, to);
+                ResultSet rs = pstmt.executeQuery();
+
+                while (rs.next()) {
+                    counts.put(SqlDateCodec.getDate(rs, 1), rs.getInt(2));
+                }
+            }
+            return counts;
+        });
+    }
+
+    /**
+     * Recompute every rollup table from the base tables in one transaction
+     * @return true if the rebuild succeeded
+     */
+    public boolean rebuild() {
+        return DaoExecutor.execute("StatisticsDAO.rebuild", false, conn -> {
+            try (Statement stmt = conn.createStatement()) {
+
+                String[][] rollups = rollups(ArchiveService.allAppointments(conn));
+                stmt.execute("BEGIN IMMEDIATE");
+                try {
+                    for (String[] rollup : rollups) {
+                        stmt.execute("DELETE FROM " + rollup[0]);
+                        stmt.execute("INSERT INTO " + rollup[0] + " " + rollup[1]);
+                    }
+                    stmt.execute("COMMIT");
+                    return true;
+                } catch (SQLException e) {
+                    stmt.execute("ROLLBACK");
+                    throw e;
+                }
+            }
+        });
+    }
+
+    /**
+     * Compare every rollup table with a fresh recomputation
+     * @return One message per rollup table that has drifted, empty if all are consistent
+     */
+    public List<String> consistencyCheck() {
+        long start = System.nanoTime();
+        try {
+            return DaoExecutor.call("StatisticsDAO.consistencyCheck", conn -> {
+                List<String> problems = new ArrayList<>();
+                try (Statement stmt = conn.createStatement()) {
+
+                    // Read both sides in one snapshot
+                    String[][] rollups = rollups(ArchiveService.allAppointments(conn));
+                    stmt.execute("BEGIN");
+                    try {
+                        for (String[] rollup : rollups) {
+                            String stored = "SELECT * FROM " + rollup[0];
+                            String sql = "SELECT (SELECT COUNT(*) FROM (" + stored + " EXCEPT " + rollup[1] + ")), " +
+                                         "(SELECT COUNT(*) FROM (" + rollup[1] + " EXCEPT " + stored + "))";
+                            try (ResultSet rs = stmt.executeQuery(sql)) {
+                                int extra = rs.getInt(1);
+                                int missing = rs.getInt(2);
+                                if (extra > 0 || missing > 0) {
+                                    problems.add(rollup[0] + ": " + extra + " stale row(s), " + missing + " missing row(s)");
+                                }
+                            }
+                        }
+                    } finally {
+                        stmt.execute("COMMIT");
+                    }
+                }
+                return problems;
+            });
+        } catch (DataAccessException e) {
+            DaoExecutor.logFailure(e, start);
+            List<String> problems = new ArrayList<>();
+            problems.add("Consistency check failed: " + e.getCause().getMessage());
+            return problems;
+        }
+    }
+}
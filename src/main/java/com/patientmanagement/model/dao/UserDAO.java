@@ -1,8 +1,8 @@
 package com.patientmanagement.model.dao;
 
 import com.patientmanagement.model.User;
-import com.patientmanagement.util.DatabaseUtil;
 import com.patientmanagement.util.SecurityUtil;
+import com.patientmanagement.util.SqlDateCodec;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -15,7 +15,12 @@ import java.util.List;
  * Data Access Object for User entity
  */
 public class UserDAO {
-    
+
+    // Columns read by mapResultSetToUser, in index order
+    private static final String USER_COLUMNS =
+        "user_id, username, first_name, last_name, email, phone, role, created_at, updated_at";
+    private static final int USER_COLUMN_COUNT = 9;
+
     /**
      * Create a new user in the database
      * @param user The user to create
@@ -24,43 +29,43 @@ public class UserDAO {
     public boolean createUser(User user) {
         String sql = "INSERT INTO users (username, password_hash, password_salt, first_name, last_name, " +
                     "email, phone, role, created_at, updated_at) " +
-                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, datetime('now'), datetime('now'))";
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            // Generate salt and hash password
-            String salt = SecurityUtil.generateSalt();
-            String passwordHash = SecurityUtil.hashPassword(user.getPassword(), salt);
-            
-            pstmt.setString(1, user.getUsername());
-            pstmt.setString(2, passwordHash);
-            pstmt.setString(3, salt);
-            pstmt.setString(4, user.getFirstName());
-            pstmt.setString(5, user.getLastName());
-            pstmt.setString(6, user.getEmail());
-            pstmt.setString(7, user.getPhone());
-            pstmt.setString(8, user.getRole());
-            
-            int affectedRows = pstmt.executeUpdate();
-            
-            if (affectedRows > 0) {
-                // Get the generated ID
-                try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
-                    if (generatedKeys.next()) {
-                        user.setUserId(generatedKeys.getInt(1));
-                        return true;
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+        return DaoExecutor.execute("UserDAO.createUser", false, conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+                // Generate salt and hash password
+                String salt = SecurityUtil.generateSalt();
+                String passwordHash = SecurityUtil.hashPassword(user.getPassword(), salt);
+
+                pstmt.setString(1, user.getUsername());
+                pstmt.setString(2, passwordHash);
+                pstmt.setString(3, salt);
+                pstmt.setString(4, user.getFirstName());
+                pstmt.setString(5, user.getLastName());
+                pstmt.setString(6, user.getEmail());
+                pstmt.setString(7, user.getPhone());
+                pstmt.setString(8, user.getRole());
+                SqlDateCodec.setNow(pstmt, 9);
+                SqlDateCodec.setNow(pstmt, 10);
+
+                int affectedRows = pstmt.executeUpdate();
+
+                if (affectedRows > 0) {
+                    // Get the generated ID
+                    try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                        if (generatedKeys.next()) {
+                            user.setUserId(generatedKeys.getInt(1));
+                            return true;
+                        }
                     }
                 }
+
+                return false;
             }
-            
-            return false;
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return false;
-        }
+        });
     }
-    
+
     /**
      * Update an existing user in the database
      * @param user The user to update
@@ -68,27 +73,26 @@ public class UserDAO {
      */
     public boolean updateUser(User user) {
         String sql = "UPDATE users SET first_name = ?, last_name = ?, email = ?, " +
-                    "phone = ?, role = ?, updated_at = datetime('now') " +
+                    "phone = ?, role = ?, updated_at = ? " +
                     "WHERE user_id = ?";
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setString(1, user.getFirstName());
-            pstmt.setString(2, user.getLastName());
-            pstmt.setString(3, user.getEmail());
-            pstmt.setString(4, user.getPhone());
-            pstmt.setString(5, user.getRole());
-            pstmt.setInt(6, user.getUserId());
-            
-            int affectedRows = pstmt.executeUpdate();
-            return affectedRows > 0;
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return false;
-        }
+
+        return DaoExecutor.execute("UserDAO.updateUser", false, conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+                pstmt.setString(1, user.getFirstName());
+                pstmt.setString(2, user.getLastName());
+                pstmt.setString(3, user.getEmail());
+                pstmt.setString(4, user.getPhone());
+                pstmt.setString(5, user.getRole());
+                SqlDateCodec.setNow(pstmt, 6);
+                pstmt.setInt(7, user.getUserId());
+
+                int affectedRows = pstmt.executeUpdate();
+                return affectedRows > 0;
+            }
+        });
     }
-    
+
     /**
      * Change a user's password
      * @param userId The user ID
@@ -97,27 +101,26 @@ public class UserDAO {
      */
     public boolean changePassword(int userId, String newPassword) {
         String sql = "UPDATE users SET password_hash = ?, password_salt = ?, " +
-                    "updated_at = datetime('now') WHERE user_id = ?";
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            // Generate new salt and hash password
-            String salt = SecurityUtil.generateSalt();
-            String passwordHash = SecurityUtil.hashPassword(newPassword, salt);
-            
-            pstmt.setString(1, passwordHash);
-            pstmt.setString(2, salt);
-            pstmt.setInt(3, userId);
-            
-            int affectedRows = pstmt.executeUpdate();
-            return affectedRows > 0;
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return false;
-        }
+                    "updated_at = ? WHERE user_id = ?";
+
+        return DaoExecutor.execute("UserDAO.changePassword", false, conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+                // Generate new salt and hash password
+                String salt = SecurityUtil.generateSalt();
+                String passwordHash = SecurityUtil.hashPassword(newPassword, salt);
+
+                pstmt.setString(1, passwordHash);
+                pstmt.setString(2, salt);
+                SqlDateCodec.setNow(pstmt, 3);
+                pstmt.setInt(4, userId);
+
+                int affectedRows = pstmt.executeUpdate();
+                return affectedRows > 0;
+            }
+        });
     }
-    
+
     /**
      * Delete a user from the database
      * @param userId The ID of the user to delete
@@ -125,122 +128,112 @@ public class UserDAO {
      */
     public boolean deleteUser(int userId) {
         String sql = "DELETE FROM users WHERE user_id = ?";
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setInt(1, userId);
-            
-            int affectedRows = pstmt.executeUpdate();
-            return affectedRows > 0;
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return false;
-        }
+
+        return DaoExecutor.execute("UserDAO.deleteUser", false, conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+                pstmt.setInt(1, userId);
+
+                int affectedRows = pstmt.executeUpdate();
+                return affectedRows > 0;
+            }
+        });
     }
-    
+
     /**
      * Get a user by ID
      * @param userId The user ID
      * @return The user, or null if not found
      */
     public User getUserById(int userId) {
-        String sql = "SELECT * FROM users WHERE user_id = ?";
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setInt(1, userId);
-            
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    return mapResultSetToUser(rs);
+        String sql = "SELECT " + USER_COLUMNS + " FROM users WHERE user_id = ?";
+
+        return DaoExecutor.execute("UserDAO.getUserById", null, conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+                pstmt.setInt(1, userId);
+
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        return mapResultSetToUser(rs);
+                    }
                 }
+
+                return null;
             }
-            
-            return null;
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return null;
-        }
+        });
     }
-    
+
     /**
      * Get a user by username
      * @param username The username
      * @return The user, or null if not found
      */
     public User getUserByUsername(String username) {
-        String sql = "SELECT * FROM users WHERE username = ?";
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setString(1, username);
-            
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    return mapResultSetToUser(rs);
+        String sql = "SELECT " + USER_COLUMNS + " FROM users WHERE username = ?";
+
+        return DaoExecutor.execute("UserDAO.getUserByUsername", null, conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+                pstmt.setString(1, username);
+
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        return mapResultSetToUser(rs);
+                    }
                 }
+
+                return null;
             }
-            
-            return null;
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return null;
-        }
+        });
     }
-    
+
     /**
      * Get all users
      * @return List of all users
      */
     public List<User> getAllUsers() {
-        String sql = "SELECT * FROM users ORDER BY username";
+        String sql = "SELECT " + USER_COLUMNS + " FROM users ORDER BY username";
         List<User> users = new ArrayList<>();
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql);
-             ResultSet rs = pstmt.executeQuery()) {
-            
-            while (rs.next()) {
-                users.add(mapResultSetToUser(rs));
+
+        return DaoExecutor.execute("UserDAO.getAllUsers", users, conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(sql);
+                 ResultSet rs = pstmt.executeQuery()) {
+
+                while (rs.next()) {
+                    users.add(mapResultSetToUser(rs));
+                }
+
+                return users;
             }
-            
-            return users;
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return users;
-        }
+        });
     }
-    
+
     /**
      * Get users by role
      * @param role The role to filter by
      * @return List of users with the specified role
      */
     public List<User> getUsersByRole(String role) {
-        String sql = "SELECT * FROM users WHERE role = ? ORDER BY username";
+        String sql = "SELECT " + USER_COLUMNS + " FROM users WHERE role = ? ORDER BY username";
         List<User> users = new ArrayList<>();
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setString(1, role);
-            
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    users.add(mapResultSetToUser(rs));
+
+        return DaoExecutor.execute("UserDAO.getUsersByRole", users, conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+                pstmt.setString(1, role);
+
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        users.add(mapResultSetToUser(rs));
+                    }
                 }
+
+                return users;
             }
-            
-            return users;
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return users;
-        }
+        });
     }
-    
+
     /**
      * Authenticate a user with username and password
      * @param username The username
@@ -248,31 +241,29 @@ public class UserDAO {
      * @return The authenticated user, or null if authentication fails
      */
     public User authenticateUser(String username, String password) {
-        String sql = "SELECT * FROM users WHERE username = ?";
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setString(1, username);
-            
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    String storedHash = rs.getString("password_hash");
-                    String storedSalt = rs.getString("password_salt");
-                    
-                    if (SecurityUtil.verifyPassword(password, storedHash, storedSalt)) {
-                        return mapResultSetToUser(rs);
+        String sql = "SELECT " + USER_COLUMNS + ", password_hash, password_salt FROM users WHERE username = ?";
+
+        return DaoExecutor.execute("UserDAO.authenticateUser", null, conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+                pstmt.setString(1, username);
+
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        String storedHash = rs.getString(USER_COLUMN_COUNT + 1);
+                        String storedSalt = rs.getString(USER_COLUMN_COUNT + 2);
+
+                        if (SecurityUtil.verifyPassword(password, storedHash, storedSalt)) {
+                            return mapResultSetToUser(rs);
+                        }
                     }
                 }
+
+                return null;
             }
-            
-            return null;
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return null;
-        }
+        });
     }
-    
+
     /**
      * Check if a username already exists
      * @param username The username to check
@@ -280,71 +271,70 @@ public class UserDAO {
      */
     public boolean usernameExists(String username) {
         String sql = "SELECT COUNT(*) FROM users WHERE username = ?";
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setString(1, username);
-            
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getInt(1) > 0;
+
+        return DaoExecutor.execute("UserDAO.usernameExists", false, conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+                pstmt.setString(1, username);
+
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        return rs.getInt(1) > 0;
+                    }
                 }
+
+                return false;
             }
-            
-            return false;
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return false;
-        }
+        });
     }
-    
+
     /**
      * Initialize the database with default admin user if no users exist
      */
     public void initializeDefaultAdmin() {
         // Check if any users exist
         String countSql = "SELECT COUNT(*) FROM users";
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(countSql);
-             ResultSet rs = pstmt.executeQuery()) {
-            
-            if (rs.next() && rs.getInt(1) == 0) {
-                // No users exist, create default admin
-                User admin = new User();
-                admin.setUsername("admin");
-                admin.setPassword("admin123");
-                admin.setFirstName("System");
-                admin.setLastName("Administrator");
-                admin.setEmail("admin@example.com");
-                admin.setRole("Admin");
-                
-                createUser(admin);
+
+        int users = DaoExecutor.execute("UserDAO.initializeDefaultAdmin", -1, conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(countSql);
+                 ResultSet rs = pstmt.executeQuery()) {
+
+                return rs.next() ? rs.getInt(1) : -1;
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
+        });
+
+        if (users == 0) {
+            // No users exist, create default admin
+            User admin = new User();
+            admin.setUsername("admin");
+            admin.setPassword("admin123");
+            admin.setFirstName("System");
+            admin.setLastName("Administrator");
+            admin.setEmail("admin@example.com");
+            admin.setRole("Admin");
+
+            createUser(admin);
         }
     }
-    
+
     /**
-     * Map a ResultSet to a User object
+     * Map a row selected with USER_COLUMNS to a User object
      * @param rs The ResultSet
      * @return The User object
      * @throws SQLException If a database error occurs
      */
     private User mapResultSetToUser(ResultSet rs) throws SQLException {
         User user = new User();
-        user.setUserId(rs.getInt("user_id"));
-        user.setUsername(rs.getString("username"));
-        user.setFirstName(rs.getString("first_name"));
-        user.setLastName(rs.getString("last_name"));
-        user.setEmail(rs.getString("email"));
-        user.setPhone(rs.getString("phone"));
-        user.setRole(rs.getString("role"));
-        user.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
-        user.setUpdatedAt(rs.getTimestamp("updated_at").toLocalDateTime());
-        
+        user.setUserId(rs.getInt(1));
+        user.setUsername(rs.getString(2));
+        user.setFirstName(rs.getString(3));
+        user.setLastName(rs.getString(4));
+        user.setEmail(rs.getString(5));
+        user.setPhone(rs.getString(6));
+        user.setRole(rs.getString(7));
+        user.setCreatedAt(SqlDateCodec.getTimestamp(rs, 8));
+        user.setUpdatedAt(SqlDateCodec.getTimestamp(rs, 9));
+
         return user;
     }
 }
@@ -0,0 +1,56 @@
+package com.patientmanagement.scheduling;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Working-time source for the slot finder
+ */
+public interface Availability {
+    
+    /**
+     * Opening hours used when a doctor has no schedule of their own: 08:00 to 18:00 every day
+     */
+    Availability CLINIC_HOURS = new Availability() {
+        private final long[] day = createDay();
+        
+        private long[] createDay() {
+            long[] bits = DayBitmap.newDay();
+            DayBitmap.setRange(bits, DayBitmap.slotOf(LocalTime.of(8, 0)), DayBitmap.slotOf(LocalTime.of(18, 0)));
+            return bits;
+        }
+        
+        @Override
+        public long[] workingSlots(LocalDate date) {
+            return day;
+        }
+    };
+    
+    /**
+     * Get the working slots of a day as a DayBitmap
+     * @param date The day
+     * @return Read-only bitmap of working slots
+     */
+    long[] workingSlots(LocalDate date);
+    
+    /**
+     * Check whether the doctor works at a given moment
+     * @param date The day
+     * @param time The time of day
+     * @return true if the slot containing the time is a working slot
+     */
+    default boolean isWorking(LocalDate date, LocalTime time) {
+        return DayBitmap.isSet(workingSlots(date), DayBitmap.slotOf(time));
+    }
+    
+    /**
+     * Check whether the doctor works during a whole period of a day
+     * @param date The day
+     * @param startTime Start time
+     * @param endTime End time
+     * @return true if every slot of the period is a working slot
+     */
+    default boolean isWorking(LocalDate date, LocalTime startTime, LocalTime endTime) {
+        return DayBitmap.isRangeSet(workingSlots(date), DayBitmap.slotOf(startTime), DayBitmap.endSlotOf(endTime));
+    }
+}
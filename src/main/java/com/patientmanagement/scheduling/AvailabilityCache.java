@@ -0,0 +1,79 @@
+package com.patientmanagement.scheduling;
+
+import com.patientmanagement.logging.AppLog;
+import com.patientmanagement.metrics.CacheMissEvent;
+import com.patientmanagement.model.Doctor;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-doctor cache of compiled availability schedules.
+ * Entries are dropped by DoctorDAO whenever a doctor is updated or deleted.
+ */
+public class AvailabilityCache {
+    
+    private static final ConcurrentMap<Integer, AvailabilitySchedule> CACHE = new ConcurrentHashMap<>();
+    
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+    
+    /**
+     * Get the compiled availability of a doctor
+     * @param doctor The doctor
+     * @return The doctor's schedule, or the clinic hours if none is set or it cannot be parsed
+     */
+    public static Availability forDoctor(Doctor doctor) {
+        String text = doctor.getAvailabilitySchedule();
+        if (text == null || text.trim().isEmpty()) {
+            return Availability.CLINIC_HOURS;
+        }
+        
+        AvailabilitySchedule schedule = CACHE.get(doctor.getDoctorId());
+        if (schedule == null || !Objects.equals(schedule.getSource(), text)) {
+            MISSES.incrementAndGet();
+            CacheMissEvent miss = CacheMissEvent.start("availability", doctor.getDoctorId());
+            try {
+                schedule = AvailabilitySchedule.parse(text);
+            } catch (IllegalArgumentException e) {
+                AppLog.warn("availability.parseFailed", e, "doctorId", doctor.getDoctorId());
+                return Availability.CLINIC_HOURS;
+            } finally {
+                miss.finish();
+            }
+            CACHE.put(doctor.getDoctorId(), schedule);
+        } else {
+            HITS.incrementAndGet();
+        }
+        return schedule;
+    }
+    
+    /**
+     * Drop the cached schedule of a doctor
+     * @param doctorId The doctor ID
+     */
+    public static void invalidate(int doctorId) {
+        CACHE.remove(doctorId);
+    }
+    
+    /**
+     * Drop all cached schedules
+     */
+    public static void clear() {
+        CACHE.clear();
+    }
+    
+    public static int size() {
+        return CACHE.size();
+    }
+    
+    public static long getHits() {
+        return HITS.get();
+    }
+    
+    public static long getMisses() {
+        return MISSES.get();
+    }
+}
@@ -0,0 +1,183 @@
+package com.patientmanagement.scheduling;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compiled form of a doctor's availability schedule.
+ * 
+ * The schedule text stored in doctors.availability_schedule is a list of entries
+ * separated by ';' or new lines:
+ * <pre>
+ * MON-FRI 08:00-12:00, 13:00-17:00     weekly recurring blocks
+ * SAT 09:00-12:00
+ * 2026-11-14 10:00-14:00               exception: replaces the weekly hours of that day
+ * 2026-11-11 OFF                       exception: not working that day
+ * LEAVE 2026-12-24..2027-01-02         leave days (inclusive)
+ * </pre>
+ * Times may not cross midnight; working time ends at 23:55 at the latest.
+ * Parsing happens once; lookups are a map probe plus a bit test.
+ */
+public class AvailabilitySchedule implements Availability {
+    
+    private static final int MAX_LEAVE_DAYS = 366;
+    
+    private final String source;
+    private final long[][] weekly = new long[7][];
+    private final Map<Long, long[]> exceptions = new HashMap<>();
+    
+    private AvailabilitySchedule(String source) {
+        this.source = source;
+        for (int i = 0; i < weekly.length; i++) {
+            weekly[i] = DayBitmap.newDay();
+        }
+    }
+    
+    /**
+     * Compile a schedule
+     * @param text The schedule text
+     * @return The compiled schedule
+     * @throws IllegalArgumentException If the text is not a valid schedule
+     */
+    public static AvailabilitySchedule parse(String text) {
+        AvailabilitySchedule schedule = new AvailabilitySchedule(text);
+        if (text == null) {
+            return schedule;
+        }
+        
+        for (String rawEntry : text.split("[;\\n]")) {
+            String entry = rawEntry.trim();
+            if (entry.isEmpty()) {
+                continue;
+            }
+            try {
+                schedule.compileEntry(entry);
+            } catch (DateTimeParseException | IndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Invalid availability entry: '" + entry + "'", e);
+            }
+        }
+        return schedule;
+    }
+    
+    @Override
+    public long[] workingSlots(LocalDate date) {
+        long[] exception = exceptions.get(date.toEpochDay());
+        return exception != null ? exception : weekly[date.getDayOfWeek().getValue() - 1];
+    }
+    
+    /**
+     * Get the text this schedule was compiled from
+     * @return The schedule text
+     */
+    public String getSource() {
+        return source;
+    }
+    
+    private void compileEntry(String entry) {
+        int space = entry.indexOf(' ');
+        if (space < 0) {
+            throw new IllegalArgumentException("Invalid availability entry: '" + entry + "'");
+        }
+        String head = entry.substring(0, space).toUpperCase(Locale.ROOT);
+        String rest = entry.substring(space + 1).trim();
+        
+        if (head.equals("LEAVE")) {
+            compileLeave(rest);
+        } else if (Character.isDigit(head.charAt(0))) {
+            long epochDay = LocalDate.parse(head).toEpochDay();
+            long[] bits = DayBitmap.newDay();
+            if (!rest.equalsIgnoreCase("OFF")) {
+                addRanges(bits, rest);
+            }
+            exceptions.put(epochDay, bits);
+        } else {
+            DayOfWeek[] days = parseDays(head);
+            long[] bits = DayBitmap.newDay();
+            addRanges(bits, rest);
+            for (DayOfWeek day : days) {
+                long[] target = weekly[day.getValue() - 1];
+                for (int i = 0; i < target.length; i++) {
+                    target[i] |= bits[i];
+                }
+            }
+        }
+    }
+    
+    private void compileLeave(String range) {
+        String[] bounds = range.split("\\.\\.");
+        LocalDate first = LocalDate.parse(bounds[0].trim());
+        LocalDate last = bounds.length > 1 ? LocalDate.parse(bounds[1].trim()) : first;
+        if (last.isBefore(first) || last.toEpochDay() - first.toEpochDay() >= MAX_LEAVE_DAYS) {
+            throw new IllegalArgumentException("Invalid leave period: '" + range + "'");
+        }
+        for (long day = first.toEpochDay(); day <= last.toEpochDay(); day++) {
+            exceptions.put(day, DayBitmap.empty());
+        }
+    }
+    
+    // "08:00-12:00, 13:00-17:00"
+    private static void addRanges(long[] bits, String ranges) {
+        for (String range : ranges.split(",")) {
+            String[] times = range.trim().split("-");
+            if (times.length != 2) {
+                throw new IllegalArgumentException("Invalid time range: '" + range.trim() + "'");
+            }
+            LocalTime start = LocalTime.parse(times[0].trim());
+            LocalTime end = LocalTime.parse(times[1].trim());
+            if (end.equals(LocalTime.MIDNIGHT)) {
+                throw new IllegalArgumentException("Working time must end by 23:55, not at midnight: '"
+                                                   + range.trim() + "'");
+            }
+            if (!end.isAfter(start)) {
+                throw new IllegalArgumentException("End time must be after start time: '" + range.trim() + "'");
+            }
+            // A slot ending at midnight would get an end time of 00:00, before its start, so the
+            // last slot of the day is never working time
+            DayBitmap.setRange(bits, DayBitmap.slotOf(start),
+                               Math.min(DayBitmap.endSlotOf(end), DayBitmap.SLOTS_PER_DAY - 1));
+        }
+    }
+    
+    // "MON-FRI", "MON,WED,FRI", "SAT"
+    private static DayOfWeek[] parseDays(String days) {
+        boolean[] selected = new boolean[7];
+        for (String part : days.split(",")) {
+            String[] bounds = part.split("-");
+            int first = dayIndex(bounds[0]);
+            int last = bounds.length > 1 ? dayIndex(bounds[1]) : first;
+            for (int i = first; ; i = (i + 1) % 7) {
+                selected[i] = true;
+                if (i == last) {
+                    break;
+                }
+            }
+        }
+        
+        int count = 0;
+        for (boolean value : selected) {
+            if (value) count++;
+        }
+        DayOfWeek[] result = new DayOfWeek[count];
+        for (int i = 0, j = 0; i < 7; i++) {
+            if (selected[i]) {
+                result[j++] = DayOfWeek.of(i + 1);
+            }
+        }
+        return result;
+    }
+    
+    private static int dayIndex(String name) {
+        String key = name.trim().toUpperCase(Locale.ROOT);
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if (day.name().startsWith(key) && key.length() >= 3) {
+                return day.getValue() - 1;
+            }
+        }
+        throw new IllegalArgumentException("Unknown day: '" + name.trim() + "'");
+    }
+}
@@ -0,0 +1,193 @@
+package com.patientmanagement.scheduling;
+
+import java.time.LocalTime;
+
+/**
+ * Utility class for per-day occupancy bitmaps.
+ * A day is split into 5-minute slots; bit i of the long[] is set when slot i is taken.
+ * 288 slots fit in 5 longs, so a day costs 40 bytes and range tests are a few word operations.
+ */
+public class DayBitmap {
+    
+    public static final int SLOT_MINUTES = 5;
+    public static final int SLOTS_PER_DAY = 24 * 60 / SLOT_MINUTES;
+    public static final int WORDS = (SLOTS_PER_DAY + 63) / 64;
+    
+    private static final long[] EMPTY = new long[WORDS];
+    
+    /**
+     * Create an empty day bitmap
+     * @return A new bitmap with all slots clear
+     */
+    public static long[] newDay() {
+        return new long[WORDS];
+    }
+    
+    /**
+     * Shared read-only bitmap with all slots clear
+     * @return The empty bitmap (must not be modified)
+     */
+    public static long[] empty() {
+        return EMPTY;
+    }
+    
+    /**
+     * Convert a time to its slot index, rounding down
+     * @param time The time
+     * @return Slot index in [0, SLOTS_PER_DAY)
+     */
+    public static int slotOf(LocalTime time) {
+        return (time.getHour() * 60 + time.getMinute()) / SLOT_MINUTES;
+    }
+    
+    /**
+     * Convert an end time to an exclusive slot index, rounding up.
+     * Midnight is treated as the end of the day.
+     * @param time The end time
+     * @return Slot index in (0, SLOTS_PER_DAY]
+     */
+    public static int endSlotOf(LocalTime time) {
+        int minutes = time.getHour() * 60 + time.getMinute() + (time.getSecond() > 0 ? 1 : 0);
+        if (minutes == 0) {
+            return SLOTS_PER_DAY;
+        }
+        return (minutes + SLOT_MINUTES - 1) / SLOT_MINUTES;
+    }
+    
+    /**
+     * Convert an end minute of the day to an exclusive slot index, rounding up.
+     * Minute 0 is treated as the end of the day.
+     * @param minute The end time as minute of the day
+     * @return Slot index in (0, SLOTS_PER_DAY]
+     */
+    public static int endSlotOfMinute(int minute) {
+        if (minute == 0) {
+            return SLOTS_PER_DAY;
+        }
+        return (minute + SLOT_MINUTES - 1) / SLOT_MINUTES;
+    }
+    
+    /**
+     * Convert a slot index back to a time of day
+     * @param slot The slot index
+     * @return The time at which the slot starts
+     */
+    public static LocalTime timeOf(int slot) {
+        return LocalTime.ofSecondOfDay((long) slot * SLOT_MINUTES * 60 % (24 * 3600));
+    }
+    
+    /**
+     * Set all slots in [fromSlot, toSlot)
+     * @param bits The bitmap to modify
+     * @param fromSlot First slot (inclusive)
+     * @param toSlot Last slot (exclusive)
+     */
+    public static void setRange(long[] bits, int fromSlot, int toSlot) {
+        for (int slot = Math.max(0, fromSlot); slot < Math.min(toSlot, SLOTS_PER_DAY); ) {
+            int word = slot >>> 6;
+            int end = Math.min(toSlot, Math.min((word + 1) << 6, SLOTS_PER_DAY));
+            bits[word] |= rangeMask(slot & 63, end - (word << 6));
+            slot = end;
+        }
+    }
+    
+    /**
+     * Clear all slots in [fromSlot, toSlot)
+     * @param bits The bitmap to modify
+     * @param fromSlot First slot (inclusive)
+     * @param toSlot Last slot (exclusive)
+     */
+    public static void clearRange(long[] bits, int fromSlot, int toSlot) {
+        for (int slot = Math.max(0, fromSlot); slot < Math.min(toSlot, SLOTS_PER_DAY); ) {
+            int word = slot >>> 6;
+            int end = Math.min(toSlot, Math.min((word + 1) << 6, SLOTS_PER_DAY));
+            bits[word] &= ~rangeMask(slot & 63, end - (word << 6));
+            slot = end;
+        }
+    }
+    
+    /**
+     * Check whether every slot in [fromSlot, toSlot) is set
+     * @param bits The bitmap
+     * @param fromSlot First slot (inclusive)
+     * @param toSlot Last slot (exclusive)
+     * @return true if the whole range is set
+     */
+    public static boolean isRangeSet(long[] bits, int fromSlot, int toSlot) {
+        if (fromSlot < 0 || toSlot > SLOTS_PER_DAY || fromSlot >= toSlot) {
+            return false;
+        }
+        for (int slot = fromSlot; slot < toSlot; ) {
+            int word = slot >>> 6;
+            int end = Math.min(toSlot, (word + 1) << 6);
+            long mask = rangeMask(slot & 63, end - (word << 6));
+            if ((bits[word] & mask) != mask) {
+                return false;
+            }
+            slot = end;
+        }
+        return true;
+    }
+    
+    /**
+     * Check whether every slot in [fromSlot, toSlot) is clear
+     * @param bits The bitmap
+     * @param fromSlot First slot (inclusive)
+     * @param toSlot Last slot (exclusive)
+     * @return true if no slot in the range is set
+     */
+    public static boolean isRangeClear(long[] bits, int fromSlot, int toSlot) {
+        for (int slot = Math.max(0, fromSlot); slot < Math.min(toSlot, SLOTS_PER_DAY); ) {
+            int word = slot >>> 6;
+            int end = Math.min(toSlot, (word + 1) << 6);
+            if ((bits[word] & rangeMask(slot & 63, end - (word << 6))) != 0) {
+                return false;
+            }
+            slot = end;
+        }
+        return true;
+    }
+    
+    /**
+     * Test a single slot
+     * @param bits The bitmap
+     * @param slot The slot index
+     * @return true if the slot is set
+     */
+    public static boolean isSet(long[] bits, int slot) {
+        return (bits[slot >>> 6] & (1L << (slot & 63))) != 0;
+    }
+    
+    /**
+     * Compute working AND NOT busy into dest
+     * @param working Slots in which the doctor works
+     * @param busy Slots already booked
+     * @param dest Output bitmap (may be reused between calls)
+     * @return dest
+     */
+    public static long[] free(long[] working, long[] busy, long[] dest) {
+        for (int i = 0; i < WORDS; i++) {
+            dest[i] = working[i] & ~busy[i];
+        }
+        return dest;
+    }
+    
+    /**
+     * Count set slots
+     * @param bits The bitmap
+     * @return Number of set slots
+     */
+    public static int cardinality(long[] bits) {
+        int count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+    
+    // Mask with bits [from, to) set, 0 <= from < to <= 64
+    private static long rangeMask(int from, int to) {
+        long upper = to == 64 ? -1L : (1L << to) - 1;
+        return upper & (-1L << from);
+    }
+}
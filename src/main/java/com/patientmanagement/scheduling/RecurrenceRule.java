@@ -0,0 +1,99 @@
+package com.patientmanagement.scheduling;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Repetition rule for an appointment series: every N weeks or every N days,
+ * ending after a number of occurrences or on an end date
+ */
+public class RecurrenceRule {
+    
+    public enum Frequency {
+        WEEKLY,
+        DAILY
+    }
+    
+    // Upper bound on the size of one series (two years of weekly visits)
+    public static final int MAX_OCCURRENCES = 104;
+    
+    private final Frequency frequency;
+    private final int interval;
+    private final int count;
+    private final LocalDate until;
+    
+    private RecurrenceRule(Frequency frequency, int interval, int count, LocalDate until) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("Interval must be positive");
+        }
+        this.frequency = frequency;
+        this.interval = interval;
+        this.count = count;
+        this.until = until;
+    }
+    
+    /**
+     * Repeat a number of times
+     * @param frequency Weekly or daily
+     * @param interval Repeat every interval weeks or days
+     * @param count Total number of occurrences, including the first one
+     * @return The rule
+     */
+    public static RecurrenceRule times(Frequency frequency, int interval, int count) {
+        if (count <= 0 || count > MAX_OCCURRENCES) {
+            throw new IllegalArgumentException("Occurrences must be between 1 and " + MAX_OCCURRENCES);
+        }
+        return new RecurrenceRule(frequency, interval, count, null);
+    }
+    
+    /**
+     * Repeat until an end date
+     * @param frequency Weekly or daily
+     * @param interval Repeat every interval weeks or days
+     * @param until Last possible date (inclusive)
+     * @return The rule
+     */
+    public static RecurrenceRule until(Frequency frequency, int interval, LocalDate until) {
+        return new RecurrenceRule(frequency, interval, 0, until);
+    }
+    
+    /**
+     * Expand the rule into dates
+     * @param first Date of the first occurrence
+     * @return Occurrence dates in order, first included
+     * @throws IllegalArgumentException If the series would exceed MAX_OCCURRENCES
+     */
+    public List<LocalDate> occurrences(LocalDate first) {
+        List<LocalDate> dates = new ArrayList<>();
+        int stepDays = frequency == Frequency.WEEKLY ? interval * 7 : interval;
+        
+        for (LocalDate date = first; ; date = date.plusDays(stepDays)) {
+            if (until != null ? date.isAfter(until) : dates.size() >= count) {
+                break;
+            }
+            if (dates.size() == MAX_OCCURRENCES) {
+                throw new IllegalArgumentException("A series cannot have more than " + MAX_OCCURRENCES + " occurrences");
+            }
+            dates.add(date);
+        }
+        return dates;
+    }
+    
+    /**
+     * Stored form of the rule, e.g. "WEEKLY;INTERVAL=1;COUNT=12" or "DAILY;INTERVAL=3;UNTIL=2026-12-31"
+     * @return The rule as text
+     */
+    @Override
+    public String toString() {
+        return frequency + ";INTERVAL=" + interval + (until != null ? ";UNTIL=" + until : ";COUNT=" + count);
+    }
+    
+    public Frequency getFrequency() {
+        return frequency;
+    }
+    
+    public int getInterval() {
+        return interval;
+    }
+}
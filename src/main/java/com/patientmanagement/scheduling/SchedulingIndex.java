@@ -0,0 +1,106 @@
+package com.patientmanagement.scheduling;
+
+import com.patientmanagement.model.Appointment;
+import com.patientmanagement.model.dao.AppointmentDAO;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * In-memory index of booked time per doctor and day, stored as DayBitmaps.
+ * It is loaded for a date window with a single query and then answers
+ * "is this range free" without going back to the database.
+ */
+public class SchedulingIndex {
+    
+    private final LocalDate from;
+    private final LocalDate to;
+    private final Map<Long, long[]> busyByDoctorDay = new HashMap<>();
+    
+    public SchedulingIndex(LocalDate from, LocalDate to) {
+        this.from = from;
+        this.to = to;
+    }
+    
+    /**
+     * Load the bookings of the given doctors between two dates (inclusive)
+     * @param appointmentDAO DAO used for the range query
+     * @param doctorIds Doctors to index
+     * @param from First day
+     * @param to Last day
+     * @param excludeAppointmentId Appointment to leave out (the one being edited), or 0
+     * @return The populated index
+     */
+    public static SchedulingIndex load(AppointmentDAO appointmentDAO, Collection<Integer> doctorIds,
+                                       LocalDate from, LocalDate to, int excludeAppointmentId) {
+        SchedulingIndex index = new SchedulingIndex(from, to);
+        for (Appointment appointment : appointmentDAO.getActiveAppointmentsBetween(doctorIds, from, to)) {
+            if (appointment.getAppointmentId() != excludeAppointmentId) {
+                index.addBooking(appointment);
+            }
+        }
+        return index;
+    }
+    
+    /**
+     * Mark a booking as taken
+     * @param doctorId The doctor
+     * @param date The day
+     * @param startTime Start time
+     * @param endTime End time
+     */
+    public void addBooking(int doctorId, LocalDate date, LocalTime startTime, LocalTime endTime) {
+        long[] bits = busyByDoctorDay.computeIfAbsent(key(doctorId, date.toEpochDay()), k -> DayBitmap.newDay());
+        DayBitmap.setRange(bits, DayBitmap.slotOf(startTime), DayBitmap.endSlotOf(endTime));
+    }
+    
+    /**
+     * Mark an appointment's time as taken, using its primitive date and time fields
+     * @param appointment The appointment
+     */
+    public void addBooking(Appointment appointment) {
+        long[] bits = busyByDoctorDay.computeIfAbsent(key(appointment.getDoctorId(), appointment.getEpochDay()),
+                                                      k -> DayBitmap.newDay());
+        DayBitmap.setRange(bits, appointment.getStartMinute() / DayBitmap.SLOT_MINUTES,
+                           DayBitmap.endSlotOfMinute(appointment.getEndMinute()));
+    }
+    
+    /**
+     * Get the booked slots of a doctor on a day
+     * @param doctorId The doctor
+     * @param epochDay The day as LocalDate.toEpochDay()
+     * @return Read-only bitmap of booked slots (empty when nothing is booked)
+     */
+    public long[] busySlots(int doctorId, long epochDay) {
+        long[] bits = busyByDoctorDay.get(key(doctorId, epochDay));
+        return bits == null ? DayBitmap.empty() : bits;
+    }
+    
+    /**
+     * Check whether a doctor has no booking overlapping the given range
+     * @param doctorId The doctor
+     * @param date The day
+     * @param startTime Start time
+     * @param endTime End time
+     * @return true if the range is free
+     */
+    public boolean isFree(int doctorId, LocalDate date, LocalTime startTime, LocalTime endTime) {
+        return DayBitmap.isRangeClear(busySlots(doctorId, date.toEpochDay()),
+                                      DayBitmap.slotOf(startTime), DayBitmap.endSlotOf(endTime));
+    }
+    
+    public LocalDate getFrom() {
+        return from;
+    }
+    
+    public LocalDate getTo() {
+        return to;
+    }
+    
+    private static long key(int doctorId, long epochDay) {
+        return ((long) doctorId << 32) | (epochDay & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,128 @@
+package com.patientmanagement.scheduling;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Searches a SchedulingIndex for free appointment slots.
+ * Each day is reduced to one bitmap (working AND NOT booked) and candidate
+ * start times on the slot grid are tested against it with word operations.
+ */
+public class SlotFinder {
+    
+    public static final int DEFAULT_STEP_MINUTES = 30;
+    
+    private final SchedulingIndex index;
+    private final int stepMinutes;
+    
+    public SlotFinder(SchedulingIndex index) {
+        this(index, DEFAULT_STEP_MINUTES);
+    }
+    
+    public SlotFinder(SchedulingIndex index, int stepMinutes) {
+        if (stepMinutes <= 0 || stepMinutes % DayBitmap.SLOT_MINUTES != 0) {
+            throw new IllegalArgumentException("Step must be a positive multiple of " + DayBitmap.SLOT_MINUTES + " minutes");
+        }
+        this.index = index;
+        this.stepMinutes = stepMinutes;
+    }
+    
+    /**
+     * Find the next free slots of a doctor
+     * @param doctorId The doctor
+     * @param availability The doctor's working time
+     * @param from First day to search
+     * @param to Last day to search (inclusive)
+     * @param durationMinutes Length of the appointment
+     * @param limit Maximum number of slots to return
+     * @param notBefore Slots starting before this moment are skipped (null for no limit)
+     * @return Up to limit free slots in chronological order
+     */
+    public List<TimeSlot> findFreeSlots(int doctorId, Availability availability, LocalDate from, LocalDate to,
+                                        int durationMinutes, int limit, LocalDateTime notBefore) {
+        List<TimeSlot> slots = new ArrayList<>();
+        int length = slotsFor(durationMinutes);
+        int step = stepMinutes / DayBitmap.SLOT_MINUTES;
+        long[] free = DayBitmap.newDay();
+        
+        for (LocalDate date = from; !date.isAfter(to) && slots.size() < limit; date = date.plusDays(1)) {
+            DayBitmap.free(availability.workingSlots(date), index.busySlots(doctorId, date.toEpochDay()), free);
+            int firstSlot = firstAllowedSlot(date, notBefore, step);
+            
+            for (int slot = firstSlot; slot + length <= DayBitmap.SLOTS_PER_DAY && slots.size() < limit; slot += step) {
+                if (DayBitmap.isRangeSet(free, slot, slot + length)) {
+                    slots.add(new TimeSlot(doctorId, date, DayBitmap.timeOf(slot), DayBitmap.timeOf(slot + length)));
+                }
+            }
+        }
+        return slots;
+    }
+    
+    /**
+     * List the free start times of a doctor on one day
+     * @param doctorId The doctor
+     * @param availability The doctor's working time
+     * @param date The day
+     * @param durationMinutes Length of the appointment
+     * @param notBefore Start times before this moment are skipped (null for no limit)
+     * @return Free start times on the step grid
+     */
+    public List<LocalTime> freeStartTimes(int doctorId, Availability availability, LocalDate date,
+                                          int durationMinutes, LocalDateTime notBefore) {
+        List<LocalTime> times = new ArrayList<>();
+        for (TimeSlot slot : findFreeSlots(doctorId, availability, date, date, durationMinutes,
+                                           Integer.MAX_VALUE, notBefore)) {
+            times.add(slot.getStartTime());
+        }
+        return times;
+    }
+    
+    /**
+     * List the end times that keep [startTime, end) free, in step increments
+     * @param doctorId The doctor
+     * @param availability The doctor's working time
+     * @param date The day
+     * @param startTime The chosen start time
+     * @return Possible end times, shortest first
+     */
+    public List<LocalTime> freeEndTimes(int doctorId, Availability availability, LocalDate date, LocalTime startTime) {
+        List<LocalTime> times = new ArrayList<>();
+        long[] free = DayBitmap.free(availability.workingSlots(date),
+                                     index.busySlots(doctorId, date.toEpochDay()), DayBitmap.newDay());
+        int start = DayBitmap.slotOf(startTime);
+        int step = stepMinutes / DayBitmap.SLOT_MINUTES;
+        
+        for (int end = start + step; end <= DayBitmap.SLOTS_PER_DAY; end += step) {
+            if (!DayBitmap.isRangeSet(free, start, end)) {
+                break;
+            }
+            times.add(DayBitmap.timeOf(end));
+        }
+        return times;
+    }
+    
+    private int slotsFor(int durationMinutes) {
+        if (durationMinutes <= 0) {
+            throw new IllegalArgumentException("Duration must be positive");
+        }
+        return (durationMinutes + DayBitmap.SLOT_MINUTES - 1) / DayBitmap.SLOT_MINUTES;
+    }
+    
+    // First grid-aligned slot that starts at or after notBefore on the given day
+    private int firstAllowedSlot(LocalDate date, LocalDateTime notBefore, int step) {
+        if (notBefore == null || date.isAfter(notBefore.toLocalDate())) {
+            return 0;
+        }
+        if (date.isBefore(notBefore.toLocalDate())) {
+            return DayBitmap.SLOTS_PER_DAY;
+        }
+        int slot = DayBitmap.endSlotOf(notBefore.toLocalTime());
+        if (notBefore.toLocalTime().equals(LocalTime.MIDNIGHT)) {
+            slot = 0;
+        }
+        return (slot + step - 1) / step * step;
+    }
+}
@@ -0,0 +1,158 @@
+package com.patientmanagement.scheduling;
+
+import com.patientmanagement.model.Doctor;
+import com.patientmanagement.model.dao.AppointmentDAO;
+import com.patientmanagement.model.dao.DoctorDAO;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Finds the earliest free slots across all doctors of a specialty.
+ * The bookings of every matching doctor are loaded into one SchedulingIndex,
+ * the per-doctor searches fan out on a fork-join pool and the sorted
+ * per-doctor results are merged into one ranked list.
+ */
+public class SpecialtySlotSearch {
+    
+    private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    
+    // Below this many doctors a task searches sequentially instead of splitting
+    private static final int SEQUENTIAL_THRESHOLD = 4;
+    
+    private final DoctorDAO doctorDAO;
+    private final AppointmentDAO appointmentDAO;
+    
+    public SpecialtySlotSearch(DoctorDAO doctorDAO, AppointmentDAO appointmentDAO) {
+        this.doctorDAO = doctorDAO;
+        this.appointmentDAO = appointmentDAO;
+    }
+    
+    /**
+     * Find the earliest free slots of any doctor of a specialty
+     * @param specialty The specialty
+     * @param from First day to search
+     * @param to Last day to search (inclusive)
+     * @param durationMinutes Length of the appointment
+     * @param limit Maximum number of slots to return
+     * @return Up to limit slots, earliest first
+     */
+    public List<TimeSlot> findEarliest(String specialty, LocalDate from, LocalDate to, int durationMinutes, int limit) {
+        List<Doctor> doctors = doctorDAO.getDoctorsBySpecialty(specialty);
+        List<Integer> doctorIds = new ArrayList<>();
+        for (Doctor doctor : doctors) {
+            doctorIds.add(doctor.getDoctorId());
+        }
+        
+        SchedulingIndex index = SchedulingIndex.load(appointmentDAO, doctorIds, from, to, 0);
+        return search(doctors, index, from, to, durationMinutes, limit, LocalDateTime.now());
+    }
+    
+    /**
+     * Search an already loaded index in parallel
+     * @param doctors Doctors to search
+     * @param index Bookings of those doctors
+     * @param from First day to search
+     * @param to Last day to search (inclusive)
+     * @param durationMinutes Length of the appointment
+     * @param limit Maximum number of slots to return
+     * @param notBefore Slots starting before this moment are skipped (null for no limit)
+     * @return Up to limit slots, earliest first
+     */
+    public static List<TimeSlot> search(List<Doctor> doctors, SchedulingIndex index, LocalDate from, LocalDate to,
+                                        int durationMinutes, int limit, LocalDateTime notBefore) {
+        if (doctors.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+        return POOL.invoke(new SearchTask(doctors, 0, doctors.size(), new SlotFinder(index),
+                                          from, to, durationMinutes, limit, notBefore));
+    }
+    
+    /**
+     * Search sequentially on the calling thread (used as a baseline by the benchmark)
+     * @param doctors Doctors to search
+     * @param index Bookings of those doctors
+     * @param from First day to search
+     * @param to Last day to search (inclusive)
+     * @param durationMinutes Length of the appointment
+     * @param limit Maximum number of slots to return
+     * @param notBefore Slots starting before this moment are skipped (null for no limit)
+     * @return Up to limit slots, earliest first
+     */
+    public static List<TimeSlot> searchSequential(List<Doctor> doctors, SchedulingIndex index, LocalDate from,
+                                                  LocalDate to, int durationMinutes, int limit, LocalDateTime notBefore) {
+        return new SearchTask(doctors, 0, doctors.size(), new SlotFinder(index),
+                              from, to, durationMinutes, limit, notBefore).searchRange();
+    }
+    
+    // Merge two sorted lists, keeping at most limit entries
+    private static List<TimeSlot> merge(List<TimeSlot> left, List<TimeSlot> right, int limit) {
+        List<TimeSlot> merged = new ArrayList<>(Math.min(limit, left.size() + right.size()));
+        int i = 0;
+        int j = 0;
+        while (merged.size() < limit && (i < left.size() || j < right.size())) {
+            if (j >= right.size() || (i < left.size() && left.get(i).compareTo(right.get(j)) <= 0)) {
+                merged.add(left.get(i++));
+            } else {
+                merged.add(right.get(j++));
+            }
+        }
+        return merged;
+    }
+    
+    private static class SearchTask extends RecursiveTask<List<TimeSlot>> {
+        private static final long serialVersionUID = 1L;
+        
+        private final List<Doctor> doctors;
+        private final int start;
+        private final int end;
+        private final SlotFinder finder;
+        private final LocalDate from;
+        private final LocalDate to;
+        private final int durationMinutes;
+        private final int limit;
+        private final LocalDateTime notBefore;
+        
+        SearchTask(List<Doctor> doctors, int start, int end, SlotFinder finder, LocalDate from, LocalDate to,
+                   int durationMinutes, int limit, LocalDateTime notBefore) {
+            this.doctors = doctors;
+            this.start = start;
+            this.end = end;
+            this.finder = finder;
+            this.from = from;
+            this.to = to;
+            this.durationMinutes = durationMinutes;
+            this.limit = limit;
+            this.notBefore = notBefore;
+        }
+        
+        @Override
+        protected List<TimeSlot> compute() {
+            if (end - start <= SEQUENTIAL_THRESHOLD) {
+                return searchRange();
+            }
+            int middle = (start + end) >>> 1;
+            SearchTask left = new SearchTask(doctors, start, middle, finder, from, to, durationMinutes, limit, notBefore);
+            SearchTask right = new SearchTask(doctors, middle, end, finder, from, to, durationMinutes, limit, notBefore);
+            left.fork();
+            List<TimeSlot> rightResult = right.compute();
+            return merge(left.join(), rightResult, limit);
+        }
+        
+        List<TimeSlot> searchRange() {
+            List<TimeSlot> result = new ArrayList<>();
+            for (int i = start; i < end; i++) {
+                Doctor doctor = doctors.get(i);
+                // Each doctor's own earliest slots are enough: the merged top-N cannot need more
+                List<TimeSlot> slots = finder.findFreeSlots(doctor.getDoctorId(), AvailabilityCache.forDoctor(doctor),
+                                                            from, to, durationMinutes, limit, notBefore);
+                result = merge(result, slots, limit);
+            }
+            return result;
+        }
+    }
+}
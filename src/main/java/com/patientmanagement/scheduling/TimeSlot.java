@@ -0,0 +1,61 @@
+package com.patientmanagement.scheduling;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * A free period in a doctor's calendar
+ */
+public class TimeSlot implements Comparable<TimeSlot> {
+    private final int doctorId;
+    private final LocalDate date;
+    private final LocalTime startTime;
+    private final LocalTime endTime;
+    
+    public TimeSlot(int doctorId, LocalDate date, LocalTime startTime, LocalTime endTime) {
+        this.doctorId = doctorId;
+        this.date = date;
+        this.startTime = startTime;
+        this.endTime = endTime;
+    }
+    
+    // Getters
+    public int getDoctorId() {
+        return doctorId;
+    }
+    
+    public LocalDate getDate() {
+        return date;
+    }
+    
+    public LocalTime getStartTime() {
+        return startTime;
+    }
+    
+    public LocalTime getEndTime() {
+        return endTime;
+    }
+    
+    // Earliest slot first, then by doctor for a stable order
+    @Override
+    public int compareTo(TimeSlot other) {
+        int result = date.compareTo(other.date);
+        if (result == 0) {
+            result = startTime.compareTo(other.startTime);
+        }
+        if (result == 0) {
+            result = Integer.compare(doctorId, other.doctorId);
+        }
+        return result;
+    }
+    
+    @Override
+    public String toString() {
+        return "TimeSlot{" +
+                "doctorId=" + doctorId +
+                ", date=" + date +
+                ", startTime=" + startTime +
+                ", endTime=" + endTime +
+                '}';
+    }
+}
@@ -1,24 +1,201 @@
 package com.patientmanagement.util;
 
+import com.patientmanagement.logging.AppLog;
+
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
 
 /**
  * Utility class for database operations
  */
 public class DatabaseUtil {
     
-    private static final String DB_URL = "jdbc:sqlite:patient_management.db";
+    private static final String DB_URL = System.getProperty("patientmanagement.db.url",
+                                                             "jdbc:sqlite:patient_management.db");
+    
+    // Archive tier for finished appointments and their medical records (see ArchiveService),
+    // next to the main database file unless configured
+    private static final String ARCHIVE_FILE = System.getProperty("patientmanagement.archive.file",
+                                                                   defaultArchiveFile(DB_URL));
+    
+    // Connections handed out and not yet closed, and the thread holding them off for a backup or
+    // restore (see quiesce) with how often it has quiesced without resuming
+    private static final Object GATE = new Object();
+    private static int openConnections;
+    private static Thread quiescedBy;
+    private static int quiesceDepth;
+    
+    // When a connection was last opened or closed, for idle detection (see getIdleMillis)
+    private static long lastActivityNanos = System.nanoTime();
     
     /**
-     * Get a connection to the database
+     * Get a connection to the database. Waits while another thread has the database quiesced
+     * for a backup or restore
      * @return Database connection
      * @throws SQLException If a database error occurs
      */
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(DB_URL);
+        synchronized (GATE) {
+            while (quiescedBy != null && quiescedBy != Thread.currentThread()) {
+                try {
+                    GATE.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Interrupted while waiting for a database restore", e);
+                }
+            }
+            openConnections++;
+            lastActivityNanos = System.nanoTime();
+        }
+        try {
+            return new TrackedConnection(DriverManager.getConnection(DB_URL));
+        } catch (SQLException | RuntimeException e) {
+            connectionClosed();
+            throw e;
+        }
+    }
+    
+    static void connectionClosed() {
+        synchronized (GATE) {
+            openConnections--;
+            lastActivityNanos = System.nanoTime();
+            GATE.notifyAll();
+        }
+    }
+    
+    /**
+     * Stop handing out connections and wait until all open ones are closed, so the database file
+     * can be copied or replaced. The calling thread owns the gate until it calls resume(): other
+     * threads' getConnection and quiesce calls wait, so a backup and a restore never overlap.
+     * Calls by the owner nest and must each be matched by a resume()
+     * @param timeoutMillis Longest time to wait, first for another owner to resume, then for open
+     *                      connections to close
+     * @return true if the caller owns the gate and no connections are open; false otherwise (the
+     *         gate is then left as it was)
+     */
+    public static boolean quiesce(long timeoutMillis) {
+        long deadline = System.nanoTime() + timeoutMillis * 1_000_000;
+        Thread current = Thread.currentThread();
+        synchronized (GATE) {
+            if (quiescedBy == current) {
+                quiesceDepth++;
+                return true;
+            }
+            try {
+                long remaining = timeoutMillis;
+                while (quiescedBy != null && remaining > 0) {
+                    GATE.wait(remaining);
+                    remaining = (deadline - System.nanoTime()) / 1_000_000;
+                }
+                if (quiescedBy != null) {
+                    return false;
+                }
+                quiescedBy = current;
+                quiesceDepth = 1;
+                while (openConnections > 0 && remaining > 0) {
+                    GATE.wait(remaining);
+                    remaining = (deadline - System.nanoTime()) / 1_000_000;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (quiescedBy == current && openConnections > 0) {
+                quiescedBy = null;
+                quiesceDepth = 0;
+                GATE.notifyAll();
+            }
+            return quiescedBy == current;
+        }
+    }
+    
+    /**
+     * Hand out connections again after quiesce(), once every quiesce() of the calling thread has
+     * been matched
+     * @throws IllegalStateException If the calling thread has not quiesced the database
+     */
+    public static void resume() {
+        synchronized (GATE) {
+            if (quiescedBy != Thread.currentThread()) {
+                throw new IllegalStateException("The database was not quiesced by this thread");
+            }
+            if (--quiesceDepth == 0) {
+                quiescedBy = null;
+                GATE.notifyAll();
+            }
+        }
+    }
+    
+    public static int getOpenConnections() {
+        synchronized (GATE) {
+            return openConnections;
+        }
+    }
+    
+    /**
+     * Get how long the database has gone unused
+     * @return Milliseconds since the last connection was closed, or 0 while one is open
+     */
+    public static long getIdleMillis() {
+        synchronized (GATE) {
+            return openConnections > 0 ? 0 : (System.nanoTime() - lastActivityNanos) / 1_000_000;
+        }
+    }
+    
+    /**
+     * Get the statements run so far on a connection from getConnection, in order
+     * @param conn Database connection
+     * @return SQL, parameter types and timings of each statement; empty for other connections
+     */
+    public static List<StatementTrace> getStatementTraces(Connection conn) {
+        return conn instanceof TrackedConnection ? ((TrackedConnection) conn).getTraces()
+                                                 : Collections.<StatementTrace>emptyList();
+    }
+    
+    /**
+     * Attach the archive database to a connection as schema "archive", creating the file if it
+     * does not exist yet. Must be called outside a transaction
+     * @param conn Database connection
+     * @throws SQLException If a database error occurs
+     */
+    public static void attachArchive(Connection conn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("ATTACH DATABASE ? AS archive")) {
+            pstmt.setString(1, ARCHIVE_FILE);
+            pstmt.execute();
+        }
+    }
+    
+    /**
+     * Get the path of the archive database file
+     * @return File path as passed to ATTACH
+     */
+    public static String getArchiveFile() {
+        return ARCHIVE_FILE;
+    }
+    
+    /**
+     * Get the path of the main database file
+     * @return File path from the connection URL
+     */
+    public static String getDatabaseFile() {
+        return databaseFile(DB_URL);
+    }
+    
+    private static String databaseFile(String url) {
+        return url.startsWith("jdbc:sqlite:") ? url.substring("jdbc:sqlite:".length()) : url;
+    }
+    
+    private static String defaultArchiveFile(String url) {
+        String file = databaseFile(url);
+        return (file.endsWith(".db") ? file.substring(0, file.length() - 3) : file) + "_archive.db";
     }
     
     /**
@@ -28,6 +205,11 @@ public class DatabaseUtil {
         try (Connection conn = getConnection();
              Statement stmt = conn.createStatement()) {
             
+            // Incremental auto-vacuum, so MaintenanceService can return freed pages to the file system
+            // a few at a time. Only a new, empty database takes the mode here; an existing one keeps
+            // its mode until MaintenanceService.enableIncrementalVacuum is run in a maintenance window
+            stmt.execute("PRAGMA auto_vacuum = INCREMENTAL");
+            
             // Create users table
             stmt.execute("CREATE TABLE IF NOT EXISTS users (" +
                          "user_id INTEGER PRIMARY KEY AUTOINCREMENT, " +
@@ -39,23 +221,23 @@ public class DatabaseUtil {
                          "email TEXT, " +
                          "phone TEXT, " +
                          "role TEXT NOT NULL, " +
-                         "created_at TIMESTAMP NOT NULL, " +
-                         "updated_at TIMESTAMP NOT NULL)");
+                         "created_at INTEGER NOT NULL, " +
+                         "updated_at INTEGER NOT NULL)");
             
             // Create patients table
             stmt.execute("CREATE TABLE IF NOT EXISTS patients (" +
                          "patient_id INTEGER PRIMARY KEY AUTOINCREMENT, " +
                          "first_name TEXT NOT NULL, " +
                          "last_name TEXT NOT NULL, " +
-                         "date_of_birth DATE NOT NULL, " +
+                         "date_of_birth INTEGER NOT NULL, " +
                          "gender TEXT NOT NULL, " +
                          "address TEXT, " +
                          "phone TEXT, " +
                          "email TEXT, " +
                          "emergency_contact TEXT, " +
                          "insurance_info TEXT, " +
-                         "created_at TIMESTAMP NOT NULL, " +
-                         "updated_at TIMESTAMP NOT NULL)");
+                         "created_at INTEGER NOT NULL, " +
+                         "updated_at INTEGER NOT NULL)");
             
             // Create doctors table
             stmt.execute("CREATE TABLE IF NOT EXISTS doctors (" +
@@ -66,8 +248,8 @@ public class DatabaseUtil {
                          "specialization TEXT NOT NULL, " +
                          "phone TEXT, " +
                          "email TEXT, " +
-                         "created_at TIMESTAMP NOT NULL, " +
-                         "updated_at TIMESTAMP NOT NULL, " +
+                         "created_at INTEGER NOT NULL, " +
+                         "updated_at INTEGER NOT NULL, " +
                          "FOREIGN KEY (user_id) REFERENCES users (user_id))");
             
             // Create appointments table
@@ -77,14 +259,14 @@ public class DatabaseUtil {
                          "patient_name TEXT NOT NULL, " +
                          "doctor_id INTEGER NOT NULL, " +
                          "doctor_name TEXT NOT NULL, " +
-                         "date DATE NOT NULL, " +
-                         "start_time TIME NOT NULL, " +
-                         "end_time TIME NOT NULL, " +
+                         "date INTEGER NOT NULL, " +
+                         "start_time INTEGER NOT NULL, " +
+                         "end_time INTEGER NOT NULL, " +
                          "reason TEXT NOT NULL, " +
                          "notes TEXT, " +
                          "status TEXT NOT NULL, " +
-                         "created_at TIMESTAMP NOT NULL, " +
-                         "updated_at TIMESTAMP NOT NULL, " +
+                         "created_at INTEGER NOT NULL, " +
+                         "updated_at INTEGER NOT NULL, " +
                          "FOREIGN KEY (patient_id) REFERENCES patients (patient_id), " +
                          "FOREIGN KEY (doctor_id) REFERENCES doctors (doctor_id))");
             
@@ -96,20 +278,650 @@ public class DatabaseUtil {
                          "doctor_id INTEGER NOT NULL, " +
                          "doctor_name TEXT NOT NULL, " +
                          "appointment_id INTEGER, " +
-                         "appointment_date DATE NOT NULL, " +
+                         "appointment_date INTEGER NOT NULL, " +
                          "diagnosis TEXT NOT NULL, " +
                          "treatment TEXT NOT NULL, " +
                          "prescription TEXT, " +
                          "notes TEXT, " +
-                         "created_at TIMESTAMP NOT NULL, " +
-                         "updated_at TIMESTAMP NOT NULL, " +
+                         "created_at INTEGER NOT NULL, " +
+                         "updated_at INTEGER NOT NULL, " +
                          "FOREIGN KEY (patient_id) REFERENCES patients (patient_id), " +
                          "FOREIGN KEY (doctor_id) REFERENCES doctors (doctor_id), " +
                          "FOREIGN KEY (appointment_id) REFERENCES appointments (appointment_id))");
             
+            // Index used by conflict checks and booking (doctor + day lookups)
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_appointments_doctor_date " +
+                         "ON appointments (doctor_id, date, start_time)");
+            
+            // Index used by calendar range queries (all doctors, date window)
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_appointments_date " +
+                         "ON appointments (date, start_time)");
+            
+            // Bring existing databases up to the current schema
+            migrateSchema(conn);
+            
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("database.initializeFailed", e, "file", getDatabaseFile());
+        }
+    }
+    
+    // Trigger bodies that keep doctor_day_occupancy in step with the appointments table.
+    // Times are minutes of the day, so end_time - start_time is the length in minutes
+    private static final String OCCUPANCY_ADD_NEW =
+        "INSERT INTO doctor_day_occupancy (doctor_id, date, booked_minutes, appointment_count) " +
+        "VALUES (NEW.doctor_id, NEW.date, NEW.end_time - NEW.start_time, 1) " +
+        "ON CONFLICT (date, doctor_id) DO UPDATE SET " +
+        "booked_minutes = booked_minutes + excluded.booked_minutes, " +
+        "appointment_count = appointment_count + 1;";
+    
+    private static final String OCCUPANCY_SUBTRACT_OLD =
+        "UPDATE doctor_day_occupancy SET " +
+        "booked_minutes = booked_minutes - (OLD.end_time - OLD.start_time), " +
+        "appointment_count = appointment_count - 1 " +
+        "WHERE doctor_id = OLD.doctor_id AND date = OLD.date; " +
+        "DELETE FROM doctor_day_occupancy " +
+        "WHERE doctor_id = OLD.doctor_id AND date = OLD.date AND appointment_count <= 0;";
+    
+    private static final String[] OCCUPANCY_TRIGGERS = {
+        "CREATE TRIGGER IF NOT EXISTS trg_occupancy_insert AFTER INSERT ON appointments " +
+        "WHEN LOWER(NEW.status) != 'cancelled' BEGIN " +
+        OCCUPANCY_ADD_NEW + " END",
+        "CREATE TRIGGER IF NOT EXISTS trg_occupancy_delete AFTER DELETE ON appointments " +
+        "WHEN LOWER(OLD.status) != 'cancelled' BEGIN " +
+        OCCUPANCY_SUBTRACT_OLD + " END",
+        "CREATE TRIGGER IF NOT EXISTS trg_occupancy_update_old " +
+        "AFTER UPDATE OF doctor_id, date, start_time, end_time, status ON appointments " +
+        "WHEN LOWER(OLD.status) != 'cancelled' BEGIN " +
+        OCCUPANCY_SUBTRACT_OLD + " END",
+        "CREATE TRIGGER IF NOT EXISTS trg_occupancy_update_new " +
+        "AFTER UPDATE OF doctor_id, date, start_time, end_time, status ON appointments " +
+        "WHEN LOWER(NEW.status) != 'cancelled' BEGIN " +
+        OCCUPANCY_ADD_NEW + " END"
+    };
+    
+    /**
+     * Statement that recomputes doctor_day_occupancy from the appointments table.
+     * Expects the table to be empty
+     */
+    public static final String OCCUPANCY_BACKFILL = occupancyBackfill("appointments");
+    
+    /**
+     * Statement that recomputes doctor_day_occupancy from some appointment rows
+     * @param appointments The appointments table, or a subquery over both tiers (ArchiveService.allAppointments)
+     * @return INSERT statement; expects the table to be empty
+     */
+    public static String occupancyBackfill(String appointments) {
+        return "INSERT INTO doctor_day_occupancy (doctor_id, date, booked_minutes, appointment_count) " +
+               "SELECT doctor_id, date, SUM(end_time - start_time), COUNT(*) " +
+               "FROM " + appointments + " WHERE " + NOT_CANCELLED + " GROUP BY doctor_id, date";
+    }
+    
+    /**
+     * Queries that compute the consultation statistics rollups from the base tables,
+     * used for the initial backfill, StatisticsDAO.rebuild and the consistency check
+     */
+    public static final String STATS_DAILY_QUERY = statsDailyQuery("appointments");
+    
+    public static final String STATS_REASON_QUERY = statsReasonQuery("appointments");
+    
+    public static final String STATS_NEW_PATIENTS_QUERY =
+        "SELECT " + weekStart("p") + ", COUNT(*) FROM patients p GROUP BY 1";
+    
+    /**
+     * Query for stats_consultations_daily over some appointment rows
+     * @param appointments The appointments table, or a subquery over both tiers (ArchiveService.allAppointments)
+     * @return SELECT statement
+     */
+    public static String statsDailyQuery(String appointments) {
+        return "SELECT date, doctor_id, LOWER(status), COUNT(*) FROM " + appointments + " " +
+               "GROUP BY date, doctor_id, LOWER(status)";
+    }
+    
+    /**
+     * Query for stats_consultations_by_reason over some appointment rows
+     * @param appointments The appointments table, or a subquery over both tiers (ArchiveService.allAppointments)
+     * @return SELECT statement
+     */
+    public static String statsReasonQuery(String appointments) {
+        return "SELECT " + reasonCategory("a") + ", LOWER(a.status), COUNT(*) FROM " + appointments + " a " +
+               "GROUP BY 1, 2";
+    }
+    
+    // Rollup key of an appointment's reason
+    private static String reasonCategory(String row) {
+        return "COALESCE(LOWER(TRIM(" + row + ".reason)), '')";
+    }
+    
+    // Rollup key of a patient's registration week, as the epoch day of its Monday.
+    // created_at holds epoch seconds; julianday 2440587.5 is 1970-01-01 and epoch day 0 was a Thursday
+    private static String weekStart(String row) {
+        String epochDay = "CAST(julianday(" + row + ".created_at, 'unixepoch', 'localtime') - 2440587.5 AS INTEGER)";
+        return "(" + epochDay + " - (" + epochDay + " + 3) % 7)";
+    }
+    
+    // Trigger body that adds (delta 1) or removes (delta -1) one appointment row from the consultation rollups
+    private static String consultationStats(String row, int delta) {
+        String reason = reasonCategory(row);
+        return "INSERT INTO stats_consultations_daily (date, doctor_id, status, consultation_count) " +
+               "VALUES (" + row + ".date, " + row + ".doctor_id, LOWER(" + row + ".status), " + delta + ") " +
+               "ON CONFLICT (date, doctor_id, status) DO UPDATE SET " +
+               "consultation_count = consultation_count + excluded.consultation_count; " +
+               "INSERT INTO stats_consultations_by_reason (reason_category, status, consultation_count) " +
+               "VALUES (" + reason + ", LOWER(" + row + ".status), " + delta + ") " +
+               "ON CONFLICT (reason_category, status) DO UPDATE SET " +
+               "consultation_count = consultation_count + excluded.consultation_count; " +
+               (delta > 0 ? "" :
+               "DELETE FROM stats_consultations_daily WHERE date = " + row + ".date AND doctor_id = " + row + ".doctor_id " +
+               "AND status = LOWER(" + row + ".status) AND consultation_count <= 0; " +
+               "DELETE FROM stats_consultations_by_reason WHERE reason_category = " + reason + " " +
+               "AND status = LOWER(" + row + ".status) AND consultation_count <= 0;");
+    }
+    
+    private static final String[] STATS_TRIGGERS = {
+        "CREATE TRIGGER IF NOT EXISTS trg_stats_appointment_insert AFTER INSERT ON appointments BEGIN " +
+        consultationStats("NEW", 1) + " END",
+        "CREATE TRIGGER IF NOT EXISTS trg_stats_appointment_delete AFTER DELETE ON appointments BEGIN " +
+        consultationStats("OLD", -1) + " END",
+        "CREATE TRIGGER IF NOT EXISTS trg_stats_appointment_update " +
+        "AFTER UPDATE OF date, doctor_id, status, reason ON appointments BEGIN " +
+        consultationStats("OLD", -1) + " " + consultationStats("NEW", 1) + " END",
+        "CREATE TRIGGER IF NOT EXISTS trg_stats_patient_insert AFTER INSERT ON patients BEGIN " +
+        "INSERT INTO stats_new_patients_weekly (week_start, patient_count) " +
+        "VALUES (" + weekStart("NEW") + ", 1) " +
+        "ON CONFLICT (week_start) DO UPDATE SET patient_count = patient_count + 1; END",
+        "CREATE TRIGGER IF NOT EXISTS trg_stats_patient_delete AFTER DELETE ON patients BEGIN " +
+        "UPDATE stats_new_patients_weekly SET patient_count = patient_count - 1 " +
+        "WHERE week_start = " + weekStart("OLD") + "; " +
+        "DELETE FROM stats_new_patients_weekly WHERE week_start = " + weekStart("OLD") + " " +
+        "AND patient_count <= 0; END"
+    };
+    
+    /**
+     * Expression for the name stored in patient_name columns, looked up from the patients table
+     * @param patientId SQL expression for the patient ID (a column, NEW.patient_id or a parameter)
+     * @return Subquery that is NULL if the patient does not exist
+     */
+    public static String patientName(String patientId) {
+        return "(SELECT first_name || ' ' || last_name FROM patients WHERE patients.patient_id = " + patientId + ")";
+    }
+    
+    /**
+     * Expression for the name stored in doctor_name columns, which is the name of the doctor's user
+     * @param doctorId SQL expression for the doctor ID (a column, NEW.doctor_id or a parameter)
+     * @return Subquery that is NULL if the doctor or its user does not exist
+     */
+    public static String doctorName(String doctorId) {
+        return "(SELECT u.first_name || ' ' || u.last_name FROM doctors d JOIN users u ON d.user_id = u.user_id " +
+               "WHERE d.doctor_id = " + doctorId + ")";
+    }
+    
+    // Triggers that keep the patient_name and doctor_name columns of appointments and medical_records
+    // current when a patient, a doctor's user or an appointment's patient or doctor changes, so reads
+    // need no joins. The DAOs fill the columns on insert
+    private static final String[] NAME_TRIGGERS = {
+        "CREATE TRIGGER IF NOT EXISTS trg_names_patient_update AFTER UPDATE OF first_name, last_name ON patients " +
+        "WHEN OLD.first_name IS NOT NEW.first_name OR OLD.last_name IS NOT NEW.last_name BEGIN " +
+        "UPDATE appointments SET patient_name = NEW.first_name || ' ' || NEW.last_name " +
+        "WHERE patient_id = NEW.patient_id; " +
+        "UPDATE medical_records SET patient_name = NEW.first_name || ' ' || NEW.last_name " +
+        "WHERE patient_id = NEW.patient_id; END",
+        "CREATE TRIGGER IF NOT EXISTS trg_names_user_update AFTER UPDATE OF first_name, last_name ON users " +
+        "WHEN OLD.first_name IS NOT NEW.first_name OR OLD.last_name IS NOT NEW.last_name BEGIN " +
+        "UPDATE appointments SET doctor_name = NEW.first_name || ' ' || NEW.last_name " +
+        "WHERE doctor_id IN (SELECT doctor_id FROM doctors WHERE user_id = NEW.user_id); " +
+        "UPDATE medical_records SET doctor_name = NEW.first_name || ' ' || NEW.last_name " +
+        "WHERE doctor_id IN (SELECT doctor_id FROM doctors WHERE user_id = NEW.user_id); END",
+        "CREATE TRIGGER IF NOT EXISTS trg_names_doctor_update AFTER UPDATE OF user_id ON doctors " +
+        "WHEN OLD.user_id IS NOT NEW.user_id BEGIN " +
+        "UPDATE appointments SET doctor_name = COALESCE(" + doctorName("NEW.doctor_id") + ", doctor_name) " +
+        "WHERE doctor_id = NEW.doctor_id; " +
+        "UPDATE medical_records SET doctor_name = COALESCE(" + doctorName("NEW.doctor_id") + ", doctor_name) " +
+        "WHERE doctor_id = NEW.doctor_id; END",
+        "CREATE TRIGGER IF NOT EXISTS trg_names_appointment_update AFTER UPDATE OF patient_id, doctor_id ON appointments " +
+        "WHEN OLD.patient_id IS NOT NEW.patient_id OR OLD.doctor_id IS NOT NEW.doctor_id BEGIN " +
+        "UPDATE appointments SET " +
+        "patient_name = COALESCE(" + patientName("NEW.patient_id") + ", patient_name), " +
+        "doctor_name = COALESCE(" + doctorName("NEW.doctor_id") + ", doctor_name) " +
+        "WHERE appointment_id = NEW.appointment_id; END"
+    };
+    
+    /**
+     * Delete triggers that subtract appointments from the rollups, as {name, CREATE statement}.
+     * The archive job drops them while it moves rows, because archived appointments keep counting
+     */
+    public static final String[][] ROLLUP_DELETE_TRIGGERS = {
+        {"trg_occupancy_delete", OCCUPANCY_TRIGGERS[1]},
+        {"trg_stats_appointment_delete", STATS_TRIGGERS[1]}
+    };
+    
+    /**
+     * Predicate for appointments, and rollup rows, that are not cancelled. Status codes are stored
+     * in lower case (migration 4), so the column is compared as it is and an index on it can be used
+     */
+    public static final String NOT_CANCELLED = "status <> 'cancelled'";
+    
+    /**
+     * Columns copied to the archive tier, in the order of the archive tables
+     */
+    public static final String ARCHIVED_APPOINTMENT_COLUMNS =
+        "appointment_id, patient_id, patient_name, doctor_id, doctor_name, date, start_time, end_time, " +
+        "reason, notes, status, created_at, updated_at, series_id";
+    
+    public static final String ARCHIVED_RECORD_COLUMNS =
+        "record_id, patient_id, patient_name, doctor_id, doctor_name, appointment_id, appointment_date, " +
+        "diagnosis, treatment, prescription, notes, created_at, updated_at";
+    
+    /**
+     * Tables and indexes of the archive tier, created in the attached "archive" schema.
+     * Same columns as the hot tables; keys are kept, so rows can be copied again after a failed move
+     */
+    public static final String[] ARCHIVE_SCHEMA = {
+        "CREATE TABLE IF NOT EXISTS archive.appointments (" +
+        "appointment_id INTEGER PRIMARY KEY, " +
+        "patient_id INTEGER NOT NULL, " +
+        "patient_name TEXT NOT NULL, " +
+        "doctor_id INTEGER NOT NULL, " +
+        "doctor_name TEXT NOT NULL, " +
+        "date INTEGER NOT NULL, " +
+        "start_time INTEGER NOT NULL, " +
+        "end_time INTEGER NOT NULL, " +
+        "reason TEXT NOT NULL, " +
+        "notes TEXT, " +
+        "status TEXT NOT NULL, " +
+        "created_at INTEGER NOT NULL, " +
+        "updated_at INTEGER NOT NULL, " +
+        "series_id INTEGER)",
+        "CREATE TABLE IF NOT EXISTS archive.medical_records (" +
+        "record_id INTEGER PRIMARY KEY, " +
+        "patient_id INTEGER NOT NULL, " +
+        "patient_name TEXT NOT NULL, " +
+        "doctor_id INTEGER NOT NULL, " +
+        "doctor_name TEXT NOT NULL, " +
+        "appointment_id INTEGER, " +
+        "appointment_date INTEGER NOT NULL, " +
+        "diagnosis TEXT NOT NULL, " +
+        "treatment TEXT NOT NULL, " +
+        "prescription TEXT, " +
+        "notes TEXT, " +
+        "created_at INTEGER NOT NULL, " +
+        "updated_at INTEGER NOT NULL)",
+        "CREATE INDEX IF NOT EXISTS archive.idx_appointments_date ON appointments (date, start_time)",
+        "CREATE INDEX IF NOT EXISTS archive.idx_appointments_doctor_date ON appointments (doctor_id, date, start_time)",
+        "CREATE INDEX IF NOT EXISTS archive.idx_appointments_patient ON appointments (patient_id)",
+        "CREATE INDEX IF NOT EXISTS archive.idx_medical_records_patient ON medical_records (patient_id)",
+        "CREATE INDEX IF NOT EXISTS archive.idx_medical_records_appointment ON medical_records (appointment_id)"
+    };
+    
+    /**
+     * Tables whose changes are written to change_log for point-in-time replay after a restore,
+     * as {table, key column, derived column...}. The rollup tables are left out: replayed changes
+     * fire their triggers. Derived columns are the denormalised names kept by NAME_TRIGGERS; an
+     * update that only changes them is not logged, since replaying its cause sets them again
+     */
+    private static final String[][] LOGGED_TABLES = {
+        {"users", "user_id"},
+        {"patients", "patient_id"},
+        {"doctors", "doctor_id"},
+        {"appointment_series", "series_id"},
+        {"appointments", "appointment_id", "patient_name", "doctor_name"},
+        {"medical_records", "record_id", "patient_name", "doctor_name"},
+        {"archive_state", "id"}
+    };
+    
+    /**
+     * Build the triggers that log every insert, update and delete on the logged tables to change_log
+     * as a replayable statement, with the values inlined by quote(). An update is logged only if it
+     * changed a column other than the derived ones, and only with the columns it changed. The column
+     * lists are read from the schema, so a migration that adds columns to a logged table must
+     * recreate the triggers
+     * @param conn Connection to the database the triggers are for
+     * @return {name, CREATE statement} per trigger
+     * @throws SQLException If the schema cannot be read
+     */
+    public static String[][] changeLogTriggers(Connection conn) throws SQLException {
+        List<String[]> triggers = new ArrayList<>();
+        for (String[] table : LOGGED_TABLES) {
+            List<String> columns = columnsOf(conn, table[0]);
+            List<String> derived = Arrays.asList(table).subList(2, table.length);
+            StringBuilder values = new StringBuilder();
+            StringBuilder assignments = new StringBuilder();
+            StringBuilder changed = new StringBuilder();
+            for (String column : columns) {
+                values.append(values.length() == 0 ? "" : " || ', ' || ")
+                      .append("quote(NEW.").append(column).append(')');
+                if (derived.contains(column)) {
+                    continue;
+                }
+                // Each changed column adds ", column = value"; substr() drops the first separator
+                String differs = "OLD." + column + " IS NOT NEW." + column;
+                assignments.append(assignments.length() == 0 ? "" : " || ")
+                           .append("CASE WHEN ").append(differs).append(" THEN ', ").append(column)
+                           .append(" = ' || quote(NEW.").append(column).append(") ELSE '' END");
+                changed.append(changed.length() == 0 ? "" : " OR ").append(differs);
+            }
+            String key = " WHERE " + table[1] + " = ' || quote(OLD." + table[1] + ")";
+            
+            triggers.add(changeLogTrigger(table[0], "insert", null,
+                "'INSERT INTO " + table[0] + " (" + String.join(", ", columns) + ") VALUES (' || " +
+                values + " || ')'"));
+            triggers.add(changeLogTrigger(table[0], "update", changed.toString(),
+                "'UPDATE " + table[0] + " SET ' || substr(" + assignments + ", 3) || '" + key));
+            triggers.add(changeLogTrigger(table[0], "delete", null, "'DELETE FROM " + table[0] + key));
+        }
+        return triggers.toArray(new String[0][]);
+    }
+    
+    private static List<String> columnsOf(Connection conn, String table) throws SQLException {
+        List<String> columns = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA main.table_info(" + table + ")")) {
+            while (rs.next()) {
+                columns.add(rs.getString("name"));
+            }
+        }
+        return columns;
+    }
+    
+    private static String[] changeLogTrigger(String table, String event, String when, String statement) {
+        String name = "trg_log_" + table + "_" + event;
+        return new String[] {name,
+            "CREATE TRIGGER IF NOT EXISTS " + name + " AFTER " + event.toUpperCase(Locale.ROOT) + " ON " + table +
+            (when == null ? "" : " WHEN " + when) + " BEGIN " +
+            "INSERT INTO change_log (changed_at, statement) " +
+            "VALUES (CAST(strftime('%s', 'now') AS INTEGER), " + statement + "); END"};
+    }
+    
+    private static final String[] ROLLUP_TRIGGER_NAMES = {
+        "trg_occupancy_insert", "trg_occupancy_delete", "trg_occupancy_update_old", "trg_occupancy_update_new",
+        "trg_stats_appointment_insert", "trg_stats_appointment_delete", "trg_stats_appointment_update",
+        "trg_stats_patient_insert", "trg_stats_patient_delete"
+    };
+    
+    // Temporal columns rewritten by migration 5, as {table, key column, column:kind...}
+    private static final String[][] TEMPORAL_COLUMNS = {
+        {"users", "user_id", "created_at:timestamp", "updated_at:timestamp"},
+        {"patients", "patient_id", "date_of_birth:date", "created_at:timestamp", "updated_at:timestamp"},
+        {"doctors", "doctor_id", "created_at:timestamp", "updated_at:timestamp"},
+        {"appointment_series", "series_id", "created_at:timestamp"},
+        {"appointments", "appointment_id", "date:date", "start_time:time", "end_time:time",
+         "created_at:timestamp", "updated_at:timestamp"},
+        {"medical_records", "record_id", "appointment_date:date", "created_at:timestamp", "updated_at:timestamp"}
+    };
+    
+    private static final int MIGRATION_BATCH_SIZE = 500;
+    
+    /**
+     * Apply the schema changes made after the initial tables, tracked with PRAGMA user_version
+     * @param conn Database connection
+     * @throws SQLException If a migration fails (it is rolled back)
+     */
+    private static void migrateSchema(Connection conn) throws SQLException {
+        int version;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            version = rs.next() ? rs.getInt(1) : 0;
+        }
+        
+        if (version < 1) {
+            // Recurring appointment series
+            applyMigration(conn, 1,
+                "CREATE TABLE IF NOT EXISTS appointment_series (" +
+                "series_id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "recurrence_rule TEXT NOT NULL, " +
+                "created_at INTEGER NOT NULL)",
+                "ALTER TABLE appointments ADD COLUMN series_id INTEGER REFERENCES appointment_series (series_id)");
+        }
+        
+        if (version < 2) {
+            // Booked minutes per doctor per day, kept current by triggers on appointments
+            applyMigration(conn, 2, concat(new String[] {
+                "CREATE TABLE IF NOT EXISTS doctor_day_occupancy (" +
+                "doctor_id INTEGER NOT NULL, " +
+                "date INTEGER NOT NULL, " +
+                "booked_minutes INTEGER NOT NULL, " +
+                "appointment_count INTEGER NOT NULL, " +
+                "PRIMARY KEY (date, doctor_id)) WITHOUT ROWID"},
+                OCCUPANCY_TRIGGERS,
+                new String[] {OCCUPANCY_BACKFILL}));
+        }
+        
+        if (version < 3) {
+            // Consultation statistics rollups for the dashboard, kept current by triggers
+            applyMigration(conn, 3, concat(new String[] {
+                "CREATE TABLE IF NOT EXISTS stats_consultations_daily (" +
+                "date INTEGER NOT NULL, " +
+                "doctor_id INTEGER NOT NULL, " +
+                "status TEXT NOT NULL, " +
+                "consultation_count INTEGER NOT NULL, " +
+                "PRIMARY KEY (date, doctor_id, status)) WITHOUT ROWID",
+                "CREATE TABLE IF NOT EXISTS stats_consultations_by_reason (" +
+                "reason_category TEXT NOT NULL, " +
+                "status TEXT NOT NULL, " +
+                "consultation_count INTEGER NOT NULL, " +
+                "PRIMARY KEY (reason_category, status)) WITHOUT ROWID",
+                "CREATE TABLE IF NOT EXISTS stats_new_patients_weekly (" +
+                "week_start INTEGER PRIMARY KEY, " +
+                "patient_count INTEGER NOT NULL)"},
+                STATS_TRIGGERS,
+                new String[] {
+                "INSERT INTO stats_consultations_daily " + STATS_DAILY_QUERY,
+                "INSERT INTO stats_consultations_by_reason " + STATS_REASON_QUERY,
+                "INSERT INTO stats_new_patients_weekly " + STATS_NEW_PATIENTS_QUERY}));
+        }
+        
+        if (version < 4) {
+            // Statuses are stored as lower-case codes (AppointmentStatus.getCode)
+            applyMigration(conn, 4,
+                "UPDATE appointments SET status = LOWER(TRIM(status)) WHERE status != LOWER(TRIM(status))");
+        }
+        
+        if (version < 5) {
+            // Dates, times and timestamps move to the SqlDateCodec encoding. The rollup triggers are
+            // dropped while rows are rewritten, then recreated and the rollups recomputed.
+            // migration_progress records converted rows, so an interrupted run resumes where it stopped
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE TABLE IF NOT EXISTS migration_progress (" +
+                             "table_name TEXT PRIMARY KEY, " +
+                             "last_key INTEGER NOT NULL)");
+                for (String trigger : ROLLUP_TRIGGER_NAMES) {
+                    stmt.execute("DROP TRIGGER IF EXISTS " + trigger);
+                }
+            }
+            for (String[] table : TEMPORAL_COLUMNS) {
+                rewriteTemporalColumns(conn, table);
+            }
+            applyMigration(conn, 5, concat(new String[] {
+                "DROP TABLE migration_progress",
+                "DELETE FROM doctor_day_occupancy",
+                OCCUPANCY_BACKFILL,
+                "DELETE FROM stats_consultations_daily",
+                "INSERT INTO stats_consultations_daily " + STATS_DAILY_QUERY,
+                "DELETE FROM stats_consultations_by_reason",
+                "INSERT INTO stats_consultations_by_reason " + STATS_REASON_QUERY,
+                "DELETE FROM stats_new_patients_weekly",
+                "INSERT INTO stats_new_patients_weekly " + STATS_NEW_PATIENTS_QUERY},
+                OCCUPANCY_TRIGGERS,
+                STATS_TRIGGERS));
+        }
+        
+        if (version < 6) {
+            // Names are read from the denormalised columns instead of joins. Backfill them, add the
+            // triggers that keep them current and index the patient and doctor IDs the triggers update by
+            applyMigration(conn, 6, concat(new String[] {
+                "CREATE INDEX IF NOT EXISTS idx_appointments_patient ON appointments (patient_id)",
+                "CREATE INDEX IF NOT EXISTS idx_medical_records_patient ON medical_records (patient_id)",
+                "CREATE INDEX IF NOT EXISTS idx_medical_records_doctor ON medical_records (doctor_id)",
+                "UPDATE appointments SET " +
+                "patient_name = COALESCE(" + patientName("appointments.patient_id") + ", patient_name), " +
+                "doctor_name = COALESCE(" + doctorName("appointments.doctor_id") + ", doctor_name)",
+                "UPDATE medical_records SET " +
+                "patient_name = COALESCE(" + patientName("medical_records.patient_id") + ", patient_name), " +
+                "doctor_name = COALESCE(" + doctorName("medical_records.doctor_id") + ", doctor_name)"},
+                NAME_TRIGGERS));
+        }
+        
+        if (version < 7) {
+            // Archive tier: the watermark is the epoch day before which finished appointments
+            // may have been moved to the archive database (see ArchiveService)
+            applyMigration(conn, 7,
+                "CREATE TABLE IF NOT EXISTS archive_state (" +
+                "id INTEGER PRIMARY KEY CHECK (id = 1), " +
+                "watermark INTEGER NOT NULL)");
+        }
+        
+        if (version < 8) {
+            // Change log for point-in-time replay after a restore (see RestoreService). AUTOINCREMENT
+            // keeps change IDs increasing after old entries are pruned. keep_rollups marks the archive
+            // job's deletes, which are replayed without the rollup delete triggers
+            List<String> statements = new ArrayList<>();
+            statements.add("CREATE TABLE IF NOT EXISTS change_log (" +
+                           "change_id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                           "changed_at INTEGER NOT NULL, " +
+                           "statement TEXT NOT NULL, " +
+                           "keep_rollups INTEGER NOT NULL DEFAULT 0)");
+            for (String[] trigger : changeLogTriggers(conn)) {
+                statements.add(trigger[1]);
+            }
+            applyMigration(conn, 8, statements.toArray(new String[0]));
+        }
+        
+        if (version < 9) {
+            // No schema change. Switching an existing database to incremental auto-vacuum rewrites the
+            // whole file, so it is not done at startup (see MaintenanceService.enableIncrementalVacuum)
+            applyMigration(conn, 9);
+        }
+        
+        if (version < 10) {
+            // Change log triggers that skip updates of the derived name columns and log only the
+            // columns an update changed
+            List<String> statements = new ArrayList<>();
+            for (String[] trigger : changeLogTriggers(conn)) {
+                statements.add("DROP TRIGGER IF EXISTS " + trigger[0]);
+                statements.add(trigger[1]);
+            }
+            applyMigration(conn, 10, statements.toArray(new String[0]));
+        }
+        
+        if (version < 11) {
+            // Licence number and availability schedule of doctors (see DoctorDAO, AvailabilitySchedule).
+            // The specialty is the existing specialization column
+            List<String> columns = columnsOf(conn, "doctors");
+            List<String> statements = new ArrayList<>();
+            for (String column : new String[] {"license_number", "availability_schedule"}) {
+                if (!columns.contains(column)) {
+                    statements.add("ALTER TABLE doctors ADD COLUMN " + column + " TEXT");
+                }
+            }
+            applyMigration(conn, 11, statements.toArray(new String[0]));
+        }
+        
+        if (version < 12) {
+            // The change log triggers of doctors were built before migration 11 added its columns
+            List<String> statements = new ArrayList<>();
+            for (String[] trigger : changeLogTriggers(conn)) {
+                statements.add("DROP TRIGGER IF EXISTS " + trigger[0]);
+                statements.add(trigger[1]);
+            }
+            applyMigration(conn, 12, statements.toArray(new String[0]));
+        }
+    }
+    
+    private static void applyMigration(Connection conn, int version, String... statements) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("BEGIN IMMEDIATE");
+            try {
+                for (String statement : statements) {
+                    stmt.execute(statement);
+                }
+                stmt.execute("PRAGMA user_version = " + version);
+                stmt.execute("COMMIT");
+            } catch (SQLException e) {
+                stmt.execute("ROLLBACK");
+                throw e;
+            }
+        }
+    }
+    
+    /**
+     * Convert one table's temporal columns to the SqlDateCodec encoding, in key order and one
+     * transaction per batch so writers are never blocked for long. Each batch records its last
+     * key in migration_progress, so a resumed run starts after it; rows written in the new
+     * encoding in the meantime are left as they are by the SqlDateCodec.legacy* conversions
+     * @param conn Database connection
+     * @param table {table, key column, column:kind...}
+     * @throws SQLException If a batch fails (it is rolled back)
+     */
+    private static void rewriteTemporalColumns(Connection conn, String[] table) throws SQLException {
+        int count = table.length - 2;
+        String[] columns = new String[count];
+        String[] kinds = new String[count];
+        StringBuilder assignments = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            String[] parts = table[i + 2].split(":");
+            columns[i] = parts[0];
+            kinds[i] = parts[1];
+            assignments.append(i == 0 ? "" : ", ").append(columns[i]).append(" = ?");
+        }
+        
+        String select = "SELECT " + table[1] + ", " + String.join(", ", columns) + " FROM " + table[0] +
+                        " WHERE " + table[1] + " > ? ORDER BY " + table[1] + " LIMIT " + MIGRATION_BATCH_SIZE;
+        String update = "UPDATE " + table[0] + " SET " + assignments + " WHERE " + table[1] + " = ?";
+        
+        try (Statement stmt = conn.createStatement();
+             PreparedStatement selectStmt = conn.prepareStatement(select);
+             PreparedStatement updateStmt = conn.prepareStatement(update);
+             PreparedStatement progressStmt = conn.prepareStatement(
+                     "INSERT OR REPLACE INTO migration_progress (table_name, last_key) VALUES (?, ?)")) {
+            
+            long lastKey = Long.MIN_VALUE;
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT last_key FROM migration_progress WHERE table_name = '" + table[0] + "'")) {
+                if (rs.next()) {
+                    lastKey = rs.getLong(1);
+                }
+            }
+            
+            boolean more = true;
+            while (more) {
+                stmt.execute("BEGIN IMMEDIATE");
+                try {
+                    int rows = 0;
+                    selectStmt.setLong(1, lastKey);
+                    try (ResultSet rs = selectStmt.executeQuery()) {
+                        while (rs.next()) {
+                            rows++;
+                            lastKey = rs.getLong(1);
+                            for (int i = 0; i < count; i++) {
+                                Object raw = rs.getObject(i + 2);
+                                updateStmt.setObject(i + 1, "date".equals(kinds[i]) ? SqlDateCodec.legacyDate(raw)
+                                        : "time".equals(kinds[i]) ? SqlDateCodec.legacyTime(raw)
+                                        : SqlDateCodec.legacyTimestamp(raw));
+                            }
+                            updateStmt.setLong(count + 1, lastKey);
+                            updateStmt.addBatch();
+                        }
+                    }
+                    updateStmt.executeBatch();
+                    progressStmt.setString(1, table[0]);
+                    progressStmt.setLong(2, lastKey);
+                    progressStmt.executeUpdate();
+                    stmt.execute("COMMIT");
+                    more = rows == MIGRATION_BATCH_SIZE;
+                } catch (SQLException | RuntimeException e) {
+                    stmt.execute("ROLLBACK");
+                    throw e instanceof SQLException ? (SQLException) e
+                            : new SQLException("Cannot convert " + table[0] + " row " + lastKey, e);
+                }
+            }
+        }
+    }
+    
+    private static String[] concat(String[]... parts) {
+        List<String> statements = new ArrayList<>();
+        for (String[] part : parts) {
+            statements.addAll(Arrays.asList(part));
         }
+        return statements.toArray(new String[0]);
     }
     
     /**
@@ -120,7 +932,7 @@ public class DatabaseUtil {
         try (Connection conn = getConnection()) {
             return conn != null;
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.warn("database.connectionFailed", e, "file", getDatabaseFile());
             return false;
         }
     }
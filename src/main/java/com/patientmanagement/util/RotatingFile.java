@@ -0,0 +1,79 @@
+package com.patientmanagement.util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Text file that lines are appended to, rolled over to file.1, file.2, ... once it reaches a
+ * size limit. Only the newest rolled-over files are kept
+ */
+public class RotatingFile {
+    
+    private final Path file;
+    private final long maxBytes;
+    private final int keep;
+    
+    /**
+     * @param file The file, created with its directory on the first append
+     * @param maxBytes Size at which the file is rolled over
+     * @param keep Number of rolled-over files to keep
+     */
+    public RotatingFile(Path file, long maxBytes, int keep) {
+        this.file = file.toAbsolutePath();
+        this.maxBytes = maxBytes;
+        this.keep = keep;
+    }
+    
+    /**
+     * Append lines, rolling the file over first if it is full
+     * @param lines Lines without line terminators
+     * @return true if the lines were written
+     */
+    public synchronized boolean append(List<String> lines) {
+        try {
+            Files.createDirectories(file.getParent());
+            if (Files.exists(file) && Files.size(file) >= maxBytes) {
+                rollOver();
+            }
+            try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                                                         StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (String line : lines) {
+                    writer.write(line);
+                    writer.write(System.lineSeparator());
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+    
+    public Path getFile() {
+        return file;
+    }
+    
+    private void rollOver() throws IOException {
+        Files.deleteIfExists(rolled(keep));
+        for (int i = keep - 1; i >= 1; i--) {
+            if (Files.exists(rolled(i))) {
+                Files.move(rolled(i), rolled(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        if (keep > 0) {
+            Files.move(file, rolled(1), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.delete(file);
+        }
+    }
+    
+    private Path rolled(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+}
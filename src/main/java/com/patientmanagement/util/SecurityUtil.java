@@ -1,5 +1,7 @@
 package com.patientmanagement.util;
 
+import com.patientmanagement.logging.AppLog;
+
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
@@ -36,7 +38,7 @@ public class SecurityUtil {
             byte[] hashedPassword = md.digest(password.getBytes());
             return Base64.getEncoder().encodeToString(hashedPassword);
         } catch (NoSuchAlgorithmException e) {
-            e.printStackTrace();
+            AppLog.error("security.hashFailed", e);
             return null;
         }
     }
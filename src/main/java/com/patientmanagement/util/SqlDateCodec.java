@@ -0,0 +1,233 @@
+package com.patientmanagement.util;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * Utility class for the storage encoding of dates and times.
+ * Every DAO reads and writes temporal columns through this class:
+ * dates are INTEGER epoch days, times of day are INTEGER minutes of the day and
+ * timestamps are INTEGER epoch seconds. All three compare correctly as plain integers,
+ * so range and overlap predicates can use indexes directly.
+ */
+public class SqlDateCodec {
+    
+    // Resolved once: ZoneId.systemDefault() clones the default TimeZone on every call
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+    
+    // Integers below these bounds are already in the current encoding: epoch days before the
+    // year 2243, minutes of a day and epoch seconds before the year 5138. Legacy millis in the
+    // same ranges would be within seconds of 1970-01-01T00:00, where both readings agree or
+    // no legacy value exists
+    private static final long CANONICAL_DATE_LIMIT = 100_000;
+    private static final long CANONICAL_TIME_LIMIT = 24 * 60;
+    private static final long CANONICAL_TIMESTAMP_LIMIT = 100_000_000_000L;
+    
+    /**
+     * Encode a date
+     * @param date The date
+     * @return Days since 1970-01-01
+     */
+    public static long encodeDate(LocalDate date) {
+        return date.toEpochDay();
+    }
+    
+    /**
+     * Encode a time of day. Seconds are dropped
+     * @param time The time
+     * @return Minutes since midnight
+     */
+    public static int encodeTime(LocalTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+    
+    /**
+     * Encode a local date-time in the system time zone
+     * @param dateTime The date-time
+     * @return Seconds since 1970-01-01T00:00Z
+     */
+    public static long encodeTimestamp(LocalDateTime dateTime) {
+        return dateTime.atZone(ZONE).toEpochSecond();
+    }
+    
+    /**
+     * Encode the start of a day as a timestamp, for comparisons against timestamp columns
+     * @param date The date
+     * @return Epoch seconds of local midnight
+     */
+    public static long startOfDay(LocalDate date) {
+        return date.atStartOfDay(ZONE).toEpochSecond();
+    }
+    
+    public static void setDate(PreparedStatement pstmt, int index, LocalDate date) throws SQLException {
+        if (date == null) {
+            pstmt.setNull(index, Types.INTEGER);
+        } else {
+            pstmt.setLong(index, encodeDate(date));
+        }
+    }
+    
+    public static void setTime(PreparedStatement pstmt, int index, LocalTime time) throws SQLException {
+        if (time == null) {
+            pstmt.setNull(index, Types.INTEGER);
+        } else {
+            pstmt.setInt(index, encodeTime(time));
+        }
+    }
+    
+    public static void setTimestamp(PreparedStatement pstmt, int index, LocalDateTime dateTime) throws SQLException {
+        if (dateTime == null) {
+            pstmt.setNull(index, Types.INTEGER);
+        } else {
+            pstmt.setLong(index, encodeTimestamp(dateTime));
+        }
+    }
+    
+    /**
+     * Bind the current instant to a timestamp parameter
+     * @param pstmt The statement
+     * @param index Parameter index
+     * @throws SQLException If the parameter cannot be set
+     */
+    public static void setNow(PreparedStatement pstmt, int index) throws SQLException {
+        pstmt.setLong(index, Instant.now().getEpochSecond());
+    }
+    
+    // Readers return null for SQL NULL. NULL reads as 0, so wasNull (a native call) is only checked for 0
+    public static LocalDate getDate(ResultSet rs, String column) throws SQLException {
+        long value = rs.getLong(column);
+        return value == 0 && rs.wasNull() ? null : LocalDate.ofEpochDay(value);
+    }
+    
+    public static LocalDate getDate(ResultSet rs, int column) throws SQLException {
+        long value = rs.getLong(column);
+        return value == 0 && rs.wasNull() ? null : LocalDate.ofEpochDay(value);
+    }
+    
+    public static LocalTime getTime(ResultSet rs, String column) throws SQLException {
+        int value = rs.getInt(column);
+        return value == 0 && rs.wasNull() ? null : LocalTime.of(value / 60, value % 60);
+    }
+    
+    public static LocalTime getTime(ResultSet rs, int column) throws SQLException {
+        int value = rs.getInt(column);
+        return value == 0 && rs.wasNull() ? null : LocalTime.of(value / 60, value % 60);
+    }
+    
+    public static LocalDateTime getTimestamp(ResultSet rs, String column) throws SQLException {
+        long value = rs.getLong(column);
+        return value == 0 && rs.wasNull() ? null : LocalDateTime.ofInstant(Instant.ofEpochSecond(value), ZONE);
+    }
+    
+    public static LocalDateTime getTimestamp(ResultSet rs, int column) throws SQLException {
+        long value = rs.getLong(column);
+        return value == 0 && rs.wasNull() ? null : LocalDateTime.ofInstant(Instant.ofEpochSecond(value), ZONE);
+    }
+    
+    /**
+     * Read a timestamp column into a LocalDate (for models that only keep the day)
+     * @param rs The result set
+     * @param column Column name
+     * @return The local date of the timestamp, or null
+     * @throws SQLException If the column cannot be read
+     */
+    public static LocalDate getTimestampDate(ResultSet rs, String column) throws SQLException {
+        LocalDateTime dateTime = getTimestamp(rs, column);
+        return dateTime == null ? null : dateTime.toLocalDate();
+    }
+    
+    public static LocalDate getTimestampDate(ResultSet rs, int column) throws SQLException {
+        LocalDateTime dateTime = getTimestamp(rs, column);
+        return dateTime == null ? null : dateTime.toLocalDate();
+    }
+    
+    /**
+     * Convert a raw date value in an encoding used by earlier versions
+     * (epoch millis of local midnight from setDate, or ISO text). Epoch days are returned
+     * unchanged, so converting a value twice is harmless
+     * @param value The raw column value
+     * @return The epoch day, or null for SQL NULL
+     * @throws IllegalArgumentException If the value cannot be interpreted
+     */
+    public static Long legacyDate(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Number) {
+            long millis = ((Number) value).longValue();
+            if (Math.abs(millis) < CANONICAL_DATE_LIMIT) {
+                return millis;
+            }
+            return Instant.ofEpochMilli(millis).atZone(ZONE).toLocalDate().toEpochDay();
+        }
+        String text = value.toString().trim();
+        if (text.matches("-?\\d+")) {
+            return legacyDate(Long.parseLong(text));
+        }
+        return LocalDate.parse(text.substring(0, Math.min(10, text.length()))).toEpochDay();
+    }
+    
+    /**
+     * Convert a raw time value in an encoding used by earlier versions
+     * (epoch millis on 1970-01-01 from setTime, or "HH:mm[:ss]" text). Minutes of the day
+     * are returned unchanged, so converting a value twice is harmless
+     * @param value The raw column value
+     * @return Minutes since midnight, or null for SQL NULL
+     * @throws IllegalArgumentException If the value cannot be interpreted
+     */
+    public static Integer legacyTime(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Number) {
+            long millis = ((Number) value).longValue();
+            if (millis >= 0 && millis < CANONICAL_TIME_LIMIT) {
+                return (int) millis;
+            }
+            return encodeTime(Instant.ofEpochMilli(millis).atZone(ZONE).toLocalTime());
+        }
+        String text = value.toString().trim();
+        if (text.matches("-?\\d+")) {
+            return legacyTime(Long.parseLong(text));
+        }
+        return encodeTime(LocalTime.parse(text.length() == 5 ? text : text.substring(0, 8)));
+    }
+    
+    /**
+     * Convert a raw timestamp value in an encoding used by earlier versions
+     * (epoch millis from setDate, or datetime('now') UTC text). Epoch seconds are returned
+     * unchanged, so converting a value twice is harmless
+     * @param value The raw column value
+     * @return Epoch seconds, or null for SQL NULL
+     * @throws IllegalArgumentException If the value cannot be interpreted
+     */
+    public static Long legacyTimestamp(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Number) {
+            long millis = ((Number) value).longValue();
+            if (Math.abs(millis) < CANONICAL_TIMESTAMP_LIMIT) {
+                return millis;
+            }
+            return Math.floorDiv(millis, 1000L);
+        }
+        String text = value.toString().trim();
+        if (text.matches("-?\\d+")) {
+            return legacyTimestamp(Long.parseLong(text));
+        }
+        if (text.length() == 10) {
+            return startOfDay(LocalDate.parse(text));
+        }
+        // SQLite datetime() text is UTC
+        return LocalDateTime.parse(text.replace(' ', 'T').substring(0, 19)).toEpochSecond(ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,85 @@
+package com.patientmanagement.util;
+
+/**
+ * What one statement did on a connection: its SQL, the types of its first set of bound
+ * parameters, how often it ran and how long it was open. Parameter values are not kept, so traces
+ * can be logged without patient data
+ */
+public class StatementTrace {
+    
+    private final String sql;
+    private final long startNanos;
+    private long endNanos;
+    private int executions;
+    private String parameterShapes = "";
+    
+    StatementTrace(String sql) {
+        this.sql = sql;
+        this.startNanos = System.nanoTime();
+    }
+    
+    void executed(String shapes) {
+        if (executions++ == 0) {
+            parameterShapes = shapes;
+        }
+    }
+    
+    void closed() {
+        if (endNanos == 0) {
+            endNanos = System.nanoTime();
+        }
+    }
+    
+    public String getSql() {
+        return sql;
+    }
+    
+    // e.g. "(INTEGER, TEXT(12), NULL)", empty for a statement without parameters
+    public String getParameterShapes() {
+        return parameterShapes;
+    }
+    
+    public int getExecutions() {
+        return executions;
+    }
+    
+    // From preparing the statement to closing it, so reading the rows is included; up to now if still open
+    public long getElapsedNanos() {
+        return (endNanos == 0 ? System.nanoTime() : endNanos) - startNanos;
+    }
+    
+    /**
+     * Describe bound parameter values by type, and by length for text and blobs
+     * @param values Parameter values as bound, from the given offset
+     * @param offset Index of the first parameter
+     * @param count Number of parameters
+     * @return The shapes, e.g. "(INTEGER, TEXT(12))", or an empty string without parameters
+     */
+    static String shapes(Object[] values, int offset, int count) {
+        if (values == null || count == 0) {
+            return "";
+        }
+        StringBuilder shapes = new StringBuilder("(");
+        for (int i = 0; i < count && offset + i < values.length; i++) {
+            Object value = values[offset + i];
+            if (i > 0) {
+                shapes.append(", ");
+            }
+            if (value == null) {
+                shapes.append("NULL");
+            } else if (value instanceof Integer || value instanceof Long || value instanceof Short
+                    || value instanceof Byte || value instanceof Boolean) {
+                shapes.append("INTEGER");
+            } else if (value instanceof Double || value instanceof Float) {
+                shapes.append("REAL");
+            } else if (value instanceof String) {
+                shapes.append("TEXT(").append(((String) value).length()).append(')');
+            } else if (value instanceof byte[]) {
+                shapes.append("BLOB(").append(((byte[]) value).length).append(')');
+            } else {
+                shapes.append(value.getClass().getSimpleName());
+            }
+        }
+        return shapes.append(')').toString();
+    }
+}
@@ -0,0 +1,398 @@
+package com.patientmanagement.util;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.sql.*;
+import java.util.Arrays;
+import java.util.Calendar;
+
+/**
+ * Prepared statement that records its executions and bound parameter types in a StatementTrace.
+ * It wraps the driver's statement, seeing the parameters as they are bound, and forwards every
+ * other call
+ */
+class TracedPreparedStatement extends TracedStatement implements PreparedStatement {
+    
+    private final PreparedStatement target;
+    private final StatementTrace trace;
+    
+    // Values bound for the next execution by parameter index - 1, and the shapes of the first batch row
+    private Object[] parameters = new Object[8];
+    private int parameterCount;
+    private String batchShapes;
+    
+    TracedPreparedStatement(PreparedStatement target, TrackedConnection connection, StatementTrace trace) {
+        super(target, connection);
+        this.target = target;
+        this.trace = trace;
+    }
+    
+    @Override
+    public boolean execute() throws SQLException {
+        trace.executed(currentShapes());
+        return target.execute();
+    }
+    
+    @Override
+    public ResultSet executeQuery() throws SQLException {
+        trace.executed(currentShapes());
+        return target.executeQuery();
+    }
+    
+    @Override
+    public int executeUpdate() throws SQLException {
+        trace.executed(currentShapes());
+        return target.executeUpdate();
+    }
+    
+    @Override
+    public void addBatch() throws SQLException {
+        if (batchShapes == null) {
+            batchShapes = currentShapes();
+        }
+        target.addBatch();
+    }
+    
+    @Override
+    public int[] executeBatch() throws SQLException {
+        // Describe the first row of the batch
+        trace.executed(batchShapes == null ? "" : batchShapes);
+        batchShapes = null;
+        return target.executeBatch();
+    }
+    
+    @Override
+    public void clearParameters() throws SQLException {
+        Arrays.fill(parameters, null);
+        parameterCount = 0;
+        target.clearParameters();
+    }
+    
+    @Override
+    public void close() throws SQLException {
+        try {
+            super.close();
+        } finally {
+            trace.closed();
+        }
+    }
+    
+    private void bound(int index, Object value) {
+        // Only the first execution is described, so later bindings need not be kept
+        if (trace.getExecutions() > 0 || index < 1) {
+            return;
+        }
+        if (index > parameters.length) {
+            parameters = Arrays.copyOf(parameters, Math.max(index, parameters.length * 2));
+        }
+        parameters[index - 1] = value;
+        parameterCount = Math.max(parameterCount, index);
+    }
+    
+    private String currentShapes() {
+        return trace.getExecutions() == 0 ? StatementTrace.shapes(parameters, 0, parameterCount) : "";
+    }
+    
+    // The set methods record the value, everything else is forwarded unchanged
+    
+    @Override
+    public void setNull(int parameterIndex, int sqlType) throws SQLException {
+        bound(parameterIndex, null);
+        target.setNull(parameterIndex, sqlType);
+    }
+    
+    @Override
+    public void setBoolean(int parameterIndex, boolean x) throws SQLException {
+        bound(parameterIndex, x);
+        target.setBoolean(parameterIndex, x);
+    }
+    
+    @Override
+    public void setByte(int parameterIndex, byte x) throws SQLException {
+        bound(parameterIndex, x);
+        target.setByte(parameterIndex, x);
+    }
+    
+    @Override
+    public void setShort(int parameterIndex, short x) throws SQLException {
+        bound(parameterIndex, x);
+        target.setShort(parameterIndex, x);
+    }
+    
+    @Override
+    public void setInt(int parameterIndex, int x) throws SQLException {
+        bound(parameterIndex, x);
+        target.setInt(parameterIndex, x);
+    }
+    
+    @Override
+    public void setLong(int parameterIndex, long x) throws SQLException {
+        bound(parameterIndex, x);
+        target.setLong(parameterIndex, x);
+    }
+    
+    @Override
+    public void setFloat(int parameterIndex, float x) throws SQLException {
+        bound(parameterIndex, x);
+        target.setFloat(parameterIndex, x);
+    }
+    
+    @Override
+    public void setDouble(int parameterIndex, double x) throws SQLException {
+        bound(parameterIndex, x);
+        target.setDouble(parameterIndex, x);
+    }
+    
+    @Override
+    public void setBigDecimal(int parameterIndex, BigDecimal x) throws SQLException {
+        bound(parameterIndex, x);
+        target.setBigDecimal(parameterIndex, x);
+    }
+    
+    @Override
+    public void setString(int parameterIndex, String x) throws SQLException {
+        bound(parameterIndex, x);
+        target.setString(parameterIndex, x);
+    }
+    
+    @Override
+    public void setBytes(int parameterIndex, byte[] x) throws SQLException {
+        bound(parameterIndex, x);
+        target.setBytes(parameterIndex, x);
+    }
+    
+    @Override
+    public void setDate(int parameterIndex, Date x) throws SQLException {
+        bound(parameterIndex, x);
+        target.setDate(parameterIndex, x);
+    }
+    
+    @Override
+    public void setTime(int parameterIndex, Time x) throws SQLException {
+        bound(parameterIndex, x);
+        target.setTime(parameterIndex, x);
+    }
+    
+    @Override
+    public void setTimestamp(int parameterIndex, Timestamp x) throws SQLException {
+        bound(parameterIndex, x);
+        target.setTimestamp(parameterIndex, x);
+    }
+    
+    @Override
+    public void setAsciiStream(int parameterIndex, InputStream x, int length) throws SQLException {
+        bound(parameterIndex, x);
+        target.setAsciiStream(parameterIndex, x, length);
+    }
+    
+    @Deprecated
+    @Override
+    public void setUnicodeStream(int parameterIndex, InputStream x, int length) throws SQLException {
+        bound(parameterIndex, x);
+        target.setUnicodeStream(parameterIndex, x, length);
+    }
+    
+    @Override
+    public void setBinaryStream(int parameterIndex, InputStream x, int length) throws SQLException {
+        bound(parameterIndex, x);
+        target.setBinaryStream(parameterIndex, x, length);
+    }
+    
+    @Override
+    public void setObject(int parameterIndex, Object x, int targetSqlType) throws SQLException {
+        bound(parameterIndex, x);
+        target.setObject(parameterIndex, x, targetSqlType);
+    }
+    
+    @Override
+    public void setObject(int parameterIndex, Object x) throws SQLException {
+        bound(parameterIndex, x);
+        target.setObject(parameterIndex, x);
+    }
+    
+    @Override
+    public void setCharacterStream(int parameterIndex, Reader reader, int length) throws SQLException {
+        bound(parameterIndex, reader);
+        target.setCharacterStream(parameterIndex, reader, length);
+    }
+    
+    @Override
+    public void setRef(int parameterIndex, Ref x) throws SQLException {
+        bound(parameterIndex, x);
+        target.setRef(parameterIndex, x);
+    }
+    
+    @Override
+    public void setBlob(int parameterIndex, Blob x) throws SQLException {
+        bound(parameterIndex, x);
+        target.setBlob(parameterIndex, x);
+    }
+    
+    @Override
+    public void setClob(int parameterIndex, Clob x) throws SQLException {
+        bound(parameterIndex, x);
+        target.setClob(parameterIndex, x);
+    }
+    
+    @Override
+    public void setArray(int parameterIndex, Array x) throws SQLException {
+        bound(parameterIndex, x);
+        target.setArray(parameterIndex, x);
+    }
+    
+    @Override
+    public ResultSetMetaData getMetaData() throws SQLException {
+        return target.getMetaData();
+    }
+    
+    @Override
+    public void setDate(int parameterIndex, Date x, Calendar cal) throws SQLException {
+        bound(parameterIndex, x);
+        target.setDate(parameterIndex, x, cal);
+    }
+    
+    @Override
+    public void setTime(int parameterIndex, Time x, Calendar cal) throws SQLException {
+        bound(parameterIndex, x);
+        target.setTime(parameterIndex, x, cal);
+    }
+    
+    @Override
+    public void setTimestamp(int parameterIndex, Timestamp x, Calendar cal) throws SQLException {
+        bound(parameterIndex, x);
+        target.setTimestamp(parameterIndex, x, cal);
+    }
+    
+    @Override
+    public void setNull(int parameterIndex, int sqlType, String typeName) throws SQLException {
+        bound(parameterIndex, null);
+        target.setNull(parameterIndex, sqlType, typeName);
+    }
+    
+    @Override
+    public void setURL(int parameterIndex, URL x) throws SQLException {
+        bound(parameterIndex, x);
+        target.setURL(parameterIndex, x);
+    }
+    
+    @Override
+    public ParameterMetaData getParameterMetaData() throws SQLException {
+        return target.getParameterMetaData();
+    }
+    
+    @Override
+    public void setRowId(int parameterIndex, RowId x) throws SQLException {
+        bound(parameterIndex, x);
+        target.setRowId(parameterIndex, x);
+    }
+    
+    @Override
+    public void setNString(int parameterIndex, String value) throws SQLException {
+        bound(parameterIndex, value);
+        target.setNString(parameterIndex, value);
+    }
+    
+    @Override
+    public void setNCharacterStream(int parameterIndex, Reader value, long length) throws SQLException {
+        bound(parameterIndex, value);
+        target.setNCharacterStream(parameterIndex, value, length);
+    }
+    
+    @Override
+    public void setNClob(int parameterIndex, NClob value) throws SQLException {
+        bound(parameterIndex, value);
+        target.setNClob(parameterIndex, value);
+    }
+    
+    @Override
+    public void setClob(int parameterIndex, Reader reader, long length) throws SQLException {
+        bound(parameterIndex, reader);
+        target.setClob(parameterIndex, reader, length);
+    }
+    
+    @Override
+    public void setBlob(int parameterIndex, InputStream inputStream, long length) throws SQLException {
+        bound(parameterIndex, inputStream);
+        target.setBlob(parameterIndex, inputStream, length);
+    }
+    
+    @Override
+    public void setNClob(int parameterIndex, Reader reader, long length) throws SQLException {
+        bound(parameterIndex, reader);
+        target.setNClob(parameterIndex, reader, length);
+    }
+    
+    @Override
+    public void setSQLXML(int parameterIndex, SQLXML xmlObject) throws SQLException {
+        bound(parameterIndex, xmlObject);
+        target.setSQLXML(parameterIndex, xmlObject);
+    }
+    
+    @Override
+    public void setObject(int parameterIndex, Object x, int targetSqlType, int scaleOrLength) throws SQLException {
+        bound(parameterIndex, x);
+        target.setObject(parameterIndex, x, targetSqlType, scaleOrLength);
+    }
+    
+    @Override
+    public void setAsciiStream(int parameterIndex, InputStream x, long length) throws SQLException {
+        bound(parameterIndex, x);
+        target.setAsciiStream(parameterIndex, x, length);
+    }
+    
+    @Override
+    public void setBinaryStream(int parameterIndex, InputStream x, long length) throws SQLException {
+        bound(parameterIndex, x);
+        target.setBinaryStream(parameterIndex, x, length);
+    }
+    
+    @Override
+    public void setCharacterStream(int parameterIndex, Reader reader, long length) throws SQLException {
+        bound(parameterIndex, reader);
+        target.setCharacterStream(parameterIndex, reader, length);
+    }
+    
+    @Override
+    public void setAsciiStream(int parameterIndex, InputStream x) throws SQLException {
+        bound(parameterIndex, x);
+        target.setAsciiStream(parameterIndex, x);
+    }
+    
+    @Override
+    public void setBinaryStream(int parameterIndex, InputStream x) throws SQLException {
+        bound(parameterIndex, x);
+        target.setBinaryStream(parameterIndex, x);
+    }
+    
+    @Override
+    public void setCharacterStream(int parameterIndex, Reader reader) throws SQLException {
+        bound(parameterIndex, reader);
+        target.setCharacterStream(parameterIndex, reader);
+    }
+    
+    @Override
+    public void setNCharacterStream(int parameterIndex, Reader value) throws SQLException {
+        bound(parameterIndex, value);
+        target.setNCharacterStream(parameterIndex, value);
+    }
+    
+    @Override
+    public void setClob(int parameterIndex, Reader reader) throws SQLException {
+        bound(parameterIndex, reader);
+        target.setClob(parameterIndex, reader);
+    }
+    
+    @Override
+    public void setBlob(int parameterIndex, InputStream inputStream) throws SQLException {
+        bound(parameterIndex, inputStream);
+        target.setBlob(parameterIndex, inputStream);
+    }
+    
+    @Override
+    public void setNClob(int parameterIndex, Reader reader) throws SQLException {
+        bound(parameterIndex, reader);
+        target.setNClob(parameterIndex, reader);
+    }
+}
@@ -0,0 +1,327 @@
+package com.patientmanagement.util;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Connection that tells DatabaseUtil when it is closed, so a restore can wait until the
+ * application holds no connections. It also keeps a StatementTrace of the first statements run
+ * on it, for the slow query log. It wraps the driver's connection and forwards every other call,
+ * so it depends only on the java.sql interfaces and not on the driver's classes
+ */
+class TrackedConnection implements Connection {
+    
+    // Statements traced per connection; a DAO operation runs a handful
+    private static final int MAX_TRACES = 64;
+    
+    private final Connection target;
+    private final AtomicBoolean open = new AtomicBoolean(true);
+    private final List<StatementTrace> traces = new ArrayList<>();
+    
+    TrackedConnection(Connection target) {
+        this.target = target;
+    }
+    
+    @Override
+    public Statement createStatement() throws SQLException {
+        return new TracedStatement(target.createStatement(), this);
+    }
+    
+    @Override
+    public Statement createStatement(int resultSetType, int resultSetConcurrency) throws SQLException {
+        return new TracedStatement(target.createStatement(resultSetType, resultSetConcurrency), this);
+    }
+    
+    @Override
+    public Statement createStatement(int resultSetType, int resultSetConcurrency,
+                                     int resultSetHoldability) throws SQLException {
+        return new TracedStatement(target.createStatement(resultSetType, resultSetConcurrency,
+                                                          resultSetHoldability), this);
+    }
+    
+    @Override
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+        return new TracedPreparedStatement(target.prepareStatement(sql), this, trace(sql));
+    }
+    
+    @Override
+    public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+        return new TracedPreparedStatement(target.prepareStatement(sql, autoGeneratedKeys), this, trace(sql));
+    }
+    
+    @Override
+    public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
+        return new TracedPreparedStatement(target.prepareStatement(sql, columnIndexes), this, trace(sql));
+    }
+    
+    @Override
+    public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
+        return new TracedPreparedStatement(target.prepareStatement(sql, columnNames), this, trace(sql));
+    }
+    
+    @Override
+    public PreparedStatement prepareStatement(String sql, int resultSetType,
+                                              int resultSetConcurrency) throws SQLException {
+        return new TracedPreparedStatement(target.prepareStatement(sql, resultSetType, resultSetConcurrency),
+                                           this, trace(sql));
+    }
+    
+    @Override
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency,
+                                              int resultSetHoldability) throws SQLException {
+        return new TracedPreparedStatement(target.prepareStatement(sql, resultSetType, resultSetConcurrency,
+                                                                   resultSetHoldability), this, trace(sql));
+    }
+    
+    StatementTrace trace(String sql) {
+        StatementTrace trace = new StatementTrace(sql);
+        if (traces.size() < MAX_TRACES) {
+            traces.add(trace);
+        }
+        return trace;
+    }
+    
+    List<StatementTrace> getTraces() {
+        return Collections.unmodifiableList(traces);
+    }
+    
+    @Override
+    public void close() throws SQLException {
+        try {
+            target.close();
+        } finally {
+            if (open.compareAndSet(true, false)) {
+                DatabaseUtil.connectionClosed();
+            }
+        }
+    }
+    
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return iface.isInstance(this) ? iface.cast(this) : target.unwrap(iface);
+    }
+    
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || target.isWrapperFor(iface);
+    }
+    
+    // Everything else is forwarded unchanged
+    
+    @Override
+    public CallableStatement prepareCall(String sql) throws SQLException {
+        return target.prepareCall(sql);
+    }
+    
+    @Override
+    public String nativeSQL(String sql) throws SQLException {
+        return target.nativeSQL(sql);
+    }
+    
+    @Override
+    public void setAutoCommit(boolean autoCommit) throws SQLException {
+        target.setAutoCommit(autoCommit);
+    }
+    
+    @Override
+    public boolean getAutoCommit() throws SQLException {
+        return target.getAutoCommit();
+    }
+    
+    @Override
+    public void commit() throws SQLException {
+        target.commit();
+    }
+    
+    @Override
+    public void rollback() throws SQLException {
+        target.rollback();
+    }
+    
+    @Override
+    public boolean isClosed() throws SQLException {
+        return target.isClosed();
+    }
+    
+    @Override
+    public DatabaseMetaData getMetaData() throws SQLException {
+        return target.getMetaData();
+    }
+    
+    @Override
+    public void setReadOnly(boolean readOnly) throws SQLException {
+        target.setReadOnly(readOnly);
+    }
+    
+    @Override
+    public boolean isReadOnly() throws SQLException {
+        return target.isReadOnly();
+    }
+    
+    @Override
+    public void setCatalog(String catalog) throws SQLException {
+        target.setCatalog(catalog);
+    }
+    
+    @Override
+    public String getCatalog() throws SQLException {
+        return target.getCatalog();
+    }
+    
+    @Override
+    public void setTransactionIsolation(int level) throws SQLException {
+        target.setTransactionIsolation(level);
+    }
+    
+    @Override
+    public int getTransactionIsolation() throws SQLException {
+        return target.getTransactionIsolation();
+    }
+    
+    @Override
+    public SQLWarning getWarnings() throws SQLException {
+        return target.getWarnings();
+    }
+    
+    @Override
+    public void clearWarnings() throws SQLException {
+        target.clearWarnings();
+    }
+    
+    @Override
+    public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+        return target.prepareCall(sql, resultSetType, resultSetConcurrency);
+    }
+    
+    @Override
+    public Map<String, Class<?>> getTypeMap() throws SQLException {
+        return target.getTypeMap();
+    }
+    
+    @Override
+    public void setTypeMap(Map<String, Class<?>> map) throws SQLException {
+        target.setTypeMap(map);
+    }
+    
+    @Override
+    public void setHoldability(int holdability) throws SQLException {
+        target.setHoldability(holdability);
+    }
+    
+    @Override
+    public int getHoldability() throws SQLException {
+        return target.getHoldability();
+    }
+    
+    @Override
+    public Savepoint setSavepoint() throws SQLException {
+        return target.setSavepoint();
+    }
+    
+    @Override
+    public Savepoint setSavepoint(String name) throws SQLException {
+        return target.setSavepoint(name);
+    }
+    
+    @Override
+    public void rollback(Savepoint savepoint) throws SQLException {
+        target.rollback(savepoint);
+    }
+    
+    @Override
+    public void releaseSavepoint(Savepoint savepoint) throws SQLException {
+        target.releaseSavepoint(savepoint);
+    }
+    
+    @Override
+    public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency,
+                                         int resultSetHoldability) throws SQLException {
+        return target.prepareCall(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+    }
+    
+    @Override
+    public Clob createClob() throws SQLException {
+        return target.createClob();
+    }
+    
+    @Override
+    public Blob createBlob() throws SQLException {
+        return target.createBlob();
+    }
+    
+    @Override
+    public NClob createNClob() throws SQLException {
+        return target.createNClob();
+    }
+    
+    @Override
+    public SQLXML createSQLXML() throws SQLException {
+        return target.createSQLXML();
+    }
+    
+    @Override
+    public boolean isValid(int timeout) throws SQLException {
+        return target.isValid(timeout);
+    }
+    
+    @Override
+    public void setClientInfo(String name, String value) throws SQLClientInfoException {
+        target.setClientInfo(name, value);
+    }
+    
+    @Override
+    public void setClientInfo(Properties properties) throws SQLClientInfoException {
+        target.setClientInfo(properties);
+    }
+    
+    @Override
+    public String getClientInfo(String name) throws SQLException {
+        return target.getClientInfo(name);
+    }
+    
+    @Override
+    public Properties getClientInfo() throws SQLException {
+        return target.getClientInfo();
+    }
+    
+    @Override
+    public Array createArrayOf(String typeName, Object[] elements) throws SQLException {
+        return target.createArrayOf(typeName, elements);
+    }
+    
+    @Override
+    public Struct createStruct(String typeName, Object[] attributes) throws SQLException {
+        return target.createStruct(typeName, attributes);
+    }
+    
+    @Override
+    public void setSchema(String schema) throws SQLException {
+        target.setSchema(schema);
+    }
+    
+    @Override
+    public String getSchema() throws SQLException {
+        return target.getSchema();
+    }
+    
+    @Override
+    public void abort(Executor executor) throws SQLException {
+        target.abort(executor);
+    }
+    
+    @Override
+    public void setNetworkTimeout(Executor executor, int milliseconds) throws SQLException {
+        target.setNetworkTimeout(executor, milliseconds);
+    }
+    
+    @Override
+    public int getNetworkTimeout() throws SQLException {
+        return target.getNetworkTimeout();
+    }
+}
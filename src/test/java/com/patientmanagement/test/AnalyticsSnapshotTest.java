@@ -0,0 +1,147 @@
+package com.patientmanagement.test;
+
+import com.patientmanagement.analytics.AnalyticsEngine;
+import com.patientmanagement.analytics.AppointmentSnapshot;
+import com.patientmanagement.model.Appointment;
+import com.patientmanagement.model.dao.AnalyticsDAO;
+import com.patientmanagement.model.dao.AppointmentDAO;
+import com.patientmanagement.util.DatabaseUtil;
+import com.patientmanagement.util.SqlDateCodec;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Collections;
+import java.util.Random;
+
+/**
+ * Test and benchmark for the columnar analytics snapshot: parallel aggregations must match
+ * SQL GROUP BY results, and incremental refreshes must pick up inserts, updates and deletes
+ */
+public class AnalyticsSnapshotTest {
+    
+    private static final int ROWS = 100_000;
+    private static final int DOCTORS = 30;
+    private static final String[] STATUSES = {"Scheduled", "Completed", "Completed", "Completed", "Cancelled"};
+    
+    public static void main(String[] args) throws Exception {
+        System.out.println("Starting Analytics Snapshot Test");
+        System.out.println("================================");
+        
+        // Use a throwaway database file so the test never touches real data
+        File dbFile = File.createTempFile("analytics", ".db");
+        dbFile.deleteOnExit();
+        System.setProperty("patientmanagement.db.url", "jdbc:sqlite:" + dbFile.getAbsolutePath());
+        DatabaseUtil.initializeDatabase();
+        insertAppointments();
+        
+        AnalyticsEngine engine = new AnalyticsEngine(new AnalyticsDAO());
+        testFullLoad(engine);
+        testIncrementalRefresh(engine);
+        
+        System.out.println("Analytics Snapshot Test Completed");
+    }
+    
+    private static void testFullLoad(AnalyticsEngine engine) throws Exception {
+        long startNanos = System.nanoTime();
+        boolean loaded = engine.refresh();
+        long loadMillis = (System.nanoTime() - startNanos) / 1_000_000;
+        AppointmentSnapshot snapshot = engine.snapshot();
+        
+        startNanos = System.nanoTime();
+        long[] perStatus = snapshot.groupCount(row -> true, snapshot.byStatus(), snapshot.statusCount());
+        double[][] noShowRates = engine.noShowRateByDoctorAndWeekday(snapshot, LocalDate.of(2020, 1, 1), LocalDate.now());
+        long queryMicros = (System.nanoTime() - startNanos) / 1_000;
+        
+        boolean matches = loaded && snapshot.size() == ROWS;
+        for (int code = 0; code < snapshot.statusCount(); code++) {
+            matches &= perStatus[code] == countInDatabase("LOWER(status) = '" + snapshot.status(code) + "'");
+        }
+        long completedMinutes = snapshot.groupSum(snapshot.hasStatus("completed"), row -> 0, 1, snapshot.durationMinutes())[0];
+        matches &= completedMinutes == countInDatabase("LOWER(status) = 'completed'") * 30;
+        
+        System.out.printf("Loaded %d rows in %d ms, %.1f bytes/row; status + no-show queries in %d us%n",
+                          snapshot.size(), loadMillis, (double) snapshot.estimatedBytes() / snapshot.size(), queryMicros);
+        System.out.println("Full Load Test: " + (matches ? "PASSED" : "FAILED"));
+        System.out.println("No-Show Rate Test: " + (noShowRates.length == DOCTORS && !Double.isNaN(noShowRates[0][0]) ? "PASSED" : "FAILED"));
+    }
+    
+    private static void testIncrementalRefresh(AnalyticsEngine engine) throws Exception {
+        AppointmentDAO appointmentDAO = new AppointmentDAO();
+        
+        // Insert a new appointment and cancel an existing one
+        Appointment added = new Appointment();
+        added.setDoctorId(1);
+        added.setPatientId(1);
+        added.setDate(LocalDate.of(2031, 1, 6));
+        added.setStartTime(LocalTime.of(9, 0));
+        added.setEndTime(LocalTime.of(9, 30));
+        added.setReason("Refresh test");
+        appointmentDAO.bookAppointment(added);
+        
+        Appointment changed = appointmentDAO.getActiveAppointmentsBetween(
+                Collections.singletonList(2), LocalDate.of(2020, 1, 1), LocalDate.of(2024, 12, 31)).get(0);
+        changed.markAsCancelled();
+        appointmentDAO.updateAppointment(changed);
+        
+        long startNanos = System.nanoTime();
+        engine.refresh();
+        long refreshMillis = (System.nanoTime() - startNanos) / 1_000_000;
+        AppointmentSnapshot snapshot = engine.snapshot();
+        long cancelled = snapshot.count(snapshot.hasStatus("cancelled"));
+        boolean incremental = snapshot.size() == ROWS + 1
+                && snapshot.getMaxAppointmentId() == added.getAppointmentId()
+                && cancelled == countInDatabase("LOWER(status) = 'cancelled'");
+        System.out.println("Incremental refresh in " + refreshMillis + " ms");
+        System.out.println("Incremental Refresh Test: " + (incremental ? "PASSED" : "FAILED"));
+        
+        // A deletion forces a full reload
+        appointmentDAO.deleteAppointment(added.getAppointmentId());
+        engine.refresh();
+        boolean reloaded = engine.snapshot().size() == ROWS && engine.snapshot().getMaxAppointmentId() < added.getAppointmentId();
+        System.out.println("Refresh After Delete Test: " + (reloaded ? "PASSED" : "FAILED"));
+    }
+    
+    private static void insertAppointments() throws Exception {
+        String sql = "INSERT INTO appointments (patient_id, patient_name, doctor_id, doctor_name, date, " +
+                     "start_time, end_time, status, reason, notes, created_at, updated_at) " +
+                     "VALUES (?, '', ?, '', ?, ?, ?, ?, ?, '', ?, ?)";
+        Random random = new Random(3);
+        LocalDate first = LocalDate.of(2020, 1, 1);
+        LocalDateTime created = first.atStartOfDay();
+        
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                for (int i = 0; i < ROWS; i++) {
+                    LocalTime start = LocalTime.of(8, 0).plusMinutes(30L * random.nextInt(20));
+                    pstmt.setInt(1, 1 + random.nextInt(5000));
+                    pstmt.setInt(2, 1 + i % DOCTORS);
+                    SqlDateCodec.setDate(pstmt, 3, first.plusDays(random.nextInt(365 * 5)));
+                    SqlDateCodec.setTime(pstmt, 4, start);
+                    SqlDateCodec.setTime(pstmt, 5, start.plusMinutes(30));
+                    pstmt.setString(6, STATUSES[random.nextInt(STATUSES.length)]);
+                    pstmt.setString(7, "Reason " + random.nextInt(40));
+                    SqlDateCodec.setTimestamp(pstmt, 8, created);
+                    SqlDateCodec.setTimestamp(pstmt, 9, created);
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+            }
+            conn.commit();
+        }
+    }
+    
+    private static long countInDatabase(String condition) throws Exception {
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM appointments WHERE " + condition)) {
+            return rs.next() ? rs.getLong(1) : -1;
+        }
+    }
+}
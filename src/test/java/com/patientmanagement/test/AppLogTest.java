@@ -0,0 +1,138 @@
+package com.patientmanagement.test;
+
+import com.patientmanagement.logging.AppLog;
+import com.patientmanagement.model.dao.DaoExecutor;
+import com.patientmanagement.util.DatabaseUtil;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test that the application log writes structured events asynchronously, in order, with DAO
+ * failures as key/value fields, and that a full buffer drops or waits as configured
+ */
+public class AppLogTest {
+    
+    private static final String DUPLICATE_SQL = "INSERT INTO log_test (id, name) VALUES (?, ?)";
+    
+    public static void main(String[] args) throws Exception {
+        System.out.println("Starting App Log Test");
+        System.out.println("=====================");
+        
+        // Use a throwaway database and log, and a small buffer so it can fill up
+        File dbFile = File.createTempFile("applog", ".db");
+        dbFile.deleteOnExit();
+        Path log = Files.createTempFile("application", ".log");
+        log.toFile().deleteOnExit();
+        System.setProperty("patientmanagement.db.url", "jdbc:sqlite:" + dbFile.getAbsolutePath());
+        System.setProperty("patientmanagement.log.file", log.toString());
+        System.setProperty("patientmanagement.log.console", "false");
+        System.setProperty("patientmanagement.log.bufferSize", "1024");
+        // Misspelt settings must fall back to the defaults, not break the class initialisation
+        System.setProperty("patientmanagement.log.level", "warning");
+        System.setProperty("patientmanagement.log.overflow", "wait");
+        DatabaseUtil.initializeDatabase();
+        try (Connection conn = DatabaseUtil.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE log_test (id INTEGER PRIMARY KEY, name TEXT)");
+        }
+        
+        boolean defaults = AppLog.getLevel() == AppLog.Level.INFO && AppLog.getOverflow() == AppLog.Overflow.DROP;
+        AppLog.flush(5000);
+        List<String> settings = Files.readAllLines(log);
+        defaults &= settings.stream().anyMatch(line -> line.contains(
+                "log.invalidProperty property=patientmanagement.log.level value=warning using=INFO"))
+                && settings.stream().anyMatch(line -> line.contains(
+                "log.invalidProperty property=patientmanagement.log.overflow value=wait using=DROP"));
+        System.out.println("Invalid Setting Fallback Test: " + (defaults ? "PASSED" : "FAILED"));
+        int offset = settings.size();
+        
+        // Key/value fields, quoted where needed, and the stack trace of the error
+        AppLog.error("test.failed", new SQLException("disk \"full\""), "operation", "Test.run", "note", "two words");
+        AppLog.debug("test.hidden", "level", "below the threshold");
+        AppLog.flush(5000);
+        List<String> lines = Files.readAllLines(log);
+        boolean structured = lines.size() > offset + 1
+                && lines.get(offset).endsWith(" ERROR [main] test.failed operation=Test.run note=\"two words\" error=\"disk \\\"full\\\"\"")
+                && lines.get(offset + 1).equals("    java.sql.SQLException: disk \"full\"")
+                && lines.stream().noneMatch(line -> line.contains("test.hidden"));
+        System.out.println("Structured Event Test: " + (structured ? "PASSED" : "FAILED"));
+        
+        // A failed DAO call is logged with its operation, SQL id, kind and duration
+        boolean first = insertRow();
+        boolean second = insertRow();
+        AppLog.flush(5000);
+        String text = new String(Files.readAllBytes(log));
+        String expected = "dao.failed operation=test.duplicateRow sqlId=" + DaoExecutor.sqlId(DUPLICATE_SQL)
+                + " kind=CONSTRAINT code=19 attempts=1 durationMs=";
+        boolean daoFailure = first && !second && text.contains(expected) && !text.contains("Duplicate");
+        System.out.println("DAO Failure Event Test: " + (daoFailure ? "PASSED" : "FAILED"));
+        
+        // Events of one thread are written in the order they were logged
+        for (int i = 0; i < 500; i++) {
+            AppLog.info("test.ordered", "sequence", i);
+        }
+        AppLog.flush(5000);
+        int next = 0;
+        for (String line : Files.readAllLines(log)) {
+            if (line.contains("test.ordered") && line.endsWith("sequence=" + next)) {
+                next++;
+            }
+        }
+        System.out.println("Ordering Test: " + (next == 500 ? "PASSED" : "FAILED"));
+        
+        // Dropping: callers never wait, and every event is either written or counted as dropped
+        long writtenBefore = AppLog.getWrittenCount();
+        long droppedBefore = AppLog.getDroppedCount();
+        int events = burst(4, 50_000);
+        AppLog.flush(10_000);
+        long written = AppLog.getWrittenCount() - writtenBefore;
+        long dropped = AppLog.getDroppedCount() - droppedBefore;
+        boolean reported = dropped == 0 || Files.readAllLines(log).stream().anyMatch(line -> line.contains("log.dropped"));
+        System.out.println("written " + written + ", dropped " + dropped);
+        System.out.println("Drop Policy Test: " + (written + dropped == events && reported ? "PASSED" : "FAILED"));
+        
+        // Blocking: callers wait for room instead
+        AppLog.setOverflow(AppLog.Overflow.BLOCK);
+        droppedBefore = AppLog.getDroppedCount();
+        burst(4, 20_000);
+        AppLog.flush(10_000);
+        System.out.println("Block Policy Test: " + (AppLog.getDroppedCount() == droppedBefore ? "PASSED" : "FAILED"));
+        
+        System.out.println("App Log Test Completed");
+    }
+    
+    private static boolean insertRow() {
+        return DaoExecutor.execute("test.duplicateRow", false, conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(DUPLICATE_SQL)) {
+                pstmt.setInt(1, 1);
+                pstmt.setString(2, "Duplicate");
+                return pstmt.executeUpdate() == 1;
+            }
+        });
+    }
+    
+    private static int burst(int threads, int perThread) throws InterruptedException {
+        List<Thread> producers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int producer = t;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    AppLog.info("test.burst", "producer", producer, "sequence", i);
+                }
+            });
+            producers.add(thread);
+            thread.start();
+        }
+        for (Thread thread : producers) {
+            thread.join();
+        }
+        return threads * perThread;
+    }
+}
@@ -0,0 +1,124 @@
+package com.patientmanagement.test;
+
+import com.patientmanagement.calendar.AppointmentWindowCache;
+import com.patientmanagement.calendar.CalendarMode;
+import com.patientmanagement.calendar.CalendarWindow;
+import com.patientmanagement.model.Appointment;
+import com.patientmanagement.model.Patient;
+import com.patientmanagement.model.dao.AppointmentDAO;
+import com.patientmanagement.model.dao.PatientDAO;
+import com.patientmanagement.util.DatabaseUtil;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * Test the calendar window cache: hits and misses, prefetching of adjacent windows, the LRU
+ * bound and invalidation by AppointmentDAO writes
+ */
+public class AppointmentWindowCacheTest {
+    
+    // A Monday
+    private static final LocalDate MONDAY = LocalDate.of(2030, 3, 4);
+    
+    public static void main(String[] args) throws Exception {
+        System.out.println("Starting Appointment Window Cache Test");
+        System.out.println("======================================");
+        
+        // Use a throwaway database file so the test never touches real data
+        File dbFile = File.createTempFile("windows", ".db");
+        dbFile.deleteOnExit();
+        System.setProperty("patientmanagement.db.url", "jdbc:sqlite:" + dbFile.getAbsolutePath());
+        DatabaseUtil.initializeDatabase();
+        
+        execute("INSERT INTO users (user_id, username, password_hash, password_salt, first_name, last_name, " +
+                "role, created_at, updated_at) VALUES (1, 'house', '', '', 'Greg', 'House', 'doctor', 0, 0)");
+        execute("INSERT INTO doctors (doctor_id, user_id, first_name, last_name, specialization, created_at, updated_at) " +
+                "VALUES (1, 1, 'Greg', 'House', 'Diagnostics', 0, 0)");
+        Patient patient = new Patient();
+        patient.setFirstName("Ann");
+        patient.setLastName("Lee");
+        patient.setDateOfBirth(LocalDate.of(1980, 1, 1));
+        patient.setGender("F");
+        new PatientDAO().createPatient(patient);
+        
+        // Two appointments this week, one next week
+        AppointmentDAO appointmentDAO = new AppointmentDAO();
+        appointmentDAO.createAppointment(newAppointment(patient, MONDAY, 9));
+        appointmentDAO.createAppointment(newAppointment(patient, MONDAY.plusDays(2), 10));
+        appointmentDAO.createAppointment(newAppointment(patient, MONDAY.plusWeeks(1), 11));
+        AppointmentWindowCache.clear();
+        
+        // The first read loads, the second is served from the cache
+        CalendarWindow week = CalendarMode.WEEK.window(MONDAY.plusDays(3));
+        long misses = AppointmentWindowCache.getMisses();
+        long hits = AppointmentWindowCache.getHits();
+        List<Appointment> first = AppointmentWindowCache.get(week);
+        List<Appointment> second = AppointmentWindowCache.get(week);
+        boolean cached = first.size() == 2 && second == first
+                && AppointmentWindowCache.getMisses() == misses + 1 && AppointmentWindowCache.getHits() == hits + 1;
+        System.out.println("Hit And Miss Test: " + (cached ? "PASSED" : "FAILED"));
+        
+        boolean readOnly;
+        try {
+            first.add(new Appointment());
+            readOnly = false;
+        } catch (UnsupportedOperationException e) {
+            readOnly = true;
+        }
+        System.out.println("Read-Only Window Test: " + (readOnly ? "PASSED" : "FAILED"));
+        
+        // A prefetched window is a hit, even if the prefetch is still running
+        CalendarWindow next = CalendarMode.WEEK.window(MONDAY.plusWeeks(1));
+        misses = AppointmentWindowCache.getMisses();
+        AppointmentWindowCache.prefetch(next);
+        List<Appointment> prefetched = AppointmentWindowCache.get(next);
+        System.out.println("Prefetch Test: " +
+                (prefetched.size() == 1 && AppointmentWindowCache.getMisses() == misses ? "PASSED" : "FAILED"));
+        
+        // Only the most recently used windows are kept
+        for (int day = 0; day < 20; day++) {
+            AppointmentWindowCache.get(CalendarMode.DAY.window(MONDAY.plusDays(day)));
+        }
+        System.out.println("LRU Bound Test: " + (AppointmentWindowCache.size() == 12 ? "PASSED" : "FAILED"));
+        
+        // A new appointment drops only the windows containing its date
+        AppointmentWindowCache.clear();
+        AppointmentWindowCache.get(week);
+        AppointmentWindowCache.get(next);
+        appointmentDAO.createAppointment(newAppointment(patient, MONDAY.plusDays(4), 14));
+        boolean invalidated = AppointmentWindowCache.size() == 1 && AppointmentWindowCache.get(week).size() == 3;
+        
+        // An update may move the appointment, so every window is dropped
+        Appointment moved = appointmentDAO.getAppointmentsBetween(MONDAY, MONDAY).get(0);
+        moved.setDate(MONDAY.plusWeeks(1).plusDays(1));
+        appointmentDAO.updateAppointment(moved);
+        invalidated = invalidated && AppointmentWindowCache.size() == 0
+                && AppointmentWindowCache.get(week).size() == 2 && AppointmentWindowCache.get(next).size() == 2;
+        System.out.println("Invalidation Test: " + (invalidated ? "PASSED" : "FAILED"));
+        
+        System.out.println("Appointment Window Cache Test Completed");
+    }
+    
+    private static Appointment newAppointment(Patient patient, LocalDate date, int hour) {
+        Appointment appointment = new Appointment();
+        appointment.setPatientId(patient.getPatientId());
+        appointment.setDoctorId(1);
+        appointment.setDate(date);
+        appointment.setStartTime(LocalTime.of(hour, 0));
+        appointment.setEndTime(LocalTime.of(hour, 30));
+        appointment.setReason("Checkup");
+        return appointment;
+    }
+    
+    private static void execute(String sql) throws Exception {
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.patientmanagement.test;
+
+import com.patientmanagement.analytics.AnalyticsEngine;
+import com.patientmanagement.archive.ArchiveService;
+import com.patientmanagement.model.Appointment;
+import com.patientmanagement.model.AppointmentStatus;
+import com.patientmanagement.model.DoctorOccupancy;
+import com.patientmanagement.model.dao.AnalyticsDAO;
+import com.patientmanagement.model.dao.AppointmentDAO;
+import com.patientmanagement.model.dao.DataAccessException;
+import com.patientmanagement.model.dao.OccupancyDAO;
+import com.patientmanagement.model.dao.StatisticsDAO;
+import com.patientmanagement.util.DatabaseUtil;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Test that ArchiveService moves old finished appointments and their medical records to the
+ * archive database, and that reads, rollups and analytics give the same answers afterwards
+ */
+public class ArchiveTierTest {
+    
+    private static final int ROWS = 3000;
+    private static final LocalDate FIRST = LocalDate.of(2026, 1, 1);
+    private static final LocalDate LAST = FIRST.plusDays(3 * 365);
+    private static final LocalDate HORIZON = FIRST.plusDays(2 * 365);
+    
+    public static void main(String[] args) throws Exception {
+        System.out.println("Starting Archive Tier Test");
+        System.out.println("==========================");
+        
+        // Use throwaway database files so the test never touches real data
+        File dbFile = File.createTempFile("archive", ".db");
+        File archiveFile = new File(dbFile.getPath().replace(".db", "_history.db"));
+        dbFile.deleteOnExit();
+        archiveFile.deleteOnExit();
+        System.setProperty("patientmanagement.db.url", "jdbc:sqlite:" + dbFile.getAbsolutePath());
+        System.setProperty("patientmanagement.archive.file", archiveFile.getAbsolutePath());
+        DatabaseUtil.initializeDatabase();
+        insertRows();
+        
+        AppointmentDAO appointmentDAO = new AppointmentDAO();
+        StatisticsDAO statisticsDAO = new StatisticsDAO();
+        OccupancyDAO occupancyDAO = new OccupancyDAO();
+        AnalyticsEngine engine = new AnalyticsEngine(new AnalyticsDAO());
+        engine.refresh();
+        
+        List<Appointment> allBefore = appointmentDAO.getAppointmentsBetween(FIRST, LAST);
+        List<Appointment> patientBefore = appointmentDAO.getAppointmentsByPatient(1);
+        int scheduledBefore = appointmentDAO.getAppointmentRows(null, AppointmentStatus.SCHEDULED).size();
+        Map<String, Integer> countsBefore = statisticsDAO.getStatusCounts(FIRST, LAST);
+        List<DoctorOccupancy> occupancyBefore = occupancyDAO.getOccupancy(FIRST, LAST);
+        int expected = count("SELECT COUNT(*) FROM appointments WHERE date < " + HORIZON.toEpochDay() +
+                             " AND status IN ('completed', 'cancelled')");
+        int records = count("SELECT COUNT(*) FROM medical_records");
+        
+        long start = System.nanoTime();
+        int archived = new ArchiveService().archiveBefore(HORIZON);
+        long archiveMillis = (System.nanoTime() - start) / 1_000_000;
+        System.out.println("Archived " + archived + " of " + ROWS + " appointments in " + archiveMillis + " ms");
+        
+        boolean moved = archived == expected && archived > 0
+                && count("SELECT COUNT(*) FROM appointments") == ROWS - archived
+                && count("SELECT COUNT(*) FROM appointments WHERE date < " + HORIZON.toEpochDay() +
+                         " AND status IN ('completed', 'cancelled')") == 0;
+        System.out.println("Finished Appointments Moved Test: " + (moved ? "PASSED" : "FAILED"));
+        
+        boolean recordsMoved = count("SELECT COUNT(*) FROM medical_records") < records
+                && count("SELECT COUNT(*) FROM medical_records") + countArchived("medical_records") == records
+                && count("SELECT COUNT(*) FROM medical_records WHERE appointment_id NOT IN " +
+                         "(SELECT appointment_id FROM appointments)") == 0;
+        System.out.println("Records Follow Appointments Test: " + (recordsMoved ? "PASSED" : "FAILED"));
+        
+        boolean union = sameRows(allBefore, appointmentDAO.getAppointmentsBetween(FIRST, LAST))
+                && sameRows(patientBefore, appointmentDAO.getAppointmentsByPatient(1))
+                && appointmentDAO.getAppointmentById(allBefore.get(0).getAppointmentId()) != null;
+        System.out.println("Transparent Union Test: " + (union ? "PASSED" : "FAILED"));
+        
+        boolean hotOnly = !ArchiveService.reachesArchive(HORIZON) && ArchiveService.reachesArchive(HORIZON.minusDays(1))
+                && appointmentDAO.getAppointmentRows(null, AppointmentStatus.SCHEDULED).size() == scheduledBefore;
+        System.out.println("Hot Range Test: " + (hotOnly ? "PASSED" : "FAILED"));
+        
+        boolean rollups = countsBefore.equals(statisticsDAO.getStatusCounts(FIRST, LAST))
+                && sameOccupancy(occupancyBefore, occupancyDAO.getOccupancy(FIRST, LAST))
+                && statisticsDAO.consistencyCheck().isEmpty();
+        System.out.println("Rollups Unchanged Test: " + (rollups ? "PASSED" : "FAILED"));
+        
+        engine.refresh();
+        System.out.println("Analytics Unchanged Test: " + (engine.snapshot().size() == ROWS ? "PASSED" : "FAILED"));
+        
+        boolean again = new ArchiveService().archiveBefore(HORIZON) == 0 && countArchived("appointments") == archived;
+        System.out.println("Idempotent Rerun Test: " + (again ? "PASSED" : "FAILED"));
+        
+        // Another workstation archiving further: its watermark is seen without restarting
+        LocalDate later = HORIZON.plusDays(30);
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("UPDATE archive_state SET watermark = " + later.toEpochDay() + " WHERE id = 1");
+        }
+        boolean shared = ArchiveService.reachesArchive(HORIZON) && !ArchiveService.reachesArchive(later);
+        System.out.println("Shared Watermark Test: " + (shared ? "PASSED" : "FAILED"));
+        
+        // A watermark that cannot be read is reported, not taken as "nothing archived"
+        boolean reported;
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("ALTER TABLE archive_state RENAME TO archive_state_hidden");
+            try {
+                ArchiveService.reachesArchive(HORIZON);
+                reported = false;
+            } catch (DataAccessException e) {
+                reported = true;
+            } finally {
+                stmt.execute("ALTER TABLE archive_state_hidden RENAME TO archive_state");
+            }
+        }
+        System.out.println("Watermark Failure Test: " + (reported ? "PASSED" : "FAILED"));
+        
+        System.out.println("Archive Tier Test Completed");
+    }
+    
+    // Same appointments in the same date and time order; rows in the same slot may come back in either order
+    private static boolean sameRows(List<Appointment> a, List<Appointment> b) {
+        List<Integer> idsA = new ArrayList<>();
+        List<Integer> idsB = new ArrayList<>();
+        boolean same = a.size() == b.size();
+        for (int i = 0; same && i < a.size(); i++) {
+            same = a.get(i).getEpochDay() == b.get(i).getEpochDay() && a.get(i).getStartMinute() == b.get(i).getStartMinute();
+            idsA.add(a.get(i).getAppointmentId());
+            idsB.add(b.get(i).getAppointmentId());
+        }
+        Collections.sort(idsA);
+        Collections.sort(idsB);
+        return same && idsA.equals(idsB);
+    }
+    
+    private static boolean sameOccupancy(List<DoctorOccupancy> a, List<DoctorOccupancy> b) {
+        boolean same = a.size() == b.size();
+        for (int i = 0; same && i < a.size(); i++) {
+            same = a.get(i).getDoctorId() == b.get(i).getDoctorId() && a.get(i).getDate().equals(b.get(i).getDate())
+                    && a.get(i).getBookedMinutes() == b.get(i).getBookedMinutes();
+        }
+        return same;
+    }
+    
+    private static int count(String sql) throws Exception {
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getInt(1) : -1;
+        }
+    }
+    
+    private static int countArchived(String table) throws Exception {
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            DatabaseUtil.attachArchive(conn);
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM archive." + table)) {
+                return rs.next() ? rs.getInt(1) : -1;
+            }
+        }
+    }
+    
+    private static void insertRows() throws Exception {
+        Random random = new Random(5);
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement()) {
+            conn.setAutoCommit(false);
+            
+            for (int i = 1; i <= 4; i++) {
+                stmt.execute("INSERT INTO users (user_id, username, password_hash, password_salt, first_name, " +
+                             "last_name, role, created_at, updated_at) " +
+                             "VALUES (" + i + ", 'doctor" + i + "', '', '', 'Doc', 'Tor" + i + "', 'doctor', 0, 0)");
+                stmt.execute("INSERT INTO doctors (doctor_id, user_id, first_name, last_name, specialization, " +
+                             "created_at, updated_at) VALUES (" + i + ", " + i + ", 'Doc', 'Tor" + i + "', 'General', 0, 0)");
+            }
+            for (int i = 1; i <= 50; i++) {
+                stmt.execute("INSERT INTO patients (patient_id, first_name, last_name, date_of_birth, gender, " +
+                             "created_at, updated_at) VALUES (" + i + ", 'Pat', 'Ient" + i + "', 0, 'F', 0, 0)");
+            }
+            
+            String[] statuses = {"scheduled", "completed", "completed", "cancelled"};
+            try (PreparedStatement appointment = conn.prepareStatement(
+                    "INSERT INTO appointments (appointment_id, patient_id, patient_name, doctor_id, doctor_name, " +
+                    "date, start_time, end_time, status, reason, notes, created_at, updated_at) " +
+                    "VALUES (?, ?, '', ?, '', ?, ?, ?, ?, 'Checkup', '', 0, 0)");
+                 PreparedStatement record = conn.prepareStatement(
+                    "INSERT INTO medical_records (patient_id, patient_name, doctor_id, doctor_name, appointment_id, " +
+                    "appointment_date, diagnosis, treatment, created_at, updated_at) " +
+                    "VALUES (?, '', ?, '', ?, ?, 'Fine', 'Rest', 0, 0)")) {
+                for (int id = 1; id <= ROWS; id++) {
+                    int patientId = 1 + random.nextInt(50);
+                    int doctorId = 1 + random.nextInt(4);
+                    long date = FIRST.plusDays(random.nextInt(3 * 365)).toEpochDay();
+                    int startMinute = 480 + 15 * random.nextInt(36);
+                    String status = statuses[random.nextInt(statuses.length)];
+                    appointment.setInt(1, id);
+                    appointment.setInt(2, patientId);
+                    appointment.setInt(3, doctorId);
+                    appointment.setLong(4, date);
+                    appointment.setInt(5, startMinute);
+                    appointment.setInt(6, startMinute + 15);
+                    appointment.setString(7, status);
+                    appointment.addBatch();
+                    if ("completed".equals(status)) {
+                        record.setInt(1, patientId);
+                        record.setInt(2, doctorId);
+                        record.setInt(3, id);
+                        record.setLong(4, date);
+                        record.addBatch();
+                    }
+                }
+                appointment.executeBatch();
+                record.executeBatch();
+            }
+            conn.commit();
+        }
+    }
+}
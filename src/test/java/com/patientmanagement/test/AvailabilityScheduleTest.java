@@ -0,0 +1,99 @@
+package com.patientmanagement.test;
+
+import com.patientmanagement.scheduling.AvailabilitySchedule;
+import com.patientmanagement.scheduling.DayBitmap;
+import com.patientmanagement.scheduling.SchedulingIndex;
+import com.patientmanagement.scheduling.SlotFinder;
+import com.patientmanagement.scheduling.TimeSlot;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * Test the availability schedule parser: day ranges, several intervals per day, exceptions,
+ * leave, invalid entries and working time at the end of the day
+ */
+public class AvailabilityScheduleTest {
+    
+    // A Monday
+    private static final LocalDate MONDAY = LocalDate.of(2030, 3, 4);
+    
+    public static void main(String[] args) {
+        System.out.println("Starting Availability Schedule Test");
+        System.out.println("===================================");
+        
+        // Day ranges, lists and a range wrapping round the weekend
+        AvailabilitySchedule weekdays = AvailabilitySchedule.parse("MON-FRI 09:00-17:00");
+        AvailabilitySchedule list = AvailabilitySchedule.parse("mon,wed 09:00-12:00");
+        AvailabilitySchedule wrapped = AvailabilitySchedule.parse("SAT-MON 10:00-14:00");
+        boolean days = weekdays.isWorking(MONDAY.plusDays(4), LocalTime.of(9, 0))
+                && !weekdays.isWorking(MONDAY.plusDays(5), LocalTime.of(9, 0))
+                && list.isWorking(MONDAY.plusDays(2), LocalTime.of(11, 55))
+                && !list.isWorking(MONDAY.plusDays(1), LocalTime.of(10, 0))
+                && wrapped.isWorking(MONDAY.minusDays(1), LocalTime.of(10, 0))
+                && wrapped.isWorking(MONDAY, LocalTime.of(10, 0))
+                && !wrapped.isWorking(MONDAY.plusDays(1), LocalTime.of(10, 0));
+        System.out.println("Day Range Test: " + (days ? "PASSED" : "FAILED"));
+        
+        // Several intervals on one line and on separate entries
+        AvailabilitySchedule split = AvailabilitySchedule.parse("MON-FRI 08:00-12:00, 13:00-17:00; SAT 09:00-11:30");
+        boolean intervals = split.isWorking(MONDAY, LocalTime.of(8, 0), LocalTime.of(12, 0))
+                && !split.isWorking(MONDAY, LocalTime.of(11, 30), LocalTime.of(13, 30))
+                && !split.isWorking(MONDAY, LocalTime.of(12, 30))
+                && split.isWorking(MONDAY, LocalTime.of(16, 55))
+                && !split.isWorking(MONDAY, LocalTime.of(17, 0))
+                && split.isWorking(MONDAY.plusDays(5), LocalTime.of(9, 0), LocalTime.of(11, 30))
+                && DayBitmap.cardinality(split.workingSlots(MONDAY)) == 96;
+        System.out.println("Several Intervals Test: " + (intervals ? "PASSED" : "FAILED"));
+        
+        // Exceptions replace the weekly hours of their day; leave clears whole days
+        AvailabilitySchedule exceptions = AvailabilitySchedule.parse(
+            "MON-FRI 09:00-17:00\n2030-03-04 14:00-16:00\n2030-03-05 OFF\nLEAVE 2030-03-07..2030-03-08");
+        boolean special = !exceptions.isWorking(MONDAY, LocalTime.of(10, 0))
+                && exceptions.isWorking(MONDAY, LocalTime.of(15, 0))
+                && DayBitmap.cardinality(exceptions.workingSlots(MONDAY.plusDays(1))) == 0
+                && exceptions.isWorking(MONDAY.plusDays(2), LocalTime.of(10, 0))
+                && DayBitmap.cardinality(exceptions.workingSlots(MONDAY.plusDays(3))) == 0
+                && DayBitmap.cardinality(exceptions.workingSlots(MONDAY.plusDays(4))) == 0
+                && exceptions.isWorking(MONDAY.plusDays(7), LocalTime.of(10, 0));
+        System.out.println("Exceptions And Leave Test: " + (special ? "PASSED" : "FAILED"));
+        
+        boolean empty = DayBitmap.cardinality(AvailabilitySchedule.parse(null).workingSlots(MONDAY)) == 0
+                && DayBitmap.cardinality(AvailabilitySchedule.parse(" ;\n ").workingSlots(MONDAY)) == 0;
+        System.out.println("Empty Schedule Test: " + (empty ? "PASSED" : "FAILED"));
+        
+        // Invalid entries are rejected with IllegalArgumentException
+        String[] invalid = {
+            "MON-FRI", "MONDAY-XYZ 09:00-17:00", "MO 09:00-17:00", "MON 9-17", "MON 09:00", "MON 17:00-09:00",
+            "MON 09:00-09:00", "MON 09:00-12:00-13:00", "2030-02-30 09:00-12:00", "LEAVE 2030-03-10..2030-03-01",
+            "LEAVE 2030-01-01..2031-06-01", "MON 08:00-00:00"
+        };
+        int rejected = 0;
+        for (String text : invalid) {
+            try {
+                AvailabilitySchedule.parse(text);
+                System.out.println("Accepted invalid schedule: " + text);
+            } catch (IllegalArgumentException e) {
+                rejected++;
+            }
+        }
+        System.out.println("Invalid Entries Test: " + (rejected == invalid.length ? "PASSED" : "FAILED"));
+        
+        // Working time up to the end of the day stops at 23:55, so no slot ends at midnight
+        AvailabilitySchedule late = AvailabilitySchedule.parse("MON 20:00-23:59");
+        SlotFinder finder = new SlotFinder(new SchedulingIndex(MONDAY, MONDAY), 5);
+        List<TimeSlot> slots = finder.findFreeSlots(1, late, MONDAY, MONDAY, 5, Integer.MAX_VALUE, null);
+        List<LocalTime> ends = finder.freeEndTimes(1, late, MONDAY, LocalTime.of(23, 0));
+        TimeSlot last = slots.get(slots.size() - 1);
+        boolean midnight = last.getStartTime().equals(LocalTime.of(23, 50))
+                && last.getEndTime().equals(LocalTime.of(23, 55))
+                && slots.stream().allMatch(slot -> slot.getEndTime().isAfter(slot.getStartTime()))
+                && ends.get(ends.size() - 1).equals(LocalTime.of(23, 55))
+                && !late.isWorking(MONDAY, LocalTime.of(23, 55))
+                && late.isWorking(MONDAY, LocalTime.of(23, 0), LocalTime.of(23, 55));
+        System.out.println("Midnight Edge Test: " + (midnight ? "PASSED" : "FAILED"));
+        
+        System.out.println("Availability Schedule Test Completed");
+    }
+}
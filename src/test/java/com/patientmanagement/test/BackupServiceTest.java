@@ -0,0 +1,129 @@
+package com.patientmanagement.test;
+
+import com.patientmanagement.backup.BackupResult;
+import com.patientmanagement.backup.BackupService;
+import com.patientmanagement.util.DatabaseUtil;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test that BackupService takes verified, compressed backups while another connection keeps
+ * writing, and keeps only the configured number of backups
+ */
+public class BackupServiceTest {
+    
+    private static final int ROWS = 60_000;
+    
+    public static void main(String[] args) throws Exception {
+        System.out.println("Starting Backup Service Test");
+        System.out.println("============================");
+        
+        // Use a throwaway database and backup directory so the test never touches real data
+        File dbFile = File.createTempFile("backup", ".db");
+        dbFile.deleteOnExit();
+        Path directory = Files.createTempDirectory("backups");
+        System.setProperty("patientmanagement.db.url", "jdbc:sqlite:" + dbFile.getAbsolutePath());
+        DatabaseUtil.initializeDatabase();
+        insertRows();
+        
+        BackupService service = new BackupService(directory, 2, true, 5);
+        
+        // A writer keeps inserting appointments while the backup runs
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger written = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        Thread writer = new Thread(() -> {
+            while (running.get()) {
+                try (Connection conn = DatabaseUtil.getConnection();
+                     Statement stmt = conn.createStatement()) {
+                    stmt.execute("INSERT INTO appointments (patient_id, patient_name, doctor_id, doctor_name, date, " +
+                                 "start_time, end_time, status, reason, notes, created_at, updated_at) " +
+                                 "VALUES (1, '', 1, '', 1, 600, 615, 'scheduled', 'Online', '', 0, 0)");
+                    written.incrementAndGet();
+                    Thread.sleep(10);
+                } catch (Exception e) {
+                    failed.incrementAndGet();
+                }
+            }
+        });
+        writer.start();
+        while (written.get() == 0) {
+            Thread.sleep(5);
+        }
+        BackupResult result = service.backup();
+        running.set(false);
+        writer.join();
+        
+        System.out.println(result);
+        boolean verified = result != null && result.getFile().toString().endsWith(".db.gz")
+                && BackupService.verify(result.getFile()) && result.getPages() > 0;
+        System.out.println("Verified Backup Test: " + (verified ? "PASSED" : "FAILED"));
+        System.out.println("Online Writes Test: " + (written.get() > 0 && failed.get() == 0 ? "PASSED" : "FAILED"));
+        
+        boolean contents = false;
+        if (result != null) {
+            Path copy = BackupService.decompress(result.getFile(), directory.resolve("restored.db"));
+            int rows = count("jdbc:sqlite:" + copy, "SELECT COUNT(*) FROM appointments");
+            contents = rows >= ROWS && rows <= ROWS + written.get();
+            Files.delete(copy);
+        }
+        System.out.println("Backup Contents Test: " + (contents ? "PASSED" : "FAILED"));
+        
+        service.backup();
+        service.backup();
+        List<Path> backups = service.listBackups();
+        boolean retained = backups.size() == 2 && !Files.exists(result.getFile())
+                && backups.get(0).compareTo(backups.get(1)) > 0;
+        System.out.println("Retention Test: " + (retained ? "PASSED" : "FAILED"));
+        
+        Path corrupt = directory.resolve("corrupt.db");
+        byte[] bytes = Files.readAllBytes(BackupService.decompress(backups.get(0), corrupt));
+        for (int i = 100; i < bytes.length; i += 97) {
+            bytes[i] ^= 0x5A;
+        }
+        Files.write(corrupt, bytes);
+        System.out.println("Corrupt Backup Test: " + (!BackupService.verify(corrupt) ? "PASSED" : "FAILED"));
+        
+        for (Path file : Files.newDirectoryStream(directory)) {
+            Files.delete(file);
+        }
+        Files.delete(directory);
+        System.out.println("Backup Service Test Completed");
+    }
+    
+    private static int count(String url, String sql) throws Exception {
+        try (Connection conn = DriverManager.getConnection(url);
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getInt(1) : -1;
+        }
+    }
+    
+    private static void insertRows() throws Exception {
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(
+                 "INSERT INTO appointments (patient_id, patient_name, doctor_id, doctor_name, date, start_time, " +
+                 "end_time, status, reason, notes, created_at, updated_at) " +
+                 "VALUES (?, 'Pat Ient', ?, 'Doc Tor', ?, 540, 570, 'completed', 'Follow-up visit', '', 0, 0)")) {
+            conn.setAutoCommit(false);
+            for (int i = 0; i < ROWS; i++) {
+                pstmt.setInt(1, 1 + i % 500);
+                pstmt.setInt(2, 1 + i % 20);
+                pstmt.setInt(3, 20000 + i % 1000);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+            conn.commit();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.patientmanagement.test;
+
+import com.patientmanagement.model.Appointment;
+import com.patientmanagement.model.BookingResult;
+import com.patientmanagement.model.dao.AppointmentDAO;
+import com.patientmanagement.util.DatabaseUtil;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stress test for AppointmentDAO.bookAppointment: many threads hammer the same
+ * doctor slots and the database must end up with zero double bookings
+ */
+public class BookingConcurrencyTest {
+    
+    private static final int THREADS = 8;
+    private static final int DOCTORS = 3;
+    private static final int SLOTS_PER_DOCTOR = 20;
+    private static final int ATTEMPTS_PER_SLOT = 6;
+    
+    public static void main(String[] args) throws Exception {
+        System.out.println("Starting Booking Concurrency Test");
+        System.out.println("=================================");
+        
+        // Use a throwaway database file so the test never touches real data
+        File dbFile = File.createTempFile("booking-stress", ".db");
+        dbFile.deleteOnExit();
+        System.setProperty("patientmanagement.db.url", "jdbc:sqlite:" + dbFile.getAbsolutePath());
+        DatabaseUtil.initializeDatabase();
+        
+        testConcurrentBooking();
+    }
+    
+    private static void testConcurrentBooking() throws Exception {
+        AppointmentDAO appointmentDAO = new AppointmentDAO();
+        LocalDate date = LocalDate.now().plusDays(1);
+        
+        // Every slot is requested several times, with overlapping variants shifted by 15 minutes
+        List<Appointment> requests = new ArrayList<>();
+        for (int doctorId = 1; doctorId <= DOCTORS; doctorId++) {
+            for (int slot = 0; slot < SLOTS_PER_DOCTOR; slot++) {
+                LocalTime start = LocalTime.of(8, 0).plusMinutes(30L * slot);
+                for (int attempt = 0; attempt < ATTEMPTS_PER_SLOT; attempt++) {
+                    LocalTime shifted = attempt % 2 == 0 ? start : start.plusMinutes(15);
+                    requests.add(newAppointment(doctorId, attempt + 1, date, shifted, shifted.plusMinutes(30)));
+                }
+            }
+        }
+        Collections.shuffle(requests, new Random(42));
+        
+        AtomicInteger booked = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+        AtomicInteger failures = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        
+        for (Appointment request : requests) {
+            pool.submit(() -> {
+                start.await();
+                BookingResult result = appointmentDAO.bookAppointment(request);
+                switch (result.getStatus()) {
+                    case BOOKED: booked.incrementAndGet(); break;
+                    case CONFLICT: conflicts.incrementAndGet(); break;
+                    default: failures.incrementAndGet(); break;
+                }
+                return null;
+            });
+        }
+        
+        long startNanos = System.nanoTime();
+        start.countDown();
+        pool.shutdown();
+        pool.awaitTermination(5, TimeUnit.MINUTES);
+        double seconds = (System.nanoTime() - startNanos) / 1_000_000_000.0;
+        
+        int overlaps = countOverlappingPairs();
+        System.out.println("Requests: " + requests.size() + ", booked: " + booked.get() +
+                           ", conflicts: " + conflicts.get() + ", failed: " + failures.get());
+        System.out.printf("Throughput: %.1f booking attempts/s on %d threads%n", requests.size() / seconds, THREADS);
+        
+        System.out.println("No Double Booking Test: " + (overlaps == 0 ? "PASSED" : "FAILED (" + overlaps + " overlaps)"));
+        System.out.println("No Failed Booking Test: " + (failures.get() == 0 ? "PASSED" : "FAILED"));
+        System.out.println("All Requests Answered Test: " +
+                (booked.get() + conflicts.get() + failures.get() == requests.size() ? "PASSED" : "FAILED"));
+        System.out.println("Booking Concurrency Test Completed");
+    }
+    
+    private static Appointment newAppointment(int doctorId, int patientId, LocalDate date, LocalTime start, LocalTime end) {
+        Appointment appointment = new Appointment();
+        appointment.setDoctorId(doctorId);
+        appointment.setDoctorName("Doctor " + doctorId);
+        appointment.setPatientId(patientId);
+        appointment.setPatientName("Patient " + patientId);
+        appointment.setDate(date);
+        appointment.setStartTime(start);
+        appointment.setEndTime(end);
+        appointment.setReason("Stress test");
+        return appointment;
+    }
+    
+    private static int countOverlappingPairs() throws Exception {
+        String sql = "SELECT COUNT(*) FROM appointments a " +
+                     "JOIN appointments b ON a.doctor_id = b.doctor_id AND a.date = b.date " +
+                     "AND a.appointment_id < b.appointment_id " +
+                     "AND a.start_time < b.end_time AND b.start_time < a.end_time";
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getInt(1) : -1;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.patientmanagement.test;
+
+import com.patientmanagement.model.Patient;
+import com.patientmanagement.model.dao.DaoExecutor;
+import com.patientmanagement.model.dao.DataAccessException;
+import com.patientmanagement.model.dao.PatientDAO;
+import com.patientmanagement.util.DatabaseUtil;
+import org.sqlite.SQLiteErrorCode;
+import org.sqlite.SQLiteException;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test that DaoExecutor retries busy errors with backoff until the deadline, fails other errors
+ * at once with the right kind, and counts retries and failures
+ */
+public class DaoExecutorTest {
+
+    private static final long DEADLINE_MILLIS = 6000;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("Starting DAO Executor Test");
+        System.out.println("==========================");
+
+        // Use a throwaway database so the test never touches real data
+        File dbFile = File.createTempFile("executor", ".db");
+        dbFile.deleteOnExit();
+        System.setProperty("patientmanagement.db.url", "jdbc:sqlite:" + dbFile.getAbsolutePath());
+        System.setProperty("patientmanagement.dao.retryDeadlineMillis", String.valueOf(DEADLINE_MILLIS));
+        DatabaseUtil.initializeDatabase();
+
+        // Busy twice, then the third attempt succeeds
+        long retriesBefore = DaoExecutor.getRetryCount();
+        long retriedBefore = DaoExecutor.getRetriedOperationCount();
+        AtomicInteger attempts = new AtomicInteger();
+        String value = DaoExecutor.call("test.transientBusy", conn -> {
+            if (attempts.incrementAndGet() <= 2) {
+                throw new SQLiteException("database is locked", SQLiteErrorCode.SQLITE_BUSY);
+            }
+            return "done";
+        });
+        boolean retried = "done".equals(value) && attempts.get() == 3
+                && DaoExecutor.getRetryCount() - retriesBefore == 2
+                && DaoExecutor.getRetriedOperationCount() - retriedBefore == 1
+                && DaoExecutor.getRetryWaitMillis() > 0 && DaoExecutor.getLastFailure() == null
+                && DaoExecutor.failureMessage("Could not save.").equals("Could not save. Please try again.");
+        System.out.println("Transient Busy Retry Test: " + (retried ? "PASSED" : "FAILED"));
+
+        // Busy until the deadline
+        long start = System.currentTimeMillis();
+        DataAccessException busy = null;
+        try {
+            DaoExecutor.call("test.alwaysBusy", conn -> {
+                throw new SQLiteException("database is locked", SQLiteErrorCode.SQLITE_BUSY);
+            });
+        } catch (DataAccessException e) {
+            busy = e;
+        }
+        long elapsed = System.currentTimeMillis() - start;
+        System.out.println("Gave up after " + elapsed + " ms and " + (busy == null ? 0 : busy.getAttempts()) + " attempt(s)");
+        boolean deadline = busy != null && busy.getKind() == DataAccessException.Kind.BUSY
+                && busy.getAttempts() > 3 && elapsed <= DEADLINE_MILLIS + 500
+                && DaoExecutor.getLastFailure() == busy && DaoExecutor.getFailureCount(DataAccessException.Kind.BUSY) == 1;
+        System.out.println("Busy Deadline Test: " + (deadline ? "PASSED" : "FAILED"));
+
+        // A constraint violation is not retried, and execute() falls back
+        String insert = "INSERT INTO patients (patient_id, first_name, last_name, date_of_birth, gender, " +
+                        "created_at, updated_at) VALUES (1000, 'Pat', 'Ient', 0, 'F', 0, 0)";
+        DaoExecutor.call("test.insert", conn -> {
+            try (Statement stmt = conn.createStatement()) {
+                return stmt.executeUpdate(insert);
+            }
+        });
+        AtomicInteger duplicateAttempts = new AtomicInteger();
+        int fallback = DaoExecutor.execute("test.duplicate", -1, conn -> {
+            duplicateAttempts.incrementAndGet();
+            try (Statement stmt = conn.createStatement()) {
+                return stmt.executeUpdate(insert);
+            }
+        });
+        DataAccessException failure = DaoExecutor.getLastFailure();
+        boolean constraint = fallback == -1 && duplicateAttempts.get() == 1 && failure != null
+                && failure.getKind() == DataAccessException.Kind.CONSTRAINT && failure.getResultCode() == 19
+                && "test.duplicate".equals(failure.getOperation())
+                && DaoExecutor.failureMessage("Could not save.").equals("Could not save. "
+                        + DataAccessException.Kind.CONSTRAINT.getUserMessage());
+        System.out.println("Constraint Not Retried Test: " + (constraint ? "PASSED" : "FAILED"));
+
+        boolean classified = DaoExecutor.classify(6) == DataAccessException.Kind.BUSY
+                && DaoExecutor.classify(11) == DataAccessException.Kind.CORRUPT
+                && DaoExecutor.classify(13) == DataAccessException.Kind.UNAVAILABLE
+                && DaoExecutor.classify(1) == DataAccessException.Kind.ERROR;
+        System.out.println("Result Code Classification Test: " + (classified ? "PASSED" : "FAILED"));
+
+        // Another workstation holds the write lock longer than the driver's busy timeout
+        CountDownLatch locked = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + dbFile.getAbsolutePath());
+                 Statement stmt = conn.createStatement()) {
+                stmt.execute("BEGIN EXCLUSIVE");
+                locked.countDown();
+                Thread.sleep(3500);
+                stmt.execute("COMMIT");
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+        holder.start();
+        locked.await();
+
+        Patient patient = new Patient();
+        patient.setFirstName("Busy");
+        patient.setLastName("Workstation");
+        patient.setDateOfBirth(LocalDate.of(1980, 1, 1));
+        patient.setGender("F");
+        retriesBefore = DaoExecutor.getRetryCount();
+        boolean created = new PatientDAO().createPatient(patient);
+        holder.join();
+        boolean outlasted = created && patient.getPatientId() > 0 && DaoExecutor.getRetryCount() > retriesBefore;
+        System.out.println("Outlasts Held Lock Test: " + (outlasted ? "PASSED" : "FAILED"));
+
+        System.out.println("Operations: " + DaoExecutor.getOperationCount() + ", retried: " +
+                           DaoExecutor.getRetriedOperationCount() + ", retries: " + DaoExecutor.getRetryCount() +
+                           ", waited " + DaoExecutor.getRetryWaitMillis() + " ms");
+        System.out.println("DAO Executor Test Completed");
+    }
+}
@@ -0,0 +1,128 @@
+package com.patientmanagement.test;
+
+import com.patientmanagement.metrics.DaoMetrics;
+import com.patientmanagement.metrics.LatencyHistogram;
+import com.patientmanagement.metrics.OperationSnapshot;
+import com.patientmanagement.model.Patient;
+import com.patientmanagement.model.dao.PatientDAO;
+import com.patientmanagement.util.DatabaseUtil;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test the DAO latency histograms: percentile accuracy, lock-free recording from many threads,
+ * recording overhead, the per-operation counters filled by DaoExecutor and the dump file
+ */
+public class DaoMetricsTest {
+
+    private static final int THREADS = 8;
+    private static final int RECORDS_PER_THREAD = 200_000;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("Starting DAO Metrics Test");
+        System.out.println("=========================");
+
+        // Use a throwaway database so the test never touches real data
+        File dbFile = File.createTempFile("metrics", ".db");
+        dbFile.deleteOnExit();
+        System.setProperty("patientmanagement.db.url", "jdbc:sqlite:" + dbFile.getAbsolutePath());
+        DatabaseUtil.initializeDatabase();
+
+        // 1 to 10000 microseconds, one of each
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int micros = 1; micros <= 10_000; micros++) {
+            histogram.record(micros * 1000L);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        boolean accurate = snapshot.getCount() == 10_000 && snapshot.getMaxMicros() == 10_000
+                && within(snapshot.getPercentileMicros(50), 5_000) && within(snapshot.getPercentileMicros(95), 9_500)
+                && within(snapshot.getPercentileMicros(99), 9_900) && snapshot.getPercentileMicros(100) == 10_000;
+        System.out.println("p50=" + snapshot.getPercentileMicros(50) + " p95=" + snapshot.getPercentileMicros(95) +
+                           " p99=" + snapshot.getPercentileMicros(99) + " max=" + snapshot.getMaxMicros() + " us");
+        System.out.println("Percentile Accuracy Test: " + (accurate ? "PASSED" : "FAILED"));
+
+        // Many threads record into one histogram at once
+        LatencyHistogram shared = new LatencyHistogram();
+        List<Thread> threads = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            int offset = t;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < RECORDS_PER_THREAD; i++) {
+                    shared.record((i % 5000 + offset) * 1000L);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long nanosPerRecord = (System.nanoTime() - start) * THREADS / ((long) THREADS * RECORDS_PER_THREAD);
+        LatencyHistogram.Snapshot concurrent = shared.snapshot();
+        boolean lockFree = concurrent.getCount() == (long) THREADS * RECORDS_PER_THREAD
+                && concurrent.getMaxMicros() == 4999 + THREADS - 1;
+        System.out.println("Concurrent Recording Test: " + (lockFree ? "PASSED" : "FAILED"));
+
+        // A recording must cost a tiny fraction of the fastest query
+        System.out.println("Recording cost: about " + nanosPerRecord + " ns per call per thread");
+        System.out.println("Low Overhead Test: " + (nanosPerRecord < 2000 ? "PASSED" : "FAILED"));
+
+        // DaoExecutor records every DAO call with the rows it returned
+        DaoMetrics.reset();
+        PatientDAO patientDAO = new PatientDAO();
+        for (int i = 0; i < 5; i++) {
+            Patient patient = new Patient();
+            patient.setFirstName("Metric" + i);
+            patient.setLastName("Patient");
+            patient.setDateOfBirth(LocalDate.of(1980, 1, 1 + i));
+            patient.setGender("F");
+            patientDAO.createPatient(patient);
+        }
+        for (int i = 0; i < 3; i++) {
+            patientDAO.getAllPatients();
+        }
+        patientDAO.getPatientById(1);
+        OperationSnapshot creates = find("PatientDAO.createPatient");
+        OperationSnapshot lists = find("PatientDAO.getAllPatients");
+        OperationSnapshot byId = find("PatientDAO.getPatientById");
+        boolean counted = creates != null && creates.getCalls() == 5 && creates.getRows() == 0
+                && lists != null && lists.getCalls() == 3 && lists.getRows() == 15 && lists.getFailures() == 0
+                && lists.getP50Micros() > 0 && lists.getMaxMicros() >= lists.getP99Micros()
+                && byId != null && byId.getRows() == 1;
+        System.out.println("DAO Operation Counters Test: " + (counted ? "PASSED" : "FAILED"));
+
+        Path dump = Files.createTempFile("dao-metrics", ".log");
+        dump.toFile().deleteOnExit();
+        boolean written = DaoMetrics.dump(dump) && DaoMetrics.dump(dump);
+        List<String> lines = Files.readAllLines(dump);
+        long headers = lines.stream().filter(line -> line.startsWith("# ")).count();
+        boolean dumped = written && headers == 2
+                && lines.stream().anyMatch(line -> line.startsWith("PatientDAO.getAllPatients calls=3 rows=15"));
+        System.out.println("Metrics Dump Test: " + (dumped ? "PASSED" : "FAILED"));
+
+        for (OperationSnapshot operation : DaoMetrics.snapshot()) {
+            System.out.println(operation);
+        }
+        System.out.println("DAO Metrics Test Completed");
+    }
+
+    // Bucket bounds are accurate to 1/16 of the power of two
+    private static boolean within(long actual, long expected) {
+        return Math.abs(actual - expected) <= expected / 16 + 1;
+    }
+
+    private static OperationSnapshot find(String operation) {
+        for (OperationSnapshot snapshot : DaoMetrics.snapshot()) {
+            if (snapshot.getOperation().equals(operation)) {
+                return snapshot;
+            }
+        }
+        return null;
+    }
+}
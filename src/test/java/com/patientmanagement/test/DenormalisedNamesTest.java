@@ -0,0 +1,113 @@
+package com.patientmanagement.test;
+
+import com.patientmanagement.model.Appointment;
+import com.patientmanagement.model.Patient;
+import com.patientmanagement.model.dao.AppointmentDAO;
+import com.patientmanagement.model.dao.PatientDAO;
+import com.patientmanagement.util.DatabaseUtil;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Test that the patient_name and doctor_name columns of appointments are filled on insert,
+ * follow renames and reassignments through the triggers, and are restored by the backfill
+ */
+public class DenormalisedNamesTest {
+    
+    private static final LocalDate DATE = LocalDate.of(2030, 5, 6);
+    
+    public static void main(String[] args) throws Exception {
+        System.out.println("Starting Denormalised Names Test");
+        System.out.println("================================");
+        
+        // Use a throwaway database file so the test never touches real data
+        File dbFile = File.createTempFile("names", ".db");
+        dbFile.deleteOnExit();
+        System.setProperty("patientmanagement.db.url", "jdbc:sqlite:" + dbFile.getAbsolutePath());
+        DatabaseUtil.initializeDatabase();
+        
+        execute("INSERT INTO users (user_id, username, password_hash, password_salt, first_name, last_name, " +
+                "role, created_at, updated_at) VALUES (1, 'house', '', '', 'Greg', 'House', 'doctor', 0, 0), " +
+                "(2, 'wilson', '', '', 'James', 'Wilson', 'doctor', 0, 0)");
+        execute("INSERT INTO doctors (doctor_id, user_id, first_name, last_name, specialization, created_at, updated_at) " +
+                "VALUES (1, 1, 'Greg', 'House', 'Diagnostics', 0, 0), (2, 2, 'James', 'Wilson', 'Oncology', 0, 0)");
+        
+        PatientDAO patientDAO = new PatientDAO();
+        Patient ann = newPatient("Ann", "Lee");
+        Patient bob = newPatient("Bob", "Ray");
+        patientDAO.createPatient(ann);
+        patientDAO.createPatient(bob);
+        
+        // The caller's names are only a fallback, the stored names come from the patient and user rows
+        AppointmentDAO appointmentDAO = new AppointmentDAO();
+        Appointment appointment = new Appointment();
+        appointment.setPatientId(ann.getPatientId());
+        appointment.setDoctorId(1);
+        appointment.setPatientName("stale");
+        appointment.setDoctorName("stale");
+        appointment.setDate(DATE);
+        appointment.setStartTime(LocalTime.of(9, 0));
+        appointment.setEndTime(LocalTime.of(9, 30));
+        appointment.setReason("Checkup");
+        boolean created = appointmentDAO.createAppointment(appointment);
+        System.out.println("Names On Create Test: " +
+                (created && hasNames(appointmentDAO, appointment, "Ann Lee", "Greg House") ? "PASSED" : "FAILED"));
+        
+        ann.setLastName("Lee-Smith");
+        patientDAO.updatePatient(ann);
+        System.out.println("Patient Rename Test: " +
+                (hasNames(appointmentDAO, appointment, "Ann Lee-Smith", "Greg House") ? "PASSED" : "FAILED"));
+        
+        execute("UPDATE users SET first_name = 'Gregory' WHERE user_id = 1");
+        System.out.println("Doctor Rename Test: " +
+                (hasNames(appointmentDAO, appointment, "Ann Lee-Smith", "Gregory House") ? "PASSED" : "FAILED"));
+        
+        execute("UPDATE doctors SET user_id = 2 WHERE doctor_id = 1");
+        boolean userChanged = hasNames(appointmentDAO, appointment, "Ann Lee-Smith", "James Wilson");
+        execute("UPDATE doctors SET user_id = 1 WHERE doctor_id = 1");
+        System.out.println("Doctor User Change Test: " + (userChanged ? "PASSED" : "FAILED"));
+        
+        appointment = appointmentDAO.getAppointmentById(appointment.getAppointmentId());
+        appointment.setPatientId(bob.getPatientId());
+        appointment.setDoctorId(2);
+        appointmentDAO.updateAppointment(appointment);
+        System.out.println("Reassignment Test: " +
+                (hasNames(appointmentDAO, appointment, "Bob Ray", "James Wilson") ? "PASSED" : "FAILED"));
+        
+        // Rows written before migration 6 get their names from the backfill
+        execute("UPDATE appointments SET patient_name = '', doctor_name = ''");
+        execute("PRAGMA user_version = 5");
+        DatabaseUtil.initializeDatabase();
+        System.out.println("Backfill Test: " +
+                (hasNames(appointmentDAO, appointment, "Bob Ray", "James Wilson") ? "PASSED" : "FAILED"));
+        
+        System.out.println("Denormalised Names Test Completed");
+    }
+    
+    private static boolean hasNames(AppointmentDAO appointmentDAO, Appointment appointment,
+                                    String patientName, String doctorName) {
+        Appointment stored = appointmentDAO.getAppointmentById(appointment.getAppointmentId());
+        return stored != null && patientName.equals(stored.getPatientName())
+                && doctorName.equals(stored.getDoctorName());
+    }
+    
+    private static Patient newPatient(String firstName, String lastName) {
+        Patient patient = new Patient();
+        patient.setFirstName(firstName);
+        patient.setLastName(lastName);
+        patient.setDateOfBirth(LocalDate.of(1980, 1, 1));
+        patient.setGender("F");
+        return patient;
+    }
+    
+    private static void execute(String sql) throws Exception {
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.patientmanagement.test;
+
+import com.patientmanagement.model.Doctor;
+import com.patientmanagement.model.dao.AppointmentDAO;
+import com.patientmanagement.model.dao.DoctorDAO;
+import com.patientmanagement.scheduling.SpecialtySlotSearch;
+import com.patientmanagement.scheduling.TimeSlot;
+import com.patientmanagement.util.DatabaseUtil;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * Test that DoctorDAO reads and writes the specialty, licence number and availability schedule
+ * against the real schema, and that the specialty search finds doctors through it
+ */
+public class DoctorDAOTest {
+    
+    // A Monday
+    private static final LocalDate MONDAY = LocalDate.of(2030, 3, 4);
+    
+    public static void main(String[] args) throws Exception {
+        System.out.println("Starting Doctor DAO Test");
+        System.out.println("========================");
+        
+        // Use a throwaway database file so the test never touches real data
+        File dbFile = File.createTempFile("doctors", ".db");
+        dbFile.deleteOnExit();
+        System.setProperty("patientmanagement.db.url", "jdbc:sqlite:" + dbFile.getAbsolutePath());
+        DatabaseUtil.initializeDatabase();
+        
+        execute("INSERT INTO users (user_id, username, password_hash, password_salt, first_name, last_name, " +
+                "role, created_at, updated_at) VALUES (1, 'house', '', '', 'Greg', 'House', 'doctor', 0, 0), " +
+                "(2, 'wilson', '', '', 'James', 'Wilson', 'doctor', 0, 0), " +
+                "(3, 'cuddy', '', '', 'Lisa', 'Cuddy', 'doctor', 0, 0)");
+        
+        DoctorDAO doctorDAO = new DoctorDAO();
+        Doctor house = newDoctor(1, "Greg", "House", "Cardiology", "MON-FRI 14:00-16:00");
+        Doctor wilson = newDoctor(2, "James", "Wilson", "Cardiology", "MON-FRI 09:00-10:00");
+        Doctor cuddy = newDoctor(3, "Lisa", "Cuddy", "Endocrinology", "MON-FRI 08:00-18:00");
+        boolean created = doctorDAO.createDoctor(house) && doctorDAO.createDoctor(wilson)
+                && doctorDAO.createDoctor(cuddy);
+        
+        Doctor stored = doctorDAO.getDoctorById(wilson.getDoctorId());
+        boolean read = created && stored != null
+                && "Cardiology".equals(stored.getSpecialty())
+                && "LIC-2".equals(stored.getLicenseNumber())
+                && "MON-FRI 09:00-10:00".equals(stored.getAvailabilitySchedule())
+                && "James".equals(stored.getFirstName());
+        System.out.println("Create And Read Test: " + (read ? "PASSED" : "FAILED"));
+        
+        List<Doctor> cardiologists = doctorDAO.getDoctorsBySpecialty("Cardiology");
+        System.out.println("Doctors By Specialty Test: " +
+                (cardiologists.size() == 2 && doctorDAO.getAllDoctors().size() == 3 ? "PASSED" : "FAILED"));
+        
+        // The earliest cardiology slots are Wilson's morning hours
+        SpecialtySlotSearch search = new SpecialtySlotSearch(doctorDAO, new AppointmentDAO());
+        List<TimeSlot> slots = search.findEarliest("Cardiology", MONDAY, MONDAY, 30, 2);
+        boolean earliest = slots.size() == 2
+                && slots.get(0).getDoctorId() == wilson.getDoctorId()
+                && slots.get(0).getStartTime().equals(LocalTime.of(9, 0))
+                && slots.get(1).getStartTime().equals(LocalTime.of(9, 30));
+        System.out.println("Specialty Search Test: " + (earliest ? "PASSED" : "FAILED"));
+        
+        // A changed schedule is stored, logged for replay and used by the next search
+        stored.setAvailabilitySchedule("MON-FRI 15:00-16:00");
+        boolean updated = doctorDAO.updateDoctor(stored);
+        slots = search.findEarliest("Cardiology", MONDAY, MONDAY, 30, 1);
+        boolean rescheduled = updated && slots.size() == 1
+                && slots.get(0).getDoctorId() == house.getDoctorId()
+                && slots.get(0).getStartTime().equals(LocalTime.of(14, 0))
+                && logged("availability_schedule = 'MON-FRI 15:00-16:00'");
+        System.out.println("Update Schedule Test: " + (rescheduled ? "PASSED" : "FAILED"));
+        
+        System.out.println("Doctor DAO Test Completed");
+    }
+    
+    private static Doctor newDoctor(int userId, String firstName, String lastName, String specialty,
+                                    String schedule) {
+        Doctor doctor = new Doctor();
+        doctor.setUserId(userId);
+        doctor.setFirstName(firstName);
+        doctor.setLastName(lastName);
+        doctor.setSpecialty(specialty);
+        doctor.setLicenseNumber("LIC-" + userId);
+        doctor.setAvailabilitySchedule(schedule);
+        return doctor;
+    }
+    
+    private static boolean logged(String fragment) throws Exception {
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT statement FROM change_log ORDER BY change_id DESC LIMIT 1")) {
+            return rs.next() && rs.getString(1).contains(fragment);
+        }
+    }
+    
+    private static void execute(String sql) throws Exception {
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.patientmanagement.test;
+
+import com.patientmanagement.calendar.AppointmentWindowCache;
+import com.patientmanagement.calendar.CalendarMode;
+import com.patientmanagement.calendar.CalendarWindow;
+import com.patientmanagement.metrics.BackgroundTaskEvent;
+import com.patientmanagement.metrics.ViewLoadEvent;
+import com.patientmanagement.model.Appointment;
+import com.patientmanagement.model.dao.AppointmentDAO;
+import com.patientmanagement.model.dao.PatientDAO;
+import com.patientmanagement.util.DatabaseUtil;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * Test that DAO calls, conflict checks, cache misses, view loads and background tasks emit their
+ * Flight Recorder events in the Patient Management category
+ */
+public class FlightRecorderEventsTest {
+    
+    private static final String[] EVENTS = {
+        "com.patientmanagement.DaoQuery", "com.patientmanagement.ViewLoad", "com.patientmanagement.ConflictCheck",
+        "com.patientmanagement.CacheMiss", "com.patientmanagement.BackgroundTask"
+    };
+    
+    public static void main(String[] args) throws Exception {
+        System.out.println("Starting Flight Recorder Events Test");
+        System.out.println("====================================");
+        
+        // Use a throwaway database so the test never touches real data
+        File dbFile = File.createTempFile("jfr", ".db");
+        dbFile.deleteOnExit();
+        System.setProperty("patientmanagement.db.url", "jdbc:sqlite:" + dbFile.getAbsolutePath());
+        DatabaseUtil.initializeDatabase();
+        
+        LocalDate date = LocalDate.now().plusDays(3);
+        Path file = Files.createTempFile("events", ".jfr");
+        file.toFile().deleteOnExit();
+        try (Recording recording = new Recording()) {
+            // Below the default thresholds, so that every event is kept
+            for (String event : EVENTS) {
+                recording.enable(event).withThreshold(Duration.ZERO);
+            }
+            recording.start();
+            
+            new PatientDAO().getAllPatients();
+            AppointmentDAO appointmentDAO = new AppointmentDAO();
+            appointmentDAO.hasSchedulingConflict(1, date, LocalTime.of(9, 0), LocalTime.of(9, 30), null);
+            Appointment appointment = new Appointment(0, 1, 1, date, LocalTime.of(10, 0), LocalTime.of(10, 30),
+                                                      "Scheduled", "Check-up", "");
+            appointmentDAO.bookAppointment(appointment);
+            
+            CalendarWindow window = CalendarMode.WEEK.window(date);
+            AppointmentWindowCache.get(window);
+            AppointmentWindowCache.get(window);
+            
+            ViewLoadEvent view = ViewLoadEvent.start("patients");
+            view.finish();
+            BackgroundTaskEvent.run("test", () -> { });
+            try {
+                BackgroundTaskEvent.run("failing", () -> {
+                    throw new IllegalStateException("task failed");
+                });
+            } catch (IllegalStateException expected) {
+                // The event still records the run
+            }
+            
+            recording.stop();
+            recording.dump(file);
+        }
+        
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        
+        boolean categorised = true;
+        for (EventType type : FlightRecorder.getFlightRecorder().getEventTypes()) {
+            if (type.getName().startsWith("com.patientmanagement.")) {
+                categorised &= type.getCategoryNames().get(0).equals("Patient Management");
+            }
+        }
+        System.out.println("Event Category Test: " + (categorised ? "PASSED" : "FAILED"));
+        
+        boolean query = events.stream().anyMatch(event -> is(event, "DaoQuery")
+                && "PatientDAO.getAllPatients".equals(event.getString("operation"))
+                && event.getInt("attempts") == 1 && !event.getBoolean("failed"));
+        System.out.println("DAO Query Event Test: " + (query ? "PASSED" : "FAILED"));
+        
+        boolean checks = events.stream().anyMatch(event -> is(event, "ConflictCheck")
+                && "query".equals(event.getString("kind")) && event.getInt("doctorId") == 1
+                && date.toString().equals(event.getString("date")) && event.getInt("conflicts") == 0)
+                && events.stream().anyMatch(event -> is(event, "ConflictCheck") && "booking".equals(event.getString("kind")));
+        System.out.println("Conflict Check Event Test: " + (checks ? "PASSED" : "FAILED"));
+        
+        long misses = events.stream().filter(event -> is(event, "CacheMiss")
+                && "calendarWindow".equals(event.getString("cache"))).count();
+        System.out.println("Cache Miss Event Test: " + (misses == 1 ? "PASSED" : "FAILED"));
+        
+        boolean views = events.stream().anyMatch(event -> is(event, "ViewLoad") && "patients".equals(event.getString("view")));
+        System.out.println("View Load Event Test: " + (views ? "PASSED" : "FAILED"));
+        
+        boolean tasks = events.stream().anyMatch(event -> is(event, "BackgroundTask")
+                && "test".equals(event.getString("task")) && !event.getBoolean("failed"))
+                && events.stream().anyMatch(event -> is(event, "BackgroundTask")
+                && "failing".equals(event.getString("task")) && event.getBoolean("failed"));
+        System.out.println("Background Task Event Test: " + (tasks ? "PASSED" : "FAILED"));
+        
+        System.out.println("Flight Recorder Events Test Completed");
+    }
+    
+    private static boolean is(RecordedEvent event, String name) {
+        return event.getEventType().getName().equals("com.patientmanagement." + name);
+    }
+}
@@ -0,0 +1,106 @@
+package com.patientmanagement.test;
+
+import com.patientmanagement.metrics.FxStallDetector;
+import com.patientmanagement.metrics.UiMetrics;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Test that the stall detector reports a blocked thread with the method that blocked it, counts
+ * the stall and enforces a stall budget. A plain thread stands in for the JavaFX Application
+ * Thread, pulsing the way the animation timer does
+ */
+public class FxStallDetectorTest {
+    
+    private static volatile FxStallDetector detector;
+    
+    public static void main(String[] args) throws Exception {
+        System.out.println("Starting FX Stall Detector Test");
+        System.out.println("===============================");
+        
+        Path log = Files.createTempFile("ui-stalls", ".log");
+        log.toFile().deleteOnExit();
+        
+        Thread uiThread = new Thread(FxStallDetectorTest::runUi, "fake-fx-thread");
+        detector = new FxStallDetector(uiThread, 50);
+        detector.setLogFile(log);
+        detector.start();
+        uiThread.start();
+        uiThread.join();
+        detector.stop();
+        
+        // Short pauses between pulses are not stalls; the one blocking call is
+        List<FxStallDetector.Stall> stalls = detector.getStalls();
+        for (FxStallDetector.Stall stall : stalls) {
+            System.out.println(stall);
+        }
+        boolean detected = stalls.size() == 1 && stalls.get(0).getMillis() >= 250
+                && UiMetrics.getStallCount() == 1 && UiMetrics.getLongestStallMillis() >= 250;
+        System.out.println("Stall Detection Test: " + (detected ? "PASSED" : "FAILED"));
+        
+        // The stack was sampled while the thread was blocked
+        boolean attributed = stalls.size() == 1 && "FxStallDetectorTest.loadPatientsOnUiThread".equals(stalls.get(0).getMethod());
+        String text = new String(Files.readAllBytes(log));
+        boolean logged = text.contains("stalled") && text.contains("java.lang.Thread.sleep")
+                && text.contains("loadPatientsOnUiThread");
+        System.out.println("Stall Attribution Test: " + (attributed && logged ? "PASSED" : "FAILED"));
+        
+        // A UI test run fails once the stalls exceed its budget
+        boolean withinBudget;
+        try {
+            detector.checkBudget(1);
+            withinBudget = true;
+        } catch (AssertionError e) {
+            withinBudget = false;
+        }
+        boolean overBudget;
+        try {
+            detector.checkBudget(0);
+            overBudget = false;
+        } catch (AssertionError e) {
+            System.out.println(e.getMessage());
+            overBudget = e.getMessage().contains("loadPatientsOnUiThread");
+        }
+        System.out.println("Stall Budget Test: " + (withinBudget && overBudget ? "PASSED" : "FAILED"));
+        
+        // The detector is opt-in, and the shutdown report never throws
+        boolean optIn = FxStallDetector.install() == null && detector.reportBudget();
+        System.out.println("Opt-In And Shutdown Report Test: " + (optIn ? "PASSED" : "FAILED"));
+        
+        System.out.println("FX Stall Detector Test Completed");
+    }
+    
+    private static void runUi() {
+        pulseFor(200);
+        loadPatientsOnUiThread();
+        pulseFor(200);
+    }
+    
+    // Stands in for a controller running a slow DAO call on the UI thread
+    private static void loadPatientsOnUiThread() {
+        try {
+            Thread.sleep(300);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private static void pulseFor(long millis) {
+        long end = System.currentTimeMillis() + millis;
+        while (System.currentTimeMillis() < end) {
+            detector.pulse();
+            sleep(16);
+        }
+        detector.pulse();
+    }
+    
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
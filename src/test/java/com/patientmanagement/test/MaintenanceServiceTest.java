@@ -0,0 +1,171 @@
+package com.patientmanagement.test;
+
+import com.patientmanagement.maintenance.MaintenanceResult;
+import com.patientmanagement.maintenance.MaintenanceService;
+import com.patientmanagement.util.DatabaseUtil;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Test that MaintenanceService analyzes stale tables, returns freed pages in short steps while
+ * another connection keeps writing, checks the tables, and yields to the application
+ */
+public class MaintenanceServiceTest {
+    
+    private static final int ROWS = 40_000;
+    
+    public static void main(String[] args) throws Exception {
+        System.out.println("Starting Maintenance Service Test");
+        System.out.println("=================================");
+        
+        // Use a throwaway database so the test never touches real data
+        File dbFile = File.createTempFile("maintenance", ".db");
+        dbFile.deleteOnExit();
+        System.setProperty("patientmanagement.db.url", "jdbc:sqlite:" + dbFile.getAbsolutePath());
+        DatabaseUtil.initializeDatabase();
+        System.out.println("Incremental Auto-Vacuum Test: " + (count("PRAGMA auto_vacuum") == 2 ? "PASSED" : "FAILED"));
+        
+        // An older database keeps its mode at startup and is switched only on request
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA auto_vacuum = NONE");
+            stmt.execute("VACUUM");
+            stmt.execute("PRAGMA user_version = 8");
+        }
+        DatabaseUtil.initializeDatabase();
+        boolean kept = count("PRAGMA auto_vacuum") == 0 && count("PRAGMA user_version") >= 9;
+        boolean switched = new MaintenanceService(500, 5).enableIncrementalVacuum() && count("PRAGMA auto_vacuum") == 2;
+        System.out.println("Explicit Auto-Vacuum Switch Test: " + (kept && switched ? "PASSED" : "FAILED"));
+        
+        insertRows();
+        execute("DELETE FROM appointments WHERE appointment_id % 4 != 0");
+        execute("DELETE FROM change_log");
+        int freeBefore = count("PRAGMA freelist_count");
+        long sizeBefore = dbFile.length();
+        
+        MaintenanceService service = new MaintenanceService(500, 5);
+        MaintenanceResult yielded;
+        // An open connection counts as activity, so maintenance must yield to it
+        Connection held = DatabaseUtil.getConnection();
+        try {
+            yielded = service.run(true);
+        } finally {
+            held.close();
+        }
+        boolean yields = yielded != null && !yielded.isCompleted() && yielded.getWriteSteps() == 0
+                && count("PRAGMA freelist_count") == freeBefore;
+        System.out.println("Yields To Activity Test: " + (yields ? "PASSED" : "FAILED"));
+        
+        // A writer keeps inserting while maintenance runs, and records its slowest insert
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong slowest = new AtomicLong();
+        Thread writer = new Thread(() -> {
+            while (running.get()) {
+                long start = System.nanoTime();
+                try {
+                    execute("INSERT INTO patients (first_name, last_name, date_of_birth, gender, created_at, updated_at) " +
+                            "VALUES ('Pat', 'Ient', 0, 'F', 0, 0)");
+                    slowest.accumulateAndGet((System.nanoTime() - start) / 1_000_000, Math::max);
+                    Thread.sleep(5);
+                } catch (Exception e) {
+                    slowest.set(Long.MAX_VALUE);
+                }
+            }
+        });
+        writer.start();
+        MaintenanceResult result = service.run(false);
+        running.set(false);
+        writer.join();
+        
+        System.out.println(result);
+        System.out.println("Slowest concurrent insert: " + slowest.get() + " ms");
+        boolean vacuumed = result != null && result.isCompleted() && freeBefore > 0
+                && result.getFreedPages() >= freeBefore / 2 && count("PRAGMA freelist_count") < freeBefore / 10
+                && dbFile.length() < sizeBefore;
+        System.out.println("Incremental Vacuum Test: " + (vacuumed ? "PASSED" : "FAILED"));
+        
+        boolean analyzed = result != null && result.getAnalyzedTables().contains("appointments")
+                && count("SELECT COUNT(*) FROM sqlite_stat1 WHERE tbl = 'appointments'") > 0;
+        System.out.println("Stale Statistics Analyzed Test: " + (analyzed ? "PASSED" : "FAILED"));
+        
+        boolean checked = result != null && result.getProblems().isEmpty()
+                && result.getCheckedTables() == count("SELECT COUNT(*) FROM sqlite_master " +
+                                                      "WHERE type = 'table' AND name NOT LIKE 'sqlite_%'");
+        System.out.println("Quick Check Test: " + (checked ? "PASSED" : "FAILED"));
+        
+        // The target is a few milliseconds per step; the bounds leave room for a loaded machine
+        boolean throttled = result != null && result.getWriteSteps() > 1 && result.getLongestLockMillis() < 100
+                && slowest.get() < 500;
+        System.out.println("Short Write Steps Test: " + (throttled ? "PASSED" : "FAILED"));
+        
+        // Only the tables the writer filled are stale now
+        MaintenanceResult again = service.run(false);
+        boolean fresh = again != null && !again.getAnalyzedTables().contains("appointments")
+                && again.getAnalyzedTables().contains("patients") && again.getFreedPages() == 0;
+        System.out.println("Fresh Statistics Test: " + (fresh ? "PASSED" : "FAILED"));
+        
+        // With no backups, change log entries from before the last hour are trimmed in batches
+        execute("INSERT INTO change_log (changed_at, statement) SELECT 0, 'SELECT 1' FROM appointments");
+        int stale = count("SELECT COUNT(*) FROM change_log WHERE changed_at = 0");
+        int recent = count("SELECT COUNT(*) FROM change_log WHERE changed_at > 0");
+        MaintenanceResult trimmed = service.run(false);
+        boolean trim = trimmed != null && stale > 2000 && recent > 0 && trimmed.getTrimmedChanges() == stale
+                && count("SELECT COUNT(*) FROM change_log") == recent && trimmed.getLongestLockMillis() < 100;
+        System.out.println("Change Log Trim Test: " + (trim ? "PASSED" : "FAILED"));
+        
+        // A scheduled run starts once the database has been idle
+        execute("DELETE FROM appointments WHERE appointment_id % 8 != 0");
+        MaintenanceService scheduled = new MaintenanceService(500, 5);
+        scheduled.start(Duration.ofHours(1));
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (scheduled.getLastResult() == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        scheduled.stop();
+        boolean idleRun = scheduled.getLastResult() != null && scheduled.getLastResult().getFreedPages() > 0;
+        System.out.println("Idle Scheduling Test: " + (idleRun ? "PASSED" : "FAILED"));
+        
+        System.out.println("Maintenance Service Test Completed");
+    }
+    
+    private static void execute(String sql) throws Exception {
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+    
+    private static int count(String sql) throws Exception {
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getInt(1) : -1;
+        }
+    }
+    
+    private static void insertRows() throws Exception {
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(
+                 "INSERT INTO appointments (patient_id, patient_name, doctor_id, doctor_name, date, start_time, " +
+                 "end_time, status, reason, notes, created_at, updated_at) " +
+                 "VALUES (?, 'Pat Ient', ?, 'Doc Tor', ?, 540, 570, 'completed', 'Follow-up visit', " +
+                 "'Notes long enough to fill a few pages of the table', 0, 0)")) {
+            conn.setAutoCommit(false);
+            for (int i = 0; i < ROWS; i++) {
+                pstmt.setInt(1, 1 + i % 500);
+                pstmt.setInt(2, 1 + i % 20);
+                pstmt.setInt(3, 20000 + i % 1000);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+            conn.commit();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.patientmanagement.test;
+
+import com.patientmanagement.backup.BackupService;
+import com.patientmanagement.calendar.AppointmentWindowCache;
+import com.patientmanagement.calendar.CalendarMode;
+import com.patientmanagement.calendar.CalendarWindow;
+import com.patientmanagement.maintenance.MaintenanceService;
+import com.patientmanagement.management.ManagementBeans;
+import com.patientmanagement.metrics.UiMetrics;
+import com.patientmanagement.model.dao.PatientDAO;
+import com.patientmanagement.util.DatabaseUtil;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+/**
+ * Test that the MXBeans register, publish their attributes as open types readable by any JMX
+ * console, and run their operations
+ */
+public class ManagementBeansTest {
+    
+    public static void main(String[] args) throws Exception {
+        System.out.println("Starting Management Beans Test");
+        System.out.println("==============================");
+        
+        // Use a throwaway database so the test never touches real data
+        File dbFile = File.createTempFile("management", ".db");
+        dbFile.deleteOnExit();
+        System.setProperty("patientmanagement.db.url", "jdbc:sqlite:" + dbFile.getAbsolutePath());
+        DatabaseUtil.initializeDatabase();
+        
+        Path backups = Files.createTempDirectory("management-backups");
+        BackupService backupService = new BackupService(backups, 2, false, 100);
+        MaintenanceService maintenanceService = new MaintenanceService(1000, 5);
+        boolean registered = ManagementBeans.register(backupService, maintenanceService);
+        System.out.println("Registration Test: " + (registered ? "PASSED" : "FAILED"));
+        
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName database = new ObjectName("com.patientmanagement:type=Database");
+        ObjectName dataAccess = new ObjectName("com.patientmanagement:type=DataAccess");
+        ObjectName caches = new ObjectName("com.patientmanagement:type=Caches");
+        ObjectName ui = new ObjectName("com.patientmanagement:type=UserInterface");
+        
+        // Some activity to report
+        new PatientDAO().getAllPatients();
+        new PatientDAO().getAllPatients();
+        CalendarWindow window = CalendarMode.WEEK.window(LocalDate.now());
+        AppointmentWindowCache.get(window);
+        AppointmentWindowCache.get(window);
+        UiMetrics.recordViewLoad("patients", 12_000_000);
+        
+        // Attributes arrive as open types, the way jconsole sees them
+        CompositeData[] operations = (CompositeData[]) server.getAttribute(dataAccess, "Operations");
+        boolean latencies = false;
+        for (CompositeData operation : operations) {
+            if ("PatientDAO.getAllPatients".equals(operation.get("operation"))) {
+                latencies = (Long) operation.get("calls") == 2 && (Long) operation.get("p99Micros") > 0;
+            }
+        }
+        TabularData failures = (TabularData) server.getAttribute(dataAccess, "FailureCounts");
+        boolean dao = latencies && failures.size() == 6
+                && (Long) server.getAttribute(dataAccess, "OperationCount") >= 3;
+        System.out.println("Data Access Attributes Test: " + (dao ? "PASSED" : "FAILED"));
+        
+        boolean cacheStats = (Integer) server.getAttribute(caches, "CalendarWindowCacheSize") == 1
+                && (Double) server.getAttribute(caches, "CalendarWindowCacheHitRate") == 0.5;
+        server.invoke(caches, "clearCaches", null, null);
+        boolean cleared = cacheStats && (Integer) server.getAttribute(caches, "CalendarWindowCacheSize") == 0;
+        System.out.println("Cache Attributes And Clear Test: " + (cleared ? "PASSED" : "FAILED"));
+        
+        CompositeData[] views = (CompositeData[]) server.getAttribute(ui, "ViewLoads");
+        boolean uiStats = views.length == 1 && "patients".equals(views[0].get("operation"))
+                && (Long) views[0].get("maxMicros") == 12_000 && (Long) server.getAttribute(ui, "StallCount") == 0;
+        System.out.println("User Interface Attributes Test: " + (uiStats ? "PASSED" : "FAILED"));
+        
+        boolean connections = (Integer) server.getAttribute(database, "OpenConnections") == 0
+                && (Long) server.getAttribute(database, "DatabaseBytes") > 0;
+        System.out.println("Database Attributes Test: " + (connections ? "PASSED" : "FAILED"));
+        
+        String analyzed = (String) server.invoke(database, "analyze", null, null);
+        String backedUp = (String) server.invoke(database, "backup", null, null);
+        String maintained = (String) server.invoke(database, "runMaintenance", null, null);
+        System.out.println(analyzed);
+        System.out.println(backedUp);
+        System.out.println(maintained);
+        boolean operationsRun = analyzed.startsWith("ANALYZE finished")
+                && backupService.listBackups().size() == 1
+                && backedUp.contains(backups.toString())
+                && !"none since start".equals(server.getAttribute(database, "LastBackup"))
+                && maintenanceService.getLastResult() != null;
+        System.out.println("Database Operations Test: " + (operationsRun ? "PASSED" : "FAILED"));
+        
+        ManagementBeans.unregister();
+        System.out.println("Unregistration Test: " + (!server.isRegistered(database) ? "PASSED" : "FAILED"));
+        
+        System.out.println("Management Beans Test Completed");
+    }
+}
@@ -0,0 +1,121 @@
+package com.patientmanagement.test;
+
+import com.patientmanagement.model.Appointment;
+import com.patientmanagement.model.DoctorOccupancy;
+import com.patientmanagement.model.dao.AppointmentDAO;
+import com.patientmanagement.model.dao.OccupancyDAO;
+import com.patientmanagement.util.DatabaseUtil;
+
+import java.io.File;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Test that the trigger-maintained doctor_day_occupancy aggregate always matches
+ * a full recomputation from the appointments table
+ */
+public class OccupancyAggregateTest {
+    
+    public static void main(String[] args) throws Exception {
+        System.out.println("Starting Occupancy Aggregate Test");
+        System.out.println("=================================");
+        
+        // Use a throwaway database file so the test never touches real data
+        File dbFile = File.createTempFile("occupancy", ".db");
+        dbFile.deleteOnExit();
+        System.setProperty("patientmanagement.db.url", "jdbc:sqlite:" + dbFile.getAbsolutePath());
+        DatabaseUtil.initializeDatabase();
+        
+        testSingleDay();
+        testRandomWrites();
+        
+        System.out.println("Occupancy Aggregate Test Completed");
+    }
+    
+    private static void testSingleDay() {
+        AppointmentDAO appointmentDAO = new AppointmentDAO();
+        OccupancyDAO occupancyDAO = new OccupancyDAO();
+        LocalDate date = LocalDate.of(2030, 1, 7);
+        
+        Appointment first = newAppointment(1, date, LocalTime.of(9, 0), LocalTime.of(9, 45));
+        Appointment second = newAppointment(1, date, LocalTime.of(10, 0), LocalTime.of(10, 30));
+        appointmentDAO.bookAppointment(first);
+        appointmentDAO.bookAppointment(second);
+        boolean created = matches(occupancyDAO.getDoctorOccupancy(1, date, date), 75, 2);
+        
+        second.markAsCancelled();
+        appointmentDAO.updateAppointment(second);
+        boolean cancelled = matches(occupancyDAO.getDoctorOccupancy(1, date, date), 45, 1);
+        
+        appointmentDAO.deleteAppointment(first.getAppointmentId());
+        boolean deleted = occupancyDAO.getDoctorOccupancy(1, date, date).isEmpty();
+        
+        System.out.println("Occupancy On Create Test: " + (created ? "PASSED" : "FAILED"));
+        System.out.println("Occupancy On Cancel Test: " + (cancelled ? "PASSED" : "FAILED"));
+        System.out.println("Occupancy On Delete Test: " + (deleted ? "PASSED" : "FAILED"));
+    }
+    
+    private static void testRandomWrites() {
+        AppointmentDAO appointmentDAO = new AppointmentDAO();
+        OccupancyDAO occupancyDAO = new OccupancyDAO();
+        LocalDate from = LocalDate.of(2030, 2, 1);
+        LocalDate to = from.plusDays(9);
+        Random random = new Random(7);
+        
+        // Create, move, shorten, cancel and delete appointments in random order
+        for (int i = 0; i < 300; i++) {
+            LocalTime start = LocalTime.of(8, 0).plusMinutes(15L * random.nextInt(36));
+            Appointment appointment = newAppointment(1 + random.nextInt(4), from.plusDays(random.nextInt(10)),
+                                                     start, start.plusMinutes(15L * (1 + random.nextInt(4))));
+            if (!appointmentDAO.bookAppointment(appointment).isBooked()) {
+                continue;
+            }
+            
+            switch (random.nextInt(5)) {
+                case 0:
+                    appointment.setDate(from.plusDays(random.nextInt(10)));
+                    appointmentDAO.updateAppointment(appointment);
+                    break;
+                case 1:
+                    appointment.setEndTime(appointment.getStartTime().plusMinutes(5));
+                    appointmentDAO.updateAppointment(appointment);
+                    break;
+                case 2:
+                    appointment.markAsCancelled();
+                    appointmentDAO.updateAppointment(appointment);
+                    break;
+                case 3:
+                    appointmentDAO.deleteAppointment(appointment.getAppointmentId());
+                    break;
+                default:
+                    break;
+            }
+        }
+        
+        List<DoctorOccupancy> incremental = occupancyDAO.getOccupancy(from, to);
+        occupancyDAO.rebuild();
+        List<DoctorOccupancy> rebuilt = occupancyDAO.getOccupancy(from, to);
+        
+        boolean consistent = incremental.toString().equals(rebuilt.toString());
+        System.out.println("Occupancy Matches Rebuild Test: " + (consistent ? "PASSED" : "FAILED"));
+    }
+    
+    private static boolean matches(List<DoctorOccupancy> occupancy, int bookedMinutes, int appointmentCount) {
+        return occupancy.size() == 1
+            && occupancy.get(0).getBookedMinutes() == bookedMinutes
+            && occupancy.get(0).getAppointmentCount() == appointmentCount;
+    }
+    
+    private static Appointment newAppointment(int doctorId, LocalDate date, LocalTime start, LocalTime end) {
+        Appointment appointment = new Appointment();
+        appointment.setDoctorId(doctorId);
+        appointment.setPatientId(1);
+        appointment.setDate(date);
+        appointment.setStartTime(start);
+        appointment.setEndTime(end);
+        appointment.setReason("Occupancy test");
+        return appointment;
+    }
+}
@@ -0,0 +1,149 @@
+package com.patientmanagement.test;
+
+import com.patientmanagement.model.Appointment;
+import com.patientmanagement.model.BookingResult;
+import com.patientmanagement.model.SeriesBookingResult;
+import com.patientmanagement.model.dao.AppointmentDAO;
+import com.patientmanagement.scheduling.Availability;
+import com.patientmanagement.scheduling.AvailabilitySchedule;
+import com.patientmanagement.scheduling.RecurrenceRule;
+import com.patientmanagement.util.DatabaseUtil;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test recurrence rule expansion and booking of recurring series: all-or-nothing versus
+ * skipping conflicts, and occurrences outside the doctor's working hours
+ */
+public class RecurringSeriesTest {
+    
+    // A Monday
+    private static final LocalDate MONDAY = LocalDate.of(2031, 3, 3);
+    
+    public static void main(String[] args) throws Exception {
+        System.out.println("Starting Recurring Series Test");
+        System.out.println("==============================");
+        
+        // Use a throwaway database file so the test never touches real data
+        File dbFile = File.createTempFile("series", ".db");
+        dbFile.deleteOnExit();
+        System.setProperty("patientmanagement.db.url", "jdbc:sqlite:" + dbFile.getAbsolutePath());
+        DatabaseUtil.initializeDatabase();
+        
+        testOccurrences();
+        testSeriesBooking();
+        
+        System.out.println("Recurring Series Test Completed");
+    }
+    
+    private static void testOccurrences() {
+        List<LocalDate> weekly = RecurrenceRule.times(RecurrenceRule.Frequency.WEEKLY, 2, 3).occurrences(MONDAY);
+        List<LocalDate> daily = RecurrenceRule.times(RecurrenceRule.Frequency.DAILY, 3, 4).occurrences(MONDAY);
+        boolean count = weekly.size() == 3 && weekly.get(0).equals(MONDAY)
+                && weekly.get(2).equals(MONDAY.plusWeeks(4))
+                && daily.size() == 4 && daily.get(3).equals(MONDAY.plusDays(9));
+        System.out.println("Count Bound Test: " + (count ? "PASSED" : "FAILED"));
+        
+        // The end date is inclusive; a start after it gives no occurrences
+        List<LocalDate> until = RecurrenceRule.until(RecurrenceRule.Frequency.WEEKLY, 1, MONDAY.plusWeeks(3))
+                .occurrences(MONDAY);
+        List<LocalDate> none = RecurrenceRule.until(RecurrenceRule.Frequency.DAILY, 1, MONDAY.minusDays(1))
+                .occurrences(MONDAY);
+        boolean bounded = until.size() == 4 && until.get(3).equals(MONDAY.plusWeeks(3)) && none.isEmpty();
+        System.out.println("Until Bound Test: " + (bounded ? "PASSED" : "FAILED"));
+        
+        // MAX_OCCURRENCES is accepted, anything beyond it is rejected
+        int limit = RecurrenceRule.MAX_OCCURRENCES;
+        boolean max = RecurrenceRule.times(RecurrenceRule.Frequency.DAILY, 1, limit).occurrences(MONDAY).size() == limit
+                && RecurrenceRule.until(RecurrenceRule.Frequency.DAILY, 1, MONDAY.plusDays(limit - 1))
+                .occurrences(MONDAY).size() == limit
+                && rejects(() -> RecurrenceRule.times(RecurrenceRule.Frequency.DAILY, 1, limit + 1))
+                && rejects(() -> RecurrenceRule.until(RecurrenceRule.Frequency.DAILY, 1, MONDAY.plusDays(limit))
+                .occurrences(MONDAY))
+                && rejects(() -> RecurrenceRule.times(RecurrenceRule.Frequency.WEEKLY, 1, 0))
+                && rejects(() -> RecurrenceRule.times(RecurrenceRule.Frequency.WEEKLY, 0, 2));
+        System.out.println("Max Occurrences Test: " + (max ? "PASSED" : "FAILED"));
+        
+        boolean text = RecurrenceRule.times(RecurrenceRule.Frequency.WEEKLY, 1, 12).toString()
+                .equals("WEEKLY;INTERVAL=1;COUNT=12")
+                && RecurrenceRule.until(RecurrenceRule.Frequency.DAILY, 3, LocalDate.of(2031, 12, 31)).toString()
+                .equals("DAILY;INTERVAL=3;UNTIL=2031-12-31");
+        System.out.println("Rule Text Test: " + (text ? "PASSED" : "FAILED"));
+    }
+    
+    private static void testSeriesBooking() throws Exception {
+        AppointmentDAO appointmentDAO = new AppointmentDAO();
+        Availability weekdays = AvailabilitySchedule.parse("MON-FRI 09:00-17:00");
+        
+        // Doctor 1 is already booked on the third Monday
+        appointmentDAO.bookAppointment(newAppointment(1, MONDAY.plusWeeks(2)));
+        RecurrenceRule weekly = RecurrenceRule.times(RecurrenceRule.Frequency.WEEKLY, 1, 4);
+        
+        SeriesBookingResult allOrNothing =
+            appointmentDAO.bookAppointmentSeries(weekly, series(1, weekly), weekdays, false);
+        boolean nothing = allOrNothing.getSeriesId() == 0 && allOrNothing.getBooked().isEmpty()
+                && allOrNothing.getConflicts().size() == 1
+                && allOrNothing.getConflicts().get(0).getAppointment().getDate().equals(MONDAY.plusWeeks(2))
+                && allOrNothing.getConflicts().get(0).getConflicts().size() == 1
+                && countAppointments(1) == 1;
+        System.out.println("All Or Nothing Test: " + (nothing ? "PASSED" : "FAILED"));
+        
+        SeriesBookingResult skipped = appointmentDAO.bookAppointmentSeries(weekly, series(1, weekly), weekdays, true);
+        boolean skip = skipped.getSeriesId() > 0 && skipped.getBooked().size() == 3
+                && skipped.getConflicts().size() == 1
+                && skipped.getOccurrences().get(2).isConflict() && countAppointments(1) == 4;
+        System.out.println("Skip Conflicts Test: " + (skip ? "PASSED" : "FAILED"));
+        
+        // A daily series for a doctor working Monday to Friday must not book the weekend
+        RecurrenceRule daily = RecurrenceRule.times(RecurrenceRule.Frequency.DAILY, 1, 7);
+        SeriesBookingResult weekend = appointmentDAO.bookAppointmentSeries(daily, series(2, daily), weekdays, false);
+        boolean refused = weekend.getSeriesId() == 0 && weekend.getConflicts().size() == 2
+                && weekend.getConflicts().get(0).isOutsideWorkingHours()
+                && weekend.getConflicts().get(0).getAppointment().getDate().equals(MONDAY.plusDays(5))
+                && countAppointments(2) == 0;
+        weekend = appointmentDAO.bookAppointmentSeries(daily, series(2, daily), weekdays, true);
+        boolean weekdaysOnly = weekend.getBooked().size() == 5 && countAppointments(2) == 5;
+        for (BookingResult result : weekend.getOccurrences()) {
+            int day = result.getAppointment().getDate().getDayOfWeek().getValue();
+            weekdaysOnly &= result.isBooked() == (day <= 5);
+        }
+        System.out.println("Working Hours Test: " + (refused && weekdaysOnly ? "PASSED" : "FAILED"));
+    }
+    
+    private static List<Appointment> series(int doctorId, RecurrenceRule rule) {
+        List<Appointment> occurrences = new ArrayList<>();
+        for (LocalDate date : rule.occurrences(MONDAY)) {
+            occurrences.add(newAppointment(doctorId, date));
+        }
+        return occurrences;
+    }
+    
+    private static Appointment newAppointment(int doctorId, LocalDate date) {
+        return new Appointment(0, 1, doctorId, date, LocalTime.of(10, 0), LocalTime.of(10, 30),
+                               "Scheduled", "Follow-up", "");
+    }
+    
+    private static int countAppointments(int doctorId) throws Exception {
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM appointments WHERE doctor_id = " + doctorId)) {
+            return rs.getInt(1);
+        }
+    }
+    
+    private static boolean rejects(Runnable action) {
+        try {
+            action.run();
+            return false;
+        } catch (IllegalArgumentException e) {
+            return true;
+        }
+    }
+}
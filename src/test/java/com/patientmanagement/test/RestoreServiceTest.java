@@ -0,0 +1,306 @@
+package com.patientmanagement.test;
+
+import com.patientmanagement.archive.ArchiveService;
+import com.patientmanagement.backup.BackupResult;
+import com.patientmanagement.backup.BackupService;
+import com.patientmanagement.backup.RestoreResult;
+import com.patientmanagement.backup.RestoreService;
+import com.patientmanagement.model.dao.StatisticsDAO;
+import com.patientmanagement.util.DatabaseUtil;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Test that RestoreService brings back the state of a backup, replays the change log up to a
+ * point in time without touching later changes, and that the database can be quiesced
+ */
+public class RestoreServiceTest {
+    
+    private static final int ROWS = 5000;
+    private static final LocalDate FIRST = LocalDate.of(2026, 1, 1);
+    private static final LocalDate HORIZON = FIRST.plusDays(365);
+    
+    // Tables compared between states, the rollups included
+    private static final String[] STATE_QUERIES = {
+        "SELECT * FROM main.patients ORDER BY patient_id",
+        "SELECT * FROM main.appointments ORDER BY appointment_id",
+        "SELECT * FROM main.medical_records ORDER BY record_id",
+        "SELECT * FROM main.doctor_day_occupancy ORDER BY doctor_id, date",
+        "SELECT * FROM main.stats_consultations_daily ORDER BY 1, 2",
+        "SELECT appointment_id FROM archive.appointments ORDER BY appointment_id"
+    };
+    
+    public static void main(String[] args) throws Exception {
+        System.out.println("Starting Restore Service Test");
+        System.out.println("=============================");
+        
+        // Use throwaway database files and backup directory so the test never touches real data
+        File dbFile = File.createTempFile("restore", ".db");
+        File archiveFile = new File(dbFile.getPath().replace(".db", "_history.db"));
+        dbFile.deleteOnExit();
+        archiveFile.deleteOnExit();
+        Path directory = Files.createTempDirectory("backups");
+        System.setProperty("patientmanagement.db.url", "jdbc:sqlite:" + dbFile.getAbsolutePath());
+        System.setProperty("patientmanagement.archive.file", archiveFile.getAbsolutePath());
+        DatabaseUtil.initializeDatabase();
+        insertRows();
+        
+        BackupResult backup = new BackupService(directory, 3, true, 5).backup();
+        String backupState = state();
+        
+        // Changes up to the restore point: an insert, an update, a delete and an archive move
+        execute("INSERT INTO patients (first_name, last_name, date_of_birth, gender, created_at, updated_at) " +
+                "VALUES ('New', 'Comer', 0, 'M', 0, 0)");
+        execute("UPDATE appointments SET status = 'cancelled', notes = 'It''s off' WHERE appointment_id = 7");
+        execute("DELETE FROM medical_records WHERE appointment_id = 9");
+        execute("DELETE FROM appointments WHERE appointment_id = 9");
+        int archived = new ArchiveService().archiveBefore(HORIZON);
+        long restorePoint = Instant.now().getEpochSecond();
+        String pointState = state();
+        
+        // Changes after the restore point, one second later at least
+        while (Instant.now().getEpochSecond() <= restorePoint) {
+            Thread.sleep(20);
+        }
+        execute("INSERT INTO patients (first_name, last_name, date_of_birth, gender, created_at, updated_at) " +
+                "VALUES ('Too', 'Late', 0, 'F', 0, 0)");
+        execute("UPDATE appointments SET status = 'completed' WHERE appointment_id = 7");
+        
+        RestoreService restoreService = new RestoreService();
+        RestoreResult replayed = restoreService.restore(backup.getFile(), Instant.ofEpochSecond(restorePoint));
+        System.out.println(replayed);
+        boolean pointInTime = replayed != null && archived > 0 && replayed.getReplayedChanges() > 0
+                && pointState.equals(state())
+                && count("SELECT COUNT(*) FROM patients WHERE last_name = 'Late'") == 0
+                && count("SELECT COUNT(*) FROM patients WHERE last_name = 'Comer'") == 1;
+        System.out.println("Point In Time Test: " + (pointInTime ? "PASSED" : "FAILED"));
+        
+        boolean rollups = new StatisticsDAO().consistencyCheck().isEmpty()
+                && count("SELECT COUNT(*) FROM appointments WHERE date < " + HORIZON.toEpochDay() +
+                         " AND status IN ('completed', 'cancelled')") == 0;
+        System.out.println("Rollups Consistent Test: " + (rollups ? "PASSED" : "FAILED"));
+        
+        RestoreResult plain = restoreService.restore(backup.getFile());
+        System.out.println(plain);
+        boolean restored = plain != null && plain.getReplayedChanges() == 0 && backupState.equals(state())
+                && Files.exists(dbFile.toPath().resolveSibling(dbFile.getName() + ".before-restore"));
+        System.out.println("Backup State Test: " + (restored ? "PASSED" : "FAILED"));
+        
+        Path corrupt = directory.resolve("corrupt.db");
+        byte[] bytes = Files.readAllBytes(BackupService.decompress(backup.getFile(), corrupt));
+        for (int i = 100; i < bytes.length; i += 97) {
+            bytes[i] ^= 0x5A;
+        }
+        Files.write(corrupt, bytes);
+        boolean rejected = restoreService.restore(corrupt) == null && backupState.equals(state());
+        System.out.println("Corrupt Backup Rejected Test: " + (rejected ? "PASSED" : "FAILED"));
+        
+        System.out.println("Compact Change Log Test: " + (compactChangeLog() ? "PASSED" : "FAILED"));
+        System.out.println("Quiesce Test: " + (quiesce() ? "PASSED" : "FAILED"));
+        System.out.println("Quiesce Ownership Test: " + (quiesceOwnership() ? "PASSED" : "FAILED"));
+        
+        for (Path file : Files.newDirectoryStream(directory)) {
+            Files.delete(file);
+        }
+        Files.delete(directory);
+        Files.deleteIfExists(dbFile.toPath().resolveSibling(dbFile.getName() + ".before-restore"));
+        System.out.println("Restore Service Test Completed");
+    }
+    
+    // An update logs only the columns it changed; the name updates a rename cascades to and
+    // updates that change nothing are not logged
+    private static boolean compactChangeLog() throws Exception {
+        int last = count("SELECT COALESCE(MAX(change_id), 0) FROM change_log");
+        execute("UPDATE patients SET last_name = 'Renamed' WHERE patient_id = 1");
+        execute("UPDATE appointments SET status = status WHERE appointment_id = 7");
+        execute("UPDATE appointments SET status = 'completed' WHERE appointment_id = 7");
+        List<String> logged = new ArrayList<>();
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT statement FROM change_log WHERE change_id > " + last +
+                                              " ORDER BY change_id")) {
+            while (rs.next()) {
+                logged.add(rs.getString(1));
+            }
+        }
+        return count("SELECT COUNT(*) FROM appointments WHERE patient_name = 'Pat Renamed'") > 0
+                && logged.equals(Arrays.asList(
+                       "UPDATE patients SET last_name = 'Renamed' WHERE patient_id = 1",
+                       "UPDATE appointments SET status = 'completed' WHERE appointment_id = 7"));
+    }
+    
+    // Quiescing waits for open connections and holds new ones back until resumed
+    private static boolean quiesce() throws Exception {
+        boolean busy;
+        Connection held = DatabaseUtil.getConnection();
+        try {
+            busy = !DatabaseUtil.quiesce(200);
+        } finally {
+            held.close();
+        }
+        if (!DatabaseUtil.quiesce(1000)) {
+            return false;
+        }
+        int[] rows = {-1};
+        Thread reader = new Thread(() -> {
+            try {
+                rows[0] = count("SELECT COUNT(*) FROM patients");
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+        reader.start();
+        reader.join(300);
+        boolean heldBack = reader.isAlive();
+        DatabaseUtil.resume();
+        reader.join();
+        return busy && heldBack && rows[0] > 0 && DatabaseUtil.getOpenConnections() == 0;
+    }
+    
+    // A backup finishing while a restore holds the gate must neither reopen it nor get in
+    private static boolean quiesceOwnership() throws Exception {
+        if (!DatabaseUtil.quiesce(1000) || !DatabaseUtil.quiesce(1000)) {
+            return false;
+        }
+        boolean[] other = new boolean[3];
+        int[] rows = {-1};
+        Thread backup = new Thread(() -> {
+            try {
+                DatabaseUtil.resume();
+            } catch (IllegalStateException e) {
+                other[0] = true;
+            }
+            other[1] = !DatabaseUtil.quiesce(200);
+            try {
+                rows[0] = count("SELECT COUNT(*) FROM patients");
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+        backup.start();
+        backup.join(600);
+        boolean heldBack = backup.isAlive();
+        
+        // The owner can still use the database, and one resume leaves the nested quiesce in place
+        int ownRows = count("SELECT COUNT(*) FROM patients");
+        DatabaseUtil.resume();
+        backup.join(300);
+        heldBack &= backup.isAlive();
+        DatabaseUtil.resume();
+        backup.join();
+        return other[0] && other[1] && heldBack && ownRows > 0 && rows[0] == ownRows
+                && DatabaseUtil.getOpenConnections() == 0;
+    }
+    
+    // Every row of the compared tables as text
+    private static String state() throws Exception {
+        StringBuilder state = new StringBuilder();
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            DatabaseUtil.attachArchive(conn);
+            try (Statement stmt = conn.createStatement()) {
+                // The archive is empty until the first move
+                for (String statement : DatabaseUtil.ARCHIVE_SCHEMA) {
+                    stmt.execute(statement);
+                }
+                for (String sql : STATE_QUERIES) {
+                    try (ResultSet rs = stmt.executeQuery(sql)) {
+                        ResultSetMetaData meta = rs.getMetaData();
+                        while (rs.next()) {
+                            for (int i = 1; i <= meta.getColumnCount(); i++) {
+                                state.append(rs.getString(i)).append('|');
+                            }
+                            state.append('\n');
+                        }
+                    }
+                    state.append("--\n");
+                }
+            }
+        }
+        return state.toString();
+    }
+    
+    private static void execute(String sql) throws Exception {
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+    
+    private static int count(String sql) throws Exception {
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getInt(1) : -1;
+        }
+    }
+    
+    private static void insertRows() throws Exception {
+        Random random = new Random(11);
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement()) {
+            conn.setAutoCommit(false);
+            
+            for (int i = 1; i <= 4; i++) {
+                stmt.execute("INSERT INTO users (user_id, username, password_hash, password_salt, first_name, " +
+                             "last_name, role, created_at, updated_at) " +
+                             "VALUES (" + i + ", 'doctor" + i + "', '', '', 'Doc', 'Tor" + i + "', 'doctor', 0, 0)");
+                stmt.execute("INSERT INTO doctors (doctor_id, user_id, first_name, last_name, specialization, " +
+                             "created_at, updated_at) VALUES (" + i + ", " + i + ", 'Doc', 'Tor" + i + "', 'General', 0, 0)");
+            }
+            for (int i = 1; i <= 50; i++) {
+                stmt.execute("INSERT INTO patients (patient_id, first_name, last_name, date_of_birth, gender, " +
+                             "created_at, updated_at) VALUES (" + i + ", 'Pat', 'Ient" + i + "', 0, 'F', 0, 0)");
+            }
+            
+            String[] statuses = {"scheduled", "completed", "completed", "cancelled"};
+            try (PreparedStatement appointment = conn.prepareStatement(
+                    "INSERT INTO appointments (appointment_id, patient_id, patient_name, doctor_id, doctor_name, " +
+                    "date, start_time, end_time, status, reason, notes, created_at, updated_at) " +
+                    "VALUES (?, ?, '', ?, '', ?, ?, ?, ?, 'Checkup', '', 0, 0)");
+                 PreparedStatement record = conn.prepareStatement(
+                    "INSERT INTO medical_records (patient_id, patient_name, doctor_id, doctor_name, appointment_id, " +
+                    "appointment_date, diagnosis, treatment, created_at, updated_at) " +
+                    "VALUES (?, '', ?, '', ?, ?, 'Fine', 'Rest', 0, 0)")) {
+                for (int id = 1; id <= ROWS; id++) {
+                    int patientId = 1 + random.nextInt(50);
+                    int doctorId = 1 + random.nextInt(4);
+                    long date = FIRST.plusDays(random.nextInt(2 * 365)).toEpochDay();
+                    int startMinute = 480 + 15 * random.nextInt(36);
+                    // Appointments 7 and 9 are changed by the test and must stay in the main database
+                    String status = id == 7 || id == 9 ? "scheduled" : statuses[random.nextInt(statuses.length)];
+                    appointment.setInt(1, id);
+                    appointment.setInt(2, patientId);
+                    appointment.setInt(3, doctorId);
+                    appointment.setLong(4, date);
+                    appointment.setInt(5, startMinute);
+                    appointment.setInt(6, startMinute + 15);
+                    appointment.setString(7, status);
+                    appointment.addBatch();
+                    if ("completed".equals(status) || id == 9) {
+                        record.setInt(1, patientId);
+                        record.setInt(2, doctorId);
+                        record.setInt(3, id);
+                        record.setLong(4, date);
+                        record.addBatch();
+                    }
+                }
+                appointment.executeBatch();
+                record.executeBatch();
+            }
+            conn.commit();
+        }
+    }
+}
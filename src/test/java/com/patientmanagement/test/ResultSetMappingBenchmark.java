@@ -0,0 +1,215 @@
+package com.patientmanagement.test;
+
+import com.patientmanagement.model.Appointment;
+import com.patientmanagement.model.dao.AppointmentDAO;
+import com.patientmanagement.util.DatabaseUtil;
+import com.patientmanagement.util.SqlDateCodec;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmark for appointment row mapping on a 100k-row result: the former joined SELECT a.* query
+ * mapped by column name against AppointmentDAO's explicit single-table select list mapped by index.
+ * Loops that only step through the rows give the cost of each query itself.
+ */
+public class ResultSetMappingBenchmark {
+    
+    private static final int ROWS = 100_000;
+    private static final int PATIENTS = 2000;
+    private static final int DOCTORS = 20;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 10;
+    private static final LocalDate FIRST = LocalDate.of(2030, 1, 1);
+    private static final LocalDate LAST = FIRST.plusDays(364);
+    
+    // The query and mapper used before the select lists were made explicit
+    private static final String BY_NAME_SQL =
+        "SELECT a.*, p.first_name || ' ' || p.last_name as patient_name, " +
+        "u.first_name || ' ' || u.last_name as doctor_name " +
+        "FROM appointments a " +
+        "JOIN patients p ON a.patient_id = p.patient_id " +
+        "JOIN doctors d ON a.doctor_id = d.doctor_id " +
+        "JOIN users u ON d.user_id = u.user_id " +
+        "WHERE a.date BETWEEN ? AND ? " +
+        "ORDER BY a.date, a.start_time";
+    
+    // The stepping cost of AppointmentDAO's query, which reads the stored names without joins
+    private static final String SINGLE_TABLE_SQL =
+        "SELECT a.appointment_id, a.patient_id, a.doctor_id, a.date, a.start_time, a.end_time, a.status, " +
+        "a.reason, a.notes, a.created_at, a.updated_at, a.series_id, a.patient_name, a.doctor_name " +
+        "FROM appointments a " +
+        "WHERE a.date BETWEEN ? AND ? " +
+        "ORDER BY a.date, a.start_time";
+    
+    public static void main(String[] args) throws Exception {
+        System.out.println("Starting ResultSet Mapping Benchmark");
+        System.out.println("====================================");
+        
+        // Use a throwaway database file so the benchmark never touches real data
+        File dbFile = File.createTempFile("mapping", ".db");
+        dbFile.deleteOnExit();
+        System.setProperty("patientmanagement.db.url", "jdbc:sqlite:" + dbFile.getAbsolutePath());
+        DatabaseUtil.initializeDatabase();
+        insertRows();
+        
+        AppointmentDAO appointmentDAO = new AppointmentDAO();
+        List<Appointment> byIndex = appointmentDAO.getAppointmentsBetween(FIRST, LAST);
+        List<Appointment> byName = mapByName();
+        // Rows on the same date and start time may come back in either order
+        byIndex.sort(Comparator.comparingInt(Appointment::getAppointmentId));
+        byName.sort(Comparator.comparingInt(Appointment::getAppointmentId));
+        boolean same = byIndex.size() == ROWS && byName.size() == ROWS;
+        for (int i = 0; same && i < ROWS; i++) {
+            same = sameAppointment(byIndex.get(i), byName.get(i));
+        }
+        System.out.println("Same Rows Test: " + (same ? "PASSED" : "FAILED"));
+        
+        double joinedScan = measure(() -> scanOnly(BY_NAME_SQL));
+        double singleScan = measure(() -> scanOnly(SINGLE_TABLE_SQL));
+        double name = measure(() -> mapByName());
+        double index = measure(() -> appointmentDAO.getAppointmentsBetween(FIRST, LAST));
+        System.out.printf("Joined query, row stepping only:   %.0f ns/row%n", joinedScan);
+        System.out.printf("Single table, row stepping only:   %.0f ns/row%n", singleScan);
+        System.out.printf("SELECT a.*, mapped by column name: %.0f ns/row (mapping %.0f ns/row)%n", name, name - joinedScan);
+        System.out.printf("Explicit columns, mapped by index: %.0f ns/row (mapping %.0f ns/row)%n", index, index - singleScan);
+        System.out.println("ResultSet Mapping Benchmark Completed");
+    }
+    
+    private interface Round {
+        void run() throws Exception;
+    }
+    
+    // Time per row of the fastest measured round, in nanoseconds (the minimum filters out GC pauses)
+    private static double measure(Round round) throws Exception {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            round.run();
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            round.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return (double) best / ROWS;
+    }
+    
+    private static int scanOnly(String sql) throws SQLException {
+        int rows = 0;
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            SqlDateCodec.setDate(pstmt, 1, FIRST);
+            SqlDateCodec.setDate(pstmt, 2, LAST);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    rows++;
+                }
+            }
+        }
+        return rows;
+    }
+    
+    private static List<Appointment> mapByName() throws SQLException {
+        List<Appointment> appointments = new ArrayList<>();
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(BY_NAME_SQL)) {
+            SqlDateCodec.setDate(pstmt, 1, FIRST);
+            SqlDateCodec.setDate(pstmt, 2, LAST);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Appointment appointment = new Appointment();
+                    appointment.setAppointmentId(rs.getInt("appointment_id"));
+                    appointment.setPatientId(rs.getInt("patient_id"));
+                    appointment.setDoctorId(rs.getInt("doctor_id"));
+                    appointment.setDate(SqlDateCodec.getDate(rs, "date"));
+                    appointment.setStartTime(SqlDateCodec.getTime(rs, "start_time"));
+                    appointment.setEndTime(SqlDateCodec.getTime(rs, "end_time"));
+                    appointment.setStatus(rs.getString("status"));
+                    appointment.setReason(rs.getString("reason"));
+                    appointment.setNotes(rs.getString("notes"));
+                    appointment.setCreatedAt(SqlDateCodec.getTimestampDate(rs, "created_at"));
+                    appointment.setUpdatedAt(SqlDateCodec.getTimestampDate(rs, "updated_at"));
+                    appointment.setSeriesId(rs.getInt("series_id"));
+                    appointment.setPatientName(rs.getString("patient_name"));
+                    appointment.setDoctorName(rs.getString("doctor_name"));
+                    appointments.add(appointment);
+                }
+            }
+        }
+        return appointments;
+    }
+    
+    private static boolean sameAppointment(Appointment a, Appointment b) {
+        return a.getAppointmentId() == b.getAppointmentId() && a.getPatientId() == b.getPatientId()
+                && a.getDoctorId() == b.getDoctorId() && a.getEpochDay() == b.getEpochDay()
+                && a.getStartMinute() == b.getStartMinute() && a.getEndMinute() == b.getEndMinute()
+                && a.getAppointmentStatus() == b.getAppointmentStatus() && a.getReason().equals(b.getReason())
+                && a.getCreatedAt().equals(b.getCreatedAt()) && a.getPatientName().equals(b.getPatientName())
+                && a.getDoctorName().equals(b.getDoctorName());
+    }
+    
+    private static void insertRows() throws SQLException {
+        Random random = new Random(11);
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement()) {
+            conn.setAutoCommit(false);
+            
+            for (int i = 1; i <= DOCTORS; i++) {
+                stmt.execute("INSERT INTO users (user_id, username, password_hash, password_salt, first_name, " +
+                             "last_name, role, created_at, updated_at) " +
+                             "VALUES (" + i + ", 'doctor" + i + "', '', '', 'Doc', 'Tor" + i + "', 'doctor', 0, 0)");
+                stmt.execute("INSERT INTO doctors (doctor_id, user_id, first_name, last_name, specialization, " +
+                             "created_at, updated_at) VALUES (" + i + ", " + i + ", 'Doc', 'Tor" + i + "', 'General', 0, 0)");
+            }
+            
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "INSERT INTO patients (patient_id, first_name, last_name, date_of_birth, gender, created_at, updated_at) " +
+                    "VALUES (?, 'Pat', ?, 0, 'F', 0, 0)")) {
+                for (int i = 1; i <= PATIENTS; i++) {
+                    pstmt.setInt(1, i);
+                    pstmt.setString(2, "Ient" + i);
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+            }
+            
+            // With SELECT a.* the lookup of "patient_name" finds the stored column before the joined
+            // alias, so the stored names match the joined ones and both mappers read the same strings
+            String sql = "INSERT INTO appointments (patient_id, patient_name, doctor_id, doctor_name, date, " +
+                         "start_time, end_time, status, reason, notes, created_at, updated_at) " +
+                         "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, '', ?, ?)";
+            String[] statuses = {"scheduled", "completed", "cancelled"};
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                for (int i = 0; i < ROWS; i++) {
+                    LocalTime start = LocalTime.of(8, 0).plusMinutes(30L * random.nextInt(20));
+                    int patientId = 1 + random.nextInt(PATIENTS);
+                    int doctorId = 1 + random.nextInt(DOCTORS);
+                    pstmt.setInt(1, patientId);
+                    pstmt.setString(2, "Pat Ient" + patientId);
+                    pstmt.setInt(3, doctorId);
+                    pstmt.setString(4, "Doc Tor" + doctorId);
+                    SqlDateCodec.setDate(pstmt, 5, FIRST.plusDays(random.nextInt(365)));
+                    SqlDateCodec.setTime(pstmt, 6, start);
+                    SqlDateCodec.setTime(pstmt, 7, start.plusMinutes(30));
+                    pstmt.setString(8, statuses[random.nextInt(statuses.length)]);
+                    pstmt.setString(9, "Reason " + random.nextInt(40));
+                    SqlDateCodec.setNow(pstmt, 10);
+                    SqlDateCodec.setNow(pstmt, 11);
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+            }
+            conn.commit();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.patientmanagement.test;
+
+import com.patientmanagement.model.Appointment;
+import com.patientmanagement.model.AppointmentRow;
+import com.patientmanagement.model.AppointmentStatus;
+import com.patientmanagement.model.Patient;
+import com.patientmanagement.model.PatientRow;
+import com.patientmanagement.model.dao.AppointmentDAO;
+import com.patientmanagement.model.dao.PatientDAO;
+import com.patientmanagement.util.DatabaseUtil;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * Test that the list projections PatientRow and AppointmentRow carry the same values as the
+ * full Patient and Appointment, and that the appointment rows are filtered by date and status
+ */
+public class RowProjectionTest {
+    
+    private static final LocalDate DATE = LocalDate.of(2030, 5, 6);
+    
+    public static void main(String[] args) throws Exception {
+        System.out.println("Starting Row Projection Test");
+        System.out.println("============================");
+        
+        // Use a throwaway database file so the test never touches real data
+        File dbFile = File.createTempFile("rows", ".db");
+        dbFile.deleteOnExit();
+        System.setProperty("patientmanagement.db.url", "jdbc:sqlite:" + dbFile.getAbsolutePath());
+        DatabaseUtil.initializeDatabase();
+        
+        execute("INSERT INTO users (user_id, username, password_hash, password_salt, first_name, last_name, " +
+                "role, created_at, updated_at) VALUES (1, 'house', '', '', 'Greg', 'House', 'doctor', 0, 0)");
+        execute("INSERT INTO doctors (doctor_id, user_id, first_name, last_name, specialization, created_at, updated_at) " +
+                "VALUES (1, 1, 'Greg', 'House', 'Diagnostics', 0, 0)");
+        
+        PatientDAO patientDAO = new PatientDAO();
+        Patient ray = newPatient("Bob", "Ray", "555-0101", "bob@example.com");
+        Patient lee = newPatient("Ann", "Lee", "555-0102", null);
+        patientDAO.createPatient(ray);
+        patientDAO.createPatient(lee);
+        
+        // Rows come ordered by last name and match the full patients
+        List<PatientRow> patientRows = patientDAO.getPatientRows();
+        boolean patients = patientRows.size() == 2
+                && patientRows.get(0).getPatientId() == lee.getPatientId()
+                && sameValues(patientRows.get(0), patientDAO.getPatientById(lee.getPatientId()))
+                && sameValues(patientRows.get(1), patientDAO.getPatientById(ray.getPatientId()));
+        System.out.println("Patient Row Test: " + (patients ? "PASSED" : "FAILED"));
+        
+        AppointmentDAO appointmentDAO = new AppointmentDAO();
+        Appointment morning = newAppointment(lee, DATE, 9, "Checkup");
+        Appointment afternoon = newAppointment(ray, DATE, 14, "Follow-up");
+        Appointment nextDay = newAppointment(lee, DATE.plusDays(1), 10, "Results");
+        appointmentDAO.createAppointment(morning);
+        appointmentDAO.createAppointment(afternoon);
+        appointmentDAO.createAppointment(nextDay);
+        afternoon.markAsCompleted();
+        appointmentDAO.updateAppointment(afternoon);
+        
+        // Rows come ordered by date and time and match the full appointments
+        List<AppointmentRow> all = appointmentDAO.getAppointmentRows(null, null);
+        boolean rows = all.size() == 3
+                && sameValues(all.get(0), appointmentDAO.getAppointmentById(morning.getAppointmentId()))
+                && sameValues(all.get(1), appointmentDAO.getAppointmentById(afternoon.getAppointmentId()))
+                && sameValues(all.get(2), appointmentDAO.getAppointmentById(nextDay.getAppointmentId()))
+                && all.get(0).getPatientName() == all.get(2).getPatientName();
+        System.out.println("Appointment Row Test: " + (rows ? "PASSED" : "FAILED"));
+        
+        List<AppointmentRow> onDate = appointmentDAO.getAppointmentRows(DATE, null);
+        List<AppointmentRow> completed = appointmentDAO.getAppointmentRows(null, AppointmentStatus.COMPLETED);
+        List<AppointmentRow> scheduledOnDate = appointmentDAO.getAppointmentRows(DATE, AppointmentStatus.SCHEDULED);
+        boolean filtered = onDate.size() == 2
+                && completed.size() == 1 && completed.get(0).getAppointmentId() == afternoon.getAppointmentId()
+                && scheduledOnDate.size() == 1 && scheduledOnDate.get(0).getAppointmentId() == morning.getAppointmentId()
+                && scheduledOnDate.get(0).isScheduled();
+        System.out.println("Appointment Row Filter Test: " + (filtered ? "PASSED" : "FAILED"));
+        
+        System.out.println("Row Projection Test Completed");
+    }
+    
+    private static boolean sameValues(PatientRow row, Patient patient) {
+        return patient != null && row.getPatientId() == patient.getPatientId()
+                && row.getFullName().equals(patient.getFirstName() + " " + patient.getLastName())
+                && row.getDateOfBirth().equals(patient.getDateOfBirth())
+                && row.getGender().equals(patient.getGender())
+                && row.getPhone().equals(patient.getPhone())
+                && (row.getEmail() == null ? patient.getEmail() == null : row.getEmail().equals(patient.getEmail()));
+    }
+    
+    private static boolean sameValues(AppointmentRow row, Appointment appointment) {
+        return appointment != null && row.getAppointmentId() == appointment.getAppointmentId()
+                && row.getDate().equals(appointment.getDate())
+                && row.getStartTime().equals(appointment.getStartTime())
+                && row.getPatientName().equals(appointment.getPatientName())
+                && row.getDoctorName().equals(appointment.getDoctorName())
+                && row.getReason().equals(appointment.getReason())
+                && row.getStatus() == appointment.getAppointmentStatus();
+    }
+    
+    private static Patient newPatient(String firstName, String lastName, String phone, String email) {
+        Patient patient = new Patient();
+        patient.setFirstName(firstName);
+        patient.setLastName(lastName);
+        patient.setDateOfBirth(LocalDate.of(1980, 1, 1));
+        patient.setGender("F");
+        patient.setPhone(phone);
+        patient.setEmail(email);
+        return patient;
+    }
+    
+    private static Appointment newAppointment(Patient patient, LocalDate date, int hour, String reason) {
+        Appointment appointment = new Appointment();
+        appointment.setPatientId(patient.getPatientId());
+        appointment.setDoctorId(1);
+        appointment.setDate(date);
+        appointment.setStartTime(LocalTime.of(hour, 0));
+        appointment.setEndTime(LocalTime.of(hour, 30));
+        appointment.setReason(reason);
+        return appointment;
+    }
+    
+    private static void execute(String sql) throws Exception {
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.patientmanagement.test;
+
+import com.patientmanagement.scheduling.Availability;
+import com.patientmanagement.scheduling.DayBitmap;
+import com.patientmanagement.scheduling.SchedulingIndex;
+import com.patientmanagement.scheduling.SlotFinder;
+import com.patientmanagement.scheduling.TimeSlot;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Test the day bitmaps and the free-slot finder, and that a month-ahead search
+ * stays well below a millisecond once the index is loaded
+ */
+public class SlotFinderTest {
+    
+    private static final int DOCTOR_ID = 1;
+    private static final int MONTH_DAYS = 30;
+    private static final int WARMUP_ROUNDS = 20_000;
+    private static final int MEASURED_ROUNDS = 20_000;
+    
+    public static void main(String[] args) {
+        System.out.println("Starting Slot Finder Test");
+        System.out.println("=========================");
+        
+        testDayBitmap();
+        testSlotFinder();
+        testMonthAheadSearch();
+        
+        System.out.println("Slot Finder Test Completed");
+    }
+    
+    private static void testDayBitmap() {
+        // Ranges crossing a word boundary (slot 64 is 05:20)
+        long[] bits = DayBitmap.newDay();
+        DayBitmap.setRange(bits, 60, 70);
+        boolean ranges = DayBitmap.isRangeSet(bits, 60, 70) && !DayBitmap.isRangeSet(bits, 59, 70)
+                && !DayBitmap.isRangeSet(bits, 60, 71) && DayBitmap.isRangeClear(bits, 0, 60)
+                && DayBitmap.isRangeClear(bits, 70, DayBitmap.SLOTS_PER_DAY) && DayBitmap.cardinality(bits) == 10;
+        DayBitmap.clearRange(bits, 62, 66);
+        ranges &= DayBitmap.cardinality(bits) == 6 && !DayBitmap.isSet(bits, 64) && DayBitmap.isSet(bits, 66);
+        System.out.println("Bitmap Range Test: " + (ranges ? "PASSED" : "FAILED"));
+        
+        boolean times = DayBitmap.slotOf(LocalTime.of(9, 7)) == 109
+                && DayBitmap.endSlotOf(LocalTime.of(9, 7)) == 110
+                && DayBitmap.endSlotOf(LocalTime.of(9, 10)) == 110
+                && DayBitmap.endSlotOf(LocalTime.MIDNIGHT) == DayBitmap.SLOTS_PER_DAY
+                && DayBitmap.timeOf(110).equals(LocalTime.of(9, 10));
+        System.out.println("Slot Conversion Test: " + (times ? "PASSED" : "FAILED"));
+        
+        long[] working = DayBitmap.newDay();
+        long[] busy = DayBitmap.newDay();
+        DayBitmap.setRange(working, 96, 216);
+        DayBitmap.setRange(busy, 120, 126);
+        long[] free = DayBitmap.free(working, busy, DayBitmap.newDay());
+        boolean difference = DayBitmap.cardinality(free) == 114 && DayBitmap.isRangeClear(free, 120, 126);
+        System.out.println("Working Minus Busy Test: " + (difference ? "PASSED" : "FAILED"));
+    }
+    
+    private static void testSlotFinder() {
+        LocalDate day = LocalDate.of(2030, 3, 4);
+        SchedulingIndex index = new SchedulingIndex(day, day.plusDays(1));
+        // Clinic hours are 08:00-18:00; 08:00-09:00 and 09:30-10:15 are booked
+        index.addBooking(DOCTOR_ID, day, LocalTime.of(8, 0), LocalTime.of(9, 0));
+        index.addBooking(DOCTOR_ID, day, LocalTime.of(9, 30), LocalTime.of(10, 15));
+        SlotFinder finder = new SlotFinder(index);
+        
+        List<TimeSlot> slots = finder.findFreeSlots(DOCTOR_ID, Availability.CLINIC_HOURS, day, day.plusDays(1),
+                                                    30, 3, null);
+        boolean next = slots.size() == 3
+                && slots.get(0).getStartTime().equals(LocalTime.of(9, 0))
+                && slots.get(1).getStartTime().equals(LocalTime.of(10, 30))
+                && slots.get(2).getStartTime().equals(LocalTime.of(11, 0));
+        System.out.println("Next Free Slots Test: " + (next ? "PASSED" : "FAILED"));
+        
+        // A 45 minute appointment no longer fits at 09:00
+        List<LocalTime> starts = finder.freeStartTimes(DOCTOR_ID, Availability.CLINIC_HOURS, day, 45, null);
+        boolean duration = !starts.contains(LocalTime.of(9, 0)) && starts.get(0).equals(LocalTime.of(10, 30))
+                && starts.get(starts.size() - 1).equals(LocalTime.of(17, 0));
+        System.out.println("Duration Fit Test: " + (duration ? "PASSED" : "FAILED"));
+        
+        List<LocalTime> ends = finder.freeEndTimes(DOCTOR_ID, Availability.CLINIC_HOURS, day, LocalTime.of(9, 0));
+        System.out.println("Free End Times Test: "
+                + (ends.equals(Arrays.asList(LocalTime.of(9, 30))) ? "PASSED" : "FAILED"));
+        
+        // notBefore skips earlier times on its day, and whole days before it
+        List<LocalTime> afterNoon = finder.freeStartTimes(DOCTOR_ID, Availability.CLINIC_HOURS, day, 30,
+                                                          LocalDateTime.of(day, LocalTime.of(12, 10)));
+        List<LocalTime> pastDay = finder.freeStartTimes(DOCTOR_ID, Availability.CLINIC_HOURS, day, 30,
+                                                        LocalDateTime.of(day.plusDays(1), LocalTime.NOON));
+        boolean notBefore = afterNoon.get(0).equals(LocalTime.of(12, 30)) && pastDay.isEmpty();
+        System.out.println("Not Before Test: " + (notBefore ? "PASSED" : "FAILED"));
+        
+        // Outside the working hours nothing is free
+        List<TimeSlot> none = finder.findFreeSlots(DOCTOR_ID, date -> DayBitmap.empty(), day, day.plusDays(1),
+                                                   30, 10, null);
+        System.out.println("No Working Hours Test: " + (none.isEmpty() ? "PASSED" : "FAILED"));
+    }
+    
+    private static void testMonthAheadSearch() {
+        LocalDate from = LocalDate.of(2030, 3, 1);
+        LocalDate to = from.plusDays(MONTH_DAYS - 1);
+        SchedulingIndex index = new SchedulingIndex(from, to);
+        
+        // Calendar about 75% booked in 30 minute appointments
+        Random random = new Random(11);
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            for (int slot = 0; slot < 20; slot++) {
+                if (random.nextInt(4) != 0) {
+                    LocalTime start = LocalTime.of(8, 0).plusMinutes(30L * slot);
+                    index.addBooking(DOCTOR_ID, date, start, start.plusMinutes(30));
+                }
+            }
+        }
+        SlotFinder finder = new SlotFinder(index);
+        
+        // Scan the whole month rather than stopping at the first few slots
+        int found = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            found = finder.findFreeSlots(DOCTOR_ID, Availability.CLINIC_HOURS, from, to, 30,
+                                         Integer.MAX_VALUE, null).size();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            found = finder.findFreeSlots(DOCTOR_ID, Availability.CLINIC_HOURS, from, to, 30,
+                                         Integer.MAX_VALUE, null).size();
+        }
+        double micros = (System.nanoTime() - start) / 1000.0 / MEASURED_ROUNDS;
+        
+        System.out.printf("Month-ahead search: %d free slots in %.1f us%n", found, micros);
+        System.out.println("Month-Ahead Search Under 1 ms Test: " + (found > 0 && micros < 1000 ? "PASSED" : "FAILED"));
+    }
+}
@@ -0,0 +1,157 @@
+package com.patientmanagement.test;
+
+import com.patientmanagement.metrics.SlowQueryLog;
+import com.patientmanagement.model.dao.DaoExecutor;
+import com.patientmanagement.util.DatabaseUtil;
+import com.patientmanagement.util.RotatingFile;
+import com.patientmanagement.util.StatementTrace;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Test that DAO calls over the threshold are logged with their SQL, parameter types and query
+ * plan, that repeats are de-duplicated, and that the log rotates
+ */
+public class SlowQueryLogTest {
+    
+    private static final int ROWS = 50_000;
+    
+    private static final String SEARCH_REASON = "SELECT COUNT(*) FROM appointments WHERE reason LIKE ?";
+    
+    public static void main(String[] args) throws Exception {
+        System.out.println("Starting Slow Query Log Test");
+        System.out.println("============================");
+        
+        // Use a throwaway database and log so the test never touches real data
+        File dbFile = File.createTempFile("slowquery", ".db");
+        dbFile.deleteOnExit();
+        Path log = Files.createTempFile("slow-queries", ".log");
+        log.toFile().deleteOnExit();
+        System.setProperty("patientmanagement.db.url", "jdbc:sqlite:" + dbFile.getAbsolutePath());
+        System.setProperty("patientmanagement.slowQuery.file", log.toString());
+        DatabaseUtil.initializeDatabase();
+        insertRows();
+        
+        // Statements on a connection are traced with the types of their parameters
+        List<StatementTrace> traces;
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT * FROM patients WHERE last_name = ? AND patient_id > ?")) {
+            pstmt.setString(1, "Smith");
+            pstmt.setInt(2, 10);
+            pstmt.executeQuery().close();
+            pstmt.executeQuery().close();
+            traces = DatabaseUtil.getStatementTraces(conn);
+        }
+        boolean traced = traces.size() == 1 && traces.get(0).getExecutions() == 2
+                && "(TEXT(5), INTEGER)".equals(traces.get(0).getParameterShapes());
+        System.out.println("Statement Trace Test: " + (traced ? "PASSED" : "FAILED"));
+        
+        // A fast call stays out of the log
+        SlowQueryLog.setThresholdMillis(10_000);
+        countByReason("test.fastEnough", "%visit%");
+        SlowQueryLog.flush();
+        System.out.println("Below Threshold Test: " + (Files.size(log) == 0 ? "PASSED" : "FAILED"));
+        
+        // A scan over all appointments goes over a 1 ms threshold
+        SlowQueryLog.setThresholdMillis(1);
+        countByReason("test.searchReason", "%Confidential%");
+        SlowQueryLog.flush();
+        String text = new String(Files.readAllBytes(log));
+        System.out.println(text);
+        boolean logged = text.contains("test.searchReason") && text.contains(SEARCH_REASON)
+                && text.contains("parameters: (TEXT(14))") && text.contains("SCAN appointments")
+                && text.contains("<-- full scan") && !text.contains("Confidential");
+        System.out.println("Slow Call Logged Test: " + (logged ? "PASSED" : "FAILED"));
+        
+        // Repeats of the same statements are counted, not written again
+        for (int i = 0; i < 5; i++) {
+            countByReason("test.searchReason", "%other%");
+        }
+        SlowQueryLog.flush();
+        long entries = Files.readAllLines(log).stream().filter(line -> line.contains(" test.searchReason ")).count();
+        boolean deduplicated = entries == 1 && SlowQueryLog.getSuppressedCount() == 5 && SlowQueryLog.getLoggedCount() == 1;
+        System.out.println("De-duplication Test: " + (deduplicated ? "PASSED" : "FAILED"));
+        
+        // An indexed lookup that is slow for another reason shows its index in the plan
+        DaoExecutor.call("test.slowLookup", conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement("SELECT * FROM appointments WHERE appointment_id = ?")) {
+                pstmt.setInt(1, 42);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    pause(5);
+                    return rs.next();
+                }
+            }
+        });
+        SlowQueryLog.flush();
+        List<String> lines = Files.readAllLines(log);
+        int entry = lines.size() - 1;
+        while (entry > 0 && !lines.get(entry).contains("test.slowLookup")) {
+            entry--;
+        }
+        List<String> lookup = lines.subList(entry, lines.size());
+        boolean indexed = lookup.stream().anyMatch(line -> line.contains("plan: SEARCH appointments USING INTEGER PRIMARY KEY"))
+                && lookup.stream().noneMatch(line -> line.contains("full scan"));
+        System.out.println("Index Plan Test: " + (indexed ? "PASSED" : "FAILED"));
+        
+        // The log keeps a bounded number of rotated files
+        Path rotating = Files.createTempFile("rotating", ".log");
+        RotatingFile file = new RotatingFile(rotating, 100, 2);
+        for (int i = 0; i < 10; i++) {
+            file.append(Arrays.asList("line " + i + " long enough to fill the file after a few appends"));
+        }
+        boolean rotated = Files.exists(Path.of(rotating + ".1")) && Files.exists(Path.of(rotating + ".2"))
+                && !Files.exists(Path.of(rotating + ".3")) && Files.readAllLines(rotating).contains(
+                    "line 9 long enough to fill the file after a few appends");
+        System.out.println("Log Rotation Test: " + (rotated ? "PASSED" : "FAILED"));
+        for (int i = 0; i <= 2; i++) {
+            Files.deleteIfExists(Path.of(rotating + (i == 0 ? "" : "." + i)));
+        }
+        
+        System.out.println("Slow Query Log Test Completed");
+    }
+    
+    private static int countByReason(String operation, String pattern) {
+        return DaoExecutor.call(operation, conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(SEARCH_REASON)) {
+                pstmt.setString(1, pattern);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    return rs.getInt(1);
+                }
+            }
+        });
+    }
+    
+    private static void pause(long millis) throws SQLException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new SQLException(e);
+        }
+    }
+    
+    private static void insertRows() throws Exception {
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(
+                 "INSERT INTO appointments (patient_id, patient_name, doctor_id, doctor_name, date, start_time, " +
+                 "end_time, status, reason, notes, created_at, updated_at) " +
+                 "VALUES (?, 'Pat Ient', ?, 'Doc Tor', ?, 540, 570, 'completed', 'Follow-up visit', '', 0, 0)")) {
+            conn.setAutoCommit(false);
+            for (int i = 0; i < ROWS; i++) {
+                pstmt.setInt(1, 1 + i % 500);
+                pstmt.setInt(2, 1 + i % 20);
+                pstmt.setInt(3, 20000 + i % 1000);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+            conn.commit();
+        }
+    }
+}
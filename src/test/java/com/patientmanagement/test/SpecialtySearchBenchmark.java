@@ -0,0 +1,99 @@
+package com.patientmanagement.test;
+
+import com.patientmanagement.model.Doctor;
+import com.patientmanagement.scheduling.SchedulingIndex;
+import com.patientmanagement.scheduling.SlotFinder;
+import com.patientmanagement.scheduling.SpecialtySlotSearch;
+import com.patientmanagement.scheduling.TimeSlot;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmark for the any-doctor-of-a-specialty search: 50 doctors, 90 days,
+ * calendars about 75% booked. Compares the fork-join search with a sequential scan.
+ */
+public class SpecialtySearchBenchmark {
+    
+    private static final int DOCTORS = 50;
+    private static final int DAYS = 90;
+    private static final int WARMUP_ROUNDS = 2000;
+    private static final int MEASURED_ROUNDS = 2000;
+    private static final int LIMIT = 20;
+    
+    public static void main(String[] args) {
+        System.out.println("Starting Specialty Search Benchmark");
+        System.out.println("===================================");
+        
+        LocalDate from = LocalDate.now().plusDays(1);
+        LocalDate to = from.plusDays(DAYS - 1);
+        List<Doctor> doctors = createDoctors();
+        SchedulingIndex index = createIndex(doctors, from, to);
+        
+        // Both strategies must agree on the ranking
+        List<TimeSlot> parallel = SpecialtySlotSearch.search(doctors, index, from, to, 30, LIMIT, null);
+        List<TimeSlot> sequential = SpecialtySlotSearch.searchSequential(doctors, index, from, to, 30, LIMIT, null);
+        boolean sameResult = parallel.toString().equals(sequential.toString()) && parallel.size() == LIMIT;
+        System.out.println("Parallel/Sequential Agreement Test: " + (sameResult ? "PASSED" : "FAILED"));
+        
+        boolean ranked = true;
+        for (int i = 1; i < parallel.size(); i++) {
+            ranked &= parallel.get(i - 1).compareTo(parallel.get(i)) <= 0;
+        }
+        System.out.println("Ranking Order Test: " + (ranked ? "PASSED" : "FAILED"));
+        
+        // Deep search: ask for many slots so every doctor's whole window is scanned
+        int deepLimit = DOCTORS * DAYS;
+        System.out.printf("Sequential search, top %d: %.1f us%n", LIMIT,
+                          measure(() -> SpecialtySlotSearch.searchSequential(doctors, index, from, to, 30, LIMIT, null)));
+        System.out.printf("Parallel search, top %d:   %.1f us%n", LIMIT,
+                          measure(() -> SpecialtySlotSearch.search(doctors, index, from, to, 30, LIMIT, null)));
+        System.out.printf("Sequential search, top %d: %.1f us%n", deepLimit,
+                          measure(() -> SpecialtySlotSearch.searchSequential(doctors, index, from, to, 30, deepLimit, null)));
+        System.out.printf("Parallel search, top %d:   %.1f us%n", deepLimit,
+                          measure(() -> SpecialtySlotSearch.search(doctors, index, from, to, 30, deepLimit, null)));
+        System.out.println("Specialty Search Benchmark Completed");
+    }
+    
+    private static List<Doctor> createDoctors() {
+        List<Doctor> doctors = new ArrayList<>();
+        for (int i = 1; i <= DOCTORS; i++) {
+            Doctor doctor = new Doctor();
+            doctor.setDoctorId(i);
+            doctor.setSpecialty("Cardiology");
+            doctor.setAvailabilitySchedule(i % 2 == 0 ? "MON-FRI 08:00-12:00, 13:00-17:00" : "MON-SAT 09:00-18:00");
+            doctors.add(doctor);
+        }
+        return doctors;
+    }
+    
+    private static SchedulingIndex createIndex(List<Doctor> doctors, LocalDate from, LocalDate to) {
+        Random random = new Random(7);
+        SchedulingIndex index = new SchedulingIndex(from, to);
+        for (Doctor doctor : doctors) {
+            for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+                for (int slot = 0; slot < 20; slot++) {
+                    if (random.nextInt(4) != 0) {
+                        LocalTime start = LocalTime.of(8, 0).plusMinutes((long) SlotFinder.DEFAULT_STEP_MINUTES * slot);
+                        index.addBooking(doctor.getDoctorId(), date, start, start.plusMinutes(30));
+                    }
+                }
+            }
+        }
+        return index;
+    }
+    
+    private static double measure(Runnable search) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            search.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            search.run();
+        }
+        return (System.nanoTime() - start) / 1000.0 / MEASURED_ROUNDS;
+    }
+}
@@ -0,0 +1,153 @@
+package com.patientmanagement.test;
+
+import com.patientmanagement.model.Appointment;
+import com.patientmanagement.model.DoctorOccupancy;
+import com.patientmanagement.model.dao.AppointmentDAO;
+import com.patientmanagement.model.dao.OccupancyDAO;
+import com.patientmanagement.model.dao.StatisticsDAO;
+import com.patientmanagement.util.DatabaseUtil;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * Test that migration 5 rewrites rows stored in the old encodings (java.sql.Date/Time millis,
+ * datetime('now') text) to the SqlDateCodec encoding and leaves the rollups consistent
+ */
+public class TemporalEncodingMigrationTest {
+    
+    private static final int LEGACY_ROWS = 1200;
+    private static final LocalDate DATE = LocalDate.of(2030, 3, 4);
+    
+    public static void main(String[] args) throws Exception {
+        System.out.println("Starting Temporal Encoding Migration Test");
+        System.out.println("=========================================");
+        
+        // Use a throwaway database file so the test never touches real data
+        File dbFile = File.createTempFile("temporal", ".db");
+        dbFile.deleteOnExit();
+        System.setProperty("patientmanagement.db.url", "jdbc:sqlite:" + dbFile.getAbsolutePath());
+        DatabaseUtil.initializeDatabase();
+        
+        insertLegacyRows();
+        DatabaseUtil.initializeDatabase();
+        testConvertedRows();
+        
+        // A run interrupted after converting every row must not convert them again when resumed
+        long before = checksum();
+        setUserVersion(4);
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE migration_progress (table_name TEXT PRIMARY KEY, last_key INTEGER NOT NULL)");
+            stmt.execute("INSERT INTO migration_progress SELECT 'appointments', MAX(appointment_id) FROM appointments");
+            stmt.execute("INSERT INTO migration_progress SELECT 'users', MAX(user_id) FROM users");
+        }
+        DatabaseUtil.initializeDatabase();
+        System.out.println("Resumed Migration Test: " + (checksum() == before ? "PASSED" : "FAILED"));
+        
+        // Rows written in the new encoding after the recorded progress, e.g. by the application
+        // between an interrupted run and its resumption, are left as they are
+        Appointment booked = new Appointment(0, 1, 99, DATE.plusDays(1), LocalTime.of(9, 5), LocalTime.of(9, 50),
+                                             "Scheduled", "", "");
+        new AppointmentDAO().bookAppointment(booked);
+        long withBooking = checksum();
+        setUserVersion(4);
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE migration_progress (table_name TEXT PRIMARY KEY, last_key INTEGER NOT NULL)");
+            stmt.execute("INSERT INTO migration_progress VALUES ('appointments', " + (LEGACY_ROWS / 2) + ")");
+        }
+        DatabaseUtil.initializeDatabase();
+        List<Appointment> rebooked = new AppointmentDAO().getConflictingAppointments(
+                99, DATE.plusDays(1), LocalTime.of(9, 0), LocalTime.of(10, 0), 0);
+        boolean idempotent = checksum() == withBooking && rebooked.size() == 1
+                && rebooked.get(0).getStartTime().equals(LocalTime.of(9, 5))
+                && rebooked.get(0).getEndTime().equals(LocalTime.of(9, 50));
+        System.out.println("Canonical Rows Unchanged Test: " + (idempotent ? "PASSED" : "FAILED"));
+        
+        System.out.println("Temporal Encoding Migration Test Completed");
+    }
+    
+    // Write rows the way the DAOs did before migration 5, then roll the schema version back
+    private static void insertLegacyRows() throws Exception {
+        String sql = "INSERT INTO appointments (patient_id, patient_name, doctor_id, doctor_name, date, " +
+                     "start_time, end_time, status, reason, notes, created_at, updated_at) " +
+                     "VALUES (?, '', ?, '', ?, ?, ?, 'scheduled', '', '', ?, ?)";
+        java.sql.Date created = java.sql.Date.valueOf(DATE.minusDays(10));
+        
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                for (int i = 0; i < LEGACY_ROWS; i++) {
+                    LocalTime start = LocalTime.of(8, 0).plusMinutes(15L * (i % 40));
+                    pstmt.setInt(1, 1 + i);
+                    pstmt.setInt(2, 1 + i / 40);
+                    pstmt.setDate(3, java.sql.Date.valueOf(DATE));
+                    pstmt.setTime(4, java.sql.Time.valueOf(start));
+                    pstmt.setTime(5, java.sql.Time.valueOf(start.plusMinutes(15)));
+                    pstmt.setDate(6, created);
+                    pstmt.setDate(7, created);
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+            }
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("INSERT INTO users (username, password_hash, password_salt, first_name, last_name, " +
+                             "role, created_at, updated_at) " +
+                             "VALUES ('legacy', '', '', 'Legacy', 'User', 'admin', datetime('now'), datetime('now'))");
+            }
+            conn.commit();
+        }
+        setUserVersion(4);
+    }
+    
+    private static void testConvertedRows() throws Exception {
+        List<Appointment> slot = new AppointmentDAO().getConflictingAppointments(
+                1, DATE, LocalTime.of(8, 15), LocalTime.of(8, 30), 0);
+        boolean appointments = slot.size() == 1 && slot.get(0).getStartTime().equals(LocalTime.of(8, 15))
+                && slot.get(0).getEndTime().equals(LocalTime.of(8, 30))
+                && DATE.minusDays(10).equals(slot.get(0).getCreatedAt());
+        System.out.println("Appointment Columns Test: " + (appointments ? "PASSED" : "FAILED"));
+        
+        long now = Instant.now().getEpochSecond();
+        long userCreated = queryLong("SELECT created_at FROM users WHERE username = 'legacy'");
+        System.out.println("User Timestamp Test: " + (Math.abs(userCreated - now) < 600 ? "PASSED" : "FAILED"));
+        
+        List<DoctorOccupancy> occupancy = new OccupancyDAO().getDoctorOccupancy(1, DATE, DATE);
+        boolean occupancyOk = occupancy.size() == 1 && occupancy.get(0).getBookedMinutes() == 40 * 15;
+        System.out.println("Occupancy Rebuilt Test: " + (occupancyOk ? "PASSED" : "FAILED"));
+        
+        boolean consistent = new StatisticsDAO().consistencyCheck().isEmpty();
+        System.out.println("Statistics Rebuilt Test: " + (consistent ? "PASSED" : "FAILED"));
+        
+        long legacy = queryLong("SELECT COUNT(*) FROM appointments WHERE date != " + DATE.toEpochDay() +
+                                " OR start_time NOT BETWEEN 0 AND 1439 OR typeof(created_at) != 'integer'");
+        System.out.println("No Legacy Values Test: " + (legacy == 0 ? "PASSED" : "FAILED (" + legacy + ")"));
+    }
+    
+    private static long checksum() throws Exception {
+        return queryLong("SELECT SUM(date + start_time * 3 + end_time * 7 + created_at % 100003) FROM appointments");
+    }
+    
+    private static long queryLong(String sql) throws Exception {
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getLong(1) : -1;
+        }
+    }
+    
+    private static void setUserVersion(int version) throws Exception {
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA user_version = " + version);
+        }
+    }
+}